@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.api;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import fr.inria.eventcloud.api.exceptions.MalformedSparqlQueryException;
+import fr.inria.eventcloud.api.responses.SparqlResponse;
+
+/**
+ * Defines non-blocking variants of the operations from {@link PutGetApi}.
+ * Each method returns as soon as the request has been dispatched and the
+ * future which is returned is completed once the final response is received.
+ * Consequently, no thread is blocked while a request is in flight. Futures
+ * fail with a {@link java.util.concurrent.TimeoutException} when no response
+ * is received in time.
+ * <p>
+ * Futures are not serializable, these operations are thus not part of the
+ * component interfaces of the proxies and are only available to callers that
+ * are co-located with the proxy implementation.
+ * 
+ * @author lpellegr
+ */
+public interface AsyncPutGetApi {
+
+    /**
+     * Inserts the specified quadruple into the EventCloud.
+     * 
+     * @param quad
+     *            the quadruple to insert into the EventCloud.
+     * 
+     * @return a future completed with {@code true} once the quadruple has been
+     *         inserted.
+     */
+    ListenableFuture<Boolean> addAsync(Quadruple quad);
+
+    /**
+     * Loads the specified collection of quadruples into the EventCloud in
+     * parallel.
+     * 
+     * @param quads
+     *            the quadruples to insert into the EventCloud.
+     * 
+     * @return a future completed with {@code true} once all the quadruples
+     *         have been inserted.
+     */
+    ListenableFuture<Boolean> addAsync(Collection<Quadruple> quads);
+
+    /**
+     * Deletes the specified quadruple from the EventCloud.
+     * 
+     * @param quad
+     *            the quadruple to remove from the EventCloud.
+     * 
+     * @return a future completed with {@code true} once the quadruple has been
+     *         removed.
+     */
+    ListenableFuture<Boolean> deleteAsync(Quadruple quad);
+
+    /**
+     * Deletes the specified quadruples from the EventCloud.
+     * 
+     * @param quads
+     *            the collection of quadruples to remove from the EventCloud.
+     * 
+     * @return a future completed with {@code true} once all the quadruples
+     *         have been removed.
+     */
+    ListenableFuture<Boolean> deleteAsync(Collection<Quadruple> quads);
+
+    /**
+     * Deletes from the EventCloud the quadruples that match the specified
+     * quadruple pattern.
+     * 
+     * @param quadPattern
+     *            the quadruple pattern that is used to remove the quadruples.
+     * 
+     * @return a future completed with the quadruples which have been removed
+     *         from the EventCloud according to the quadruple pattern.
+     */
+    ListenableFuture<List<Quadruple>> deleteAsync(QuadruplePattern quadPattern);
+
+    /**
+     * Returns the number of quadruples that match the specified
+     * {@code quadPattern}.
+     * 
+     * @param quadPattern
+     *            the quadruple pattern to use.
+     * 
+     * @return a future completed with the number of quadruples that match the
+     *         specified {@code quadPattern}.
+     */
+    ListenableFuture<Long> countAsync(QuadruplePattern quadPattern);
+
+    /**
+     * Returns the number of solutions for the specified {@code sparqlQuery}.
+     * 
+     * @param sparqlQuery
+     *            the sparqlQuery to execute.
+     * 
+     * @return a future completed with the number of solutions for the
+     *         specified {@code sparqlQuery}.
+     */
+    ListenableFuture<Long> countAsync(String sparqlQuery)
+            throws MalformedSparqlQueryException;
+
+    /**
+     * Finds all the quadruples that match the specified quadruple pattern.
+     * 
+     * @param quadPattern
+     *            the quadruple pattern to be tested.
+     * 
+     * @return a future completed with the quadruples that match the quadruple
+     *         pattern that has been specified.
+     */
+    ListenableFuture<List<Quadruple>> findAsync(QuadruplePattern quadPattern);
+
+    /**
+     * Executes on the EventCloud the specified SPARQL query. This SPARQL query
+     * can have any query form but DESCRIBE.
+     * 
+     * @param sparqlQuery
+     *            the SPARQL query to execute.
+     * 
+     * @return a future completed with a response according the query form
+     *         that has been executed.
+     */
+    ListenableFuture<SparqlResponse<?>> executeSparqlQueryAsync(String sparqlQuery)
+            throws MalformedSparqlQueryException;
+
+}
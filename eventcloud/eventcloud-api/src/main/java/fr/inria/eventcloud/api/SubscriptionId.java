@@ -16,6 +16,8 @@
  **/
 package fr.inria.eventcloud.api;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
@@ -69,6 +71,36 @@ public final class SubscriptionId extends UniqueId {
         return new SubscriptionId(decode(subscriptionId));
     }
 
+    /**
+     * Writes the subscription id to the specified {@code output} by using a
+     * fixed size binary encoding (16 bytes).
+     * 
+     * @param output
+     *            the output to write to.
+     * 
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeLong(this.value.getMostSignificantBits());
+        output.writeLong(this.value.getLeastSignificantBits());
+    }
+
+    /**
+     * Reads a subscription id written with {@link #writeTo(DataOutput)}.
+     * 
+     * @param input
+     *            the input to read from.
+     * 
+     * @return the subscription id read.
+     * 
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public static SubscriptionId readFrom(DataInput input) throws IOException {
+        return new SubscriptionId(new UUID(input.readLong(), input.readLong()));
+    }
+
     public static class SubscriptionIdExternalizer implements
             AdvancedExternalizer<SubscriptionId> {
 
@@ -78,15 +110,13 @@ public final class SubscriptionId extends UniqueId {
         public void writeObject(ObjectOutput output,
                                 SubscriptionId subscriptionId)
                 throws IOException {
-            output.writeLong(subscriptionId.value.getMostSignificantBits());
-            output.writeLong(subscriptionId.value.getLeastSignificantBits());
+            subscriptionId.writeTo(output);
         }
 
         @Override
         public SubscriptionId readObject(ObjectInput input) throws IOException,
                 ClassNotFoundException {
-            return new SubscriptionId(new UUID(
-                    input.readLong(), input.readLong()));
+            return readFrom(input);
         }
 
         @Override
@@ -41,10 +41,12 @@ import com.hp.hpl.jena.graph.Node;
 
 import fr.inria.eventcloud.api.Quadruple;
 import fr.inria.eventcloud.api.Quadruple.SerializationFormat;
+import fr.inria.eventcloud.configuration.EventCloudProperties;
 import fr.inria.eventcloud.datastore.QuadrupleIterator;
 import fr.inria.eventcloud.exceptions.EventCloudIdNotManaged;
 import fr.inria.eventcloud.messages.request.AddQuadrupleRequest;
 import fr.inria.eventcloud.overlay.can.SemanticCoordinate;
+import fr.inria.eventcloud.overlay.can.SemanticCoordinate.LoadBalancingDopingFunction;
 import fr.inria.eventcloud.utils.RDFReader;
 
 /**
@@ -60,6 +62,12 @@ public class LoadBalancingDopingFunctionBenchmark {
     @Parameter(names = {"-adf", "--apply-doping-function"}, description = "Apply doping function or not")
     private boolean applyDopingFunction = true;
 
+    @Parameter(names = {"-df", "--doping-function"}, description = "Doping function to apply (prefix-removal, reverse or identity), the configured one is used by default")
+    private String dopingFunction = null;
+
+    @Parameter(names = {"-dfcs", "--doping-function-cache-size"}, description = "Number of URI nodes whose doping result is memoized, 0 disables memoization")
+    private int dopingFunctionCacheSize = 0;
+
     @Parameter(names = {"-nr", "--nb-runs"}, description = "Number of times the test is performed")
     private int nbRuns = 5;
 
@@ -104,10 +112,13 @@ public class LoadBalancingDopingFunctionBenchmark {
 
     public void execute() {
         if (this.applyDopingFunction) {
+            final LoadBalancingDopingFunction function =
+                    this.createDopingFunction();
+
             this.action = new Action() {
                 @Override
                 public String perform(Node value) {
-                    return SemanticCoordinate.applyDopingFunction(value);
+                    return function.apply(value);
                 }
             };
         } else {
@@ -131,23 +142,33 @@ public class LoadBalancingDopingFunctionBenchmark {
                 new MicroBenchmark(
                         this.nbRuns, new MicroBenchmarkServiceAdapter() {
 
-                            private String result;
+                            // sum of the lengths of the values returned,
+                            // prevents the calls from being optimized away
+                            // without measuring string concatenations
+                            private long checksum;
 
                             @Override
                             public void run(StatsRecorder recorder)
                                     throws ProActiveException,
                                     EventCloudIdNotManaged {
+                                Action action =
+                                        LoadBalancingDopingFunctionBenchmark.this.action;
+
                                 Stopwatch stopwatch = Stopwatch.createStarted();
 
                                 for (Quadruple q : quadruples) {
-                                    this.result =
-                                            LoadBalancingDopingFunctionBenchmark.this.action.perform(q.getGraph());
-                                    this.result +=
-                                            LoadBalancingDopingFunctionBenchmark.this.action.perform(q.getSubject());
-                                    this.result +=
-                                            LoadBalancingDopingFunctionBenchmark.this.action.perform(q.getPredicate());
-                                    this.result +=
-                                            LoadBalancingDopingFunctionBenchmark.this.action.perform(q.getObject());
+                                    this.checksum +=
+                                            action.perform(q.getGraph())
+                                                    .length();
+                                    this.checksum +=
+                                            action.perform(q.getSubject())
+                                                    .length();
+                                    this.checksum +=
+                                            action.perform(q.getPredicate())
+                                                    .length();
+                                    this.checksum +=
+                                            action.perform(q.getObject())
+                                                    .length();
                                 }
 
                                 stopwatch.stop();
@@ -163,15 +184,54 @@ public class LoadBalancingDopingFunctionBenchmark {
                             @Override
                             public void teardown() throws Exception {
                                 super.teardown();
-                                System.out.println(this.result);
+                                System.out.println("Checksum: "
+                                        + this.checksum);
                             }
                         });
         microBenchmark.discardFirstRuns(this.discardFirstRuns);
         microBenchmark.showProgress();
         microBenchmark.execute();
 
-        System.out.println(microBenchmark.getStatsRecorder().getCategory(
-                "overall").getMean());
+        double mean =
+                microBenchmark.getStatsRecorder()
+                        .getCategory("overall")
+                        .getMean();
+
+        System.out.println("Average time per run: " + mean + " ms");
+        System.out.println("Average time per node: "
+                + (mean * 1e6 / (4 * quadruples.size())) + " ns");
+    }
+
+    private LoadBalancingDopingFunction createDopingFunction() {
+        // the configured function is rebuilt rather than taken from
+        // SemanticCoordinate so that memoization depends on -dfcs only
+        String dopingFunctionName = this.dopingFunction;
+
+        if (dopingFunctionName == null) {
+            dopingFunctionName =
+                    EventCloudProperties.LOAD_BALANCING_DOPING_FUNCTION.getValue();
+        }
+
+        LoadBalancingDopingFunction function;
+
+        if (dopingFunctionName.equals("prefix-removal")) {
+            function = SemanticCoordinate.createPrefixesRemovalDopingFunction();
+        } else if (dopingFunctionName.equals("reverse")) {
+            function = SemanticCoordinate.createReverseDopingFunction();
+        } else if (dopingFunctionName.equals("identity")) {
+            function = SemanticCoordinate.createIdentityDopingFunction();
+        } else {
+            throw new IllegalArgumentException("Unknown doping function: "
+                    + dopingFunctionName);
+        }
+
+        if (this.dopingFunctionCacheSize > 0) {
+            function =
+                    SemanticCoordinate.createMemoizingDopingFunction(
+                            function, this.dopingFunctionCacheSize);
+        }
+
+        return function;
     }
 
     private List<Quadruple> loadQuadruples() {
@@ -29,11 +29,14 @@ import com.beust.jcommander.ParameterException;
 import fr.inria.eventcloud.api.listeners.NotificationListenerType;
 import fr.inria.eventcloud.benchmarks.pubsub.PublishSubscribeBenchmark;
 import fr.inria.eventcloud.benchmarks.pubsub.SubscriptionType;
-import fr.inria.eventcloud.delayers.Delayer;
 
 /**
- * Benchmark aiming to assess the effect of using {@link Delayer}. Currently it
- * checks the impact for publish/subscribe only.
+ * Benchmark aiming to find the saturation point of the publish/subscribe
+ * layer. Publishers are run in open-loop mode at increasing publication rates
+ * (geometric ramp) until the throughput observed by the subscribers no longer
+ * follows the offered rate or the 99th percentile of the point-to-point
+ * latencies exceeds a threshold. The highest sustainable rate is then refined
+ * by bisection.
  * 
  * @author lpellegr
  */
@@ -51,11 +54,29 @@ public class FindBestPublicationRate {
     @Parameter(names = {"-ces", "--compound-event-size"}, description = "Number of quadruples per ce")
     private int compoundEventSize = 5;
 
-    @Parameter(names = {"-npmin", "--nb-publications-min"}, description = "Number of publications to publish initially")
-    private int nbPublicationsMin = 3000;
+    @Parameter(names = {"-np", "--nb-publications"}, description = "Number of publications to publish for each rate tested")
+    private int nbPublications = 3000;
 
-    @Parameter(names = {"-npmax", "--nb-publications-max"}, description = "Maximum number of publications to publish")
-    private int nbPublicationsMax = 30000;
+    @Parameter(names = {"-rmin", "--rate-min"}, description = "Initial number of publications per second emitted by each publisher")
+    private double rateMin = 100;
+
+    @Parameter(names = {"-rmax", "--rate-max"}, description = "Maximum number of publications per second emitted by each publisher")
+    private double rateMax = 100000;
+
+    @Parameter(names = {"-rf", "--rate-factor"}, description = "Factor applied to the publication rate between two steps of the ramp")
+    private double rateFactor = 2;
+
+    @Parameter(names = {"-bs", "--bisection-steps"}, description = "Number of bisection steps used to refine the saturation point")
+    private int bisectionSteps = 4;
+
+    @Parameter(names = {"--max-p99-latency"}, description = "Point-to-point latency (in ms) that the 99th percentile must not exceed for a rate to be sustainable")
+    private long maxP99Latency = 1000;
+
+    @Parameter(names = {"--min-throughput-ratio"}, description = "Minimum ratio between the throughput observed by subscribers and the offered publication rate for a rate to be sustainable")
+    private double minThroughputRatio = 0.95;
+
+    @Parameter(names = {"--poisson-arrivals"}, description = "Indicates whether publications follow a Poisson process instead of a constant rate")
+    private boolean poissonArrivals = false;
 
     @Parameter(names = {"-p", "--nb-peers"}, description = "The number of peers to inject into the P2P network")
     public int nbPeers = 1;
@@ -96,71 +117,124 @@ public class FindBestPublicationRate {
     }
 
     public void perform() {
-        boolean inc = true;
-        int bestPublicationNumber = this.nbPublicationsMin;
-        double bestThroughput =
-                this.executeOneIteration(this.nbPublicationsMin);
+        if (this.rateMin <= 0 || this.rateFactor <= 1) {
+            throw new IllegalArgumentException(
+                    "The minimum rate must be positive and the rate factor greater than 1");
+        }
 
-        while (this.nbPublicationsMin != this.nbPublicationsMax) {
-            int m = middle(this.nbPublicationsMin, this.nbPublicationsMax);
+        double sustainableRate = 0;
+        IterationResult sustainableResult = null;
+        double saturationRate = -1;
 
-            LOG.info(
-                    "Testing with m={}, {}, nbPublicationsMin={}, nbPublicationsMax={}, bestThroughput={}",
-                    m, inc
-                            ? "inc" : "dec", this.nbPublicationsMin,
-                    this.nbPublicationsMax, bestThroughput);
+        // geometric ramp until the saturation is reached
+        double rate = this.rateMin;
 
-            double throughput = this.executeOneIteration(m);
+        while (rate <= this.rateMax) {
+            IterationResult result = this.executeOneIteration(rate);
 
-            if (inc) {
-                if (throughput < bestThroughput) {
-                    this.nbPublicationsMax = m;
-                    inc = !inc;
-                } else {
-                    this.nbPublicationsMin = m;
-                    bestPublicationNumber = m;
-                    bestThroughput = throughput;
-                }
+            if (this.isSustainable(rate, result)) {
+                sustainableRate = rate;
+                sustainableResult = result;
             } else {
-                if (throughput < bestThroughput) {
-                    this.nbPublicationsMin = m;
-                    inc = !inc;
+                saturationRate = rate;
+                break;
+            }
+
+            rate *= this.rateFactor;
+        }
+
+        if (saturationRate < 0) {
+            LOG.info(
+                    "No saturation observed up to {} publication(s)/s per publisher",
+                    sustainableRate);
+        } else {
+            // refines the saturation point by bisection
+            for (int i = 0; i < this.bisectionSteps; i++) {
+                rate = (sustainableRate + saturationRate) / 2;
+                IterationResult result = this.executeOneIteration(rate);
+
+                if (this.isSustainable(rate, result)) {
+                    sustainableRate = rate;
+                    sustainableResult = result;
                 } else {
-                    this.nbPublicationsMax = m;
-                    bestPublicationNumber = m;
-                    bestThroughput = throughput;
+                    saturationRate = rate;
                 }
             }
 
             LOG.info(
-                    "nbPublicationsMin={}, nbPublicationsMax={}, lastThroughput={}, throughput={}",
-                    this.nbPublicationsMin, this.nbPublicationsMax,
-                    bestThroughput, throughput);
+                    "Saturation reached between {} and {} publication(s)/s per publisher",
+                    sustainableRate, saturationRate);
         }
 
-        LOG.info(
-                "Best throughput ({}) is when nbPublications is set to {}",
-                bestThroughput, bestPublicationNumber);
+        if (sustainableResult == null) {
+            LOG.info("No sustainable publication rate found");
+        } else {
+            LOG.info(
+                    "Best sustainable publication rate is {} publication(s)/s per publisher, {}",
+                    sustainableRate, sustainableResult);
+        }
     }
 
-    private static int middle(int a, int b) {
-        return (a + b) / 2;
+    private boolean isSustainable(double rate, IterationResult result) {
+        double offeredThroughput = rate * this.nbPublishers;
+
+        return result.throughput >= this.minThroughputRatio
+                * offeredThroughput
+                && result.p99Latency <= this.maxP99Latency;
     }
 
-    private double executeOneIteration(int nbPublications) {
+    private IterationResult executeOneIteration(double rate) {
+        LOG.info("Testing with {} publication(s)/s per publisher", rate);
+
         PublishSubscribeBenchmark pubSubBenchmark =
                 new PublishSubscribeBenchmark(
                         this.gcmaDescriptor, this.nbRuns, 2, this.nbPublishers,
-                        this.nbPeers, this.nbSubscribers, nbPublications,
+                        this.nbPeers, this.nbSubscribers, this.nbPublications,
                         this.compoundEventSize, this.rdfTermSize, 1, false, 0,
                         4, SubscriptionType.PATH_QUERY_FIXED_PREDICATE, false,
                         NotificationListenerType.COMPOUND_EVENT, false, 1,
                         false, false, false);
+        pubSubBenchmark.publicationRate = rate;
+        pubSubBenchmark.poissonArrivals = this.poissonArrivals;
 
         StatsRecorder stats = pubSubBenchmark.execute();
 
-        return nbPublications
-                / (stats.getCategory("outputMeasurement0").getMean() / 1000);
+        IterationResult result =
+                new IterationResult(
+                        this.nbPublications
+                                / (stats.getCategory("outputMeasurement0")
+                                        .getMean() / 1000),
+                        pubSubBenchmark.getPointToPointLatencies()
+                                .getValueAtPercentile(99));
+
+        LOG.info(
+                "Offered {} publication(s)/s, {}", rate * this.nbPublishers,
+                result);
+
+        return result;
+    }
+
+    private static class IterationResult {
+
+        private final double throughput;
+
+        private final long p99Latency;
+
+        public IterationResult(double throughput, long p99Latency) {
+            this.throughput = throughput;
+            this.p99Latency = p99Latency;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return "observed throughput=" + this.throughput
+                    + " publication(s)/s, p99 latency=" + this.p99Latency
+                    + " ms";
+        }
+
     }
 
 }
@@ -37,6 +37,7 @@ import org.objectweb.proactive.api.PAActiveObject;
 import org.objectweb.proactive.core.node.NodeException;
 import org.objectweb.proactive.core.util.MutableInteger;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.OverlayId;
+import org.objectweb.proactive.extensions.p2p.structured.utils.microbenchmarks.LatencyHistogram;
 import org.objectweb.proactive.multiactivity.MultiActiveService;
 import org.objectweb.proactive.multiactivity.execution.RequestExecutor;
 
@@ -275,6 +276,25 @@ public class BenchmarkStatsCollector implements InitActive, RunActive {
         return this.pointToPointExitMeasurements;
     }
 
+    /**
+     * Returns the distribution of the point-to-point latencies of all the
+     * events received by all the subscribers, by merging the entry times
+     * reported by the publishers with the exit times reported by the
+     * subscribers.
+     * 
+     * @return the distribution of the point-to-point latencies in
+     *         milliseconds.
+     */
+    public LatencyHistogram getPointToPointLatencyHistogram() {
+        LatencyHistogram result = new LatencyHistogram();
+
+        for (CumulatedMeasurement measurement : this.pointToPointExitMeasurements.values()) {
+            result.add(measurement.getLatencyHistogram(this.pointToPointEntryMeasurements));
+        }
+
+        return result;
+    }
+
     @MemberOf("wait")
     public void waitForAllPublisherReports(int timeout) throws TimeoutException {
 
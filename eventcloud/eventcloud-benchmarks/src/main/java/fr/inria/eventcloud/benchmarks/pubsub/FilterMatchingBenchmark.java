@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.benchmarks.pubsub;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.proactive.extensions.p2p.structured.utils.microbenchmarks.MicroBenchmark;
+import org.objectweb.proactive.extensions.p2p.structured.utils.microbenchmarks.MicroBenchmarkServiceAdapter;
+import org.objectweb.proactive.extensions.p2p.structured.utils.microbenchmarks.StatsRecorder;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import com.google.common.base.Stopwatch;
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.NodeFactory;
+
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.exceptions.DecompositionException;
+import fr.inria.eventcloud.pubsub.PublishSubscribeUtils;
+import fr.inria.eventcloud.reasoner.AtomicQuery;
+import fr.inria.eventcloud.reasoner.SparqlDecomposer;
+
+/**
+ * Microbenchmark used to measure the number of quadruples that are matched per
+ * second against an atomic query with and without filter constraints.
+ * 
+ * @author lpellegr
+ */
+public class FilterMatchingBenchmark {
+
+    private static final String[] CATEGORIES = {
+            "withoutFilter", "withFilter"};
+
+    @Parameter(names = {"-nq", "--nb-quadruples"}, description = "The number of quadruples to match per run")
+    private int nbQuadruples = 100000;
+
+    @Parameter(names = {"-f", "--filter"}, description = "Filter constraint applied on variables ?s and ?o")
+    private String filter = "?o > 500 && regex(str(?s), \"^urn:s\")";
+
+    @Parameter(names = {"-nr", "--nb-runs"}, description = "Number of times the test is performed")
+    private int nbRuns = 5;
+
+    @Parameter(names = {"-dfr", "--discard-first-runs"}, description = "Indicates the number of first runs to discard")
+    private int discardFirstRuns = 2;
+
+    @Parameter(names = {"-h", "--help"}, help = true)
+    private boolean help;
+
+    public static void main(String[] args) {
+        FilterMatchingBenchmark benchmark = new FilterMatchingBenchmark();
+
+        JCommander jCommander = new JCommander(benchmark);
+
+        try {
+            jCommander.parse(args);
+
+            if (benchmark.help) {
+                jCommander.usage();
+                System.exit(0);
+            }
+        } catch (ParameterException e) {
+            e.printStackTrace();
+            jCommander.usage();
+            System.exit(1);
+        }
+
+        benchmark.execute();
+
+        System.exit(0);
+    }
+
+    public void execute() {
+        final AtomicQuery queryWithoutFilter =
+                createAtomicQuery("SELECT ?g ?s ?o WHERE { GRAPH ?g { ?s <urn:p> ?o } }");
+        final AtomicQuery queryWithFilter =
+                createAtomicQuery("SELECT ?g ?s ?o WHERE { GRAPH ?g { ?s <urn:p> ?o . FILTER ("
+                        + this.filter + ") } }");
+
+        final List<Quadruple> quadruples = this.createQuadruples();
+
+        MicroBenchmark microBenchmark =
+                new MicroBenchmark(
+                        CATEGORIES, this.nbRuns,
+                        new MicroBenchmarkServiceAdapter() {
+
+                            private int nbMatches;
+
+                            @Override
+                            public void run(StatsRecorder recorder) {
+                                recorder.reportValue(CATEGORIES[0], this.match(
+                                        quadruples, queryWithoutFilter));
+                                recorder.reportValue(CATEGORIES[1], this.match(
+                                        quadruples, queryWithFilter));
+                            }
+
+                            private long match(List<Quadruple> quadruples,
+                                               AtomicQuery atomicQuery) {
+                                Stopwatch stopwatch = Stopwatch.createStarted();
+
+                                for (Quadruple q : quadruples) {
+                                    if (PublishSubscribeUtils.matches(
+                                            q, atomicQuery) != null) {
+                                        this.nbMatches++;
+                                    }
+                                }
+
+                                return stopwatch.stop().elapsed(
+                                        TimeUnit.MILLISECONDS);
+                            }
+
+                            /**
+                             * {@inheritDoc}
+                             */
+                            @Override
+                            public void teardown() throws Exception {
+                                super.teardown();
+                                System.out.println("Matches found: "
+                                        + this.nbMatches);
+                            }
+                        });
+        microBenchmark.discardFirstRuns(this.discardFirstRuns);
+        microBenchmark.showProgress();
+        microBenchmark.execute();
+
+        for (String category : CATEGORIES) {
+            double mean =
+                    microBenchmark.getStatsRecorder()
+                            .getCategory(category)
+                            .getMean();
+
+            System.out.println(category + ": "
+                    + (long) (this.nbQuadruples / Math.max(mean, 1) * 1000)
+                    + " matches/s (" + mean + " ms per run)");
+        }
+    }
+
+    private List<Quadruple> createQuadruples() {
+        List<Quadruple> result = new ArrayList<Quadruple>(this.nbQuadruples);
+
+        for (int i = 0; i < this.nbQuadruples; i++) {
+            result.add(new Quadruple(
+                    NodeFactory.createURI("urn:g" + i),
+                    NodeFactory.createURI("urn:s" + i),
+                    NodeFactory.createURI("urn:p"), NodeFactory.createLiteral(
+                            Integer.toString(i % 1000),
+                            XSDDatatype.XSDinteger)));
+        }
+
+        return result;
+    }
+
+    private static AtomicQuery createAtomicQuery(String sparqlQuery) {
+        try {
+            return SparqlDecomposer.getInstance()
+                    .decompose(sparqlQuery)
+                    .getAtomicQueries()
+                    .get(0);
+        } catch (DecompositionException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+}
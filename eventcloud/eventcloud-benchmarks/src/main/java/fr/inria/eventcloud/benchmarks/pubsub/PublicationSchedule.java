@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.benchmarks.pubsub;
+
+import java.io.Serializable;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Defines when a publisher emits its publications. In closed-loop mode, a
+ * publication is emitted once the previous one has been handed over, after an
+ * optional waiting period. In open-loop mode, publications are scheduled at a
+ * given rate (with constant or exponentially distributed inter-arrival times)
+ * independently of how long each publication takes, and latencies are measured
+ * from the intended send times. Thus, a slow system is not hidden by a
+ * publisher which slows down with it (coordinated omission).
+ * 
+ * @author lpellegr
+ */
+public class PublicationSchedule implements Serializable {
+
+    private static final long serialVersionUID = 160L;
+
+    private final int waitPeriodBetweenPublications;
+
+    private final double rate;
+
+    private final boolean poissonArrivals;
+
+    private PublicationSchedule(int waitPeriodBetweenPublications,
+            double rate, boolean poissonArrivals) {
+        this.waitPeriodBetweenPublications = waitPeriodBetweenPublications;
+        this.rate = rate;
+        this.poissonArrivals = poissonArrivals;
+    }
+
+    /**
+     * Creates a closed-loop schedule.
+     * 
+     * @param waitPeriodBetweenPublications
+     *            the time to wait (in ms) between two publications.
+     * 
+     * @return a closed-loop schedule.
+     */
+    public static PublicationSchedule closedLoop(int waitPeriodBetweenPublications) {
+        return new PublicationSchedule(waitPeriodBetweenPublications, 0, false);
+    }
+
+    /**
+     * Creates an open-loop schedule.
+     * 
+     * @param rate
+     *            the number of publications per second to emit.
+     * @param poissonArrivals
+     *            indicates whether the inter-arrival times follow an
+     *            exponential distribution (Poisson process) or are constant.
+     * 
+     * @return an open-loop schedule.
+     */
+    public static PublicationSchedule openLoop(double rate,
+                                               boolean poissonArrivals) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("Invalid publication rate: "
+                    + rate);
+        }
+
+        return new PublicationSchedule(0, rate, poissonArrivals);
+    }
+
+    public boolean isOpenLoop() {
+        return this.rate > 0;
+    }
+
+    public int getWaitPeriodBetweenPublications() {
+        return this.waitPeriodBetweenPublications;
+    }
+
+    public double getRate() {
+        return this.rate;
+    }
+
+    public boolean isPoissonArrivals() {
+        return this.poissonArrivals;
+    }
+
+    /**
+     * Returns the time to wait, in nanoseconds, between the intended send
+     * times of two consecutive publications in open-loop mode.
+     * 
+     * @param random
+     *            the random generator used to draw Poisson inter-arrival
+     *            times.
+     * 
+     * @return the time to wait before the next intended send time.
+     */
+    public long nextInterval(Random random) {
+        double meanInterval = TimeUnit.SECONDS.toNanos(1) / this.rate;
+
+        if (this.poissonArrivals) {
+            return (long) (-Math.log(1 - random.nextDouble()) * meanInterval);
+        }
+
+        return (long) meanInterval;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        if (this.isOpenLoop()) {
+            return "open-loop, " + this.rate + " publication(s)/s, "
+                    + (this.poissonArrivals
+                            ? "poisson" : "constant") + " arrivals";
+        }
+
+        return "closed-loop, " + this.waitPeriodBetweenPublications
+                + " ms between publications";
+    }
+
+}
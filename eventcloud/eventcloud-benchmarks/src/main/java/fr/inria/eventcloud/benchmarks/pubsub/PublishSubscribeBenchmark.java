@@ -41,6 +41,7 @@ import org.objectweb.proactive.extensions.p2p.structured.overlay.Peer;
 import org.objectweb.proactive.extensions.p2p.structured.providers.InjectionConstraintsProvider;
 import org.objectweb.proactive.extensions.p2p.structured.providers.SerializableProvider;
 import org.objectweb.proactive.extensions.p2p.structured.utils.microbenchmarks.Category;
+import org.objectweb.proactive.extensions.p2p.structured.utils.microbenchmarks.LatencyHistogram;
 import org.objectweb.proactive.extensions.p2p.structured.utils.microbenchmarks.MicroBenchmark;
 import org.objectweb.proactive.extensions.p2p.structured.utils.microbenchmarks.MicroBenchmarkService;
 import org.objectweb.proactive.extensions.p2p.structured.utils.microbenchmarks.StatsRecorder;
@@ -151,6 +152,12 @@ public class PublishSubscribeBenchmark {
     @Parameter(names = {"--wait-between-publications"}, description = "The time to wait (in ms) between each publication from a publisher")
     public int waitBetweenPublications = 0;
 
+    @Parameter(names = {"-pr", "--publication-rate"}, description = "The number of publications per second emitted by each publisher in open-loop mode (0 means closed-loop mode)")
+    public double publicationRate = 0;
+
+    @Parameter(names = {"--poisson-arrivals"}, description = "Indicates whether publications follow a Poisson process instead of a constant rate in open-loop mode")
+    public boolean poissonArrivals = false;
+
     @Parameter(names = {"--subscribe-proxy-delivery-wait-time", "-spdwt"}, description = "The time to wait (in ms) after each event delivery on a subscriber before to release request's thread")
     public int subscribeProxyDeliveryWaitTime = 0;
 
@@ -241,6 +248,12 @@ public class PublishSubscribeBenchmark {
 
     private Map<SubscriptionId, CumulatedMeasurement> pointToPointExitMeasurements;
 
+    /*
+     * Distribution of the point-to-point latencies of all the events received 
+     * during the runs which are not discarded
+     */
+    private LatencyHistogram pointToPointLatencies;
+
     // internal
 
     private List<Subscription> subscriptions;
@@ -383,6 +396,7 @@ public class PublishSubscribeBenchmark {
         LOG.info("  subscriptionType -> {}", this.subscriptionType);
         LOG.info(
                 "  waitBetweenPublications -> {}", this.waitBetweenPublications);
+        LOG.info("  publicationSchedule -> {}", this.createPublicationSchedule());
     }
 
     public StatsRecorder execute() {
@@ -415,6 +429,8 @@ public class PublishSubscribeBenchmark {
 
                     private SyntheticSubscription[] synthethicSubscriptions;
 
+                    private int nbRunsPerformed;
+
                     @Override
                     public void setup() throws Exception {
                         this.collector =
@@ -503,7 +519,7 @@ public class PublishSubscribeBenchmark {
                         for (CustomPublishProxy proxy : this.publishProxies) {
                             proxy.init(
                                     this.collectorURL,
-                                    PublishSubscribeBenchmark.this.waitBetweenPublications);
+                                    PublishSubscribeBenchmark.this.createPublicationSchedule());
                         }
 
                         // assign events to publish proxies
@@ -642,6 +658,12 @@ public class PublishSubscribeBenchmark {
                         // timeout after 1 hour
                         this.collector.waitForAllSubscriberReports(3600000);
 
+                        if (this.nbRunsPerformed >= PublishSubscribeBenchmark.this.discardFirstRuns) {
+                            PublishSubscribeBenchmark.this.pointToPointLatencies.add(this.collector.getPointToPointLatencyHistogram());
+                        }
+
+                        this.nbRunsPerformed++;
+
                         if (PublishSubscribeBenchmark.this.measureStorageTime) {
                             // timeout after 1 hour
                             this.collector.waitForStoringQuadruples(3600000);
@@ -815,6 +837,8 @@ public class PublishSubscribeBenchmark {
         this.pointToPointExitMeasurements =
                 new HashMap<SubscriptionId, CumulatedMeasurement>(
                         nbPublications);
+
+        this.pointToPointLatencies = new LatencyHistogram();
     }
 
     private String createBenchmarkReport(MicroBenchmark microBenchmark) {
@@ -876,6 +900,7 @@ public class PublishSubscribeBenchmark {
             statsBuffer.append("  End-to-End measurement, average=");
             statsBuffer.append(endToEndCategory.getMean()).append(", median=");
             statsBuffer.append(endToEndCategory.getMedian());
+            this.appendTail(statsBuffer, endToEndCategory);
             statsBuffer.append(", average throughput=");
             statsBuffer.append(endToEndAverageThroughput);
             statsBuffer.append('\n');
@@ -884,6 +909,7 @@ public class PublishSubscribeBenchmark {
             statsBuffer.append(pointToPointCategory.getMean()).append(
                     ", median=");
             statsBuffer.append(pointToPointCategory.getMedian());
+            this.appendTail(statsBuffer, pointToPointCategory);
             statsBuffer.append(", average latency=");
             statsBuffer.append(pointToPointAverageThroughput);
             statsBuffer.append('\n');
@@ -891,6 +917,7 @@ public class PublishSubscribeBenchmark {
             statsBuffer.append("  Output measurement, average=");
             statsBuffer.append(outputCategory.getMean()).append(", median=");
             statsBuffer.append(outputCategory.getMedian());
+            this.appendTail(statsBuffer, outputCategory);
             statsBuffer.append(", average throughput=");
             statsBuffer.append(outputAverageThroughput);
             statsBuffer.append('\n');
@@ -912,9 +939,46 @@ public class PublishSubscribeBenchmark {
             statsBuffer.append('\n');
         }
 
+        if (this.pointToPointLatencies.getTotalCount() > 0) {
+            statsBuffer.append('\n');
+            statsBuffer.append("Point-to-Point latency distribution (ms) for all events, ");
+            statsBuffer.append(this.pointToPointLatencies);
+            statsBuffer.append("\n\n");
+            statsBuffer.append(this.pointToPointLatencies.toPercentileDistribution(
+                    5, 1.0));
+        }
+
         return statsBuffer.toString();
     }
 
+    private PublicationSchedule createPublicationSchedule() {
+        if (this.publicationRate > 0) {
+            return PublicationSchedule.openLoop(
+                    this.publicationRate, this.poissonArrivals);
+        }
+
+        return PublicationSchedule.closedLoop(this.waitBetweenPublications);
+    }
+
+    /**
+     * Returns the distribution of the point-to-point latencies (in
+     * milliseconds) of all the events received during the runs which have not
+     * been discarded. In open-loop mode, latencies are measured from the
+     * intended send times.
+     * 
+     * @return the distribution of the point-to-point latencies.
+     */
+    public LatencyHistogram getPointToPointLatencies() {
+        return this.pointToPointLatencies;
+    }
+
+    private void appendTail(StringBuilder statsBuffer, Category category) {
+        statsBuffer.append(", p99=");
+        statsBuffer.append(category.getValueAtPercentile(99));
+        statsBuffer.append(", max=");
+        statsBuffer.append(category.getMax());
+    }
+
     private void undeploy(NodeProvider nodeProvider,
                           EventCloudDeployer deployer,
                           EventCloudsRegistry registry, String collectorURL)
@@ -22,6 +22,8 @@ import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import org.objectweb.proactive.extensions.p2p.structured.utils.microbenchmarks.LatencyHistogram;
+
 import com.hp.hpl.jena.graph.Node;
 
 import fr.inria.eventcloud.configuration.EventCloudProperties;
@@ -53,28 +55,61 @@ public class CumulatedMeasurement implements Serializable {
         long sum = 0;
 
         for (Entry<String, Long> entry : this.times.entrySet()) {
-            Long entryValue = pointToPointEntryMeasurements.get(entry.getKey());
-            Long exitValue = entry.getValue();
-
-            if (entryValue == null) {
-                throw new IllegalStateException(
-                        "Entry time not found for eventId "
-                                + entry.getKey()
-                                + "\nPoint-to-point entry map contains "
-                                + pointToPointEntryMeasurements.size()
-                                + " entrie(s)\n"
-                                + "Point-to-point exit map contains "
-                                + this.times.size()
-                                + " entrie(s)\nPoint-to-point entry collection dump:\n"
-                                + this.toString(pointToPointEntryMeasurements));
-            }
-
-            sum += exitValue - entryValue;
+            sum +=
+                    entry.getValue()
+                            - this.getEntryTime(
+                                    entry.getKey(),
+                                    pointToPointEntryMeasurements);
         }
 
         return sum;
     }
 
+    /**
+     * Returns a histogram of the point-to-point latencies (in milliseconds) of
+     * the events received. Contrary to {@link #getElapsedTime(Map)}, the
+     * distribution exposes the tail latencies and can be merged with the
+     * histograms of other subscribers.
+     * 
+     * @param pointToPointEntryMeasurements
+     *            the entry times reported by the publishers.
+     * 
+     * @return a histogram of the point-to-point latencies.
+     */
+    public LatencyHistogram getLatencyHistogram(Map<String, Long> pointToPointEntryMeasurements) {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (Entry<String, Long> entry : this.times.entrySet()) {
+            long latency =
+                    entry.getValue()
+                            - this.getEntryTime(
+                                    entry.getKey(),
+                                    pointToPointEntryMeasurements);
+
+            // entry and exit times are taken on different machines whose
+            // clocks may be slightly shifted
+            histogram.recordValue(Math.max(latency, 0));
+        }
+
+        return histogram;
+    }
+
+    private long getEntryTime(String eventId,
+                              Map<String, Long> pointToPointEntryMeasurements) {
+        Long entryValue = pointToPointEntryMeasurements.get(eventId);
+
+        if (entryValue == null) {
+            throw new IllegalStateException("Entry time not found for eventId "
+                    + eventId + "\nPoint-to-point entry map contains "
+                    + pointToPointEntryMeasurements.size() + " entrie(s)\n"
+                    + "Point-to-point exit map contains " + this.times.size()
+                    + " entrie(s)\nPoint-to-point entry collection dump:\n"
+                    + this.toString(pointToPointEntryMeasurements));
+        }
+
+        return entryValue;
+    }
+
     private String toString(Map<String, Long> pointToPointMeasurements) {
         StringBuilder buf = new StringBuilder();
 
@@ -17,6 +17,7 @@
 package fr.inria.eventcloud.benchmarks.pubsub.proxies;
 
 import fr.inria.eventcloud.api.Event;
+import fr.inria.eventcloud.benchmarks.pubsub.PublicationSchedule;
 import fr.inria.eventcloud.proxies.PublishProxy;
 
 /**
@@ -30,7 +31,7 @@ public interface CustomPublishProxy extends PublishProxy {
 
     void publish();
 
-    boolean init(String collectorURL, int waitPeriodBetweenPublications);
+    boolean init(String collectorURL, PublicationSchedule schedule);
 
     boolean clear();
 
@@ -21,6 +21,9 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import org.objectweb.proactive.Body;
 import org.objectweb.proactive.api.PAActiveObject;
@@ -29,6 +32,7 @@ import fr.inria.eventcloud.api.CompoundEvent;
 import fr.inria.eventcloud.api.Event;
 import fr.inria.eventcloud.api.Quadruple;
 import fr.inria.eventcloud.benchmarks.pubsub.BenchmarkStatsCollector;
+import fr.inria.eventcloud.benchmarks.pubsub.PublicationSchedule;
 import fr.inria.eventcloud.proxies.PublishProxyImpl;
 
 /**
@@ -48,7 +52,7 @@ public class CustomPublishProxyImpl extends PublishProxyImpl implements
 
     private BenchmarkStatsCollector collector;
 
-    private int waitPeriodBetweenPublications;
+    private PublicationSchedule schedule;
 
     /**
      * {@inheritDoc}
@@ -73,6 +77,16 @@ public class CustomPublishProxyImpl extends PublishProxyImpl implements
         this.pointToPointEntryMeasurements =
                 new HashMap<String, Long>(this.events.size());
 
+        if (this.schedule.isOpenLoop()) {
+            this.publishOpenLoop();
+        } else {
+            this.publishClosedLoop();
+        }
+
+        this.collector.reportMeasurements(this.pointToPointEntryMeasurements);
+    }
+
+    private void publishClosedLoop() {
         if (!this.events.isEmpty()) {
             if (this.events.get(0) instanceof CompoundEvent) {
                 Iterator<Event> it = this.events.iterator();
@@ -106,14 +120,56 @@ public class CustomPublishProxyImpl extends PublishProxyImpl implements
                 }
             }
         }
+    }
 
-        this.collector.reportMeasurements(this.pointToPointEntryMeasurements);
+    /*
+     * Publications are emitted at their intended send times, whatever the time
+     * taken by the previous ones. When the publisher is late, the publications
+     * are emitted immediately and their entry time remains the intended send
+     * time so that the delay is accounted in the latencies measured.
+     */
+    private void publishOpenLoop() {
+        Random random = new Random();
+
+        long startTime = System.nanoTime();
+        long startTimeMillis = System.currentTimeMillis();
+        long intendedTime = 0;
+
+        for (Event event : this.events) {
+            long delay;
+
+            while ((delay = startTime + intendedTime - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+            }
+
+            long entryTime =
+                    startTimeMillis
+                            + TimeUnit.NANOSECONDS.toMillis(intendedTime);
+
+            if (event instanceof CompoundEvent) {
+                CompoundEvent ce = (CompoundEvent) event;
+
+                this.pointToPointEntryMeasurements.put(
+                        ce.getGraph().getURI(), entryTime);
+
+                super.publish(ce);
+            } else {
+                Quadruple q = (Quadruple) event;
+
+                this.pointToPointEntryMeasurements.put(
+                        q.getGraph().getURI(), entryTime);
+
+                super.publish(q);
+            }
+
+            intendedTime += this.schedule.nextInterval(random);
+        }
     }
 
     private void forceWaitingPeriod() {
-        if (this.waitPeriodBetweenPublications > 0) {
+        if (this.schedule.getWaitPeriodBetweenPublications() > 0) {
             try {
-                Thread.sleep(this.waitPeriodBetweenPublications);
+                Thread.sleep(this.schedule.getWaitPeriodBetweenPublications());
             } catch (InterruptedException e) {
                 e.printStackTrace();
                 Thread.currentThread().interrupt();
@@ -144,12 +200,12 @@ public class CustomPublishProxyImpl extends PublishProxyImpl implements
      * {@inheritDoc}
      */
     @Override
-    public boolean init(String collectorURL, int waitPeriodBetweenPublications) {
+    public boolean init(String collectorURL, PublicationSchedule schedule) {
         try {
             this.collector =
                     PAActiveObject.lookupActive(
                             BenchmarkStatsCollector.class, collectorURL);
-            this.waitPeriodBetweenPublications = waitPeriodBetweenPublications;
+            this.schedule = schedule;
 
             return true;
         } catch (Exception e) {
@@ -30,6 +30,7 @@ import com.hp.hpl.jena.query.ResultSet;
 import fr.inria.eventcloud.api.SubscriptionId;
 import fr.inria.eventcloud.api.listeners.NotificationListenerType;
 import fr.inria.eventcloud.datastore.AccessMode;
+import fr.inria.eventcloud.datastore.DatastoreEngine;
 import fr.inria.eventcloud.datastore.TransactionalDatasetGraph;
 import fr.inria.eventcloud.datastore.TransactionalTdbDatastore;
 import fr.inria.eventcloud.datastore.TransactionalTdbDatastoreBuilder;
@@ -49,12 +50,17 @@ public class PublishQuadruplePatternQueryBenchmark {
 
     private final TransactionalTdbDatastore datastore;
 
-    public PublishQuadruplePatternQueryBenchmark() {
+    public PublishQuadruplePatternQueryBenchmark(DatastoreEngine datastoreEngine) {
         TransactionalTdbDatastoreBuilder builder =
                 new TransactionalTdbDatastoreBuilder(REPOSITORY_PATH);
         builder.deleteFilesAfterClose(true);
 
+        if (datastoreEngine == DatastoreEngine.HEXASTORE) {
+            builder.useHexastore();
+        }
+
         this.datastore = builder.build();
+        this.datastore.open();
     }
 
     public void execute() {
@@ -163,7 +169,16 @@ public class PublishQuadruplePatternQueryBenchmark {
 
         REPOSITORY_PATH.mkdirs();
 
-        new PublishQuadruplePatternQueryBenchmark().execute();
+        // the datastore engine to benchmark may be specified as first
+        // argument (e.g. TDB or HEXASTORE)
+        DatastoreEngine datastoreEngine = DatastoreEngine.TDB;
+        if (args.length > 0) {
+            datastoreEngine = DatastoreEngine.valueOf(args[0]);
+        }
+
+        PublishQuadruplePatternQueryBenchmark benchmark = new PublishQuadruplePatternQueryBenchmark(datastoreEngine);
+        benchmark.execute();
+        benchmark.datastore.close();
 
         FileUtils.deleteQuietly(REPOSITORY_PATH);
     }
@@ -36,6 +36,7 @@ import fr.inria.eventcloud.api.Quadruple;
 import fr.inria.eventcloud.api.generators.NodeGenerator;
 import fr.inria.eventcloud.api.generators.QuadrupleGenerator;
 import fr.inria.eventcloud.datastore.AccessMode;
+import fr.inria.eventcloud.datastore.DatastoreEngine;
 import fr.inria.eventcloud.datastore.QuadrupleIterator;
 import fr.inria.eventcloud.datastore.TransactionalDatasetGraph;
 import fr.inria.eventcloud.datastore.TransactionalTdbDatastore;
@@ -57,12 +58,17 @@ public class SelectOrQuadPatternsBenchmark {
 
     private final TransactionalTdbDatastore datastore;
 
-    public SelectOrQuadPatternsBenchmark() {
+    public SelectOrQuadPatternsBenchmark(DatastoreEngine datastoreEngine) {
         TransactionalTdbDatastoreBuilder builder =
                 new TransactionalTdbDatastoreBuilder(REPOSITORY_PATH);
         builder.deleteFilesAfterClose(true);
 
+        if (datastoreEngine == DatastoreEngine.HEXASTORE) {
+            builder.useHexastore();
+        }
+
         this.datastore = builder.build();
+        this.datastore.open();
     }
 
     public void execute() {
@@ -224,7 +230,16 @@ public class SelectOrQuadPatternsBenchmark {
 
         REPOSITORY_PATH.mkdirs();
 
-        new SelectOrQuadPatternsBenchmark().execute();
+        // the datastore engine to benchmark may be specified as first
+        // argument (e.g. TDB or HEXASTORE)
+        DatastoreEngine datastoreEngine = DatastoreEngine.TDB;
+        if (args.length > 0) {
+            datastoreEngine = DatastoreEngine.valueOf(args[0]);
+        }
+
+        SelectOrQuadPatternsBenchmark benchmark = new SelectOrQuadPatternsBenchmark(datastoreEngine);
+        benchmark.execute();
+        benchmark.datastore.close();
 
         FileUtils.deleteQuietly(REPOSITORY_PATH);
     }
@@ -255,6 +255,14 @@ public class EventCloudProperties {
             new PropertyInteger(
                     "eventcloud.ephemeral.subscriptions.gc.timeout", 900000);
 
+    /**
+     * Defines the maximum number of expired ephemeral subscriptions that are
+     * removed per write transaction when the garbage collection is triggered.
+     */
+    public static final PropertyInteger EPHEMERAL_SUBSCRIPTIONS_GC_BATCH_SIZE =
+            new PropertyInteger(
+                    "eventcloud.ephemeral.subscriptions.gc.batch.size", 500);
+
     /**
      * Defines the expiration time of an ephemeral subscription (in ms). The
      * default value is set to 1 hour.
@@ -296,6 +304,17 @@ public class EventCloudProperties {
                     "eventcloud.load.balancing.doping.function",
                     "prefix-removal");
 
+    /**
+     * Maximum number of URI nodes for which the result of the load balancing
+     * doping function is memoized. Entries are looked up by node identity,
+     * which benefits from nodes interned by Jena. Setting this value to 0
+     * disables the memoization.
+     */
+    public static final PropertyInteger LOAD_BALANCING_DOPING_FUNCTION_CACHE_SIZE =
+            new PropertyInteger(
+                    "eventcloud.load.balancing.doping.function.cache.size",
+                    10000);
+
     /**
      * Defines which gossip strategy is applied for reporting load. Any class
      * implementing GossipStrategy may be used.
@@ -358,6 +377,52 @@ public class EventCloudProperties {
     public static final PropertyBoolean REPOSITORIES_AUTO_REMOVE =
             new PropertyBoolean("eventcloud.repositories.autoremove", false);
 
+    /**
+     * Defines whether peers store all the publications they receive. When it
+     * is disabled, compound events published with SBCE3 are matched against
+     * the subscriptions and then dropped instead of being written to the misc
+     * datastore, which saves disk I/O for EventClouds used for
+     * publish/subscribe only. Quadruples published individually are still
+     * stored since they may be required to reconstruct compound events.
+     * Compound events are also stored when time partitioning (retention) is
+     * configured for the misc datastore or when static load balancing is
+     * enabled. Use {@link #isCompoundEventsStorageRequired()} to know whether
+     * compound events are stored. Note that publications which are not stored
+     * cannot be retrieved with SPARQL queries.
+     */
+    public static final PropertyBoolean PUBLICATIONS_STORAGE_ENABLED =
+            new PropertyBoolean("eventcloud.publications.storage.enabled", true);
+
+    /**
+     * Defines whether the datastore used by each peer to store publications
+     * must be split into time partitions based on the publication time of the
+     * quadruples. Partitions allow to drop old publications as a whole and to
+     * consult only the relevant partitions for time-bounded lookups.
+     */
+    public static final PropertyBoolean MISC_DATASTORE_TIME_PARTITIONING =
+            new PropertyBoolean(
+                    "eventcloud.misc.datastore.time.partitioning", false);
+
+    /**
+     * Defines the time interval in milliseconds covered by a time partition.
+     * This property is used only when {@link #MISC_DATASTORE_TIME_PARTITIONING}
+     * is enabled. The default value is set to 1 hour.
+     */
+    public static final PropertyInteger MISC_DATASTORE_TIME_PARTITION_DURATION =
+            new PropertyInteger(
+                    "eventcloud.misc.datastore.time.partition.duration",
+                    3600000);
+
+    /**
+     * Defines the number of time partitions retained per peer. Older
+     * partitions are dropped periodically. A value set to {@code 0} means that
+     * partitions are never dropped. This property is used only when
+     * {@link #MISC_DATASTORE_TIME_PARTITIONING} is enabled.
+     */
+    public static final PropertyInteger MISC_DATASTORE_TIME_PARTITIONS_RETAINED =
+            new PropertyInteger(
+                    "eventcloud.misc.datastore.time.partitions.retained", 0);
+
     /**
      * Specifies the maximum number of peer stubs to put in cache. This property
      * does not guarantee that the specified number of entries will be put in
@@ -387,6 +452,24 @@ public class EventCloudProperties {
             new PropertyInteger(
                     "eventcloud.subscriptions.cache.maximum.size", 10000);
 
+    /**
+     * Specifies the maximum number of SPARQL query decompositions that are
+     * kept in cache. The cache is shared by all the proxies and peers deployed
+     * in the same JVM. Setting this property to {@code 0} disables the cache.
+     */
+    public static final PropertyInteger DECOMPOSITION_CACHE_MAXIMUM_SIZE =
+            new PropertyInteger(
+                    "eventcloud.decomposition.cache.maximum.size", 1000);
+
+    /**
+     * Defines the size in bytes of the segments used by the append-only log
+     * that keeps the binary representation of the subscriptions indexed on a
+     * peer.
+     */
+    public static final PropertyInteger SUBSCRIPTIONS_RECORDS_SEGMENT_SIZE =
+            new PropertyInteger(
+                    "eventcloud.subscriptions.records.segment.size", 8388608);
+
     /**
      * Specifies the maximum number of subscribe proxies to put in cache. This
      * property does not guarantee that the specified number of entries will be
@@ -412,6 +495,45 @@ public class EventCloudProperties {
     public static final PropertyDouble SOCIAL_FILTER_THRESHOLD =
             new PropertyDouble("eventcloud.socialfilter.threshold", 0.5);
 
+    /**
+     * Defines whether the relationship strengths provided by the social filter
+     * are cached by peers or not. When the cache is enabled, the strengths
+     * required to handle the notifications produced by a delayer flush are
+     * retrieved in one batch.
+     */
+    public static final PropertyBoolean SOCIAL_FILTER_CACHE_ENABLED =
+            new PropertyBoolean("eventcloud.socialfilter.cache.enabled", true);
+
+    /**
+     * Maximum number of relationship strengths cached by each peer.
+     */
+    public static final PropertyInteger SOCIAL_FILTER_CACHE_MAXIMUM_SIZE =
+            new PropertyInteger(
+                    "eventcloud.socialfilter.cache.maximum.size", 10000);
+
+    /**
+     * Time in milliseconds after which a cached relationship strength is
+     * discarded.
+     */
+    public static final PropertyInteger SOCIAL_FILTER_CACHE_EXPIRATION_TIME =
+            new PropertyInteger(
+                    "eventcloud.socialfilter.cache.expiration.time", 300000);
+
+    /**
+     * Time in milliseconds after which a cached relationship strength which is
+     * used is refreshed asynchronously. A value greater than or equal to the
+     * expiration time disables refreshes.
+     */
+    public static final PropertyInteger SOCIAL_FILTER_CACHE_REFRESH_TIME =
+            new PropertyInteger(
+                    "eventcloud.socialfilter.cache.refresh.time", 60000);
+
+    /**
+     * Number of threads used by each peer to query the social filter.
+     */
+    public static final PropertyInteger SOCIAL_FILTER_CACHE_NB_THREADS =
+            new PropertyInteger("eventcloud.socialfilter.cache.nb.threads", 4);
+
     public static final PropertyInteger STATS_RECORDER_NB_BACKGROUND_THREADS =
             new PropertyInteger(
                     "eventcloud.stats.recorder.nb.background.threads", 2);
@@ -428,6 +550,103 @@ public class EventCloudProperties {
     public static final PropertyBoolean RECORD_STATS_MISC_DATASTORE =
             new PropertyBoolean("eventcloud.record.stats.misc.datastore", false);
 
+    /**
+     * Defines whether cardinality statistics (number of quadruples per
+     * predicate, distinct subjects, etc.) are maintained by each peer for the
+     * misc datastore. When it is enabled, put/get proxies aggregate these
+     * statistics to estimate the number of quadruples matching each
+     * sub-query of a SPARQL query and to evaluate selective sub-queries
+     * first (see {@link #CARDINALITY_STATS_BIND_JOIN_THRESHOLD}).
+     */
+    public static final PropertyBoolean CARDINALITY_STATS_ENABLED =
+            new PropertyBoolean("eventcloud.cardinality.stats.enabled", false);
+
+    /**
+     * Defines the period in milliseconds after which the cardinality
+     * statistics aggregated by a put/get proxy are retrieved again from the
+     * peers.
+     */
+    public static final PropertyInteger CARDINALITY_STATS_REFRESH_PERIOD =
+            new PropertyInteger(
+                    "eventcloud.cardinality.stats.refresh.period", 60000);
+
+    /**
+     * Defines the maximum estimated number of solutions of a sub-query for it
+     * to be dispatched before the others. Its solutions are then substituted
+     * into the sub-queries sharing a variable with it, which are thus routed
+     * to fewer peers. A value of {@code 0} disables this bind join.
+     */
+    public static final PropertyInteger CARDINALITY_STATS_BIND_JOIN_THRESHOLD =
+            new PropertyInteger(
+                    "eventcloud.cardinality.stats.bind.join.threshold", 32);
+
+    /**
+     * Defines whether put/get proxies cache the responses of the SPARQL
+     * queries they execute. A cached response is no longer returned once the
+     * proxy has learnt, from the responses of other queries or from its own
+     * writes, that a peer visited by the query has been modified.
+     */
+    public static final PropertyBoolean SPARQL_RESPONSE_CACHE_ENABLED =
+            new PropertyBoolean("eventcloud.sparql.response.cache.enabled", false);
+
+    /**
+     * Defines the maximum number of SPARQL responses cached by a put/get
+     * proxy.
+     */
+    public static final PropertyInteger SPARQL_RESPONSE_CACHE_MAXIMUM_SIZE =
+            new PropertyInteger(
+                    "eventcloud.sparql.response.cache.maximum.size", 100);
+
+    /**
+     * Defines the time in milliseconds after which a SPARQL response cached by
+     * a put/get proxy expires, whether the datastores have been modified or
+     * not. It bounds how long a modification made through another proxy may
+     * remain unnoticed.
+     */
+    public static final PropertyInteger SPARQL_RESPONSE_CACHE_EXPIRATION_TIME =
+            new PropertyInteger(
+                    "eventcloud.sparql.response.cache.expiration.time", 30000);
+
+    /**
+     * Defines whether put/get proxies record the latency of the SPARQL queries
+     * they execute into a histogram. The histogram gives percentiles (p50,
+     * p99, p99.9, max) and can be merged across proxies.
+     */
+    public static final PropertyBoolean PROXY_LATENCY_HISTOGRAMS_ENABLED =
+            new PropertyBoolean(
+                    "eventcloud.proxy.latency.histograms.enabled", false);
+
+    /**
+     * Maximum number of input/output monitoring reports waiting to be sent by
+     * a proxy. Reports generated while the queue is full are dropped.
+     */
+    public static final PropertyInteger MONITORING_REPORTS_QUEUE_CAPACITY =
+            new PropertyInteger(
+                    "eventcloud.monitoring.reports.queue.capacity", 4096);
+
+    /**
+     * Number of threads used by a proxy to send input/output monitoring
+     * reports.
+     */
+    public static final PropertyInteger MONITORING_REPORTS_WORKERS =
+            new PropertyInteger("eventcloud.monitoring.reports.workers", 2);
+
+    /**
+     * Time window in milliseconds during which input/output monitoring reports
+     * targeting the same consumer endpoint are aggregated into a single
+     * message.
+     */
+    public static final PropertyInteger MONITORING_REPORTS_BATCH_WINDOW =
+            new PropertyInteger(
+                    "eventcloud.monitoring.reports.batch.window", 100);
+
+    /**
+     * Maximum number of input/output monitoring reports aggregated into a
+     * single message. Setting this value to 1 disables the aggregation.
+     */
+    public static final PropertyInteger MONITORING_REPORTS_BATCH_SIZE =
+            new PropertyInteger("eventcloud.monitoring.reports.batch.size", 100);
+
     /**
      * Defines whether statistics recording must be enabled or not for the peer
      * stubs put in cache.
@@ -444,6 +663,14 @@ public class EventCloudProperties {
             new PropertyBoolean(
                     "eventcloud.record.stats.subscriptions.cache", false);
 
+    /**
+     * Defines whether statistics recording (e.g. hit rate) must be enabled or
+     * not for the SPARQL query decompositions put in cache.
+     */
+    public static final PropertyBoolean RECORD_STATS_DECOMPOSITION_CACHE =
+            new PropertyBoolean(
+                    "eventcloud.record.stats.decomposition.cache", true);
+
     /**
      * Defines whether statistics recording must be enabled or not for the
      * subscribe proxy stubs put in cache.
@@ -471,13 +698,37 @@ public class EventCloudProperties {
 
     /**
      * Defines the cache engine used by subscribers to prevent duplicates with
-     * some publish/subscribe algorithms. The values allowed are {@code ehcache}
-     * and {@code infinispan}. The last is the default one.
+     * some publish/subscribe algorithms. The values allowed are
+     * {@code ehcache}, {@code infinispan} and {@code offheap}. The second is
+     * the default one. Unlike the others, the {@code offheap} engine never
+     * spills entries to disk: entries expire after
+     * {@link #SUBSCRIBER_CACHE_EXPIRATION_TIME} or are evicted when the cache
+     * is full.
      */
     public static final PropertyString SUBSCRIBER_CACHE_ENGINE =
             new PropertyString(
                     "eventcloud.subscriber.cache.engine", "infinispan");
 
+    /**
+     * Defines the time in milliseconds after which an entry put in the
+     * subscriber cache is expired. This property is used only when
+     * {@link #SUBSCRIBER_CACHE_ENGINE} is set to {@code offheap}. The default
+     * value is set to 1 hour.
+     */
+    public static final PropertyInteger SUBSCRIBER_CACHE_EXPIRATION_TIME =
+            new PropertyInteger(
+                    "eventcloud.subscriber.cache.expiration.time", 3600000);
+
+    /**
+     * Defines the number of time buckets used to split
+     * {@link #SUBSCRIBER_CACHE_EXPIRATION_TIME}. Entries from a same bucket
+     * expire together. This property is used only when
+     * {@link #SUBSCRIBER_CACHE_ENGINE} is set to {@code offheap}.
+     */
+    public static final PropertyInteger SUBSCRIBER_CACHE_EXPIRATION_BUCKETS =
+            new PropertyInteger(
+                    "eventcloud.subscriber.cache.expiration.buckets", 12);
+
     /**
      * Defines whether JMX statistics must be exposed or not.
      */
@@ -520,6 +771,42 @@ public class EventCloudProperties {
                     "eventcloud.mao.limit.subscribe.proxies",
                     Runtime.getRuntime().availableProcessors());
 
+    /**
+     * Defines whether quadruples loaded from an URL through a put/get proxy
+     * are parsed and partitioned in parallel then shipped by batches to the
+     * peers which manage them, rather than routed one by one.
+     */
+    public static final PropertyBoolean PUTGET_BULK_LOAD_ENABLED =
+            new PropertyBoolean("eventcloud.putget.bulk.load.enabled", false);
+
+    /**
+     * Defines the maximum number of quadruples sent at once to a peer when
+     * {@link #PUTGET_BULK_LOAD_ENABLED} is set to {@code true}. Each batch is
+     * written in a single transaction by the peer receiving it. This value
+     * also bounds the number of quadruples conveyed by a single request when
+     * a collection of quadruples is added or deleted through a put/get proxy.
+     */
+    public static final PropertyInteger PUTGET_BULK_LOAD_BATCH_SIZE =
+            new PropertyInteger(
+                    "eventcloud.putget.bulk.load.batch.size", 10000);
+
+    /**
+     * Defines the number of threads used to parse and partition quadruples
+     * when {@link #PUTGET_BULK_LOAD_ENABLED} is set to {@code true}.
+     */
+    public static final PropertyInteger PUTGET_BULK_LOAD_THREADS =
+            new PropertyInteger(
+                    "eventcloud.putget.bulk.load.threads", Runtime.getRuntime()
+                            .availableProcessors());
+
+    /**
+     * Defines the period in milliseconds at which the progress of a bulk load
+     * is logged.
+     */
+    public static final PropertyInteger PUTGET_BULK_LOAD_REPORT_PERIOD =
+            new PropertyInteger(
+                    "eventcloud.putget.bulk.load.report.period", 10000);
+
     /**
      * Specifies the number maximum of attempts to lookup a proxy that is not
      * reachable. For instance, this is useful to remove references to subscribe
@@ -660,6 +947,12 @@ public class EventCloudProperties {
                 || isStaticLoadBalancingEnabled();
     }
 
+    public static final boolean isCompoundEventsStorageRequired() {
+        return PUBLICATIONS_STORAGE_ENABLED.getValue()
+                || MISC_DATASTORE_TIME_PARTITIONING.getValue()
+                || isStaticLoadBalancingEnabled();
+    }
+
     public static final boolean isSbce1PubSubAlgorithmUsed() {
         return isPubSubAlgorithmUsedEqualsTo(PUBLISH_SUBSCRIBE_ALGORITHM_SBCE_1);
     }
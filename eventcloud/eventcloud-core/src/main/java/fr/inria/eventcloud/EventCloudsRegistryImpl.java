@@ -30,6 +30,8 @@ import org.objectweb.proactive.core.ProActiveException;
 import org.objectweb.proactive.core.component.Fractive;
 import org.objectweb.proactive.extensions.p2p.structured.AbstractComponent;
 import org.objectweb.proactive.extensions.p2p.structured.deployment.NetworkDeployer;
+import org.objectweb.proactive.extensions.p2p.structured.multiactivity.AdaptiveThreadLimitController;
+import org.objectweb.proactive.extensions.p2p.structured.multiactivity.MonitoredServingPolicy;
 import org.objectweb.proactive.extensions.p2p.structured.tracker.Tracker;
 import org.objectweb.proactive.multiactivity.component.ComponentMultiActiveService;
 
@@ -104,7 +106,10 @@ public class EventCloudsRegistryImpl extends AbstractComponent implements
      */
     @Override
     public void runComponentActivity(Body body) {
-        new ComponentMultiActiveService(body).multiActiveServing(
+        AdaptiveThreadLimitController.serve(
+                "EventCloudsRegistry", body.getID().toString(),
+                new ComponentMultiActiveService(body),
+                new MonitoredServingPolicy(), null,
                 EventCloudProperties.MAO_LIMIT_EVENTCLOUDS_REGISTRY.getValue(),
                 true, false);
     }
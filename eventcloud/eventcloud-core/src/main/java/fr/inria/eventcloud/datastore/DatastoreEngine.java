@@ -0,0 +1,42 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.datastore;
+
+/**
+ * Defines the engines that may be used to create the datastores of a peer.
+ * 
+ * @author lpellegr
+ */
+public enum DatastoreEngine {
+
+    /**
+     * Persistent TDB datastores.
+     */
+    TDB,
+
+    /**
+     * In-memory TDB datastores.
+     */
+    TDB_IN_MEMORY,
+
+    /**
+     * Non-durable in-memory datastores backed by hexastore indexes (see
+     * {@link HexastoreDatastore}).
+     */
+    HEXASTORE;
+
+}
@@ -0,0 +1,453 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.datastore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Range;
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.query.Dataset;
+import com.hp.hpl.jena.query.DatasetFactory;
+import com.hp.hpl.jena.sparql.core.DatasetGraphBaseFind;
+import com.hp.hpl.jena.sparql.core.GraphView;
+import com.hp.hpl.jena.sparql.core.Quad;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.api.QuadruplePattern;
+import fr.inria.eventcloud.datastore.HexastoreDatastore.Entry;
+import fr.inria.eventcloud.datastore.stats.StatsRecorder;
+
+/**
+ * Transaction opened on a {@link HexastoreDatastore}. A read transaction sees
+ * the snapshot associated to the last version committed when it has been
+ * started. A write transaction sees its own changes, which are rolled back if
+ * the transaction ends without being committed.
+ * 
+ * @author lpellegr
+ */
+public final class HexastoreDatasetGraph implements TransactionalDatasetGraph {
+
+    private final HexastoreDatastore datastore;
+
+    private final AccessMode mode;
+
+    private final long version;
+
+    private final StatsRecorder statsRecorder;
+
+    // entries added by the write transaction
+    private final Set<Entry> added;
+
+    // entries marked as deleted by the write transaction
+    private final List<Entry> deleted;
+
+    private Dataset dataset;
+
+    private boolean finished;
+
+    HexastoreDatasetGraph(HexastoreDatastore datastore, AccessMode mode) {
+        this.datastore = datastore;
+        this.mode = mode;
+        this.statsRecorder = datastore.getStatsRecorder();
+
+        if (mode == AccessMode.WRITE) {
+            this.version = datastore.beginWrite();
+            this.added = new HashSet<Entry>();
+            this.deleted = new ArrayList<Entry>();
+        } else {
+            this.version = datastore.beginRead();
+            this.added = Collections.emptySet();
+            this.deleted = Collections.emptyList();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add(Node g, Node s, Node p, Node o) {
+        this.checkWritable();
+
+        this.statsRecorder.register(g, s, p, o);
+
+        long[] ids =
+                {this.datastore.getOrCreateIdOf(g),
+                        this.datastore.getOrCreateIdOf(s),
+                        this.datastore.getOrCreateIdOf(p),
+                        this.datastore.getOrCreateIdOf(o)};
+
+        if (this.datastore.findVisible(ids, this.version) == null) {
+            Entry entry = new Entry(ids, this.version);
+            this.datastore.insert(entry);
+            this.added.add(entry);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add(Quadruple quadruple) {
+        this.add(
+                quadruple.getGraph(), quadruple.getSubject(),
+                quadruple.getPredicate(), quadruple.getObject());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add(Collection<Quadruple> quadruples) {
+        for (Quadruple q : quadruples) {
+            this.add(q);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(Quadruple quadruple) {
+        return this.find(
+                quadruple.getGraph(), quadruple.getSubject(),
+                quadruple.getPredicate(), quadruple.getObject()).hasNext();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(Quadruple quadruple) {
+        this.statsRecorder.unregister(
+                quadruple.createMetaGraphNode(), quadruple.getSubject(),
+                quadruple.getPredicate(), quadruple.getObject());
+
+        // quadruples may be stored with or without their meta graph value
+        this.delete(
+                quadruple.createMetaGraphNode(), quadruple.getSubject(),
+                quadruple.getPredicate(), quadruple.getObject());
+        this.delete(
+                quadruple.getGraph(), quadruple.getSubject(),
+                quadruple.getPredicate(), quadruple.getObject());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(Collection<Quadruple> quadruples) {
+        for (Quadruple q : quadruples) {
+            this.delete(q);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(QuadruplePattern quadruplePattern) {
+        this.delete(
+                quadruplePattern.getGraph(), quadruplePattern.getSubject(),
+                quadruplePattern.getPredicate(), quadruplePattern.getObject());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(Node g, Node s, Node p, Node o) {
+        this.checkWritable();
+
+        List<Entry> entries = new ArrayList<Entry>();
+        Iterators.addAll(entries, this.findEntries(g, s, p, o));
+
+        for (Entry entry : entries) {
+            if (entry.created == this.version) {
+                // entry added by the current transaction
+                this.datastore.remove(entry);
+                this.added.remove(entry);
+            } else {
+                entry.deleted = this.version;
+                this.deleted.add(entry);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QuadrupleIterator find(QuadruplePattern quadruplePattern) {
+        return this.find(
+                quadruplePattern.getGraph(), quadruplePattern.getSubject(),
+                quadruplePattern.getPredicate(), quadruplePattern.getObject());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QuadrupleIterator find(Node g, Node s, Node p, Node o) {
+        return new QuadrupleIterator(this.findQuads(g, s, p, o));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void abort() {
+        this.end();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void commit() {
+        if (this.finished) {
+            throw new IllegalStateException("Transaction already finished");
+        }
+
+        this.finished = true;
+
+        if (this.mode == AccessMode.WRITE) {
+            this.datastore.commitWrite(this.version, this.deleted);
+        } else {
+            this.datastore.endRead(this.version);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void end() {
+        if (this.finished) {
+            return;
+        }
+
+        this.finished = true;
+
+        if (this.mode == AccessMode.WRITE) {
+            try {
+                // rollback
+                for (Entry entry : this.added) {
+                    this.datastore.remove(entry);
+                }
+
+                for (Entry entry : this.deleted) {
+                    entry.deleted = 0;
+                }
+            } finally {
+                this.datastore.endWrite();
+            }
+        } else {
+            this.datastore.endRead(this.version);
+        }
+    }
+
+    /**
+     * Returns a dataset view over the snapshot associated to the transaction.
+     * Updates performed through the dataset are part of the transaction.
+     * 
+     * @return a dataset view over the snapshot associated to the transaction.
+     */
+    @Override
+    public Dataset getUnderlyingDataset() {
+        if (this.dataset == null) {
+            this.dataset = DatasetFactory.create(new SnapshotDatasetGraph());
+        }
+
+        return this.dataset;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Dataset getUnderlyingDataset(Range<Long> publicationTimes) {
+        return this.getUnderlyingDataset();
+    }
+
+    private Iterator<Entry> findEntries(Node g, Node s, Node p, Node o) {
+        long[] pattern =
+                {this.datastore.idOf(g), this.datastore.idOf(s),
+                        this.datastore.idOf(p), this.datastore.idOf(o)};
+
+        for (long id : pattern) {
+            if (id == -1) {
+                return Collections.<Entry> emptyIterator();
+            }
+        }
+
+        return this.datastore.find(pattern, this.version);
+    }
+
+    private Iterator<Quad> findQuads(Node g, Node s, Node p, Node o) {
+        return Iterators.transform(
+                this.findEntries(g, s, p, o), new Function<Entry, Quad>() {
+                    @Override
+                    public Quad apply(Entry entry) {
+                        HexastoreDatastore datastore =
+                                HexastoreDatasetGraph.this.datastore;
+
+                        return new Quad(
+                                datastore.nodeOf(entry.ids[0]),
+                                datastore.nodeOf(entry.ids[1]),
+                                datastore.nodeOf(entry.ids[2]),
+                                datastore.nodeOf(entry.ids[3]));
+                    }
+                });
+    }
+
+    private void checkWritable() {
+        if (this.mode != AccessMode.WRITE) {
+            throw new IllegalStateException("Read-only transaction");
+        }
+
+        if (this.finished) {
+            throw new IllegalStateException("Transaction already finished");
+        }
+    }
+
+    /**
+     * Jena view over the snapshot of the transaction. It is used to evaluate
+     * SPARQL queries.
+     */
+    private final class SnapshotDatasetGraph extends DatasetGraphBaseFind {
+
+        @Override
+        protected Iterator<Quad> findInDftGraph(Node s, Node p, Node o) {
+            return HexastoreDatasetGraph.this.findQuads(
+                    Quad.defaultGraphIRI, s, p, o);
+        }
+
+        @Override
+        protected Iterator<Quad> findInSpecificNamedGraph(Node g, Node s,
+                                                          Node p, Node o) {
+            return HexastoreDatasetGraph.this.findQuads(g, s, p, o);
+        }
+
+        @Override
+        protected Iterator<Quad> findInAnyNamedGraphs(Node s, Node p, Node o) {
+            return Iterators.filter(HexastoreDatasetGraph.this.findQuads(
+                    Node.ANY, s, p, o), new Predicate<Quad>() {
+                @Override
+                public boolean apply(Quad quad) {
+                    return !quad.isDefaultGraph();
+                }
+            });
+        }
+
+        @Override
+        public Graph getDefaultGraph() {
+            return GraphView.createDefaultGraph(this);
+        }
+
+        @Override
+        public Graph getGraph(Node graphNode) {
+            return GraphView.createNamedGraph(this, graphNode);
+        }
+
+        @Override
+        public void addGraph(Node graphName, Graph graph) {
+            ExtendedIterator<Triple> it =
+                    graph.find(Node.ANY, Node.ANY, Node.ANY);
+
+            try {
+                while (it.hasNext()) {
+                    Triple t = it.next();
+                    this.add(
+                            graphName, t.getSubject(), t.getPredicate(),
+                            t.getObject());
+                }
+            } finally {
+                it.close();
+            }
+        }
+
+        @Override
+        public void removeGraph(Node graphName) {
+            this.deleteAny(graphName, Node.ANY, Node.ANY, Node.ANY);
+        }
+
+        @Override
+        public Iterator<Node> listGraphNodes() {
+            Set<Node> result = new LinkedHashSet<Node>();
+
+            Iterator<Quad> it = this.findInAnyNamedGraphs(
+                    Node.ANY, Node.ANY, Node.ANY);
+            while (it.hasNext()) {
+                result.add(it.next().getGraph());
+            }
+
+            return result.iterator();
+        }
+
+        @Override
+        public void add(Quad quad) {
+            this.add(
+                    quad.getGraph(), quad.getSubject(), quad.getPredicate(),
+                    quad.getObject());
+        }
+
+        @Override
+        public void add(Node g, Node s, Node p, Node o) {
+            if (Quad.isDefaultGraph(g)) {
+                g = Quad.defaultGraphIRI;
+            }
+
+            HexastoreDatasetGraph.this.add(g, s, p, o);
+        }
+
+        @Override
+        public void delete(Quad quad) {
+            this.delete(
+                    quad.getGraph(), quad.getSubject(), quad.getPredicate(),
+                    quad.getObject());
+        }
+
+        @Override
+        public void delete(Node g, Node s, Node p, Node o) {
+            this.deleteAny(g, s, p, o);
+        }
+
+        @Override
+        public void deleteAny(Node g, Node s, Node p, Node o) {
+            if (Quad.isDefaultGraph(g)) {
+                g = Quad.defaultGraphIRI;
+            }
+
+            HexastoreDatasetGraph.this.delete(g, s, p, o);
+        }
+
+    }
+
+}
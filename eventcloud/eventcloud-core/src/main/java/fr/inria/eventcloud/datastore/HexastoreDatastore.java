@@ -0,0 +1,443 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.datastore;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterators;
+import com.hp.hpl.jena.graph.Node;
+
+import fr.inria.eventcloud.datastore.stats.StatsRecorder;
+
+/**
+ * Non-durable datastore that keeps quadruples in memory by using concurrent
+ * hexastore-style indexes (GSPO, GPOS, GOSP, SPOG, POSG and OSPG). Nodes are
+ * dictionary encoded so that each index entry only contains identifiers. The
+ * index used to answer a lookup is the one whose order gives the longest
+ * prefix of bound components.
+ * <p>
+ * Concurrency is handled with multi-version concurrency control. Each entry
+ * records the version at which it has been added and the version at which it
+ * has been deleted. A read transaction works on the last committed version
+ * and is never blocked. Write transactions are serialized and their changes
+ * become visible atomically upon commit. Deleted entries are removed from the
+ * indexes once no read transaction may see them anymore.
+ * <p>
+ * This datastore is intended for low-latency and short-lived EventClouds: the
+ * data is lost when the datastore is closed. Nodes are never removed from the
+ * dictionary while the datastore is open.
+ * 
+ * @author lpellegr
+ */
+public class HexastoreDatastore extends TransactionalTdbDatastore {
+
+    // component positions: 0 = graph, 1 = subject, 2 = predicate, 3 = object
+    private static final int[][] ORDERINGS = {
+            {0, 1, 2, 3}, {0, 2, 3, 1}, {0, 3, 1, 2}, {1, 2, 3, 0},
+            {2, 3, 1, 0}, {3, 1, 2, 0}};
+
+    static final long UNBOUND = 0;
+
+    private final ConcurrentMap<Node, Long> ids;
+
+    private final ConcurrentMap<Long, Node> nodes;
+
+    private final AtomicLong idsGenerator;
+
+    private final Index[] indexes;
+
+    private final ReentrantLock writersLock;
+
+    // number of read transactions per version
+    private final TreeMap<Long, Integer> activeReaders;
+
+    // entries deleted by committed transactions but which may still be visible
+    // to some read transactions, ordered by deletion version
+    private final Queue<Entry> deletedEntries;
+
+    private volatile long committedVersion;
+
+    /**
+     * Creates a new hexastore datastore.
+     * 
+     * @param statsRecorder
+     *            the stats recorder instance to use.
+     */
+    protected HexastoreDatastore(StatsRecorder statsRecorder) {
+        super(statsRecorder);
+
+        this.ids = new ConcurrentHashMap<Node, Long>();
+        this.nodes = new ConcurrentHashMap<Long, Node>();
+        this.idsGenerator = new AtomicLong();
+
+        this.indexes = new Index[ORDERINGS.length];
+        for (int i = 0; i < ORDERINGS.length; i++) {
+            this.indexes[i] = new Index(ORDERINGS[i]);
+        }
+
+        this.writersLock = new ReentrantLock();
+        this.activeReaders = new TreeMap<Long, Integer>();
+        this.deletedEntries = new ArrayDeque<Entry>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TransactionalDatasetGraph begin(AccessMode mode) {
+        return new HexastoreDatasetGraph(this, mode);
+    }
+
+    /**
+     * Returns the number of quadruples visible from the last committed
+     * version.
+     * 
+     * @return the number of quadruples visible from the last committed
+     *         version.
+     */
+    public long size() {
+        long version = this.beginRead();
+
+        try {
+            return Iterators.size(this.find(
+                    new long[] {UNBOUND, UNBOUND, UNBOUND, UNBOUND}, version));
+        } finally {
+            this.endRead(version);
+        }
+    }
+
+    /*
+     * Methods below are used by HexastoreDatasetGraph
+     */
+
+    long beginRead() {
+        synchronized (this.activeReaders) {
+            long version = this.committedVersion;
+
+            Integer count = this.activeReaders.get(version);
+            if (count == null) {
+                count = 0;
+            }
+            this.activeReaders.put(version, count + 1);
+
+            return version;
+        }
+    }
+
+    void endRead(long version) {
+        synchronized (this.activeReaders) {
+            int count = this.activeReaders.get(version);
+
+            if (count == 1) {
+                this.activeReaders.remove(version);
+            } else {
+                this.activeReaders.put(version, count - 1);
+            }
+        }
+    }
+
+    /**
+     * Starts a write transaction and returns the version it creates.
+     */
+    long beginWrite() {
+        this.writersLock.lock();
+
+        return this.committedVersion + 1;
+    }
+
+    /**
+     * Publishes the specified version and releases the writers lock.
+     */
+    void commitWrite(long version, Collection<Entry> deleted) {
+        try {
+            this.committedVersion = version;
+            this.deletedEntries.addAll(deleted);
+            this.purgeDeletedEntries();
+            super.incrementVersion();
+        } finally {
+            this.writersLock.unlock();
+        }
+    }
+
+    void endWrite() {
+        this.writersLock.unlock();
+    }
+
+    long idOf(Node node) {
+        if (isUnbound(node)) {
+            return UNBOUND;
+        }
+
+        Long result = this.ids.get(node);
+
+        if (result == null) {
+            // the node is unknown, no entry may match
+            return -1;
+        }
+
+        return result;
+    }
+
+    long getOrCreateIdOf(Node node) {
+        Long result = this.ids.get(node);
+
+        if (result == null) {
+            Long newId = this.idsGenerator.incrementAndGet();
+            // the reverse mapping is registered first so that an identifier
+            // is never visible without its node
+            this.nodes.put(newId, node);
+
+            result = this.ids.putIfAbsent(node, newId);
+
+            if (result == null) {
+                result = newId;
+            } else {
+                this.nodes.remove(newId);
+            }
+        }
+
+        return result;
+    }
+
+    Node nodeOf(long id) {
+        return this.nodes.get(id);
+    }
+
+    /**
+     * Returns the entry with the specified identifiers that is visible from
+     * the given version or {@code null}.
+     */
+    Entry findVisible(long[] ids, long version) {
+        Iterator<Entry> it = this.find(ids, version);
+
+        if (it.hasNext()) {
+            return it.next();
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the entries visible from the specified version that match the
+     * given identifiers, {@link #UNBOUND} acting as a wildcard.
+     */
+    Iterator<Entry> find(final long[] pattern, final long version) {
+        Index index = this.indexes[0];
+        int prefixLength = index.prefixLength(pattern);
+
+        for (int i = 1; i < this.indexes.length
+                && prefixLength < pattern.length; i++) {
+            int length = this.indexes[i].prefixLength(pattern);
+
+            if (length > prefixLength) {
+                index = this.indexes[i];
+                prefixLength = length;
+            }
+        }
+
+        return Iterators.filter(
+                index.range(pattern, prefixLength).iterator(),
+                new Predicate<Entry>() {
+                    @Override
+                    public boolean apply(Entry entry) {
+                        return entry.isVisible(version)
+                                && matches(entry, pattern);
+                    }
+                });
+    }
+
+    void insert(Entry entry) {
+        for (Index index : this.indexes) {
+            index.entries.add(entry);
+        }
+    }
+
+    void remove(Entry entry) {
+        for (Index index : this.indexes) {
+            index.entries.remove(entry);
+        }
+    }
+
+    private void purgeDeletedEntries() {
+        long oldestVersion;
+
+        synchronized (this.activeReaders) {
+            oldestVersion =
+                    this.activeReaders.isEmpty()
+                            ? this.committedVersion
+                            : this.activeReaders.firstKey();
+        }
+
+        while (!this.deletedEntries.isEmpty()
+                && this.deletedEntries.peek().deleted <= oldestVersion) {
+            this.remove(this.deletedEntries.poll());
+        }
+    }
+
+    private static boolean matches(Entry entry, long[] pattern) {
+        for (int i = 0; i < pattern.length; i++) {
+            if (pattern[i] != UNBOUND && pattern[i] != entry.ids[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    static boolean isUnbound(Node node) {
+        return node == null || node == Node.ANY || node.isVariable();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void _open() {
+        // nothing to do, structures are created with the datastore
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void _close() {
+        this.writersLock.lock();
+        try {
+            for (Index index : this.indexes) {
+                index.entries.clear();
+            }
+
+            this.deletedEntries.clear();
+            this.ids.clear();
+            this.nodes.clear();
+        } finally {
+            this.writersLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isMemory() {
+        return true;
+    }
+
+    /**
+     * A quadruple version stored in the indexes.
+     */
+    static final class Entry {
+
+        final long[] ids;
+
+        final long created;
+
+        // 0 while the entry is not deleted
+        volatile long deleted;
+
+        Entry(long[] ids, long created) {
+            this.ids = ids;
+            this.created = created;
+        }
+
+        boolean isVisible(long version) {
+            long d = this.deleted;
+
+            return this.created <= version && (d == 0 || d > version);
+        }
+
+    }
+
+    private static final class Index {
+
+        private final int[] ordering;
+
+        private final NavigableSet<Entry> entries;
+
+        public Index(final int[] ordering) {
+            this.ordering = ordering;
+            this.entries =
+                    new ConcurrentSkipListSet<Entry>(new Comparator<Entry>() {
+                        @Override
+                        public int compare(Entry e1, Entry e2) {
+                            for (int position : ordering) {
+                                int result =
+                                        Long.compare(
+                                                e1.ids[position],
+                                                e2.ids[position]);
+
+                                if (result != 0) {
+                                    return result;
+                                }
+                            }
+
+                            return Long.compare(e1.created, e2.created);
+                        }
+                    });
+        }
+
+        public int prefixLength(long[] pattern) {
+            int result = 0;
+
+            while (result < this.ordering.length
+                    && pattern[this.ordering[result]] != UNBOUND) {
+                result++;
+            }
+
+            return result;
+        }
+
+        public NavigableSet<Entry> range(long[] pattern, int prefixLength) {
+            if (prefixLength == 0) {
+                return this.entries;
+            }
+
+            long[] low = new long[pattern.length];
+            long[] high = new long[pattern.length];
+
+            for (int i = 0; i < this.ordering.length; i++) {
+                int position = this.ordering[i];
+
+                if (i < prefixLength) {
+                    low[position] = pattern[position];
+                    high[position] = pattern[position];
+                } else {
+                    low[position] = Long.MIN_VALUE;
+                    high[position] = Long.MAX_VALUE;
+                }
+            }
+
+            return this.entries.subSet(
+                    new Entry(low, Long.MIN_VALUE), true, new Entry(
+                            high, Long.MAX_VALUE), true);
+        }
+
+    }
+
+}
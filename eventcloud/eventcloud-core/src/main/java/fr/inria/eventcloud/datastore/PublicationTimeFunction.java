@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.datastore;
+
+import java.util.List;
+
+import com.google.common.collect.Range;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.sparql.expr.E_Equals;
+import com.hp.hpl.jena.sparql.expr.E_Function;
+import com.hp.hpl.jena.sparql.expr.E_GreaterThan;
+import com.hp.hpl.jena.sparql.expr.E_GreaterThanOrEqual;
+import com.hp.hpl.jena.sparql.expr.E_LessThan;
+import com.hp.hpl.jena.sparql.expr.E_LessThanOrEqual;
+import com.hp.hpl.jena.sparql.expr.E_LogicalAnd;
+import com.hp.hpl.jena.sparql.expr.Expr;
+import com.hp.hpl.jena.sparql.expr.ExprFunction2;
+import com.hp.hpl.jena.sparql.expr.ExprList;
+import com.hp.hpl.jena.sparql.expr.NodeValue;
+import com.hp.hpl.jena.sparql.function.FunctionBase1;
+
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.configuration.EventCloudProperties;
+
+/**
+ * This ARQ function returns the publication time encoded in a meta graph node
+ * or {@code -1} if the graph value has no publication time. It allows SPARQL
+ * queries to filter quadruples by publication time, e.g.
+ * {@code FILTER (ec:publicationTime(?g) >= 1388534400000)}, and such filter
+ * constraints are used by {@link TimePartitionedTdbDatastore} to visit only
+ * the time partitions that may contain matching quadruples.
+ * 
+ * @author lpellegr
+ */
+public class PublicationTimeFunction extends FunctionBase1 {
+
+    public static final String NAME = "publicationTime";
+
+    public static final String URI =
+            EventCloudProperties.FILTER_FUNCTIONS_NS.getValue() + NAME;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public NodeValue exec(NodeValue v) {
+        return NodeValue.makeInteger(publicationTime(v.asNode()));
+    }
+
+    /**
+     * Returns the range of publication times the quadruples matching the
+     * specified graph value and filter constraints may have. The range is
+     * inferred from the graph value when it is concrete and from the
+     * comparisons between {@code publicationTime(graph)} and an integer
+     * constant which appear in top-level conjunctions otherwise. Other filter
+     * constraints are ignored, thus the range returned may be larger than
+     * required but never smaller.
+     * 
+     * @param graph
+     *            the graph value of a quadruple pattern.
+     * @param filterConstraints
+     *            the filter constraints applied to the quadruple pattern (may
+     *            be {@code null}).
+     * 
+     * @return the range of publication times the matching quadruples may have.
+     */
+    public static Range<Long> getPublicationTimes(Node graph,
+                                                  List<ExprList> filterConstraints) {
+        if (graph == null || graph == Node.ANY) {
+            return Range.all();
+        }
+
+        if (graph.isConcrete()) {
+            return Range.singleton(publicationTime(graph));
+        }
+
+        Range<Long> result = Range.all();
+
+        if (filterConstraints != null) {
+            for (ExprList exprList : filterConstraints) {
+                for (Expr expr : exprList) {
+                    result = restrict(result, expr, graph.getName());
+
+                    if (result.isEmpty()) {
+                        return result;
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static Range<Long> restrict(Range<Long> range, Expr expr,
+                                        String graphVarName) {
+        if (expr instanceof E_LogicalAnd) {
+            E_LogicalAnd and = (E_LogicalAnd) expr;
+
+            return restrict(
+                    restrict(range, and.getArg1(), graphVarName),
+                    and.getArg2(), graphVarName);
+        }
+
+        if (!(expr instanceof ExprFunction2)) {
+            return range;
+        }
+
+        ExprFunction2 comparison = (ExprFunction2) expr;
+
+        Range<Long> bounds;
+
+        if (isPublicationTime(comparison.getArg1(), graphVarName)
+                && isInteger(comparison.getArg2())) {
+            bounds =
+                    bounds(comparison, comparison.getArg2()
+                            .getConstant()
+                            .getInteger()
+                            .longValue(), false);
+        } else if (isInteger(comparison.getArg1())
+                && isPublicationTime(comparison.getArg2(), graphVarName)) {
+            bounds =
+                    bounds(comparison, comparison.getArg1()
+                            .getConstant()
+                            .getInteger()
+                            .longValue(), true);
+        } else {
+            return range;
+        }
+
+        if (bounds == null) {
+            return range;
+        }
+
+        if (!range.isConnected(bounds)) {
+            return Range.closedOpen(0L, 0L);
+        }
+
+        return range.intersection(bounds);
+    }
+
+    /*
+     * Returns the publication times satisfying the comparison between
+     * publicationTime(?g) and the specified value. When reversed is true, the
+     * value is the left operand.
+     */
+    private static Range<Long> bounds(ExprFunction2 comparison, long value,
+                                      boolean reversed) {
+        if (comparison instanceof E_Equals) {
+            return Range.singleton(value);
+        } else if (comparison instanceof E_GreaterThan) {
+            return reversed
+                    ? Range.lessThan(value) : Range.greaterThan(value);
+        } else if (comparison instanceof E_GreaterThanOrEqual) {
+            return reversed
+                    ? Range.atMost(value) : Range.atLeast(value);
+        } else if (comparison instanceof E_LessThan) {
+            return reversed
+                    ? Range.greaterThan(value) : Range.lessThan(value);
+        } else if (comparison instanceof E_LessThanOrEqual) {
+            return reversed
+                    ? Range.atLeast(value) : Range.atMost(value);
+        }
+
+        return null;
+    }
+
+    private static boolean isPublicationTime(Expr expr, String graphVarName) {
+        if (!(expr instanceof E_Function)) {
+            return false;
+        }
+
+        E_Function function = (E_Function) expr;
+
+        return URI.equals(function.getFunctionIRI())
+                && function.numArgs() == 1
+                && function.getArg(1).isVariable()
+                && function.getArg(1).getVarName().equals(graphVarName);
+    }
+
+    private static boolean isInteger(Expr expr) {
+        return expr.isConstant() && expr.getConstant().isInteger();
+    }
+
+    private static long publicationTime(Node graph) {
+        if (graph.isURI()) {
+            return Quadruple.getPublicationTime(graph);
+        }
+
+        return -1;
+    }
+
+}
@@ -0,0 +1,697 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.datastore;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.objectweb.proactive.extensions.p2p.structured.utils.Files;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+
+import fr.inria.eventcloud.api.SubscriptionId;
+
+/**
+ * Stores binary records keyed by {@link SubscriptionId} in an append-only log.
+ * Each record is also associated to a group identifier (the original
+ * subscription identifier) which allows to remove all the records related to
+ * a same subscription at once.
+ * <p>
+ * The log is split into fixed size segments that are memory-mapped files, or
+ * direct buffers when the store is in memory. Updates and deletions are
+ * appended to the last segment whereas an index kept in memory maps each live
+ * identifier to the position of its last record. The index is rebuilt by
+ * replaying the segments when the store is opened. Segments are compacted
+ * once the space used by dead records exceeds the space used by live ones.
+ * 
+ * @author lpellegr
+ */
+public class SubscriptionsRecordStore {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(SubscriptionsRecordStore.class);
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    // record layout: type (1 byte), payload length (4 bytes), id (16 bytes),
+    // group id (16 bytes) and payload
+    private static final int HEADER_SIZE = 37;
+
+    // a zero type marks the end of the records written to a segment
+    private static final byte END = 0;
+
+    private static final byte PUT = 1;
+
+    private static final byte DELETE = 2;
+
+    private static final byte DELETE_GROUP = 3;
+
+    private final File directory;
+
+    private final int segmentSize;
+
+    private final boolean autoRemove;
+
+    private final ReadWriteLock lock;
+
+    private final List<Segment> segments;
+
+    private final Map<SubscriptionId, Record> index;
+
+    private final SetMultimap<SubscriptionId, SubscriptionId> groups;
+
+    private int nextSegmentNumber;
+
+    private long liveBytes;
+
+    private long deadBytes;
+
+    private boolean closed;
+
+    /**
+     * Creates a new store whose segments are kept in memory.
+     * 
+     * @param segmentSize
+     *            the size of the segments in bytes.
+     */
+    public SubscriptionsRecordStore(int segmentSize) {
+        this(null, segmentSize, false);
+    }
+
+    /**
+     * Creates or reopens a store whose segments are memory-mapped files
+     * located in the specified {@code directory}.
+     * 
+     * @param directory
+     *            the directory where segments are stored or {@code null} to
+     *            keep the segments in memory.
+     * @param segmentSize
+     *            the size of the segments in bytes.
+     * @param autoRemove
+     *            indicates whether the directory has to be removed or not
+     *            when the store is closed.
+     */
+    public SubscriptionsRecordStore(File directory, int segmentSize,
+            boolean autoRemove) {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Invalid segment size: "
+                    + segmentSize);
+        }
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.autoRemove = autoRemove;
+        this.lock = new ReentrantReadWriteLock();
+        this.segments = new ArrayList<Segment>();
+        this.index = new HashMap<SubscriptionId, Record>();
+        this.groups = HashMultimap.create();
+
+        if (directory != null) {
+            directory.mkdirs();
+
+            try {
+                this.replay();
+            } catch (IOException e) {
+                throw new IllegalStateException(
+                        "Cannot open subscription records from " + directory,
+                        e);
+            }
+        }
+    }
+
+    /**
+     * Appends the specified record. The previous record associated to the
+     * same identifier, if any, is overwritten.
+     * 
+     * @param id
+     *            the identifier of the record.
+     * @param groupId
+     *            the group the record belongs to.
+     * @param payload
+     *            the record content.
+     */
+    public void put(SubscriptionId id, SubscriptionId groupId, byte[] payload) {
+        this.lock.writeLock().lock();
+
+        try {
+            Record record = this.append(PUT, id, groupId, payload);
+            this.kill(this.index.put(id, record));
+            this.groups.put(groupId, id);
+            this.liveBytes += record.size();
+            this.compactIfNecessary();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the content of the record associated to the specified
+     * identifier.
+     * 
+     * @param id
+     *            the identifier of the record to look for.
+     * 
+     * @return the content of the record or {@code null} if there is no record
+     *         associated to the specified identifier.
+     */
+    public byte[] get(SubscriptionId id) {
+        this.lock.readLock().lock();
+
+        try {
+            Record record = this.index.get(id);
+
+            if (record == null) {
+                return null;
+            }
+
+            return record.readPayload();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the record associated to the specified identifier.
+     * 
+     * @param id
+     *            the identifier of the record to remove.
+     * 
+     * @return {@code true} if a record has been removed, {@code false}
+     *         otherwise.
+     */
+    public boolean delete(SubscriptionId id) {
+        this.lock.writeLock().lock();
+
+        try {
+            Record record = this.index.remove(id);
+
+            if (record == null) {
+                return false;
+            }
+
+            this.groups.remove(record.groupId, id);
+            this.kill(record);
+            this.deadBytes +=
+                    this.append(DELETE, id, record.groupId, null).size();
+            this.compactIfNecessary();
+
+            return true;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all the records which belong to the specified group.
+     * 
+     * @param groupId
+     *            the group identifier.
+     * 
+     * @return the number of records removed.
+     */
+    public int deleteGroup(SubscriptionId groupId) {
+        this.lock.writeLock().lock();
+
+        try {
+            Set<SubscriptionId> ids = this.groups.removeAll(groupId);
+
+            if (ids.isEmpty()) {
+                return 0;
+            }
+
+            for (SubscriptionId id : ids) {
+                this.kill(this.index.remove(id));
+            }
+
+            this.deadBytes +=
+                    this.append(DELETE_GROUP, groupId, groupId, null).size();
+            this.compactIfNecessary();
+
+            return ids.size();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of live records.
+     * 
+     * @return the number of live records.
+     */
+    public int size() {
+        this.lock.readLock().lock();
+
+        try {
+            return this.index.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of segments in use.
+     * 
+     * @return the number of segments in use.
+     */
+    public int getNbSegments() {
+        this.lock.readLock().lock();
+
+        try {
+            return this.segments.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all the records.
+     */
+    public void clear() {
+        this.lock.writeLock().lock();
+
+        try {
+            this.release(this.segments, true);
+            this.segments.clear();
+            this.index.clear();
+            this.groups.clear();
+            this.liveBytes = 0;
+            this.deadBytes = 0;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forces the content of the segments to be written to the storage device.
+     */
+    public void sync() {
+        this.lock.readLock().lock();
+
+        try {
+            for (Segment segment : this.segments) {
+                segment.force();
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Closes the store. Segments are written to the storage device and
+     * removed if the store has been created with {@code autoRemove} set to
+     * {@code true}.
+     */
+    public void close() {
+        this.lock.writeLock().lock();
+
+        try {
+            if (this.closed) {
+                return;
+            }
+
+            for (Segment segment : this.segments) {
+                segment.force();
+            }
+
+            this.release(this.segments, false);
+            this.segments.clear();
+            this.index.clear();
+            this.groups.clear();
+            this.closed = true;
+
+            if (this.autoRemove && this.directory != null) {
+                try {
+                    Files.deleteDirectory(this.directory);
+                } catch (IOException e) {
+                    LOG.error("The deletion of the subscription records "
+                            + this.directory + " has failed", e);
+                }
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private Record append(byte type, SubscriptionId id,
+                          SubscriptionId groupId, byte[] payload) {
+        if (this.closed) {
+            throw new IllegalStateException("Store closed");
+        }
+
+        int payloadLength = 0;
+        if (payload != null) {
+            payloadLength = payload.length;
+        }
+        int recordSize = HEADER_SIZE + payloadLength;
+
+        Segment segment = null;
+        if (!this.segments.isEmpty()) {
+            segment = this.segments.get(this.segments.size() - 1);
+        }
+
+        // an extra byte is required to mark the end of the segment
+        if (segment == null || segment.remaining() < recordSize + 1) {
+            segment =
+                    this.createSegment(Math.max(
+                            this.segmentSize, recordSize + 1));
+            this.segments.add(segment);
+        }
+
+        int offset = segment.position;
+        ByteBuffer buffer = segment.buffer;
+
+        ByteArrayDataOutput header = ByteStreams.newDataOutput(HEADER_SIZE);
+
+        try {
+            header.writeInt(payloadLength);
+            id.writeTo(header);
+            groupId.writeTo(header);
+        } catch (IOException e) {
+            // cannot happen with an in-memory output
+            throw new IllegalStateException(e);
+        }
+
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + 1);
+        view.put(header.toByteArray());
+
+        if (payload != null) {
+            view.put(payload);
+        }
+
+        // the type is written last so that a record partially written before
+        // a crash is seen as the end of the segment when the log is replayed
+        buffer.put(offset, type);
+
+        segment.position += recordSize;
+
+        return new Record(segment, offset, payloadLength, groupId);
+    }
+
+    private void kill(Record record) {
+        if (record != null) {
+            this.liveBytes -= record.size();
+            this.deadBytes += record.size();
+        }
+    }
+
+    private void compactIfNecessary() {
+        if (this.deadBytes > this.segmentSize
+                && this.deadBytes > this.liveBytes) {
+            this.compact();
+        }
+    }
+
+    /*
+     * Rewrites live records into new segments and releases the old ones. New
+     * segments have greater numbers than old ones, thus replaying both after a
+     * crash during compaction leads to the same state.
+     */
+    private void compact() {
+        List<Segment> oldSegments = new ArrayList<Segment>(this.segments);
+        Map<SubscriptionId, Record> oldIndex =
+                new HashMap<SubscriptionId, Record>(this.index);
+
+        this.segments.clear();
+        this.index.clear();
+        this.liveBytes = 0;
+        this.deadBytes = 0;
+
+        for (Map.Entry<SubscriptionId, Record> entry : oldIndex.entrySet()) {
+            Record oldRecord = entry.getValue();
+            Record newRecord =
+                    this.append(
+                            PUT, entry.getKey(), oldRecord.groupId,
+                            oldRecord.readPayload());
+
+            this.index.put(entry.getKey(), newRecord);
+            this.liveBytes += newRecord.size();
+        }
+
+        for (Segment segment : this.segments) {
+            segment.force();
+        }
+
+        this.release(oldSegments, true);
+
+        LOG.debug(
+                "Subscription records compacted, {} live records kept in {} segment(s)",
+                this.index.size(), this.segments.size());
+    }
+
+    private void replay() throws IOException {
+        File[] files = this.directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(SEGMENT_PREFIX)
+                        && name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                return Integer.compare(
+                        segmentNumber(f1.getName()),
+                        segmentNumber(f2.getName()));
+            }
+        });
+
+        for (File file : files) {
+            Segment segment =
+                    this.mapSegment(
+                            segmentNumber(file.getName()), file,
+                            (int) file.length());
+            this.segments.add(segment);
+            this.nextSegmentNumber = segment.number + 1;
+
+            ByteBuffer buffer = segment.buffer;
+
+            while (buffer.capacity() - segment.position >= HEADER_SIZE) {
+                int offset = segment.position;
+                byte type = buffer.get(offset);
+
+                if (type == END) {
+                    break;
+                }
+
+                byte[] header = new byte[HEADER_SIZE - 1];
+                ByteBuffer view = buffer.duplicate();
+                view.position(offset + 1);
+                view.get(header);
+
+                ByteArrayDataInput input = ByteStreams.newDataInput(header);
+                int payloadLength = input.readInt();
+                SubscriptionId id = SubscriptionId.readFrom(input);
+                SubscriptionId groupId = SubscriptionId.readFrom(input);
+
+                if (payloadLength < 0
+                        || payloadLength > buffer.capacity() - offset
+                                - HEADER_SIZE) {
+                    LOG.warn("Truncated record found in {}", file);
+                    break;
+                }
+                Record record =
+                        new Record(segment, offset, payloadLength, groupId);
+
+                switch (type) {
+                    case PUT:
+                        this.kill(this.index.put(id, record));
+                        this.groups.put(groupId, id);
+                        this.liveBytes += record.size();
+                        break;
+                    case DELETE:
+                        Record removed = this.index.remove(id);
+                        if (removed != null) {
+                            this.groups.remove(removed.groupId, id);
+                            this.kill(removed);
+                        }
+                        this.deadBytes += record.size();
+                        break;
+                    case DELETE_GROUP:
+                        for (SubscriptionId removedId : this.groups.removeAll(groupId)) {
+                            this.kill(this.index.remove(removedId));
+                        }
+                        this.deadBytes += record.size();
+                        break;
+                    default:
+                        throw new IOException("Unknown record type " + type
+                                + " in " + file);
+                }
+
+                segment.position += record.size();
+            }
+        }
+
+        LOG.debug(
+                "{} subscription records replayed from {} segment(s)",
+                this.index.size(), this.segments.size());
+    }
+
+    private Segment createSegment(int capacity) {
+        int number = this.nextSegmentNumber++;
+
+        if (this.directory == null) {
+            return new Segment(
+                    number, null, null, ByteBuffer.allocateDirect(capacity));
+        }
+
+        try {
+            return this.mapSegment(number, new File(
+                    this.directory, SEGMENT_PREFIX + number + SEGMENT_SUFFIX),
+                    capacity);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Segment mapSegment(int number, File file, int capacity)
+            throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+        try {
+            raf.setLength(capacity);
+
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer buffer =
+                    channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+
+            return new Segment(number, file, raf, buffer);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    private void release(List<Segment> segments, boolean delete) {
+        for (Segment segment : segments) {
+            segment.close();
+
+            // mapped buffers are unmapped once garbage collected, removing the
+            // file before is safe on Unix systems
+            if (delete && segment.file != null && !segment.file.delete()) {
+                LOG.warn("Cannot delete segment {}", segment.file);
+            }
+        }
+    }
+
+    private static int segmentNumber(String fileName) {
+        return Integer.parseInt(fileName.substring(
+                SEGMENT_PREFIX.length(), fileName.length()
+                        - SEGMENT_SUFFIX.length()));
+    }
+
+    private static final class Segment {
+
+        private final int number;
+
+        private final File file;
+
+        private final RandomAccessFile raf;
+
+        private final ByteBuffer buffer;
+
+        // position where the next record is written
+        private int position;
+
+        public Segment(int number, File file, RandomAccessFile raf,
+                ByteBuffer buffer) {
+            this.number = number;
+            this.file = file;
+            this.raf = raf;
+            this.buffer = buffer;
+        }
+
+        public int remaining() {
+            return this.buffer.capacity() - this.position;
+        }
+
+        public void force() {
+            if (this.buffer instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) this.buffer).force();
+            }
+        }
+
+        public void close() {
+            if (this.raf != null) {
+                try {
+                    this.raf.close();
+                } catch (IOException e) {
+                    LOG.error("Cannot close segment " + this.file, e);
+                }
+            }
+        }
+
+    }
+
+    private static final class Record {
+
+        private final Segment segment;
+
+        private final int offset;
+
+        private final int payloadLength;
+
+        private final SubscriptionId groupId;
+
+        public Record(Segment segment, int offset, int payloadLength,
+                SubscriptionId groupId) {
+            this.segment = segment;
+            this.offset = offset;
+            this.payloadLength = payloadLength;
+            this.groupId = groupId;
+        }
+
+        public int size() {
+            return HEADER_SIZE + this.payloadLength;
+        }
+
+        public byte[] readPayload() {
+            byte[] result = new byte[this.payloadLength];
+
+            ByteBuffer view = this.segment.buffer.duplicate();
+            view.position(this.offset + HEADER_SIZE);
+            view.get(result);
+
+            return result;
+        }
+
+    }
+
+}
@@ -0,0 +1,332 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.datastore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Range;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.query.Dataset;
+import com.hp.hpl.jena.query.DatasetFactory;
+import com.hp.hpl.jena.sparql.core.DatasetGraph;
+import com.hp.hpl.jena.sparql.core.Quad;
+
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.api.QuadruplePattern;
+
+/**
+ * Transaction opened on a {@link TimePartitionedTdbDatastore}. A transaction
+ * is started lazily on each partition that is accessed. Quadruples are written
+ * into the partition associated to their publication time whereas lookups,
+ * deletions and queries only visit the partitions that may contain matching
+ * quadruples.
+ * 
+ * @author lpellegr
+ */
+public final class TimePartitionedDatasetGraph implements
+        TransactionalDatasetGraph {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(TimePartitionedDatasetGraph.class);
+
+    private final TimePartitionedTdbDatastore datastore;
+
+    private final AccessMode mode;
+
+    private final Map<TransactionalTdbDatastore, TransactionalDatasetGraph> transactions;
+
+    private boolean finished;
+
+    TimePartitionedDatasetGraph(TimePartitionedTdbDatastore datastore,
+            AccessMode mode) {
+        this.datastore = datastore;
+        this.mode = mode;
+        this.transactions =
+                new LinkedHashMap<TransactionalTdbDatastore, TransactionalDatasetGraph>();
+
+        this.datastore.lock(mode);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add(Node g, Node s, Node p, Node o) {
+        TransactionalTdbDatastore partition =
+                this.datastore.partitionFor(publicationTime(g));
+
+        if (partition == null) {
+            LOG.debug("Quadruple ({}, {}, {}, {}) ignored, partition expired",
+                    g, s, p, o);
+            return;
+        }
+
+        this.transactionOn(partition).add(g, s, p, o);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add(Quadruple quadruple) {
+        TransactionalTdbDatastore partition =
+                this.datastore.partitionFor(quadruple.getPublicationTime());
+
+        if (partition == null) {
+            LOG.debug("Quadruple {} ignored, partition expired", quadruple);
+            return;
+        }
+
+        this.transactionOn(partition).add(quadruple);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add(Collection<Quadruple> quadruples) {
+        for (Quadruple q : quadruples) {
+            this.add(q);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(Quadruple quadruple) {
+        for (TransactionalTdbDatastore partition : this.datastore.partitionsFor(quadruple.getPublicationTime())) {
+            if (this.transactionOn(partition).contains(quadruple)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(Quadruple quadruple) {
+        for (TransactionalTdbDatastore partition : this.datastore.partitionsFor(quadruple.getPublicationTime())) {
+            this.transactionOn(partition).delete(quadruple);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(Collection<Quadruple> quadruples) {
+        for (Quadruple q : quadruples) {
+            this.delete(q);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(QuadruplePattern quadruplePattern) {
+        this.delete(
+                quadruplePattern.getGraph(), quadruplePattern.getSubject(),
+                quadruplePattern.getPredicate(), quadruplePattern.getObject());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(Node g, Node s, Node p, Node o) {
+        for (TransactionalTdbDatastore partition : this.datastore.partitionsFor(publicationTime(g))) {
+            this.transactionOn(partition).delete(g, s, p, o);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QuadrupleIterator find(QuadruplePattern quadruplePattern) {
+        return this.find(
+                quadruplePattern.getGraph(), quadruplePattern.getSubject(),
+                quadruplePattern.getPredicate(), quadruplePattern.getObject());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QuadrupleIterator find(Node g, Node s, Node p, Node o) {
+        List<TransactionalTdbDatastore> partitions =
+                this.datastore.partitionsIn(PublicationTimeFunction.getPublicationTimes(
+                        g, null));
+
+        if (partitions.size() == 1) {
+            return this.transactionOn(partitions.get(0)).find(g, s, p, o);
+        }
+
+        List<Iterator<Quad>> result =
+                new ArrayList<Iterator<Quad>>(partitions.size());
+
+        for (TransactionalTdbDatastore partition : partitions) {
+            result.add(this.transactionOn(partition)
+                    .getUnderlyingDataset()
+                    .asDatasetGraph()
+                    .findNG(g, s, p, o));
+        }
+
+        return new QuadrupleIterator(Iterators.concat(result.iterator()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void abort() {
+        try {
+            for (TransactionalDatasetGraph txnGraph : this.transactions.values()) {
+                txnGraph.abort();
+            }
+        } finally {
+            this.end();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void commit() {
+        for (TransactionalDatasetGraph txnGraph : this.transactions.values()) {
+            txnGraph.commit();
+        }
+
+        if (this.mode == AccessMode.WRITE && !this.transactions.isEmpty()) {
+            this.datastore.incrementVersion();
+        }
+
+        this.end();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void end() {
+        if (this.finished) {
+            return;
+        }
+
+        try {
+            for (TransactionalDatasetGraph txnGraph : this.transactions.values()) {
+                txnGraph.end();
+            }
+        } finally {
+            this.finished = true;
+            this.transactions.clear();
+            this.datastore.unlock(this.mode);
+        }
+    }
+
+    /**
+     * Returns a read-only view over all the partitions. The view cannot be
+     * used to perform SPARQL updates.
+     * 
+     * @return a read-only view over all the partitions.
+     */
+    @Override
+    public Dataset getUnderlyingDataset() {
+        return this.getUnderlyingDataset(Range.<Long> all());
+    }
+
+    /**
+     * Returns a read-only view over the partitions that may contain quadruples
+     * published between {@code startTime} and {@code endTime} (both included).
+     * 
+     * @param startTime
+     *            the lower bound of the time interval.
+     * @param endTime
+     *            the upper bound of the time interval.
+     * 
+     * @return a read-only view over the partitions that may contain
+     *         quadruples published during the specified time interval.
+     */
+    public Dataset getUnderlyingDataset(long startTime, long endTime) {
+        return this.getUnderlyingDataset(Range.closed(startTime, endTime));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When a single partition has to be consulted by a read-only transaction,
+     * its TDB dataset is returned in order to benefit from the TDB query
+     * engine. Otherwise, a read-only union of the partitions consulted is
+     * returned.
+     */
+    @Override
+    public Dataset getUnderlyingDataset(Range<Long> publicationTimes) {
+        List<TransactionalTdbDatastore> partitions =
+                this.datastore.partitionsIn(publicationTimes);
+
+        if (partitions.size() == 1 && this.mode == AccessMode.READ_ONLY) {
+            return this.transactionOn(partitions.get(0))
+                    .getUnderlyingDataset();
+        }
+
+        List<DatasetGraph> datasetGraphs =
+                new ArrayList<DatasetGraph>(partitions.size());
+
+        for (TransactionalTdbDatastore partition : partitions) {
+            datasetGraphs.add(this.transactionOn(partition)
+                    .getUnderlyingDataset()
+                    .asDatasetGraph());
+        }
+
+        return DatasetFactory.create(new UnionDatasetGraph(datasetGraphs));
+    }
+
+    private TransactionalDatasetGraph transactionOn(TransactionalTdbDatastore partition) {
+        TransactionalDatasetGraph result = this.transactions.get(partition);
+
+        if (result == null) {
+            result = partition.begin(this.mode);
+            this.transactions.put(partition, result);
+        }
+
+        return result;
+    }
+
+    private static long publicationTime(Node graph) {
+        if (graph == null) {
+            return -1;
+        }
+
+        return Quadruple.getPublicationTime(graph);
+    }
+
+}
@@ -0,0 +1,462 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.datastore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.objectweb.proactive.extensions.p2p.structured.utils.Files;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.BoundType;
+import com.google.common.collect.Range;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hp.hpl.jena.tdb.base.file.Location;
+
+import fr.inria.eventcloud.datastore.stats.StatsRecorder;
+
+/**
+ * A {@link TransactionalTdbDatastore} whose content is split into time
+ * partitions. Each partition is an independent TDB datastore that receives the
+ * quadruples whose publication time (as encoded in their meta graph node) falls
+ * into the time interval covered by the partition. Quadruples without
+ * publication time are kept in a static partition which never expires.
+ * <p>
+ * When a retention is configured, partitions older than the specified number
+ * of partitions are dropped as a whole (the TDB location is released and its
+ * files removed) instead of deleting quadruples one by one. Lookups whose graph
+ * value is concrete, and SPARQL queries whose publication times are bounded by
+ * their graph value or by {@link PublicationTimeFunction} filter constraints,
+ * only consult the partitions that may contain matching quadruples. A query
+ * that consults a single partition is executed by TDB directly.
+ * <p>
+ * Transactions opened with {@link #begin(AccessMode)} span several partitions.
+ * A commit is performed partition by partition and is thus not atomic across
+ * partitions. Write transactions are serialized, as it is already the case
+ * with a single TDB datastore.
+ * 
+ * @author lpellegr
+ */
+public class TimePartitionedTdbDatastore extends TransactionalTdbDatastore {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(TimePartitionedTdbDatastore.class);
+
+    private static final String PARTITION_PREFIX = "partition-";
+
+    private static final String STATIC_PARTITION = "static";
+
+    private final StatsRecorder statsRecorder;
+
+    private final boolean autoRemove;
+
+    private final long partitionDuration;
+
+    private final int nbPartitionsRetained;
+
+    private final NavigableMap<Long, TransactionalTdbDatastore> partitions;
+
+    // read lock held by transactions, write lock taken to drop partitions
+    private final ReentrantReadWriteLock partitionsLock;
+
+    private final Lock writersLock;
+
+    private TransactionalTdbDatastore staticPartition;
+
+    private ScheduledExecutorService retentionExecutor;
+
+    /**
+     * Creates a new time partitioned datastore.
+     * 
+     * @param location
+     *            the path where the partitions are created or {@code null} to
+     *            create in-memory partitions.
+     * 
+     * @param statsRecorder
+     *            the stats recorder instance shared by all the partitions.
+     * 
+     * @param autoRemove
+     *            indicates whether the repository has to be removed or not when
+     *            it is closed.
+     * 
+     * @param partitionDuration
+     *            the time interval in milliseconds covered by a partition.
+     * 
+     * @param nbPartitionsRetained
+     *            the number of partitions to retain, older partitions are
+     *            dropped. A value lower or equal to {@code 0} means that
+     *            partitions are never dropped.
+     */
+    protected TimePartitionedTdbDatastore(Location location,
+            StatsRecorder statsRecorder, boolean autoRemove,
+            long partitionDuration, int nbPartitionsRetained) {
+        super(location, statsRecorder, autoRemove);
+
+        if (partitionDuration <= 0) {
+            throw new IllegalArgumentException(
+                    "Invalid partition duration: " + partitionDuration);
+        }
+
+        this.statsRecorder = statsRecorder;
+        this.autoRemove = autoRemove;
+        this.partitionDuration = partitionDuration;
+        this.nbPartitionsRetained = nbPartitionsRetained;
+        this.partitions =
+                new ConcurrentSkipListMap<Long, TransactionalTdbDatastore>();
+        this.partitionsLock = new ReentrantReadWriteLock(true);
+        this.writersLock = new ReentrantLock();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TransactionalDatasetGraph begin(AccessMode mode) {
+        return new TimePartitionedDatasetGraph(this, mode);
+    }
+
+    /**
+     * Drops the partitions which are older than the number of partitions
+     * retained. The cost of this operation depends on the number of partitions
+     * dropped and not on the number of quadruples they contain.
+     * 
+     * @return the number of partitions dropped.
+     */
+    public int dropExpiredPartitions() {
+        if (this.nbPartitionsRetained <= 0) {
+            return 0;
+        }
+
+        List<TransactionalTdbDatastore> expired =
+                new ArrayList<TransactionalTdbDatastore>();
+
+        this.partitionsLock.writeLock().lock();
+        try {
+            NavigableMap<Long, TransactionalTdbDatastore> head =
+                    this.partitions.headMap(
+                            this.oldestPartitionRetained(), false);
+
+            expired.addAll(head.values());
+            head.clear();
+        } finally {
+            this.partitionsLock.writeLock().unlock();
+        }
+
+        for (TransactionalTdbDatastore partition : expired) {
+            this.drop(partition);
+        }
+
+        if (!expired.isEmpty()) {
+            super.incrementVersion();
+
+            LOG.debug(
+                    "{} expired partition(s) dropped from datastore {}",
+                    expired.size(), this.id);
+        }
+
+        return expired.size();
+    }
+
+    /**
+     * Returns the number of time partitions, excluding the static partition.
+     * 
+     * @return the number of time partitions, excluding the static partition.
+     */
+    public int getNbPartitions() {
+        return this.partitions.size();
+    }
+
+    public long getPartitionDuration() {
+        return this.partitionDuration;
+    }
+
+    public int getNbPartitionsRetained() {
+        return this.nbPartitionsRetained;
+    }
+
+    /*
+     * Methods below are used by TimePartitionedDatasetGraph
+     */
+
+    void lock(AccessMode mode) {
+        if (mode == AccessMode.WRITE) {
+            this.writersLock.lock();
+        }
+
+        this.partitionsLock.readLock().lock();
+    }
+
+    void unlock(AccessMode mode) {
+        this.partitionsLock.readLock().unlock();
+
+        if (mode == AccessMode.WRITE) {
+            this.writersLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the partition where a quadruple published at the specified time
+     * has to be written, creating it if necessary. The value {@code null} is
+     * returned if the partition has already expired.
+     */
+    TransactionalTdbDatastore partitionFor(long publicationTime) {
+        if (publicationTime == -1) {
+            return this.staticPartition;
+        }
+
+        long index = this.indexOf(publicationTime);
+
+        if (this.nbPartitionsRetained > 0
+                && index < this.oldestPartitionRetained()) {
+            return null;
+        }
+
+        TransactionalTdbDatastore result = this.partitions.get(index);
+
+        if (result == null) {
+            synchronized (this.partitions) {
+                result = this.partitions.get(index);
+
+                if (result == null) {
+                    result = this.createPartition(PARTITION_PREFIX + index);
+                    result.open();
+                    this.partitions.put(index, result);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the partitions that may contain quadruples published at the
+     * specified time. All the partitions are returned when the publication
+     * time is {@code -1}.
+     */
+    List<TransactionalTdbDatastore> partitionsFor(long publicationTime) {
+        if (publicationTime == -1) {
+            return this.partitionsIn(Range.<Long> all());
+        }
+
+        List<TransactionalTdbDatastore> result =
+                new ArrayList<TransactionalTdbDatastore>(1);
+
+        TransactionalTdbDatastore partition =
+                this.partitions.get(this.indexOf(publicationTime));
+
+        if (partition != null) {
+            result.add(partition);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the partitions that may contain quadruples whose publication
+     * time is in the specified range. The static partition is included if the
+     * range contains {@code -1}, the value associated to quadruples without
+     * publication time.
+     */
+    List<TransactionalTdbDatastore> partitionsIn(Range<Long> publicationTimes) {
+        List<TransactionalTdbDatastore> result =
+                new ArrayList<TransactionalTdbDatastore>();
+
+        if (publicationTimes.contains(-1L)) {
+            result.add(this.staticPartition);
+        }
+
+        long startTime = Long.MIN_VALUE;
+        long endTime = Long.MAX_VALUE;
+
+        if (publicationTimes.hasLowerBound()) {
+            startTime = publicationTimes.lowerEndpoint();
+
+            if (publicationTimes.lowerBoundType() == BoundType.OPEN) {
+                if (startTime == Long.MAX_VALUE) {
+                    return result;
+                }
+                startTime++;
+            }
+        }
+
+        if (publicationTimes.hasUpperBound()) {
+            endTime = publicationTimes.upperEndpoint();
+
+            if (publicationTimes.upperBoundType() == BoundType.OPEN) {
+                if (endTime == Long.MIN_VALUE) {
+                    return result;
+                }
+                endTime--;
+            }
+        }
+
+        if (startTime <= endTime) {
+            result.addAll(this.partitions.subMap(
+                    this.indexOf(startTime), true, this.indexOf(endTime), true)
+                    .values());
+        }
+
+        return result;
+    }
+
+    private long indexOf(long time) {
+        // floor division in order to handle negative timestamps
+        long result = time / this.partitionDuration;
+
+        if (time % this.partitionDuration < 0) {
+            result--;
+        }
+
+        return result;
+    }
+
+    private long oldestPartitionRetained() {
+        return this.indexOf(System.currentTimeMillis())
+                - this.nbPartitionsRetained + 1;
+    }
+
+    private TransactionalTdbDatastore createPartition(String name) {
+        TransactionalTdbDatastoreBuilder builder;
+
+        if (this.isMemory()) {
+            builder = new TransactionalTdbDatastoreBuilder();
+        } else {
+            builder =
+                    new TransactionalTdbDatastoreBuilder(new File(
+                            this.getLocation().getDirectoryPath(), name));
+            builder.deleteFilesAfterClose(this.autoRemove);
+        }
+
+        return builder.recordStats(this.statsRecorder).build();
+    }
+
+    private void drop(TransactionalTdbDatastore partition) {
+        // waits for the transactions still running on the partition
+        partition.close();
+
+        if (!partition.isMemory() && !this.autoRemove) {
+            try {
+                Files.deleteDirectory(partition.getLocation()
+                        .getDirectoryPath());
+            } catch (IOException e) {
+                LOG.error("The deletion of the partition "
+                        + partition.getLocation().getDirectoryPath()
+                        + " has failed", e);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void _open() {
+        this.staticPartition = this.createPartition(STATIC_PARTITION);
+        this.staticPartition.open();
+
+        if (!this.isMemory()) {
+            File[] files =
+                    new File(this.getLocation().getDirectoryPath()).listFiles();
+
+            // reopens the partitions which have been created during a
+            // previous run
+            if (files != null) {
+                for (File file : files) {
+                    String name = file.getName();
+
+                    if (file.isDirectory()
+                            && name.startsWith(PARTITION_PREFIX)) {
+                        try {
+                            long index =
+                                    Long.parseLong(name.substring(PARTITION_PREFIX.length()));
+
+                            TransactionalTdbDatastore partition =
+                                    this.createPartition(name);
+                            partition.open();
+                            this.partitions.put(index, partition);
+                        } catch (NumberFormatException e) {
+                            LOG.warn("Ignoring unexpected directory {}", file);
+                        }
+                    }
+                }
+            }
+        }
+
+        if (this.nbPartitionsRetained > 0) {
+            this.retentionExecutor =
+                    Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat(
+                            "TimePartitionsRetention")
+                            .setDaemon(true)
+                            .build());
+            this.retentionExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        TimePartitionedTdbDatastore.this.dropExpiredPartitions();
+                    } catch (Throwable t) {
+                        LOG.error("Dropping expired partitions has failed", t);
+                    }
+                }
+            }, 0, this.partitionDuration, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void _close() {
+        if (this.retentionExecutor != null) {
+            this.retentionExecutor.shutdownNow();
+            this.retentionExecutor = null;
+        }
+
+        this.partitionsLock.writeLock().lock();
+        try {
+            for (TransactionalTdbDatastore partition : this.partitions.values()) {
+                partition.close();
+            }
+            this.partitions.clear();
+
+            this.staticPartition.close();
+        } finally {
+            this.partitionsLock.writeLock().unlock();
+        }
+
+        if (this.autoRemove && !this.isMemory()) {
+            try {
+                Files.deleteDirectory(this.getLocation().getDirectoryPath());
+            } catch (IOException e) {
+                LOG.error("The deletion of the repository "
+                        + this.getLocation().getDirectoryPath()
+                        + " has failed", e);
+            }
+        }
+    }
+
+}
@@ -18,6 +18,7 @@ package fr.inria.eventcloud.datastore;
 
 import java.util.Collection;
 
+import com.google.common.collect.Range;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.query.Dataset;
 
@@ -60,4 +61,22 @@ public interface TransactionalDatasetGraph {
 
     Dataset getUnderlyingDataset();
 
+    /**
+     * Returns a dataset that contains at least the quadruples whose
+     * publication time is in the specified range. Quadruples without
+     * publication time are considered as published at time {@code -1}. A
+     * datastore which is not partitioned by time returns the same dataset as
+     * {@link #getUnderlyingDataset()}, thus queries executed on the dataset
+     * returned must still filter quadruples by publication time if required.
+     * 
+     * @param publicationTimes
+     *            the range of publication times of the quadruples to consider.
+     * 
+     * @return a dataset that contains at least the quadruples whose
+     *         publication time is in the specified range.
+     * 
+     * @see PublicationTimeFunction#getPublicationTimes(Node, java.util.List)
+     */
+    Dataset getUnderlyingDataset(Range<Long> publicationTimes);
+
 }
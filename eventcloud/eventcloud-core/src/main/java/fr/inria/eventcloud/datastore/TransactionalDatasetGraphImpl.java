@@ -18,6 +18,7 @@ package fr.inria.eventcloud.datastore;
 
 import java.util.Collection;
 
+import com.google.common.collect.Range;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.query.Dataset;
 import com.hp.hpl.jena.sparql.core.DatasetGraph;
@@ -38,14 +39,20 @@ import fr.inria.eventcloud.datastore.stats.StatsRecorder;
 public final class TransactionalDatasetGraphImpl implements
         TransactionalDatasetGraph {
 
+    private final TransactionalTdbDatastore datastore;
+
     private final Dataset dataset;
 
     private final DatasetGraph datasetGraph;
 
     private final StatsRecorder statsRecorder;
 
-    public TransactionalDatasetGraphImpl(Dataset dataset,
-            StatsRecorder statsRecorder) {
+    // indicates whether the transaction has modified the dataset
+    private boolean modified;
+
+    public TransactionalDatasetGraphImpl(TransactionalTdbDatastore datastore,
+            Dataset dataset, StatsRecorder statsRecorder) {
+        this.datastore = datastore;
         this.dataset = dataset;
         this.datasetGraph = dataset.asDatasetGraph();
         this.statsRecorder = statsRecorder;
@@ -58,6 +65,7 @@ public final class TransactionalDatasetGraphImpl implements
     public void add(final Node g, final Node s, final Node p, final Node o) {
         this.statsRecorder.register(g, s, p, o);
         this.datasetGraph.add(g, s, p, o);
+        this.modified = true;
     }
 
     /**
@@ -108,6 +116,7 @@ public final class TransactionalDatasetGraphImpl implements
         this.datasetGraph.delete(
                 quadruple.getGraph(), quadruple.getSubject(),
                 quadruple.getPredicate(), quadruple.getObject());
+        this.modified = true;
     }
 
     /**
@@ -136,6 +145,7 @@ public final class TransactionalDatasetGraphImpl implements
     @Override
     public void delete(Node g, Node s, Node p, Node o) {
         this.datasetGraph.deleteAny(g, s, p, o);
+        this.modified = true;
 
         // TODO: perform unregister on the statsRecorder instance for the
         // quadruples that are removed
@@ -173,6 +183,10 @@ public final class TransactionalDatasetGraphImpl implements
     @Override
     public void commit() {
         this.dataset.commit();
+
+        if (this.modified) {
+            this.datastore.incrementVersion();
+        }
     }
 
     /**
@@ -191,4 +205,12 @@ public final class TransactionalDatasetGraphImpl implements
         return this.dataset;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Dataset getUnderlyingDataset(Range<Long> publicationTimes) {
+        return this.getUnderlyingDataset();
+    }
+
 }
@@ -18,6 +18,7 @@ package fr.inria.eventcloud.datastore;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.objectweb.proactive.extensions.p2p.structured.utils.Files;
 import org.slf4j.Logger;
@@ -51,6 +52,8 @@ public class TransactionalTdbDatastore extends Datastore {
 
     private final StatsRecorder statsRecorder;
 
+    private final AtomicLong version;
+
     /**
      * Creates a new datastore that stores data into the specified
      * {@code repositoryPath}.
@@ -71,6 +74,7 @@ public class TransactionalTdbDatastore extends Datastore {
         this.location = location;
         this.autoRemove = autoRemove;
         this.statsRecorder = statsRecorder;
+        this.version = new AtomicLong();
 
         this.registerPlugins();
     }
@@ -85,7 +89,7 @@ public class TransactionalTdbDatastore extends Datastore {
     public TransactionalDatasetGraph begin(AccessMode mode) {
         this.dataset.begin(mode.toJena());
         return new TransactionalDatasetGraphImpl(
-                this.dataset, this.statsRecorder);
+                this, this.dataset, this.statsRecorder);
     }
 
     private void registerPlugins() {
@@ -94,6 +98,8 @@ public class TransactionalTdbDatastore extends Datastore {
 
         FunctionRegistry.get().put(
                 WithoutPrefixFunction.URI, WithoutPrefixFunction.class);
+        FunctionRegistry.get().put(
+                PublicationTimeFunction.URI, PublicationTimeFunction.class);
     }
 
     /**
@@ -146,6 +152,26 @@ public class TransactionalTdbDatastore extends Datastore {
         return this.statsRecorder;
     }
 
+    /**
+     * Returns the version of the datastore. The version is incremented each
+     * time a write transaction that has modified the datastore is committed.
+     * Thus, two identical versions read before two queries ensure that the
+     * data has not changed in the meantime.
+     * 
+     * @return the version of the datastore.
+     */
+    public long getVersion() {
+        return this.version.get();
+    }
+
+    void incrementVersion() {
+        this.version.incrementAndGet();
+    }
+
+    public Location getLocation() {
+        return this.location;
+    }
+
     public boolean isMemory() {
         return this.location == null || this.location.isMemUnique()
                 || this.location.isMem();
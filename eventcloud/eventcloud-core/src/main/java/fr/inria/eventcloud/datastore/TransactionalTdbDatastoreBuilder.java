@@ -36,6 +36,12 @@ public class TransactionalTdbDatastoreBuilder {
 
     private StatsRecorder statsRecorder;
 
+    private long partitionDuration = -1;
+
+    private int nbPartitionsRetained;
+
+    private boolean hexastore = false;
+
     /**
      * Creates a new builder whose the {@link #build()} method will create an
      * in-memory {@link TransactionalTdbDatastore}. This is useful for testing
@@ -77,7 +83,49 @@ public class TransactionalTdbDatastoreBuilder {
         return this;
     }
 
+    /**
+     * Splits the datastore into time partitions according to the publication
+     * time of the quadruples stored. The {@link #build()} method will create a
+     * {@link TimePartitionedTdbDatastore}.
+     * 
+     * @param partitionDuration
+     *            the time interval in milliseconds covered by a partition.
+     * @param nbPartitionsRetained
+     *            the number of partitions to retain or {@code 0} to keep all
+     *            of them.
+     * 
+     * @return the builder instance.
+     */
+    public TransactionalTdbDatastoreBuilder partitionByTime(long partitionDuration,
+                                                            int nbPartitionsRetained) {
+        this.partitionDuration = partitionDuration;
+        this.nbPartitionsRetained = nbPartitionsRetained;
+        return this;
+    }
+
+    /**
+     * Makes the {@link #build()} method create a non-durable
+     * {@link HexastoreDatastore}. The location, if any, is ignored.
+     * 
+     * @return the builder instance.
+     */
+    public TransactionalTdbDatastoreBuilder useHexastore() {
+        this.hexastore = true;
+        return this;
+    }
+
     public TransactionalTdbDatastore build() {
+        if (this.hexastore) {
+            return new HexastoreDatastore(this.statsRecorder);
+        }
+
+        if (this.partitionDuration > 0) {
+            return new TimePartitionedTdbDatastore(
+                    this.location, this.statsRecorder,
+                    this.deleteFilesAfterClose, this.partitionDuration,
+                    this.nbPartitionsRetained);
+        }
+
         if (this.location == null) {
             return new TransactionalTdbDatastore(this.statsRecorder);
         }
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.datastore;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.common.collect.Iterators;
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.sparql.core.DatasetGraph;
+import com.hp.hpl.jena.sparql.core.DatasetGraphBaseFind;
+import com.hp.hpl.jena.sparql.core.GraphView;
+import com.hp.hpl.jena.sparql.core.Quad;
+
+/**
+ * Read-only view over several {@link DatasetGraph}s whose named graphs are
+ * assumed to be disjoint. Lookups are delegated to each dataset graph and the
+ * results are concatenated. It is used by {@link TimePartitionedDatasetGraph}
+ * to evaluate SPARQL queries over several time partitions.
+ * 
+ * @author lpellegr
+ */
+final class UnionDatasetGraph extends DatasetGraphBaseFind {
+
+    private final List<DatasetGraph> datasetGraphs;
+
+    public UnionDatasetGraph(List<DatasetGraph> datasetGraphs) {
+        this.datasetGraphs = datasetGraphs;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Iterator<Quad> findInDftGraph(Node s, Node p, Node o) {
+        List<Iterator<Quad>> result =
+                new ArrayList<Iterator<Quad>>(this.datasetGraphs.size());
+
+        for (DatasetGraph datasetGraph : this.datasetGraphs) {
+            result.add(datasetGraph.find(Quad.defaultGraphIRI, s, p, o));
+        }
+
+        return Iterators.concat(result.iterator());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Iterator<Quad> findInSpecificNamedGraph(Node g, Node s,
+                                                      Node p, Node o) {
+        List<Iterator<Quad>> result =
+                new ArrayList<Iterator<Quad>>(this.datasetGraphs.size());
+
+        for (DatasetGraph datasetGraph : this.datasetGraphs) {
+            result.add(datasetGraph.find(g, s, p, o));
+        }
+
+        return Iterators.concat(result.iterator());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Iterator<Quad> findInAnyNamedGraphs(Node s, Node p, Node o) {
+        List<Iterator<Quad>> result =
+                new ArrayList<Iterator<Quad>>(this.datasetGraphs.size());
+
+        for (DatasetGraph datasetGraph : this.datasetGraphs) {
+            result.add(datasetGraph.findNG(Node.ANY, s, p, o));
+        }
+
+        return Iterators.concat(result.iterator());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Graph getDefaultGraph() {
+        return GraphView.createDefaultGraph(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Graph getGraph(Node graphNode) {
+        return GraphView.createNamedGraph(this, graphNode);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addGraph(Node graphName, Graph graph) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeGraph(Node graphName) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<Node> listGraphNodes() {
+        List<Iterator<Node>> result =
+                new ArrayList<Iterator<Node>>(this.datasetGraphs.size());
+
+        for (DatasetGraph datasetGraph : this.datasetGraphs) {
+            result.add(datasetGraph.listGraphNodes());
+        }
+
+        return Iterators.concat(result.iterator());
+    }
+
+}
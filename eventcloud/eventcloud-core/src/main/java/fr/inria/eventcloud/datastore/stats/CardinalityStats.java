@@ -0,0 +1,391 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.datastore.stats;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import com.hp.hpl.jena.graph.Node;
+
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.api.QuadruplePattern;
+
+/**
+ * Cardinality statistics about the quadruples stored by a datastore: the
+ * number of quadruples per predicate along with estimations of the number of
+ * distinct graphs, subjects and objects. Distinct values are estimated by
+ * using {@link HyperLogLog} sketches, thus statistics recorded by several peers
+ * can be merged to get statistics for a whole network.
+ * <p>
+ * The number of predicates tracked individually is bounded. Once the limit is
+ * reached, quadruples whose the predicate is not tracked are only accounted in
+ * a global counter. Since sketches do not support removals, distinct values
+ * estimations are not decreased when quadruples are removed.
+ * 
+ * @author lpellegr
+ */
+public class CardinalityStats implements Serializable {
+
+    private static final long serialVersionUID = 160L;
+
+    public static final int DEFAULT_PRECISION = 10;
+
+    public static final int DEFAULT_MAX_PREDICATES = 1024;
+
+    private final int precision;
+
+    private final int maxPredicates;
+
+    private long nbQuadruples;
+
+    // number of quadruples whose the predicate is not tracked individually
+    private long nbUntrackedQuadruples;
+
+    private final HyperLogLog graphs;
+
+    private final HyperLogLog subjects;
+
+    private final HyperLogLog objects;
+
+    private final Map<String, PredicateStats> predicates;
+
+    public CardinalityStats() {
+        this(DEFAULT_PRECISION, DEFAULT_MAX_PREDICATES);
+    }
+
+    public CardinalityStats(int precision, int maxPredicates) {
+        this.precision = precision;
+        this.maxPredicates = maxPredicates;
+        this.graphs = new HyperLogLog(precision);
+        this.subjects = new HyperLogLog(precision);
+        this.objects = new HyperLogLog(precision);
+        this.predicates = new HashMap<String, PredicateStats>();
+    }
+
+    /**
+     * Records the specified quadruple. The meta information possibly
+     * contained by the graph value is ignored.
+     * 
+     * @param g
+     *            the graph value.
+     * @param s
+     *            the subject value.
+     * @param p
+     *            the predicate value.
+     * @param o
+     *            the object value.
+     */
+    public synchronized void record(Node g, Node s, Node p, Node o) {
+        String subject = s.toString();
+
+        this.nbQuadruples++;
+
+        if (g.isURI()) {
+            this.graphs.add(Quadruple.removeMetaInformation(g.getURI()));
+        } else {
+            this.graphs.add(g.toString());
+        }
+
+        this.subjects.add(subject);
+        this.objects.add(o.toString());
+
+        String predicate = p.toString();
+        PredicateStats predicateStats = this.predicates.get(predicate);
+
+        if (predicateStats == null) {
+            if (this.predicates.size() >= this.maxPredicates) {
+                this.nbUntrackedQuadruples++;
+                return;
+            }
+
+            predicateStats = new PredicateStats(this.precision);
+            this.predicates.put(predicate, predicateStats);
+        }
+
+        predicateStats.nbQuadruples++;
+        predicateStats.subjects.add(subject);
+    }
+
+    /**
+     * Removes the specified quadruple from the counters. Distinct values
+     * estimations are left unchanged.
+     * 
+     * @param g
+     *            the graph value.
+     * @param s
+     *            the subject value.
+     * @param p
+     *            the predicate value.
+     * @param o
+     *            the object value.
+     */
+    public synchronized void unrecord(Node g, Node s, Node p, Node o) {
+        if (this.nbQuadruples == 0) {
+            return;
+        }
+
+        this.nbQuadruples--;
+
+        PredicateStats predicateStats = this.predicates.get(p.toString());
+
+        if (predicateStats == null) {
+            if (this.nbUntrackedQuadruples > 0) {
+                this.nbUntrackedQuadruples--;
+            }
+        } else if (predicateStats.nbQuadruples > 0) {
+            predicateStats.nbQuadruples--;
+        }
+    }
+
+    /**
+     * Merges the specified statistics into this instance.
+     * 
+     * @param stats
+     *            the statistics to merge.
+     */
+    public void merge(CardinalityStats stats) {
+        // works on a snapshot to avoid holding both locks at the same time
+        CardinalityStats snapshot = stats.copy();
+
+        synchronized (this) {
+            this.nbQuadruples += snapshot.nbQuadruples;
+            this.nbUntrackedQuadruples += snapshot.nbUntrackedQuadruples;
+            this.graphs.merge(snapshot.graphs);
+            this.subjects.merge(snapshot.subjects);
+            this.objects.merge(snapshot.objects);
+
+            for (Map.Entry<String, PredicateStats> entry : snapshot.predicates.entrySet()) {
+                PredicateStats predicateStats =
+                        this.predicates.get(entry.getKey());
+
+                if (predicateStats == null) {
+                    if (this.predicates.size() >= this.maxPredicates) {
+                        this.nbUntrackedQuadruples +=
+                                entry.getValue().nbQuadruples;
+                        continue;
+                    }
+
+                    this.predicates.put(entry.getKey(), entry.getValue());
+                } else {
+                    predicateStats.nbQuadruples +=
+                            entry.getValue().nbQuadruples;
+                    predicateStats.subjects.merge(entry.getValue().subjects);
+                }
+            }
+        }
+    }
+
+    /**
+     * Estimates the number of quadruples matching the specified quadruple
+     * pattern.
+     * 
+     * @param quadruplePattern
+     *            the quadruple pattern to use.
+     * 
+     * @return an estimation of the number of quadruples matching the specified
+     *         quadruple pattern.
+     */
+    public long estimate(QuadruplePattern quadruplePattern) {
+        return this.estimate(
+                quadruplePattern.getGraph(), quadruplePattern.getSubject(),
+                quadruplePattern.getPredicate(), quadruplePattern.getObject());
+    }
+
+    /**
+     * Estimates the number of quadruples matching the specified values. A
+     * value which is {@code null}, {@link Node#ANY} or a variable matches any
+     * value. The estimation assumes that values are uniformly distributed and
+     * independent.
+     * 
+     * @param g
+     *            the graph value.
+     * @param s
+     *            the subject value.
+     * @param p
+     *            the predicate value.
+     * @param o
+     *            the object value.
+     * 
+     * @return an estimation of the number of quadruples matching the specified
+     *         values.
+     */
+    public synchronized long estimate(Node g, Node s, Node p, Node o) {
+        double result;
+        long nbDistinctSubjects;
+
+        if (isConcrete(p)) {
+            PredicateStats predicateStats = this.predicates.get(p.toString());
+
+            if (predicateStats == null) {
+                // the predicate may be one of the untracked predicates
+                result = this.nbUntrackedQuadruples;
+                nbDistinctSubjects = this.subjects.estimate();
+            } else {
+                result = predicateStats.nbQuadruples;
+                nbDistinctSubjects = predicateStats.subjects.estimate();
+            }
+        } else {
+            result = this.nbQuadruples;
+            nbDistinctSubjects = this.subjects.estimate();
+        }
+
+        if (isConcrete(s)) {
+            result /= Math.max(1, nbDistinctSubjects);
+        }
+
+        if (isConcrete(o)) {
+            result /= Math.max(1, this.objects.estimate());
+        }
+
+        if (isConcrete(g)) {
+            result /= Math.max(1, this.graphs.estimate());
+        }
+
+        return (long) Math.ceil(result);
+    }
+
+    /**
+     * Resets all the statistics.
+     */
+    public synchronized void clear() {
+        this.nbQuadruples = 0;
+        this.nbUntrackedQuadruples = 0;
+        this.graphs.clear();
+        this.subjects.clear();
+        this.objects.clear();
+        this.predicates.clear();
+    }
+
+    /**
+     * Returns a deep copy of the statistics.
+     * 
+     * @return a deep copy of the statistics.
+     */
+    public synchronized CardinalityStats copy() {
+        CardinalityStats result =
+                new CardinalityStats(this.precision, this.maxPredicates);
+
+        result.nbQuadruples = this.nbQuadruples;
+        result.nbUntrackedQuadruples = this.nbUntrackedQuadruples;
+        result.graphs.merge(this.graphs);
+        result.subjects.merge(this.subjects);
+        result.objects.merge(this.objects);
+
+        for (Map.Entry<String, PredicateStats> entry : this.predicates.entrySet()) {
+            result.predicates.put(entry.getKey(), entry.getValue().copy());
+        }
+
+        return result;
+    }
+
+    public synchronized long getNbQuadruples() {
+        return this.nbQuadruples;
+    }
+
+    /**
+     * Returns the number of quadruples recorded for the specified predicate or
+     * {@code 0} if the predicate is not tracked.
+     * 
+     * @param predicate
+     *            the predicate value.
+     * 
+     * @return the number of quadruples recorded for the specified predicate.
+     */
+    public synchronized long getNbQuadruples(Node predicate) {
+        PredicateStats predicateStats =
+                this.predicates.get(predicate.toString());
+
+        return predicateStats == null
+                ? 0 : predicateStats.nbQuadruples;
+    }
+
+    public synchronized long getNbDistinctGraphs() {
+        return this.graphs.estimate();
+    }
+
+    public synchronized long getNbDistinctSubjects() {
+        return this.subjects.estimate();
+    }
+
+    /**
+     * Returns an estimation of the number of distinct subjects associated to
+     * the specified predicate or {@code 0} if the predicate is not tracked.
+     * 
+     * @param predicate
+     *            the predicate value.
+     * 
+     * @return an estimation of the number of distinct subjects associated to
+     *         the specified predicate.
+     */
+    public synchronized long getNbDistinctSubjects(Node predicate) {
+        PredicateStats predicateStats =
+                this.predicates.get(predicate.toString());
+
+        return predicateStats == null
+                ? 0 : predicateStats.subjects.estimate();
+    }
+
+    public synchronized long getNbDistinctObjects() {
+        return this.objects.estimate();
+    }
+
+    public synchronized Set<String> getPredicates() {
+        return ImmutableSet.copyOf(this.predicates.keySet());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized String toString() {
+        return "CardinalityStats [nbQuadruples=" + this.nbQuadruples
+                + ", nbPredicates=" + this.predicates.size()
+                + ", nbDistinctGraphs=" + this.graphs.estimate()
+                + ", nbDistinctSubjects=" + this.subjects.estimate()
+                + ", nbDistinctObjects=" + this.objects.estimate() + "]";
+    }
+
+    private static boolean isConcrete(Node node) {
+        return node != null && node.isConcrete();
+    }
+
+    private static final class PredicateStats implements Serializable {
+
+        private static final long serialVersionUID = 160L;
+
+        private long nbQuadruples;
+
+        private final HyperLogLog subjects;
+
+        private PredicateStats(int precision) {
+            this.subjects = new HyperLogLog(precision);
+        }
+
+        private PredicateStats copy() {
+            PredicateStats result =
+                    new PredicateStats(this.subjects.getPrecision());
+            result.nbQuadruples = this.nbQuadruples;
+            result.subjects.merge(this.subjects);
+            return result;
+        }
+
+    }
+
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.datastore.stats;
+
+import org.apfloat.Apfloat;
+
+import com.hp.hpl.jena.graph.Node;
+
+import fr.inria.eventcloud.overlay.can.SemanticCoordinate;
+
+/**
+ * Stats recorder that maintains {@link CardinalityStats} about the quadruples
+ * which are registered. All the other operations are delegated to the stats
+ * recorder which is wrapped (e.g. the one used for load balancing).
+ * 
+ * @author lpellegr
+ */
+public class CardinalityStatsRecorder implements StatsRecorder {
+
+    private static final long serialVersionUID = 160L;
+
+    private final StatsRecorder delegate;
+
+    private final CardinalityStats cardinalityStats;
+
+    public CardinalityStatsRecorder() {
+        this(NullStatsRecorder.getInstance());
+    }
+
+    public CardinalityStatsRecorder(StatsRecorder delegate) {
+        this.delegate = delegate;
+        this.cardinalityStats = new CardinalityStats();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void register(Node g, Node s, Node p, Node o) {
+        this.cardinalityStats.record(g, s, p, o);
+        this.delegate.register(g, s, p, o);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void unregister(Node g, Node s, Node p, Node o) {
+        this.cardinalityStats.unrecord(g, s, p, o);
+        this.delegate.unregister(g, s, p, o);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Apfloat computeGraphEstimation() {
+        return this.delegate.computeGraphEstimation();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Apfloat computeSubjectEstimation() {
+        return this.delegate.computeSubjectEstimation();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Apfloat computePredicateEstimation() {
+        return this.delegate.computePredicateEstimation();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Apfloat computeObjectEstimation() {
+        return this.delegate.computeObjectEstimation();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SemanticCoordinate computeSplitEstimation(byte dimension) {
+        return this.delegate.computeSplitEstimation(dimension);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getNbQuadruples() {
+        return this.delegate.getNbQuadruples();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        this.cardinalityStats.clear();
+        this.delegate.reset();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void sync() {
+        this.delegate.sync();
+    }
+
+    /**
+     * Returns a snapshot of the cardinality statistics recorded so far.
+     * 
+     * @return a snapshot of the cardinality statistics recorded so far.
+     */
+    public CardinalityStats getCardinalityStats() {
+        return this.cardinalityStats.copy();
+    }
+
+    public StatsRecorder getDelegate() {
+        return this.delegate;
+    }
+
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.datastore.stats;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * A HyperLogLog sketch used to estimate the number of distinct values which
+ * have been added to it with a fixed amount of memory ({@code 2^precision}
+ * bytes). Two sketches created with the same precision can be merged to
+ * estimate the number of distinct values contained by their union, which makes
+ * it possible to combine the estimations computed by several peers.
+ * <p>
+ * The standard error of the estimation is about
+ * {@code 1.04 / sqrt(2^precision)}, i.e. roughly 3% with a precision of 10.
+ * Values cannot be removed from a sketch.
+ * 
+ * @author lpellegr
+ */
+public final class HyperLogLog implements Serializable {
+
+    private static final long serialVersionUID = 160L;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final int precision;
+
+    private final byte[] registers;
+
+    /**
+     * Creates a new empty sketch.
+     * 
+     * @param precision
+     *            the number of bits used to select a register. It must be
+     *            between 4 and 16 (inclusive).
+     */
+    public HyperLogLog(int precision) {
+        Preconditions.checkArgument(
+                precision >= 4 && precision <= 16,
+                "Invalid precision: %s", precision);
+
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    private HyperLogLog(HyperLogLog sketch) {
+        this.precision = sketch.precision;
+        this.registers =
+                Arrays.copyOf(sketch.registers, sketch.registers.length);
+    }
+
+    /**
+     * Adds the specified value to the sketch.
+     * 
+     * @param value
+     *            the value to add.
+     * 
+     * @return {@code true} if the internal state of the sketch has changed,
+     *         {@code false} otherwise.
+     */
+    public boolean add(String value) {
+        return this.offerHash(HASH_FUNCTION.hashString(value, Charsets.UTF_8)
+                .asLong());
+    }
+
+    boolean offerHash(long hash) {
+        int index = (int) (hash >>> (64 - this.precision));
+        // rank of the first 1-bit in the remaining bits, bounded when they are
+        // all set to 0
+        byte rank =
+                (byte) Math.min(
+                        Long.numberOfLeadingZeros(hash << this.precision) + 1,
+                        64 - this.precision + 1);
+
+        if (this.registers[index] < rank) {
+            this.registers[index] = rank;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns an estimation of the number of distinct values added to the
+     * sketch.
+     * 
+     * @return an estimation of the number of distinct values added to the
+     *         sketch.
+     */
+    public long estimate() {
+        int m = this.registers.length;
+        double sum = 0;
+        int nbZeros = 0;
+
+        for (byte register : this.registers) {
+            sum += 1.0 / (1L << register);
+
+            if (register == 0) {
+                nbZeros++;
+            }
+        }
+
+        double estimate = alpha(m) * m * m / sum;
+
+        // small range correction (linear counting)
+        if (estimate <= 2.5 * m && nbZeros > 0) {
+            estimate = m * Math.log((double) m / nbZeros);
+        }
+
+        return Math.round(estimate);
+    }
+
+    /**
+     * Merges the specified sketch into this one. Once merged, the sketch
+     * estimates the number of distinct values contained by the union of both
+     * sketches.
+     * 
+     * @param sketch
+     *            the sketch to merge.
+     */
+    public void merge(HyperLogLog sketch) {
+        Preconditions.checkArgument(
+                this.precision == sketch.precision,
+                "Sketches with different precisions cannot be merged: %s and %s",
+                this.precision, sketch.precision);
+
+        for (int i = 0; i < this.registers.length; i++) {
+            if (sketch.registers[i] > this.registers[i]) {
+                this.registers[i] = sketch.registers[i];
+            }
+        }
+    }
+
+    /**
+     * Resets the sketch to its initial state.
+     */
+    public void clear() {
+        Arrays.fill(this.registers, (byte) 0);
+    }
+
+    public HyperLogLog copy() {
+        return new HyperLogLog(this);
+    }
+
+    public int getPrecision() {
+        return this.precision;
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+}
@@ -16,6 +16,7 @@
  **/
 package fr.inria.eventcloud.delayers.actions;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
@@ -119,6 +120,10 @@ public final class CompoundEventAction extends Action<ExtendedCompoundEvent> {
             List<MatchingResult> matchingResults =
                     this.identifyMatchingCompoundEvents(it, buffer);
 
+            if (this.overlay.hasSocialFilter()) {
+                this.prefetchRelationshipStrengths(txnGraph, matchingResults);
+            }
+
             for (final MatchingResult matchingResult : matchingResults) {
                 super.threadPool.execute(new Runnable() {
                     @Override
@@ -257,6 +262,33 @@ public final class CompoundEventAction extends Action<ExtendedCompoundEvent> {
 
     }
 
+    /*
+     * Retrieves in one batch the relationship strengths used to filter the
+     * notifications which are about to be delivered.
+     */
+    private void prefetchRelationshipStrengths(TransactionalDatasetGraph txnGraph,
+                                               List<MatchingResult> matchingResults) {
+        List<Pair<String, String>> pairs =
+                new ArrayList<Pair<String, String>>(matchingResults.size());
+
+        for (MatchingResult matchingResult : matchingResults) {
+            Subscription subscription =
+                    this.overlay.findSubscription(
+                            txnGraph, matchingResult.subscriptionId);
+
+            if (subscription != null) {
+                Quadruple quadruple =
+                        matchingResult.extendedCompoundEvent.compoundEvent.get(0);
+
+                pairs.add(Pair.create(
+                        quadruple.getPublicationSource(),
+                        subscription.getSubscriptionDestination()));
+            }
+        }
+
+        this.overlay.prefetchRelationshipStrengths(pairs);
+    }
+
     private List<Node> findAndHandleEphemeralSubscriptions(TransactionalDatasetGraph txnGraph,
                                                            Iterable<ExtendedCompoundEvent> extendedCompoundEvents) {
         Builder<Node> result = ImmutableList.builder();
@@ -16,6 +16,7 @@
  **/
 package fr.inria.eventcloud.delayers.actions;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -24,6 +25,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.objectweb.proactive.api.PAActiveObject;
+import org.objectweb.proactive.extensions.p2p.structured.utils.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -169,6 +171,10 @@ public final class QuadrupleAction extends Action<Quadruple> {
                 Optimize.setFactory(Optimize.stdOptimizationFactory);
             }
 
+            if (super.overlay.hasSocialFilter()) {
+                this.prefetchRelationshipStrengths(matchingResults);
+            }
+
             for (MatchingResult matchingResult : matchingResults) {
                 // TODO each quadrupleMatching could be handled in parallel to
                 // another by using the thread pool from the super class but
@@ -202,6 +208,26 @@ public final class QuadrupleAction extends Action<Quadruple> {
         }
     }
 
+    /*
+     * Retrieves in one batch the relationship strengths used to filter the
+     * notifications which are about to be delivered.
+     */
+    private void prefetchRelationshipStrengths(List<MatchingResult> matchingResults) {
+        List<Pair<String, String>> pairs =
+                new ArrayList<Pair<String, String>>(matchingResults.size());
+
+        for (MatchingResult matchingResult : matchingResults) {
+            // subscriptions which are rewritten do not trigger notifications
+            if (matchingResult.subscription.getSubSubscriptions().length == 1) {
+                pairs.add(Pair.create(
+                        matchingResult.quadruple.getPublicationSource(),
+                        matchingResult.subscription.getSubscriptionDestination()));
+            }
+        }
+
+        super.overlay.prefetchRelationshipStrengths(pairs);
+    }
+
     private void findAndHandleEphemeralSubscriptions(TransactionalDatasetGraph txnGraph,
                                                      Buffer<Quadruple> quadruples) {
         try {
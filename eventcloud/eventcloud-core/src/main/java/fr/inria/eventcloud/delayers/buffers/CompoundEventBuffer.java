@@ -21,6 +21,7 @@ import java.util.Iterator;
 import java.util.Map;
 
 import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.configuration.EventCloudProperties;
 import fr.inria.eventcloud.datastore.AccessMode;
 import fr.inria.eventcloud.datastore.TransactionalDatasetGraph;
 import fr.inria.eventcloud.overlay.SemanticCanOverlay;
@@ -80,9 +81,18 @@ public final class CompoundEventBuffer extends Buffer<ExtendedCompoundEvent> {
 
     /**
      * {@inheritDoc}
+     * <p>
+     * Nothing is written when
+     * {@link EventCloudProperties#isCompoundEventsStorageRequired()} returns
+     * {@code false}: compound events are kept in memory until they have been
+     * matched against the subscriptions and then dropped.
      */
     @Override
     public void persist() {
+        if (!EventCloudProperties.isCompoundEventsStorageRequired()) {
+            return;
+        }
+
         TransactionalDatasetGraph txnGraph =
                 super.overlay.getMiscDatastore().begin(AccessMode.WRITE);
 
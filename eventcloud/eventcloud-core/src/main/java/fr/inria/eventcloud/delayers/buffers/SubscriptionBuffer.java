@@ -21,6 +21,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import fr.inria.eventcloud.datastore.AccessMode;
+import fr.inria.eventcloud.datastore.SubscriptionsRecordStore;
 import fr.inria.eventcloud.datastore.TransactionalDatasetGraph;
 import fr.inria.eventcloud.overlay.SemanticCanOverlay;
 import fr.inria.eventcloud.pubsub.Subscription;
@@ -87,6 +88,13 @@ public final class SubscriptionBuffer extends Buffer<Subscription> {
             }
 
             txnGraph.commit();
+
+            SubscriptionsRecordStore records =
+                    super.overlay.getSubscriptionsRecords();
+
+            for (Subscription s : this.subscriptions) {
+                records.put(s.getId(), s.getOriginalId(), s.toBytes());
+            }
         } catch (Exception e) {
             e.printStackTrace();
             txnGraph.abort();
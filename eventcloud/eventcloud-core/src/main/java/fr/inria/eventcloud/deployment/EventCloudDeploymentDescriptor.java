@@ -20,6 +20,7 @@ import org.objectweb.proactive.extensions.p2p.structured.deployment.CanDeploymen
 import org.objectweb.proactive.extensions.p2p.structured.deployment.DeploymentDescriptor;
 import org.objectweb.proactive.extensions.p2p.structured.providers.SerializableProvider;
 
+import fr.inria.eventcloud.datastore.DatastoreEngine;
 import fr.inria.eventcloud.overlay.SemanticCanOverlay;
 import fr.inria.eventcloud.overlay.can.SemanticCoordinate;
 import fr.inria.eventcloud.providers.SemanticOverlayProvider;
@@ -42,6 +43,18 @@ public class EventCloudDeploymentDescriptor extends
         super(new SemanticOverlayProvider(true));
     }
 
+    /**
+     * Creates a new {@link EventCloudDeploymentDescriptor} by using a
+     * {@link SemanticOverlayProvider} whose datastores are created with the
+     * specified {@code datastoreEngine}.
+     * 
+     * @param datastoreEngine
+     *            the engine used to create the datastores of each peer.
+     */
+    public EventCloudDeploymentDescriptor(DatastoreEngine datastoreEngine) {
+        super(new SemanticOverlayProvider(datastoreEngine));
+    }
+
     /**
      * Creates a new {@link EventCloudDeploymentDescriptor} with the specified
      * {@code overlayProvider}.
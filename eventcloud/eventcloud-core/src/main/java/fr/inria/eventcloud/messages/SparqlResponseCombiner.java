@@ -26,6 +26,7 @@ import org.objectweb.proactive.extensions.p2p.structured.configuration.P2PStruct
 import org.objectweb.proactive.extensions.p2p.structured.messages.RequestResponseManager;
 import org.objectweb.proactive.extensions.p2p.structured.messages.Response;
 import org.objectweb.proactive.extensions.p2p.structured.messages.ResponseCombiner;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.OverlayId;
 import org.objectweb.proactive.extensions.p2p.structured.utils.converters.ObjectToByteConverter;
 
 import com.hp.hpl.jena.query.ResultSet;
@@ -39,10 +40,12 @@ import fr.inria.eventcloud.api.responses.SparqlSelectResponse;
 import fr.inria.eventcloud.api.wrappers.ModelWrapper;
 import fr.inria.eventcloud.api.wrappers.ResultSetWrapper;
 import fr.inria.eventcloud.messages.response.QuadruplePatternResponse;
+import fr.inria.eventcloud.messages.response.SparqlAtomicResponse;
 import fr.inria.eventcloud.overlay.SemanticRequestResponseManager;
 
 /**
- * Defines how to combine responses received for a SPARQL query.
+ * Defines how to combine responses received for a SPARQL query. The combined
+ * result is a {@link VersionedSparqlResponse}.
  * 
  * @author lpellegr
  */
@@ -170,7 +173,14 @@ public class SparqlResponseCombiner implements ResponseCombiner {
                                 + semanticContext.getQueryType());
         }
 
-        return result;
+        Map<OverlayId, Long> datastoreVersions =
+                new HashMap<OverlayId, Long>();
+
+        for (QuadruplePatternResponse response : semanticResponses) {
+            datastoreVersions.putAll(((SparqlAtomicResponse) response).getDatastoreVersions());
+        }
+
+        return new VersionedSparqlResponse(result, datastoreVersions);
     }
 
     /**
@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.messages;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import org.objectweb.proactive.extensions.p2p.structured.overlay.OverlayId;
+
+import fr.inria.eventcloud.api.responses.SparqlResponse;
+import fr.inria.eventcloud.messages.response.SparqlAtomicResponse;
+
+/**
+ * Result returned by a {@link SparqlResponseCombiner}. It wraps the SPARQL
+ * response sent back to the user along with the versions of the misc
+ * datastores of the peers which have been visited to answer the query.
+ * 
+ * @author lpellegr
+ * 
+ * @see SparqlAtomicResponse#getDatastoreVersions()
+ */
+public class VersionedSparqlResponse implements Serializable {
+
+    private static final long serialVersionUID = 160L;
+
+    private final SparqlResponse<?> response;
+
+    private final Map<OverlayId, Long> datastoreVersions;
+
+    public VersionedSparqlResponse(SparqlResponse<?> response,
+            Map<OverlayId, Long> datastoreVersions) {
+        this.response = response;
+        this.datastoreVersions = datastoreVersions;
+    }
+
+    public SparqlResponse<?> getResponse() {
+        return this.response;
+    }
+
+    /**
+     * Returns the version of the misc datastore of each peer which has been
+     * visited to answer the query, indexed by peer identifier.
+     * 
+     * @return the version of the misc datastore of each peer which has been
+     *         visited to answer the query.
+     */
+    public Map<OverlayId, Long> getDatastoreVersions() {
+        return this.datastoreVersions;
+    }
+
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.messages.request;
+
+import org.objectweb.proactive.extensions.p2p.structured.messages.request.can.MulticastRequest;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.CanOverlay;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.zone.points.Point;
+import org.objectweb.proactive.extensions.p2p.structured.providers.ResponseProvider;
+
+import fr.inria.eventcloud.api.QuadruplePattern;
+import fr.inria.eventcloud.datastore.stats.CardinalityStats;
+import fr.inria.eventcloud.messages.response.CardinalityStatsResponse;
+import fr.inria.eventcloud.overlay.SemanticCanOverlay;
+import fr.inria.eventcloud.overlay.can.SemanticCoordinate;
+
+/**
+ * Retrieves the {@link CardinalityStats} maintained by the peers which manage
+ * quadruples matching the {@link QuadruplePattern} specified when the object
+ * is constructed. The statistics returned by each peer are merged into a
+ * single instance.
+ * 
+ * @author lpellegr
+ */
+public class CardinalityStatsRequest extends
+        StatefulQuadruplePatternRequest<CardinalityStats> {
+
+    private static final long serialVersionUID = 160L;
+
+    public CardinalityStatsRequest() {
+        this(QuadruplePattern.ANY);
+    }
+
+    public CardinalityStatsRequest(QuadruplePattern quadruplePattern) {
+        super(
+                quadruplePattern,
+                new ResponseProvider<CardinalityStatsResponse, Point<SemanticCoordinate>>() {
+                    private static final long serialVersionUID = 160L;
+
+                    @Override
+                    public CardinalityStatsResponse get() {
+                        return new CardinalityStatsResponse();
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CardinalityStats onPeerValidatingKeyConstraints(CanOverlay<SemanticCoordinate> overlay,
+                                                           MulticastRequest<SemanticCoordinate> request,
+                                                           QuadruplePattern quadruplePattern) {
+        return ((SemanticCanOverlay) overlay).getCardinalityStats();
+    }
+
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.messages.request;
+
+import java.util.List;
+
+import org.objectweb.proactive.extensions.p2p.structured.overlay.Peer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.datastore.AccessMode;
+import fr.inria.eventcloud.datastore.TransactionalDatasetGraph;
+import fr.inria.eventcloud.overlay.SemanticCanOverlay;
+
+/**
+ * DeleteQuadruplesBatchRequest is used to remove several quadruples at once.
+ * Each peer reached deletes the quadruples it manages in a single transaction.
+ * 
+ * @author lpellegr
+ * 
+ * @see DeleteQuadrupleRequest
+ */
+public class DeleteQuadruplesBatchRequest extends QuadruplesBatchRequest {
+
+    private static final long serialVersionUID = 160L;
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(DeleteQuadruplesBatchRequest.class);
+
+    public DeleteQuadruplesBatchRequest(List<Quadruple> quadruples) {
+        super(quadruples);
+    }
+
+    private DeleteQuadruplesBatchRequest(DeleteQuadruplesBatchRequest request,
+            List<Quadruple> quadruples, Peer parent) {
+        super(request, quadruples, parent);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QuadruplesBatchRequest split(List<Quadruple> quadruples,
+                                        Peer parent) {
+        return new DeleteQuadruplesBatchRequest(this, quadruples, parent);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onDestinationReached(SemanticCanOverlay overlay,
+                                     List<Quadruple> quadruples) {
+        TransactionalDatasetGraph txnGraph =
+                overlay.getMiscDatastore().begin(AccessMode.WRITE);
+
+        try {
+            txnGraph.delete(quadruples);
+            txnGraph.commit();
+
+            LOG.debug(
+                    "{} quadruples deleted on {}", quadruples.size(), overlay);
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            txnGraph.end();
+        }
+    }
+
+}
@@ -140,12 +140,19 @@ public class IndexEphemeralSubscriptionRequest extends
                 return false;
             }
 
-            for (Quadruple q : this.createEphemeralSubscriptionQuadruples()) {
+            long indexationTime = System.currentTimeMillis();
+
+            for (Quadruple q : this.createEphemeralSubscriptionQuadruples(indexationTime)) {
                 txnGraph.add(q);
             }
 
             txnGraph.commit();
 
+            overlay.scheduleEphemeralSubscriptionExpiration(
+                    NodeFactory.createURI(this.metaGraph.getValue()),
+                    PublishSubscribeUtils.createSubscriptionIdUri(this.subscriptionId.getValue()),
+                    indexationTime);
+
             return true;
         } catch (Exception e) {
             throw new IllegalStateException(e);
@@ -154,7 +161,7 @@ public class IndexEphemeralSubscriptionRequest extends
         }
     }
 
-    private final List<Quadruple> createEphemeralSubscriptionQuadruples() {
+    private final List<Quadruple> createEphemeralSubscriptionQuadruples(long indexationTime) {
         Node graph = NodeFactory.createURI(this.metaGraph.getValue());
         Node sId =
                 PublishSubscribeUtils.createSubscriptionIdUri(this.subscriptionId.getValue());
@@ -171,7 +178,7 @@ public class IndexEphemeralSubscriptionRequest extends
                         sId,
                         PublishSubscribeConstants.EPHEMERAL_SUBSCRIPTION_INDEXATION_DATETIME_NODE,
                         NodeFactory.createLiteral(
-                                Long.toString(System.currentTimeMillis()),
+                                Long.toString(indexationTime),
                                 XSDDatatype.XSDlong), false, false));
     }
 
@@ -0,0 +1,192 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.messages.request;
+
+import java.util.List;
+
+import org.objectweb.proactive.extensions.p2p.structured.messages.MessageId;
+import org.objectweb.proactive.extensions.p2p.structured.messages.request.can.MulticastRequest;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.Peer;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.StructuredOverlay;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.CanOverlay;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.zone.Zone;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.zone.points.Point;
+import org.objectweb.proactive.extensions.p2p.structured.providers.ResponseProvider;
+import org.objectweb.proactive.extensions.p2p.structured.validator.can.MulticastConstraintsValidator;
+
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.messages.response.QuadruplesBatchResponse;
+import fr.inria.eventcloud.overlay.SemanticCanOverlay;
+import fr.inria.eventcloud.overlay.can.SemanticCoordinate;
+import fr.inria.eventcloud.overlay.can.SemanticPointFactory;
+
+/**
+ * QuadruplesBatchRequest is a request that carries a set of quadruples to the
+ * peers which manage them. Each peer receiving the request handles the
+ * quadruples belonging to its zone at once and splits the remaining ones by
+ * neighbor before to forward them. Thus, each quadruple follows the same path
+ * as with a {@link QuadrupleRequest} but a single message is sent between two
+ * peers.
+ * <p>
+ * Each peer forwarding a part of the request acts as a synchronization point:
+ * it waits for the responses of the neighbors it has contacted before to send
+ * back a response to the peer it has received the request from.
+ * 
+ * @author lpellegr
+ * 
+ * @see QuadruplesBatchRequestRouter
+ */
+public abstract class QuadruplesBatchRequest extends
+        MulticastRequest<SemanticCoordinate> {
+
+    private static final long serialVersionUID = 160L;
+
+    protected final List<Quadruple> quadruples;
+
+    // the peer which has forwarded the request and waits for a response or
+    // null if the request has been received from a proxy
+    protected final Peer parent;
+
+    public QuadruplesBatchRequest(List<Quadruple> quadruples) {
+        super(new QuadruplesConstraintsValidator(quadruples),
+                newResponseProvider());
+
+        this.quadruples = quadruples;
+        this.parent = null;
+    }
+
+    /**
+     * Creates a new request which carries the specified {@code quadruples}
+     * that belong to the specified {@code request}.
+     * 
+     * @param request
+     *            the request which is split.
+     * @param quadruples
+     *            the subset of the quadruples to convey.
+     * @param parent
+     *            the peer which waits for a response.
+     */
+    protected QuadruplesBatchRequest(QuadruplesBatchRequest request,
+            List<Quadruple> quadruples, Peer parent) {
+        super(new QuadruplesConstraintsValidator(quadruples),
+                request.getResponseProvider() == null
+                        ? null : newResponseProvider());
+
+        this.quadruples = quadruples;
+        this.parent = parent;
+
+        super.aggregationId = request.aggregationId;
+        super.responseDestination = request.responseDestination;
+        super.dispatchTimestamp = request.dispatchTimestamp;
+        super.hopCount = request.hopCount;
+    }
+
+    private static ResponseProvider<QuadruplesBatchResponse, Point<SemanticCoordinate>> newResponseProvider() {
+        return new ResponseProvider<QuadruplesBatchResponse, Point<SemanticCoordinate>>() {
+            private static final long serialVersionUID = 160L;
+
+            @Override
+            public QuadruplesBatchResponse get() {
+                return new QuadruplesBatchResponse();
+            }
+        };
+    }
+
+    /**
+     * Creates a new request of the same type which carries the specified
+     * {@code quadruples}. This method is used when the request is split.
+     * 
+     * @param quadruples
+     *            the quadruples to convey.
+     * @param parent
+     *            the peer which waits for a response.
+     * 
+     * @return a new request of the same type.
+     */
+    public abstract QuadruplesBatchRequest split(List<Quadruple> quadruples,
+                                                 Peer parent);
+
+    /**
+     * Defines the action to execute on a peer for the quadruples it manages.
+     * 
+     * @param overlay
+     *            the overlay of the peer.
+     * @param quadruples
+     *            the quadruples managed by the peer.
+     */
+    public abstract void onDestinationReached(SemanticCanOverlay overlay,
+                                              List<Quadruple> quadruples);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QuadruplesBatchRequestRouter getRouter() {
+        return new QuadruplesBatchRequestRouter();
+    }
+
+    public List<Quadruple> getQuadruples() {
+        return this.quadruples;
+    }
+
+    public Peer getParent() {
+        return this.parent;
+    }
+
+    void setId(MessageId id) {
+        super.id = id;
+    }
+
+    private static final class QuadruplesConstraintsValidator extends
+            MulticastConstraintsValidator<SemanticCoordinate> {
+
+        private static final long serialVersionUID = 160L;
+
+        private final List<Quadruple> quadruples;
+
+        public QuadruplesConstraintsValidator(List<Quadruple> quadruples) {
+            super(SemanticPointFactory.newSemanticCoordinate(quadruples.get(0)));
+
+            this.quadruples = quadruples;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean validatesKeyConstraints(StructuredOverlay overlay) {
+            return this.validatesKeyConstraints(((CanOverlay<SemanticCoordinate>) overlay).getZone());
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean validatesKeyConstraints(Zone<SemanticCoordinate> zone) {
+            for (Quadruple q : this.quadruples) {
+                if (zone.contains(SemanticPointFactory.newSemanticCoordinate(q))) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+    }
+
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.messages.request;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.objectweb.proactive.extensions.p2p.structured.messages.MessageId;
+import org.objectweb.proactive.extensions.p2p.structured.messages.ResponseEntry;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.StructuredOverlay;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.NeighborEntry;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.zone.Zone;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.zone.points.Point;
+import org.objectweb.proactive.extensions.p2p.structured.router.can.UnicastRequestRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.messages.response.QuadruplesBatchResponse;
+import fr.inria.eventcloud.overlay.SemanticCanOverlay;
+import fr.inria.eventcloud.overlay.can.SemanticCoordinate;
+import fr.inria.eventcloud.overlay.can.SemanticPointFactory;
+
+/**
+ * Router used to route {@link QuadruplesBatchRequest}s. On each peer, the
+ * quadruples managed by the peer are handled and the others are grouped by
+ * the neighbor that would be selected to route each of them with a unicast
+ * request (see {@link UnicastRequestRouter#nextHop}). A new request is then
+ * forwarded to each of these neighbors.
+ * 
+ * @author lpellegr
+ */
+public class QuadruplesBatchRequestRouter extends
+        UnicastRequestRouter<QuadruplesBatchRequest, SemanticCoordinate> {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(QuadruplesBatchRequestRouter.class);
+
+    public QuadruplesBatchRequestRouter() {
+        super();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void makeDecision(StructuredOverlay overlay,
+                             QuadruplesBatchRequest request) {
+        // each peer that receives the request may manage some quadruples
+        this.handle(overlay, request);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void handle(StructuredOverlay overlay,
+                          QuadruplesBatchRequest request) {
+        SemanticCanOverlay semanticOverlay = (SemanticCanOverlay) overlay;
+        Zone<SemanticCoordinate> zone = semanticOverlay.getZone();
+
+        List<Quadruple> localQuadruples = new ArrayList<Quadruple>();
+        Map<NeighborEntry<SemanticCoordinate>, List<Quadruple>> quadruplesToForward =
+                new HashMap<NeighborEntry<SemanticCoordinate>, List<Quadruple>>();
+
+        for (Quadruple q : request.getQuadruples()) {
+            Point<SemanticCoordinate> point =
+                    SemanticPointFactory.newSemanticCoordinate(q);
+
+            if (zone.contains(point)) {
+                localQuadruples.add(q);
+                continue;
+            }
+
+            NeighborEntry<SemanticCoordinate> neighbor =
+                    super.nextHop(semanticOverlay, point);
+
+            if (neighbor == null) {
+                LOG.error(
+                        "Quadruple {} is managed by no peer, it is discarded",
+                        q);
+                continue;
+            }
+
+            List<Quadruple> quadruples = quadruplesToForward.get(neighbor);
+
+            if (quadruples == null) {
+                quadruples = new ArrayList<Quadruple>();
+                quadruplesToForward.put(neighbor, quadruples);
+            }
+
+            quadruples.add(q);
+        }
+
+        if (!localQuadruples.isEmpty()) {
+            request.onDestinationReached(semanticOverlay, localQuadruples);
+        }
+
+        if (request.getResponseProvider() == null) {
+            for (Map.Entry<NeighborEntry<SemanticCoordinate>, List<Quadruple>> entry : quadruplesToForward.entrySet()) {
+                super.forward(entry.getKey(), request.split(
+                        entry.getValue(), null));
+            }
+
+            return;
+        }
+
+        QuadruplesBatchResponse response =
+                (QuadruplesBatchResponse) request.getResponseProvider().get(
+                        request, overlay);
+        response.setNbQuadruplesHandled(localQuadruples.size());
+
+        if (quadruplesToForward.isEmpty()) {
+            response.sendBack();
+            return;
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Splitting request " + request.getId() + " into "
+                    + quadruplesToForward.size() + " request(s) on "
+                    + overlay);
+        }
+
+        // all the requests forwarded from this peer share the same identifier
+        // which is used to register the synchronization point
+        MessageId subRequestsId = overlay.newMessageId();
+
+        List<QuadruplesBatchRequest> subRequests =
+                new ArrayList<QuadruplesBatchRequest>(
+                        quadruplesToForward.size());
+        List<NeighborEntry<SemanticCoordinate>> neighbors =
+                new ArrayList<NeighborEntry<SemanticCoordinate>>(
+                        quadruplesToForward.size());
+
+        for (Map.Entry<NeighborEntry<SemanticCoordinate>, List<Quadruple>> entry : quadruplesToForward.entrySet()) {
+            QuadruplesBatchRequest subRequest =
+                    request.split(entry.getValue(), overlay.getStub());
+            subRequest.setId(subRequestsId);
+
+            subRequests.add(subRequest);
+            neighbors.add(entry.getKey());
+        }
+
+        ResponseEntry responseEntry = new ResponseEntry(subRequests.size());
+        responseEntry.setResponse(response);
+
+        overlay.getRequestResponseManager().putResponseEntry(
+                subRequests.get(0), responseEntry);
+
+        for (int i = 0; i < subRequests.size(); i++) {
+            if (!super.forward(neighbors.get(i), subRequests.get(i))) {
+                // the synchronization point must not wait for a response
+                // that will never come
+                QuadruplesBatchResponse emptyResponse =
+                        (QuadruplesBatchResponse) subRequests.get(i)
+                                .getResponseProvider()
+                                .get(subRequests.get(i), overlay);
+                emptyResponse.route(overlay);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void route(StructuredOverlay overlay,
+                         QuadruplesBatchRequest request) {
+        // routing decisions are taken for each quadruple by handle
+    }
+
+}
@@ -20,6 +20,8 @@ import java.util.List;
 
 import org.objectweb.proactive.extensions.p2p.structured.messages.request.can.MulticastRequest;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.can.CanOverlay;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.zone.points.Point;
+import org.objectweb.proactive.extensions.p2p.structured.providers.ResponseProvider;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
@@ -32,7 +34,7 @@ import com.hp.hpl.jena.sparql.engine.binding.Binding;
 import fr.inria.eventcloud.api.Quadruple;
 import fr.inria.eventcloud.datastore.AccessMode;
 import fr.inria.eventcloud.datastore.TransactionalDatasetGraph;
-import fr.inria.eventcloud.messages.response.QuadruplePatternResponseProvider;
+import fr.inria.eventcloud.messages.response.SparqlAtomicResponse;
 import fr.inria.eventcloud.overlay.SemanticCanOverlay;
 import fr.inria.eventcloud.overlay.can.SemanticCoordinate;
 import fr.inria.eventcloud.reasoner.AtomicQuery;
@@ -57,9 +59,17 @@ public class SparqlAtomicRequest extends
     private final AtomicQuery atomicQuery;
 
     public SparqlAtomicRequest(AtomicQuery atomicQuery) {
-        super(new AtomicQueryConstraintsValidator(atomicQuery),
+        super(
+                new AtomicQueryConstraintsValidator(atomicQuery),
                 atomicQuery.getQuadruplePattern(),
-                new QuadruplePatternResponseProvider());
+                new ResponseProvider<SparqlAtomicResponse, Point<SemanticCoordinate>>() {
+                    private static final long serialVersionUID = 160L;
+
+                    @Override
+                    public SparqlAtomicResponse get() {
+                        return new SparqlAtomicResponse();
+                    }
+                });
 
         this.atomicQuery = atomicQuery;
     }
@@ -79,7 +89,7 @@ public class SparqlAtomicRequest extends
             QueryIterator iterator =
                     Algebra.exec(
                             this.atomicQuery.getOpRepresentation(),
-                            txnGraph.getUnderlyingDataset());
+                            txnGraph.getUnderlyingDataset(this.atomicQuery.getPublicationTimes()));
 
             return toQuadruples(iterator, this.atomicQuery);
         } catch (Exception e) {
@@ -115,6 +125,10 @@ public class SparqlAtomicRequest extends
         }
     }
 
+    public AtomicQuery getAtomicQuery() {
+        return this.atomicQuery;
+    }
+
     public String getQuery() {
         return this.atomicQuery.toString();
     }
@@ -29,6 +29,7 @@ import org.objectweb.proactive.extensions.p2p.structured.validator.can.Multicast
 
 import fr.inria.eventcloud.api.QuadruplePattern;
 import fr.inria.eventcloud.messages.response.StatefulQuadruplePatternResponse;
+import fr.inria.eventcloud.overlay.SemanticCanOverlay;
 import fr.inria.eventcloud.overlay.SemanticRequestResponseManager;
 import fr.inria.eventcloud.overlay.can.SemanticCoordinate;
 
@@ -102,6 +103,12 @@ public abstract class StatefulQuadruplePatternRequest<T> extends
                                 messagingManager.threadPool.submit(new Callable<StatefulRequestAction<T>>() {
                                     @Override
                                     public StatefulRequestAction<T> call() {
+                                        // the version is read before the
+                                        // action, thus a concurrent write
+                                        // is always reported as a change
+                                        long version =
+                                                ((SemanticCanOverlay) overlay).getMiscDatastore()
+                                                        .getVersion();
                                         long start = System.nanoTime();
 
                                         T actionResult =
@@ -112,7 +119,7 @@ public abstract class StatefulQuadruplePatternRequest<T> extends
 
                                         return new StatefulRequestAction<T>(
                                                 System.nanoTime() - start,
-                                                actionResult);
+                                                actionResult, version);
                                     }
                                 }));
             }
@@ -19,7 +19,8 @@ package fr.inria.eventcloud.messages.request;
 /**
  * A stateful request action is a wrapper that contains the result of the action
  * which is executed with a {@link StatefulQuadruplePatternRequest}, but also
- * some other metrics like the time to execute the action, etc.
+ * some other metrics like the time to execute the action, the version of the
+ * datastore read before executing the action, etc.
  * 
  * @author lpellegr
  * 
@@ -32,10 +33,13 @@ public final class StatefulRequestAction<T> {
 
     public final T result;
 
-    public StatefulRequestAction(long duration, T result) {
+    public final long datastoreVersion;
+
+    public StatefulRequestAction(long duration, T result, long datastoreVersion) {
         super();
         this.duration = duration;
         this.result = result;
+        this.datastoreVersion = datastoreVersion;
     }
 
 }
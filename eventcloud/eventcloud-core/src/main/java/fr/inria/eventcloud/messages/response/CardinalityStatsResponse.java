@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.messages.response;
+
+import java.util.List;
+
+import org.objectweb.proactive.extensions.p2p.structured.utils.SerializedValue;
+
+import fr.inria.eventcloud.datastore.stats.CardinalityStats;
+import fr.inria.eventcloud.messages.request.CardinalityStatsRequest;
+
+/**
+ * Response associated to {@link CardinalityStatsRequest}. The merged result is
+ * {@code null} if none of the peers visited records cardinality statistics.
+ * 
+ * @author lpellegr
+ */
+public class CardinalityStatsResponse extends
+        StatefulQuadruplePatternResponse<CardinalityStats> {
+
+    private static final long serialVersionUID = 160L;
+
+    public CardinalityStatsResponse() {
+        super();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized CardinalityStats merge(List<SerializedValue<CardinalityStats>> intermediateResults) {
+        CardinalityStats result = null;
+
+        for (SerializedValue<CardinalityStats> subResult : intermediateResults) {
+            CardinalityStats stats = subResult.getValue();
+
+            if (stats != null) {
+                if (result == null) {
+                    result = stats.copy();
+                } else {
+                    result.merge(stats);
+                }
+            }
+        }
+
+        return result;
+    }
+
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.messages.response;
+
+import org.objectweb.proactive.core.ProActiveRuntimeException;
+import org.objectweb.proactive.extensions.p2p.structured.messages.Request;
+import org.objectweb.proactive.extensions.p2p.structured.messages.RequestResponseManager;
+import org.objectweb.proactive.extensions.p2p.structured.messages.response.can.MulticastResponse;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.Peer;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.PeerInternal;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.StructuredOverlay;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.zone.points.Point;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.inria.eventcloud.messages.request.QuadruplesBatchRequest;
+import fr.inria.eventcloud.overlay.can.SemanticCoordinate;
+
+/**
+ * Response associated to {@link QuadruplesBatchRequest}. The response is sent
+ * back directly to the peer which has forwarded the request, or to the
+ * requester when the request has been received from a proxy.
+ * 
+ * @author lpellegr
+ */
+public class QuadruplesBatchResponse extends
+        MulticastResponse<SemanticCoordinate> {
+
+    private static final long serialVersionUID = 160L;
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(QuadruplesBatchResponse.class);
+
+    private Peer parent;
+
+    private long nbQuadruplesHandled;
+
+    public QuadruplesBatchResponse() {
+        super();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setAttributes(Request<Point<SemanticCoordinate>> request,
+                              StructuredOverlay overlay) {
+        super.setAttributes(request, overlay);
+
+        this.parent = ((QuadruplesBatchRequest) request).getParent();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void mergeAttributes(MulticastResponse<SemanticCoordinate> responseReceived) {
+        this.nbQuadruplesHandled +=
+                ((QuadruplesBatchResponse) responseReceived).nbQuadruplesHandled;
+    }
+
+    /**
+     * Sends the response to the peer which waits for it or to the requester
+     * if the response has been created on the first peer reached.
+     */
+    public void sendBack() {
+        if (this.parent == null) {
+            RequestResponseManager.notifyRequester(this);
+        } else {
+            try {
+                ((PeerInternal) this.parent).forward(this);
+            } catch (ProActiveRuntimeException e) {
+                LOG.error(
+                        "Error while sending back response " + this.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QuadruplesBatchResponseRouter getRouter() {
+        return new QuadruplesBatchResponseRouter();
+    }
+
+    /**
+     * Returns the number of quadruples handled by the peers that have sent
+     * back this response.
+     * 
+     * @return the number of quadruples handled.
+     */
+    public long getNbQuadruplesHandled() {
+        return this.nbQuadruplesHandled;
+    }
+
+    public void setNbQuadruplesHandled(long nbQuadruplesHandled) {
+        this.nbQuadruplesHandled = nbQuadruplesHandled;
+    }
+
+}
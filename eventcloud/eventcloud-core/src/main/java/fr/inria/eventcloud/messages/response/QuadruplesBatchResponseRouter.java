@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.messages.response;
+
+import org.objectweb.proactive.extensions.p2p.structured.messages.ResponseEntry;
+import org.objectweb.proactive.extensions.p2p.structured.messages.response.can.MulticastResponse;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.StructuredOverlay;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.zone.points.Point;
+import org.objectweb.proactive.extensions.p2p.structured.router.Router;
+
+import fr.inria.eventcloud.overlay.can.SemanticCoordinate;
+
+/**
+ * Router used to route {@link QuadruplesBatchResponse}s. Responses are merged
+ * on the synchronization point of the peer which has split the request. Once
+ * all the responses expected are received, the merged response is sent back.
+ * 
+ * @author lpellegr
+ */
+public class QuadruplesBatchResponseRouter extends
+        Router<QuadruplesBatchResponse, Point<SemanticCoordinate>> {
+
+    public QuadruplesBatchResponseRouter() {
+        super();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void makeDecision(StructuredOverlay overlay,
+                             QuadruplesBatchResponse response) {
+        this.handle(overlay, response);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void handle(StructuredOverlay overlay,
+                          QuadruplesBatchResponse response) {
+        ResponseEntry entry =
+                overlay.getRequestResponseManager().getResponseEntry(
+                        response.getId());
+
+        if (entry == null) {
+            throw new IllegalStateException("No entry found on "
+                    + overlay.getId() + " for message id " + response.getId());
+        }
+
+        synchronized (entry) {
+            QuadruplesBatchResponse localResponse =
+                    (QuadruplesBatchResponse) MulticastResponse.merge(
+                            (QuadruplesBatchResponse) entry.getResponse(),
+                            response);
+            entry.setResponse(localResponse);
+            entry.incrementResponsesCount(1);
+
+            if (entry.getStatus() == ResponseEntry.Status.RECEIPT_COMPLETED) {
+                overlay.getRequestResponseManager().removeResponseEntry(
+                        response.getId());
+
+                // the local response is associated to the request received
+                // by this peer, not to the ones it has forwarded
+                localResponse.sendBack();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void route(StructuredOverlay overlay,
+                         QuadruplesBatchResponse response) {
+        // responses are sent directly to the peer waiting for them
+    }
+
+}
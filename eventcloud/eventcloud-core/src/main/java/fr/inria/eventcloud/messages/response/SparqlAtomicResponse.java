@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.messages.response;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.objectweb.proactive.extensions.p2p.structured.messages.response.can.MulticastResponse;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.OverlayId;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.StructuredOverlay;
+
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.datastore.TransactionalTdbDatastore;
+import fr.inria.eventcloud.messages.request.SparqlAtomicRequest;
+import fr.inria.eventcloud.messages.request.StatefulRequestAction;
+import fr.inria.eventcloud.overlay.can.SemanticCoordinate;
+
+/**
+ * Response associated to {@link SparqlAtomicRequest}. In addition to the
+ * quadruples matching the atomic query, the response records the version of
+ * the misc datastore of each peer which has answered. These versions are
+ * piggy-backed on the response, thus knowing whether a peer has been modified
+ * since a previous execution costs no additional message.
+ * 
+ * @author lpellegr
+ * 
+ * @see TransactionalTdbDatastore#getVersion()
+ */
+public class SparqlAtomicResponse extends QuadruplePatternResponse {
+
+    private static final long serialVersionUID = 160L;
+
+    private final Map<OverlayId, Long> datastoreVersions;
+
+    public SparqlAtomicResponse() {
+        super();
+        this.datastoreVersions = new HashMap<OverlayId, Long>();
+    }
+
+    /**
+     * Returns the version of the misc datastore of each peer which has
+     * answered, indexed by peer identifier.
+     * 
+     * @return the version of the misc datastore of each peer which has
+     *         answered.
+     */
+    public Map<OverlayId, Long> getDatastoreVersions() {
+        return this.datastoreVersions;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onActionCompleted(StructuredOverlay overlay,
+                                     StatefulRequestAction<List<Quadruple>> action) {
+        this.datastoreVersions.put(overlay.getId(), action.datastoreVersion);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void mergeAttributes(MulticastResponse<SemanticCoordinate> responseReceived) {
+        super.mergeAttributes(responseReceived);
+
+        this.datastoreVersions.putAll(((SparqlAtomicResponse) responseReceived).datastoreVersions);
+    }
+
+}
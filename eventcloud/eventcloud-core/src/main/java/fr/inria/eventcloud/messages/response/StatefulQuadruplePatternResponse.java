@@ -94,6 +94,7 @@ public abstract class StatefulQuadruplePatternResponse<T> extends
                 try {
                     this.intermediateResults.add(SerializedValue.create(result.get().result));
                     this.actionTime += result.get().duration;
+                    this.onActionCompleted(overlay, result.get());
                 } catch (InterruptedException e) {
                     throw new RuntimeException(e);
                 } catch (ExecutionException e) {
@@ -103,6 +104,21 @@ public abstract class StatefulQuadruplePatternResponse<T> extends
         }
     }
 
+    /**
+     * Invoked on each peer validating the constraints once the action
+     * associated to the request has been executed. The default implementation
+     * does nothing.
+     * 
+     * @param overlay
+     *            the overlay of the peer which has executed the action.
+     * @param action
+     *            the result of the action.
+     */
+    protected void onActionCompleted(StructuredOverlay overlay,
+                                     StatefulRequestAction<T> action) {
+        // to be overridden if required
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.operations.can;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.objectweb.proactive.extensions.p2p.structured.operations.CallableOperation;
+import org.objectweb.proactive.extensions.p2p.structured.operations.GenericResponseOperation;
+import org.objectweb.proactive.extensions.p2p.structured.operations.ResponseOperation;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.StructuredOverlay;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.zone.Zone;
+
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.datastore.AccessMode;
+import fr.inria.eventcloud.datastore.TransactionalDatasetGraph;
+import fr.inria.eventcloud.overlay.SemanticCanOverlay;
+import fr.inria.eventcloud.overlay.SemanticPeer;
+import fr.inria.eventcloud.overlay.can.SemanticCoordinate;
+import fr.inria.eventcloud.overlay.can.SemanticPointFactory;
+
+/**
+ * Operation used to store a batch of quadruples on a {@link SemanticPeer}
+ * without routing them. All the quadruples which belong to the zone of the
+ * peer are written in a single transaction. The quadruples which do not belong
+ * to the zone of the peer (e.g. because the zone has changed since the batch
+ * has been built) are not stored and returned to the sender.
+ * 
+ * @author lpellegr
+ */
+public class StoreQuadruplesOperation extends CallableOperation {
+
+    private static final long serialVersionUID = 160L;
+
+    private final List<Quadruple> quadruples;
+
+    public StoreQuadruplesOperation(List<Quadruple> quadruples) {
+        this.quadruples = quadruples;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResponseOperation handle(StructuredOverlay overlay) {
+        SemanticCanOverlay semanticOverlay = ((SemanticCanOverlay) overlay);
+
+        Zone<SemanticCoordinate> zone = semanticOverlay.getZone();
+
+        List<Quadruple> accepted =
+                new ArrayList<Quadruple>(this.quadruples.size());
+        List<Quadruple> rejected = new ArrayList<Quadruple>();
+
+        for (Quadruple q : this.quadruples) {
+            if (zone.contains(SemanticPointFactory.newSemanticCoordinate(q))) {
+                accepted.add(q);
+            } else {
+                rejected.add(q);
+            }
+        }
+
+        TransactionalDatasetGraph txnGraph =
+                semanticOverlay.getMiscDatastore().begin(AccessMode.WRITE);
+
+        try {
+            txnGraph.add(accepted);
+            txnGraph.commit();
+        } catch (Exception e) {
+            e.printStackTrace();
+            // the sender is in charge of storing them again
+            rejected.addAll(accepted);
+        } finally {
+            txnGraph.end();
+        }
+
+        return new GenericResponseOperation<List<Quadruple>>(rejected);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCompatibleWithRouting() {
+        return true;
+    }
+
+}
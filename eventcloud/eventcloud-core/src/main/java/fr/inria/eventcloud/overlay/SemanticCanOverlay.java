@@ -16,6 +16,7 @@
  **/
 package fr.inria.eventcloud.overlay;
 
+import java.io.File;
 import java.io.Serializable;
 import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
@@ -46,6 +47,7 @@ import org.objectweb.proactive.extensions.p2p.structured.overlay.can.CanOverlay;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.can.zone.Zone;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.can.zone.points.Point;
 import org.objectweb.proactive.extensions.p2p.structured.utils.HomogenousPair;
+import org.objectweb.proactive.extensions.p2p.structured.utils.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.soceda.socialfilter.relationshipstrengthengine.RelationshipStrengthEngineManager;
@@ -60,7 +62,6 @@ import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.query.QueryExecution;
 import com.hp.hpl.jena.query.QueryExecutionFactory;
 import com.hp.hpl.jena.query.QueryFactory;
-import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.query.ResultSet;
 import com.hp.hpl.jena.sparql.core.Var;
 import com.hp.hpl.jena.sparql.engine.binding.Binding;
@@ -73,8 +74,12 @@ import fr.inria.eventcloud.api.listeners.BindingNotificationListener;
 import fr.inria.eventcloud.configuration.EventCloudProperties;
 import fr.inria.eventcloud.datastore.AccessMode;
 import fr.inria.eventcloud.datastore.QuadrupleIterator;
+import fr.inria.eventcloud.datastore.SubscriptionsRecordStore;
 import fr.inria.eventcloud.datastore.TransactionalDatasetGraph;
 import fr.inria.eventcloud.datastore.TransactionalTdbDatastore;
+import fr.inria.eventcloud.datastore.stats.CardinalityStats;
+import fr.inria.eventcloud.datastore.stats.CardinalityStatsRecorder;
+import fr.inria.eventcloud.datastore.stats.StatsRecorder;
 import fr.inria.eventcloud.delayers.PublishSubscribeDelayer;
 import fr.inria.eventcloud.load_balancing.LoadBalancingManager;
 import fr.inria.eventcloud.operations.can.RegisterLoadReportOperation;
@@ -82,9 +87,11 @@ import fr.inria.eventcloud.operations.can.RetrieveEstimatedNumberOfQuadruplesOpe
 import fr.inria.eventcloud.overlay.can.SemanticCoordinate;
 import fr.inria.eventcloud.overlay.can.SemanticZone;
 import fr.inria.eventcloud.pubsub.PublishSubscribeUtils;
+import fr.inria.eventcloud.pubsub.RelationshipStrengthCache;
 import fr.inria.eventcloud.pubsub.SubscriberConnectionFailure;
 import fr.inria.eventcloud.pubsub.Subscription;
 import fr.inria.eventcloud.reasoner.SparqlColander;
+import fr.inria.eventcloud.utils.TimerWheel;
 
 /**
  * This class is a specialized version of {@link CanOverlay} for semantic data.
@@ -98,6 +105,8 @@ public class SemanticCanOverlay extends CanOverlay<SemanticCoordinate> {
 
     private RelationshipStrengthEngineManager socialFilter;
 
+    private volatile RelationshipStrengthCache relationshipStrengthCache;
+
     private final LoadingCache<String, SemanticPeer> peerStubsCache;
 
     private final LoadingCache<SubscriptionId, Subscription> subscriptionsCache;
@@ -108,8 +117,17 @@ public class SemanticCanOverlay extends CanOverlay<SemanticCoordinate> {
 
     private final TransactionalTdbDatastore subscriptionsDatastore;
 
+    // binary representation of the subscriptions stored in the subscriptions
+    // datastore, used to retrieve a subscription without parsing its
+    // quadruples
+    private final SubscriptionsRecordStore subscriptionsRecords;
+
     private final ScheduledExecutorService ephemeralSubscriptionsGarbageColletor;
 
+    // graph and subscription id nodes of the ephemeral subscriptions indexed,
+    // scheduled according to their expiration time
+    private final TimerWheel<HomogenousPair<Node>> ephemeralSubscriptionsExpirations;
+
     private final PublishSubscribeDelayer publishSubscribeOperationsDelayer;
 
     private LoadBalancingManager loadBalancingManager;
@@ -149,6 +167,20 @@ public class SemanticCanOverlay extends CanOverlay<SemanticCoordinate> {
         this.miscDatastore.open();
         this.subscriptionsDatastore.open();
 
+        if (subscriptionsDatastore.isMemory()) {
+            this.subscriptionsRecords =
+                    new SubscriptionsRecordStore(
+                            EventCloudProperties.SUBSCRIPTIONS_RECORDS_SEGMENT_SIZE.getValue());
+        } else {
+            this.subscriptionsRecords =
+                    new SubscriptionsRecordStore(
+                            new File(
+                                    subscriptionsDatastore.getLocation()
+                                            .getDirectoryPath() + "-records"),
+                            EventCloudProperties.SUBSCRIPTIONS_RECORDS_SEGMENT_SIZE.getValue(),
+                            EventCloudProperties.REPOSITORIES_AUTO_REMOVE.getValue());
+        }
+
         CacheBuilder<Object, Object> cacheBuilder =
                 CacheBuilder.newBuilder()
                         .concurrencyLevel(
@@ -188,8 +220,13 @@ public class SemanticCanOverlay extends CanOverlay<SemanticCoordinate> {
                     public Subscription load(SubscriptionId key)
                             throws SubscriptionNotFoundException {
                         Subscription subscription =
-                                Subscription.parseFrom(
-                                        subscriptionsDatastore, key);
+                                SemanticCanOverlay.this.parseSubscription(key);
+
+                        if (subscription == null) {
+                            subscription =
+                                    Subscription.parseFrom(
+                                            subscriptionsDatastore, key);
+                        }
 
                         if (subscription == null) {
                             throw new SubscriptionNotFoundException(key);
@@ -204,6 +241,18 @@ public class SemanticCanOverlay extends CanOverlay<SemanticCoordinate> {
 
         if (EventCloudProperties.isSbce2PubSubAlgorithmUsed()
                 || EventCloudProperties.isSbce3PubSubAlgorithmUsed()) {
+            long gcTimeout =
+                    EventCloudProperties.EPHEMERAL_SUBSCRIPTIONS_GC_TIMEOUT.getValue();
+
+            this.ephemeralSubscriptionsExpirations =
+                    new TimerWheel<HomogenousPair<Node>>(
+                            gcTimeout,
+                            (int) (EventCloudProperties.EPHEMERAL_SUBSCRIPTION_EXPIRATION_TIME.getValue()
+                                    / gcTimeout) + 1,
+                            System.currentTimeMillis());
+            // ephemeral subscriptions from a restored repository
+            this.scheduleEphemeralSubscriptionsExpiration(this.findEphemeralSubscriptionsIndexationTime());
+
             this.ephemeralSubscriptionsGarbageColletor =
                     Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat(
                             "EphemeralSubscriptionsGC")
@@ -223,6 +272,7 @@ public class SemanticCanOverlay extends CanOverlay<SemanticCoordinate> {
                     EventCloudProperties.EPHEMERAL_SUBSCRIPTIONS_GC_TIMEOUT.getValue(),
                     TimeUnit.MILLISECONDS);
         } else {
+            this.ephemeralSubscriptionsExpirations = null;
             this.ephemeralSubscriptionsGarbageColletor = null;
         }
 
@@ -250,74 +300,111 @@ public class SemanticCanOverlay extends CanOverlay<SemanticCoordinate> {
         }
     }
 
-    private void removeOutdatedEphemeralSubscriptions() {
-        TransactionalDatasetGraph txnGraph =
-                this.subscriptionsDatastore.begin(AccessMode.READ_ONLY);
-
-        String findSubscriptionsSparql =
-                "SELECT ?g ?sId WHERE { GRAPH ?g { ?sId <"
-                        + PublishSubscribeConstants.EPHEMERAL_SUBSCRIPTION_INDEXATION_DATETIME_PROPERTY
-                        + "> ?itime } FILTER( "
-                        + System.currentTimeMillis()
-                        + " - ?itime > "
-                        + EventCloudProperties.EPHEMERAL_SUBSCRIPTION_EXPIRATION_TIME.getValue()
-                        + " ) }";
+    /**
+     * Schedules the expiration of the specified ephemeral subscription.
+     * 
+     * @param graph
+     *            the meta graph node the ephemeral subscription is indexed
+     *            with.
+     * @param subscriptionIdUri
+     *            the subscription identifier URI.
+     * @param indexationTime
+     *            the time at which the ephemeral subscription has been
+     *            indexed.
+     */
+    public void scheduleEphemeralSubscriptionExpiration(Node graph,
+                                                        Node subscriptionIdUri,
+                                                        long indexationTime) {
+        if (this.ephemeralSubscriptionsExpirations != null) {
+            this.ephemeralSubscriptionsExpirations.schedule(
+                    HomogenousPair.createHomogenous(graph, subscriptionIdUri),
+                    indexationTime
+                            + EventCloudProperties.EPHEMERAL_SUBSCRIPTION_EXPIRATION_TIME.getValue());
+        }
+    }
 
-        QueryExecution qexec =
-                QueryExecutionFactory.create(
-                        findSubscriptionsSparql,
-                        txnGraph.getUnderlyingDataset());
+    private void scheduleEphemeralSubscriptionsExpiration(Collection<Quadruple> quadruples) {
+        for (Quadruple q : quadruples) {
+            if (q.getPredicate()
+                    .equals(
+                            PublishSubscribeConstants.EPHEMERAL_SUBSCRIPTION_INDEXATION_DATETIME_NODE)) {
+                this.scheduleEphemeralSubscriptionExpiration(
+                        q.getGraph(), q.getSubject(),
+                        Long.parseLong(q.getObject().getLiteralLexicalForm()));
+            }
+        }
+    }
 
-        List<Node[]> solutions = new ArrayList<Node[]>();
+    private List<Quadruple> findEphemeralSubscriptionsIndexationTime() {
+        TransactionalDatasetGraph txnGraph =
+                this.subscriptionsDatastore.begin(AccessMode.READ_ONLY);
 
         try {
-            ResultSet r = qexec.execSelect();
-
-            while (r.hasNext()) {
-                QuerySolution s = r.next();
-
-                Node graph = s.get("g").asNode();
-                Node sId = s.get("sId").asNode();
-                solutions.add(new Node[] {graph, sId});
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+            return Lists.newArrayList(txnGraph.find(
+                    Node.ANY,
+                    Node.ANY,
+                    PublishSubscribeConstants.EPHEMERAL_SUBSCRIPTION_INDEXATION_DATETIME_NODE,
+                    Node.ANY));
         } finally {
             txnGraph.end();
         }
+    }
 
-        txnGraph = this.subscriptionsDatastore.begin(AccessMode.WRITE);
+    /*
+     * Removes the ephemeral subscriptions which are expired. Deletions are
+     * performed by batches, each in its own write transaction, in order to
+     * not hold the write lock of the subscriptions datastore for a long time.
+     */
+    private void removeOutdatedEphemeralSubscriptions() {
+        long now = System.currentTimeMillis();
+        int batchSize =
+                EventCloudProperties.EPHEMERAL_SUBSCRIPTIONS_GC_BATCH_SIZE.getValue();
+        int nbRemoved = 0;
 
-        try {
-            for (Node[] solution : solutions) {
-                Node graph = solution[0];
-                Node sId = solution[1];
-
-                txnGraph.delete(
-                        graph,
-                        sId,
-                        PublishSubscribeConstants.EPHEMERAL_SUBSCRIPTION_SUBSCRIBER_NODE,
-                        Node.ANY);
-                txnGraph.delete(
-                        graph,
-                        sId,
-                        PublishSubscribeConstants.EPHEMERAL_SUBSCRIPTION_INDEXATION_DATETIME_NODE,
-                        Node.ANY);
+        List<HomogenousPair<Node>> expired =
+                this.ephemeralSubscriptionsExpirations.pollExpired(
+                        now, batchSize);
+
+        while (!expired.isEmpty()) {
+            TransactionalDatasetGraph txnGraph =
+                    this.subscriptionsDatastore.begin(AccessMode.WRITE);
+
+            try {
+                for (HomogenousPair<Node> ephemeralSubscription : expired) {
+                    Node graph = ephemeralSubscription.getFirst();
+                    Node sId = ephemeralSubscription.getSecond();
+
+                    txnGraph.delete(
+                            graph,
+                            sId,
+                            PublishSubscribeConstants.EPHEMERAL_SUBSCRIPTION_SUBSCRIBER_NODE,
+                            Node.ANY);
+                    txnGraph.delete(
+                            graph,
+                            sId,
+                            PublishSubscribeConstants.EPHEMERAL_SUBSCRIPTION_INDEXATION_DATETIME_NODE,
+                            Node.ANY);
+                }
+
+                txnGraph.commit();
+                nbRemoved += expired.size();
+            } catch (Exception e) {
+                e.printStackTrace();
+                txnGraph.abort();
+            } finally {
+                txnGraph.end();
             }
 
-            txnGraph.commit();
-        } catch (Exception e) {
-            e.printStackTrace();
-            txnGraph.abort();
-        } finally {
-            txnGraph.end();
+            expired =
+                    this.ephemeralSubscriptionsExpirations.pollExpired(
+                            now, batchSize);
         }
 
         if (LOG.isDebugEnabled()) {
             StringBuilder msg = new StringBuilder();
             msg.append("New ephemeral garbage collection performed, ");
-            msg.append(solutions.size());
-            msg.append(" quadruple(s) removed");
+            msg.append(nbRemoved);
+            msg.append(" ephemeral subscription(s) removed");
 
             LOG.debug(msg.toString());
         }
@@ -395,10 +482,68 @@ public class SemanticCanOverlay extends CanOverlay<SemanticCoordinate> {
      * @param socialFilter
      *            the social filter.
      */
-    public void setSocialFilter(RelationshipStrengthEngineManager socialFilter) {
+    public synchronized void setSocialFilter(RelationshipStrengthEngineManager socialFilter) {
+        if (this.relationshipStrengthCache != null) {
+            this.relationshipStrengthCache.shutdown();
+            this.relationshipStrengthCache = null;
+        }
+
+        if (socialFilter != null
+                && EventCloudProperties.SOCIAL_FILTER_CACHE_ENABLED.getValue()) {
+            this.relationshipStrengthCache =
+                    new RelationshipStrengthCache(
+                            RelationshipStrengthCache.newProvider(socialFilter),
+                            EventCloudProperties.SOCIAL_FILTER_CACHE_MAXIMUM_SIZE.getValue(),
+                            EventCloudProperties.SOCIAL_FILTER_CACHE_EXPIRATION_TIME.getValue(),
+                            EventCloudProperties.SOCIAL_FILTER_CACHE_REFRESH_TIME.getValue(),
+                            EventCloudProperties.SOCIAL_FILTER_CACHE_NB_THREADS.getValue());
+        }
+
         this.socialFilter = socialFilter;
     }
 
+    /**
+     * Returns the strength of the relationship between the specified
+     * publication source and subscription destination according to the social
+     * filter. The value is taken from the relationship strength cache when it
+     * is enabled.
+     * 
+     * @param source
+     *            the publication source.
+     * @param destination
+     *            the subscription destination.
+     * 
+     * @return the strength of the relationship between the specified source
+     *         and destination.
+     */
+    public double getRelationshipStrength(String source, String destination) {
+        RelationshipStrengthCache cache = this.relationshipStrengthCache;
+
+        if (cache == null || source == null || destination == null) {
+            return this.socialFilter.getRelationshipStrength(
+                    source, destination).getStrength();
+        }
+
+        return cache.getRelationshipStrength(source, destination);
+    }
+
+    /**
+     * Retrieves in one batch the relationship strengths that are about to be
+     * used for the specified (publication source, subscription destination)
+     * pairs. Nothing is done if no social filter is set or if the relationship
+     * strength cache is disabled.
+     * 
+     * @param pairs
+     *            the (publication source, subscription destination) pairs.
+     */
+    public void prefetchRelationshipStrengths(Collection<Pair<String, String>> pairs) {
+        RelationshipStrengthCache cache = this.relationshipStrengthCache;
+
+        if (cache != null) {
+            cache.prefetch(pairs);
+        }
+    }
+
     /**
      * Finds the subscription associated to the specified subscription
      * {@code id} from the cache. When no subscription is found in the cache, a
@@ -426,7 +571,15 @@ public class SemanticCanOverlay extends CanOverlay<SemanticCoordinate> {
                     id, new Callable<Subscription>() {
                         @Override
                         public Subscription call() throws Exception {
-                            return Subscription.parseFrom(dataset, id);
+                            Subscription subscription =
+                                    SemanticCanOverlay.this.parseSubscription(id);
+
+                            if (subscription == null) {
+                                subscription =
+                                        Subscription.parseFrom(dataset, id);
+                            }
+
+                            return subscription;
                         };
                     });
         } catch (ExecutionException e) {
@@ -435,6 +588,22 @@ public class SemanticCanOverlay extends CanOverlay<SemanticCoordinate> {
         }
     }
 
+    /*
+     * Parses the subscription from its binary record. Returns null when no
+     * record is available, e.g. for subscriptions stored in a datastore that
+     * has been created without records, in which case the quadruples have to
+     * be parsed.
+     */
+    private Subscription parseSubscription(SubscriptionId id) {
+        byte[] record = this.subscriptionsRecords.get(id);
+
+        if (record == null) {
+            return null;
+        }
+
+        return Subscription.parseFrom(record);
+    }
+
     /**
      * Finds the peer stub associated to the specified {@code peerUrl} from the
      * cache. When no stub is found in the cache, the stub is created on the
@@ -473,6 +642,10 @@ public class SemanticCanOverlay extends CanOverlay<SemanticCoordinate> {
         try {
             txnGraph.add(subscription.toQuadruples());
             txnGraph.commit();
+
+            this.subscriptionsRecords.put(
+                    subscription.getId(), subscription.getOriginalId(),
+                    subscription.toBytes());
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
@@ -521,6 +694,7 @@ public class SemanticCanOverlay extends CanOverlay<SemanticCoordinate> {
                 txnGraph.end();
             }
 
+            this.subscriptionsRecords.deleteGroup(originalSubscriptionId);
             this.subscriptionsCache.invalidate(originalSubscriptionId);
         }
     }
@@ -529,6 +703,24 @@ public class SemanticCanOverlay extends CanOverlay<SemanticCoordinate> {
         return this.miscDatastore;
     }
 
+    /**
+     * Returns a snapshot of the cardinality statistics maintained for the
+     * misc datastore or {@code null} if they are not recorded (see
+     * {@link EventCloudProperties#CARDINALITY_STATS_ENABLED}).
+     * 
+     * @return a snapshot of the cardinality statistics maintained for the misc
+     *         datastore or {@code null} if they are not recorded.
+     */
+    public CardinalityStats getCardinalityStats() {
+        StatsRecorder statsRecorder = this.miscDatastore.getStatsRecorder();
+
+        if (statsRecorder instanceof CardinalityStatsRecorder) {
+            return ((CardinalityStatsRecorder) statsRecorder).getCardinalityStats();
+        }
+
+        return null;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -549,6 +741,10 @@ public class SemanticCanOverlay extends CanOverlay<SemanticCoordinate> {
         return this.subscriptionsDatastore;
     }
 
+    public SubscriptionsRecordStore getSubscriptionsRecords() {
+        return this.subscriptionsRecords;
+    }
+
     public Cache<SubscriptionId, SubscriberConnectionFailure> getSubscriberConnectionFailures() {
         return this.subscriberConnectionFailures;
     }
@@ -652,6 +848,10 @@ public class SemanticCanOverlay extends CanOverlay<SemanticCoordinate> {
                 this.subscriptionsDatastore,
                 semanticDataReceived.getSubscriptions());
 
+        if (semanticDataReceived.getSubscriptions() != null) {
+            this.scheduleEphemeralSubscriptionsExpiration(semanticDataReceived.getSubscriptions());
+        }
+
         if (isTraceEnabled) {
             LOG.trace(
                     "Assign data {} (misc={}, subscriptions={}) has required {} ms",
@@ -1027,10 +1227,26 @@ public class SemanticCanOverlay extends CanOverlay<SemanticCoordinate> {
         }
 
         if (remove) {
+            List<SubscriptionId> subscriptionIdsMoved =
+                    new ArrayList<SubscriptionId>();
+
             txnGraph = this.subscriptionsDatastore.begin(AccessMode.WRITE);
 
             try {
                 for (Node graph : subscriptionIdsToDelete) {
+                    // identifiers of the subscriptions stored in the graph
+                    // which is moved
+                    QuadrupleIterator it =
+                            txnGraph.find(
+                                    graph, Node.ANY,
+                                    PublishSubscribeConstants.SUBSCRIPTION_ID_NODE,
+                                    Node.ANY);
+
+                    while (it.hasNext()) {
+                        subscriptionIdsMoved.add(PublishSubscribeUtils.extractSubscriptionId(it.next()
+                                .getSubject()));
+                    }
+
                     txnGraph.delete(graph, Node.ANY, Node.ANY, Node.ANY);
                     txnGraph.delete(
                             Node.ANY,
@@ -1042,6 +1258,13 @@ public class SemanticCanOverlay extends CanOverlay<SemanticCoordinate> {
             } finally {
                 txnGraph.end();
             }
+
+            // records and cache entries are removed for the subscriptions
+            // moved only, not for all the records of their group
+            for (SubscriptionId id : subscriptionIdsMoved) {
+                this.subscriptionsRecords.delete(id);
+                this.subscriptionsCache.invalidate(id);
+            }
         }
 
         return result;
@@ -1186,6 +1409,7 @@ public class SemanticCanOverlay extends CanOverlay<SemanticCoordinate> {
         txnGraph.delete(QuadruplePattern.ANY);
         txnGraph.commit();
 
+        this.subscriptionsRecords.clear();
         this.subscriptionsCache.invalidateAll();
         this.subscriberConnectionFailures.invalidateAll();
 
@@ -1219,9 +1443,13 @@ public class SemanticCanOverlay extends CanOverlay<SemanticCoordinate> {
 
         this.publishSubscribeOperationsDelayer.sync();
 
+        if (this.relationshipStrengthCache != null) {
+            this.relationshipStrengthCache.shutdown();
+        }
+
         this.miscDatastore.close();
         this.subscriptionsDatastore.close();
-
+        this.subscriptionsRecords.close();
     }
 
     /**
@@ -25,6 +25,7 @@ import org.objectweb.proactive.Body;
 import org.objectweb.proactive.annotation.multiactivity.MemberOf;
 import org.objectweb.proactive.extensions.p2p.structured.configuration.P2PStructuredProperties;
 import org.objectweb.proactive.extensions.p2p.structured.deployment.DeploymentConfiguration;
+import org.objectweb.proactive.extensions.p2p.structured.multiactivity.AdaptiveThreadLimitController;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.Peer;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.PeerImpl;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.PeerServingPolicy;
@@ -153,10 +154,19 @@ public class SemanticPeerImpl extends PeerImpl implements SemanticPeer,
             }
         }
 
-        this.multiActiveService.policyServing(
-                new PeerServingPolicy(this), priorityConstraints,
-                P2PStructuredProperties.MAO_LIMIT_PEERS.getValue(), false,
-                false);
+        this.servingPolicy = new PeerServingPolicy();
+        this.servingPolicy.register("SemanticPeer", body.getID().toString());
+
+        try {
+            AdaptiveThreadLimitController.serve(
+                    "SemanticPeer", body.getID().toString(),
+                    this.multiActiveService, this.servingPolicy,
+                    priorityConstraints,
+                    P2PStructuredProperties.MAO_LIMIT_PEERS.getValue(), false,
+                    false);
+        } finally {
+            this.servingPolicy.unregister();
+        }
     }
 
     /**
@@ -16,12 +16,11 @@
  **/
 package fr.inria.eventcloud.overlay.can;
 
-import java.net.URI;
-import java.net.URISyntaxException;
-
 import org.apfloat.Apfloat;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.can.zone.coordinates.StringCoordinate;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.hp.hpl.jena.graph.Node;
 
 import fr.inria.eventcloud.configuration.EventCloudProperties;
@@ -53,6 +52,14 @@ public class SemanticCoordinate extends StringCoordinate {
         } else {
             DOPING_FUNCTION = createIdentityDopingFunction();
         }
+
+        int cacheSize =
+                EventCloudProperties.LOAD_BALANCING_DOPING_FUNCTION_CACHE_SIZE.getValue();
+
+        if (cacheSize > 0 && !dopingFunctionName.equals("identity")) {
+            DOPING_FUNCTION =
+                    createMemoizingDopingFunction(DOPING_FUNCTION, cacheSize);
+        }
     }
 
     /**
@@ -124,78 +131,15 @@ public class SemanticCoordinate extends StringCoordinate {
                 if (value.isURI()) {
                     String content = value.getURI();
 
-                    int slashIndex = content.lastIndexOf('/');
-                    int sharpIndex = content.lastIndexOf('#');
-                    int lastCharIndex = content.length() - 1;
+                    // if the last character is # or / it is removed safely
+                    int end = UriTailExtractor.end(content);
+                    int start = UriTailExtractor.start(content, end);
 
-                    // if the last character is # or / it can be removed safely
-                    if (slashIndex == lastCharIndex
-                            || sharpIndex == lastCharIndex) {
-                        content = content.substring(0, lastCharIndex);
-                        slashIndex = content.lastIndexOf('/');
-                        sharpIndex = content.lastIndexOf('#');
-                    }
-
-                    URI uri = null;
-                    try {
-                        uri = new URI(content);
-
-                        // basic support for opaque URI
-                        // http://download.oracle.com/javase/6/docs/api/java/net/URI.html
-                        if (uri.isOpaque()) {
-                            int removeIndex = 0;
-
-                            if (slashIndex > sharpIndex) {
-                                removeIndex = slashIndex;
-                            } else {
-                                removeIndex = sharpIndex;
-                            }
-
-                            int colonIndex = content.lastIndexOf(':');
-                            if (colonIndex > removeIndex) {
-                                removeIndex = colonIndex;
-                            }
-
-                            // String scheme = uri.getScheme();
-                            return content.substring(removeIndex + 1);
-                        }
-                    } catch (URISyntaxException e) {
+                    if (start == 0 && end == content.length()) {
                         return content;
                     }
 
-                    int schemeColonSlashSlashLength;
-
-                    // if there is no other / or # starting from the authority
-                    // part of
-                    // the uri, some pre-defined prefixes can be removed from
-                    // the
-                    // authority part (e.g. scheme://www). Otherwise the prefix
-                    // before
-                    // the last / or # is removed
-                    if (uri.getScheme() != null
-                            && slashIndex < (schemeColonSlashSlashLength =
-                                    uri.getScheme().length() + 3)
-                            && sharpIndex == -1) {
-                        // the pre-defined prefix is contained in the authority
-                        // part
-                        if (content.startsWith(
-                                "www.", schemeColonSlashSlashLength)) {
-                            return content.substring(schemeColonSlashSlashLength + 4);
-                        }
-
-                        // no pre-defined prefix is contained in the authority
-                        // part then
-                        // only the scheme + :// is removed
-                        return content.substring(uri.getScheme().length() + 3);
-                    } else if (slashIndex > sharpIndex) {
-                        // remove the prefix before the last /
-                        return content.substring(slashIndex + 1);
-                    } else if (slashIndex < sharpIndex) {
-                        // remove the prefix before the last #
-                        return content.substring(sharpIndex + 1);
-                    } else {
-                        return content;
-                    }
+                    return content.substring(start, end);
                 } else if (value.isLiteral()) {
                     String literal = value.getLiteralLexicalForm();
 
@@ -221,6 +165,48 @@ public class SemanticCoordinate extends StringCoordinate {
         };
     }
 
+    /**
+     * Creates a doping function that memoizes the results computed by the
+     * specified {@code dopingFunction} for URI nodes. Entries are looked up by
+     * node identity and at most {@code maximumSize} of them are retained. Other
+     * nodes (e.g. literals that are often unique to an event) are not
+     * memoized.
+     * 
+     * @param dopingFunction
+     *            the doping function whose results are memoized.
+     * @param maximumSize
+     *            the maximum number of results memoized.
+     * 
+     * @return a doping function that memoizes the results computed by the
+     *         specified {@code dopingFunction}.
+     */
+    public static LoadBalancingDopingFunction createMemoizingDopingFunction(final LoadBalancingDopingFunction dopingFunction,
+                                                                            long maximumSize) {
+        final Cache<Node, String> cache =
+                CacheBuilder.newBuilder()
+                        .weakKeys()
+                        .maximumSize(maximumSize)
+                        .build();
+
+        return new LoadBalancingDopingFunction() {
+            @Override
+            public String apply(Node value) {
+                if (!value.isURI()) {
+                    return dopingFunction.apply(value);
+                }
+
+                String result = cache.getIfPresent(value);
+
+                if (result == null) {
+                    result = dopingFunction.apply(value);
+                    cache.put(value, result);
+                }
+
+                return result;
+            }
+        };
+    }
+
     public static LoadBalancingDopingFunction createReverseDopingFunction() {
         return new LoadBalancingDopingFunction() {
             @Override
@@ -0,0 +1,381 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.overlay.can;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * Extracts the tail of a URI (i.e. the part that remains once the prefix
+ * shared by many resources has been removed) without allocating any object.
+ * The extraction gives the same results as an analysis based on
+ * {@link java.net.URI}: the characters of the URI are validated against the
+ * grammar accepted by {@link java.net.URI} (RFC 2396 with the same
+ * deviations) by using character masks. The only case that is delegated to
+ * {@link java.net.URI} is an authority containing square brackets (IPv6
+ * addresses), which requires a full server authority parsing.
+ * 
+ * @author lpellegr
+ */
+final class UriTailExtractor {
+
+    private static final int VALID = 0;
+
+    private static final int INVALID = -1;
+
+    private static final int UNKNOWN = -2;
+
+    private static final long L_DIGIT = lowMask('0', '9');
+
+    private static final long H_ALPHA = highMask('A', 'Z')
+            | highMask('a', 'z');
+
+    private static final long L_MARK = lowMask("-_.!~*'()");
+
+    private static final long H_MARK = highMask("-_.!~*'()");
+
+    private static final long L_UNRESERVED = L_DIGIT | L_MARK;
+
+    private static final long H_UNRESERVED = H_ALPHA | H_MARK;
+
+    private static final long L_SCHEME = L_DIGIT | lowMask("+-.");
+
+    private static final long H_SCHEME = H_ALPHA | highMask("+-.");
+
+    private static final long L_URIC = L_UNRESERVED
+            | lowMask(";/?:@&=+$,[]");
+
+    private static final long H_URIC = H_UNRESERVED
+            | highMask(";/?:@&=+$,[]");
+
+    private static final long L_PATH = L_UNRESERVED | lowMask(":@&=+$,;/");
+
+    private static final long H_PATH = H_UNRESERVED | highMask(":@&=+$,;/");
+
+    private static final long L_REG_NAME = L_UNRESERVED | lowMask("$,;:@&=+");
+
+    private static final long H_REG_NAME = H_UNRESERVED
+            | highMask("$,;:@&=+");
+
+    private UriTailExtractor() {
+
+    }
+
+    /**
+     * Returns the end index (exclusive) of the part of the specified
+     * {@code uri} that is analyzed. A trailing {@code /} or {@code #} is
+     * ignored.
+     * 
+     * @param uri
+     *            the URI to analyze.
+     * 
+     * @return the end index (exclusive) of the part of the specified
+     *         {@code uri} that is analyzed.
+     */
+    static int end(String uri) {
+        int lastCharIndex = uri.length() - 1;
+
+        if (lastCharIndex >= 0
+                && (uri.charAt(lastCharIndex) == '/' || uri.charAt(lastCharIndex) == '#')) {
+            return lastCharIndex;
+        }
+
+        return uri.length();
+    }
+
+    /**
+     * Returns the start index of the tail of the specified {@code uri},
+     * considering only the characters before {@code end}:
+     * <ul>
+     * <li>for an opaque URI, the part after the last {@code /}, {@code #} or
+     * {@code :};</li>
+     * <li>for a URI made of a scheme and an authority only, the authority
+     * without a leading {@code www.};</li>
+     * <li>otherwise the part after the last {@code /} or {@code #}.</li>
+     * </ul>
+     * The whole value is kept (i.e. {@code 0} is returned) when it is not a
+     * valid URI.
+     * 
+     * @param uri
+     *            the URI to analyze.
+     * @param end
+     *            the index of the first character which is ignored.
+     * 
+     * @return the start index of the tail of the specified {@code uri}.
+     */
+    static int start(String uri, int end) {
+        int schemeEnd = scan(uri, 0, end, ":/?#");
+        if (schemeEnd == end || uri.charAt(schemeEnd) != ':') {
+            schemeEnd = -1;
+        }
+
+        int state = check(uri, end, schemeEnd);
+        if (state == UNKNOWN) {
+            try {
+                new URI(uri.substring(0, end));
+                state = VALID;
+            } catch (URISyntaxException e) {
+                state = INVALID;
+            }
+        }
+
+        if (state == INVALID) {
+            return 0;
+        }
+
+        int slashIndex = uri.lastIndexOf('/', end - 1);
+        int sharpIndex = uri.lastIndexOf('#', end - 1);
+
+        // basic support for opaque URI
+        // http://download.oracle.com/javase/6/docs/api/java/net/URI.html
+        if (schemeEnd > 0 && uri.charAt(schemeEnd + 1) != '/') {
+            int removeIndex = Math.max(slashIndex, sharpIndex);
+
+            int colonIndex = uri.lastIndexOf(':', end - 1);
+            if (colonIndex > removeIndex) {
+                removeIndex = colonIndex;
+            }
+
+            return removeIndex + 1;
+        }
+
+        // if there is no other / or # starting from the authority part of the
+        // uri, some pre-defined prefixes can be removed from the authority
+        // part (e.g. scheme://www). Otherwise the prefix before the last / or
+        // # is removed
+        int schemeColonSlashSlashLength = schemeEnd + 3;
+        if (schemeEnd > 0 && slashIndex < schemeColonSlashSlashLength
+                && sharpIndex == -1) {
+            if (uri.startsWith("www.", schemeColonSlashSlashLength)) {
+                return Math.min(schemeColonSlashSlashLength + 4, end);
+            }
+
+            return Math.min(schemeColonSlashSlashLength, end);
+        } else if (slashIndex > sharpIndex) {
+            return slashIndex + 1;
+        } else if (slashIndex < sharpIndex) {
+            return sharpIndex + 1;
+        }
+
+        return 0;
+    }
+
+    /*
+     * Mirrors the parsing performed by java.net.URI(String).
+     */
+    private static int check(String uri, int end, int schemeEnd) {
+        int p;
+
+        if (schemeEnd >= 0) {
+            if (schemeEnd == 0
+                    || !match(uri.charAt(0), 0L, H_ALPHA)
+                    || !matchAll(uri, 1, schemeEnd, L_SCHEME, H_SCHEME)) {
+                return INVALID;
+            }
+
+            p = schemeEnd + 1;
+
+            if (p < end && uri.charAt(p) == '/') {
+                p = checkHierarchical(uri, p, end);
+            } else {
+                int q = scan(uri, p, end, "#");
+                if (q <= p || !matchAllOrEscaped(uri, p, q, L_URIC, H_URIC)) {
+                    return INVALID;
+                }
+                p = q;
+            }
+        } else {
+            p = checkHierarchical(uri, 0, end);
+        }
+
+        if (p < 0) {
+            return p;
+        }
+
+        // fragment
+        if (p < end
+                && !matchAllOrEscaped(uri, p + 1, end, L_URIC, H_URIC)) {
+            return INVALID;
+        }
+
+        return VALID;
+    }
+
+    private static int checkHierarchical(String uri, int start, int end) {
+        int p = start;
+
+        if (p + 1 < end && uri.charAt(p) == '/' && uri.charAt(p + 1) == '/') {
+            p += 2;
+            int q = scan(uri, p, end, "/?#");
+            if (q > p) {
+                if (!matchAllOrEscaped(uri, p, q, L_REG_NAME, H_REG_NAME)) {
+                    // a server authority (e.g. with an IPv6 address) may still
+                    // be valid
+                    if (scan(uri, p, q, "[]") < q) {
+                        return UNKNOWN;
+                    }
+
+                    return INVALID;
+                }
+            } else if (q == end) {
+                // empty authority is only allowed before a path, query or
+                // fragment
+                return INVALID;
+            }
+            p = q;
+        }
+
+        int q = scan(uri, p, end, "?#");
+        if (!matchAllOrEscaped(uri, p, q, L_PATH, H_PATH)) {
+            return INVALID;
+        }
+        p = q;
+
+        if (p < end && uri.charAt(p) == '?') {
+            q = scan(uri, p + 1, end, "#");
+            if (!matchAllOrEscaped(uri, p + 1, q, L_URIC, H_URIC)) {
+                return INVALID;
+            }
+            p = q;
+        }
+
+        return p;
+    }
+
+    /*
+     * Returns the index of the first character in [start, end) which is one of
+     * the specified stop characters or end if there is none.
+     */
+    private static int scan(String uri, int start, int end, String stop) {
+        for (int i = start; i < end; i++) {
+            if (stop.indexOf(uri.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+
+        return end;
+    }
+
+    private static boolean matchAll(String uri, int start, int end,
+                                    long lowMask, long highMask) {
+        for (int i = start; i < end; i++) {
+            if (!match(uri.charAt(i), lowMask, highMask)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Same as matchAll but also accepts escaped octets (%XX) and the non
+     * US-ASCII characters which are neither space nor control characters.
+     */
+    private static boolean matchAllOrEscaped(String uri, int start, int end,
+                                             long lowMask, long highMask) {
+        int i = start;
+
+        while (i < end) {
+            char c = uri.charAt(i);
+
+            if (match(c, lowMask, highMask)) {
+                i++;
+            } else if (c == '%') {
+                if (i + 2 >= end || !isHexDigit(uri.charAt(i + 1))
+                        || !isHexDigit(uri.charAt(i + 2))) {
+                    return false;
+                }
+                i += 3;
+            } else if (c > 128 && !Character.isSpaceChar(c)
+                    && !Character.isISOControl(c)) {
+                i++;
+            } else {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isHexDigit(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f')
+                || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean match(char c, long lowMask, long highMask) {
+        if (c == 0) {
+            return false;
+        }
+
+        if (c < 64) {
+            return ((1L << c) & lowMask) != 0;
+        }
+
+        if (c < 128) {
+            return ((1L << (c - 64)) & highMask) != 0;
+        }
+
+        return false;
+    }
+
+    private static long lowMask(String chars) {
+        long mask = 0;
+
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (c < 64) {
+                mask |= 1L << c;
+            }
+        }
+
+        return mask;
+    }
+
+    private static long highMask(String chars) {
+        long mask = 0;
+
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (c >= 64 && c < 128) {
+                mask |= 1L << (c - 64);
+            }
+        }
+
+        return mask;
+    }
+
+    private static long lowMask(char first, char last) {
+        long mask = 0;
+
+        for (int c = Math.max(first, 0); c <= Math.min(last, 63); c++) {
+            mask |= 1L << c;
+        }
+
+        return mask;
+    }
+
+    private static long highMask(char first, char last) {
+        long mask = 0;
+
+        for (int c = Math.max(first, 64); c <= Math.min(last, 127); c++) {
+            mask |= 1L << (c - 64);
+        }
+
+        return mask;
+    }
+
+}
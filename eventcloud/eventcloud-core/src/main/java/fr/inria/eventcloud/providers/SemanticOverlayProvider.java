@@ -24,8 +24,11 @@ import org.objectweb.proactive.extensions.p2p.structured.providers.SerializableP
 import com.google.common.base.Preconditions;
 
 import fr.inria.eventcloud.configuration.EventCloudProperties;
+import fr.inria.eventcloud.datastore.DatastoreEngine;
 import fr.inria.eventcloud.datastore.TransactionalTdbDatastore;
 import fr.inria.eventcloud.datastore.TransactionalTdbDatastoreBuilder;
+import fr.inria.eventcloud.datastore.stats.CardinalityStatsRecorder;
+import fr.inria.eventcloud.datastore.stats.NullStatsRecorder;
 import fr.inria.eventcloud.datastore.stats.StatsRecorder;
 import fr.inria.eventcloud.load_balancing.configuration.LoadBalancingConfiguration;
 import fr.inria.eventcloud.overlay.SemanticCanOverlay;
@@ -42,7 +45,7 @@ public class SemanticOverlayProvider extends
 
     private final LoadBalancingConfiguration loadBalancingConfiguration;
 
-    private final boolean inMemory;
+    private final DatastoreEngine datastoreEngine;
 
     private String streamURL;
 
@@ -53,8 +56,19 @@ public class SemanticOverlayProvider extends
     public SemanticOverlayProvider(
             LoadBalancingConfiguration loadBalancingConfiguration,
             boolean inMemory) {
+        this(loadBalancingConfiguration, inMemory
+                ? DatastoreEngine.TDB_IN_MEMORY : DatastoreEngine.TDB);
+    }
+
+    public SemanticOverlayProvider(DatastoreEngine datastoreEngine) {
+        this(null, datastoreEngine);
+    }
+
+    public SemanticOverlayProvider(
+            LoadBalancingConfiguration loadBalancingConfiguration,
+            DatastoreEngine datastoreEngine) {
         this.loadBalancingConfiguration = loadBalancingConfiguration;
-        this.inMemory = inMemory;
+        this.datastoreEngine = datastoreEngine;
     }
 
     /**
@@ -76,18 +90,34 @@ public class SemanticOverlayProvider extends
      *         {@link SemanticCanOverlay}.
      */
     protected TransactionalTdbDatastore[] createDatastores() {
-        if (this.inMemory) {
-            return this.createInMemoryDatastores();
-        } else {
-            return this.createPersistentDatastores();
+        switch (this.datastoreEngine) {
+            case HEXASTORE:
+                return this.createHexastoreDatastores();
+            case TDB_IN_MEMORY:
+                return this.createInMemoryDatastores();
+            default:
+                return this.createPersistentDatastores();
         }
     }
 
+    private TransactionalTdbDatastore[] createHexastoreDatastores() {
+        TransactionalTdbDatastoreBuilder miscDatastoreBuilder =
+                new TransactionalTdbDatastoreBuilder().useHexastore();
+
+        this.enableStatsRecording(miscDatastoreBuilder);
+
+        return new TransactionalTdbDatastore[] {
+                new TransactionalTdbDatastoreBuilder().useHexastore().build(),
+                miscDatastoreBuilder.build(),
+                new TransactionalTdbDatastoreBuilder().useHexastore().build()};
+    }
+
     private TransactionalTdbDatastore[] createInMemoryDatastores() {
         TransactionalTdbDatastoreBuilder miscDatastoreBuilder =
                 new TransactionalTdbDatastoreBuilder();
 
         this.enableStatsRecording(miscDatastoreBuilder);
+        this.enableTimePartitioning(miscDatastoreBuilder);
 
         return new TransactionalTdbDatastore[] {
                 new TransactionalTdbDatastoreBuilder().build(),
@@ -108,6 +138,7 @@ public class SemanticOverlayProvider extends
                         repositoryPath, "misc")).deleteFilesAfterClose(EventCloudProperties.REPOSITORIES_AUTO_REMOVE.getValue());
 
         this.enableStatsRecording(miscDatastoreBuilder);
+        this.enableTimePartitioning(miscDatastoreBuilder);
 
         // datastore used to store publications, historical data, etc.
         TransactionalTdbDatastore miscDatastore = miscDatastoreBuilder.build();
@@ -138,15 +169,36 @@ public class SemanticOverlayProvider extends
     }
 
     private void enableStatsRecording(TransactionalTdbDatastoreBuilder miscDatastoreBuilder) {
+        StatsRecorder statsRecorder = NullStatsRecorder.getInstance();
+
         if (EventCloudProperties.isRecordStatsMiscDatastoreEnabled()
                 || this.loadBalancingConfiguration != null) {
             try {
-                miscDatastoreBuilder.recordStats((StatsRecorder) EventCloudProperties.STATS_RECORDER_CLASS.getValue()
-                        .newInstance());
+                statsRecorder =
+                        (StatsRecorder) EventCloudProperties.STATS_RECORDER_CLASS.getValue()
+                                .newInstance();
             } catch (Exception e) {
                 throw new IllegalStateException(e);
             }
         }
+
+        if (EventCloudProperties.CARDINALITY_STATS_ENABLED.getValue()) {
+            statsRecorder = new CardinalityStatsRecorder(statsRecorder);
+        }
+
+        miscDatastoreBuilder.recordStats(statsRecorder);
+    }
+
+    private void enableTimePartitioning(TransactionalTdbDatastoreBuilder miscDatastoreBuilder) {
+        if (EventCloudProperties.MISC_DATASTORE_TIME_PARTITIONING.getValue()) {
+            miscDatastoreBuilder.partitionByTime(
+                    EventCloudProperties.MISC_DATASTORE_TIME_PARTITION_DURATION.getValue(),
+                    EventCloudProperties.MISC_DATASTORE_TIME_PARTITIONS_RETAINED.getValue());
+        }
+    }
+
+    public DatastoreEngine getDatastoreEngine() {
+        return this.datastoreEngine;
     }
 
     public LoadBalancingConfiguration getLoadBalancingConfiguration() {
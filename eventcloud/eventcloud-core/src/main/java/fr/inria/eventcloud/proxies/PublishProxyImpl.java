@@ -23,6 +23,8 @@ import java.util.Collection;
 
 import org.objectweb.proactive.Body;
 import org.objectweb.proactive.annotation.multiactivity.MemberOf;
+import org.objectweb.proactive.extensions.p2p.structured.multiactivity.AdaptiveThreadLimitController;
+import org.objectweb.proactive.extensions.p2p.structured.multiactivity.MonitoredServingPolicy;
 import org.objectweb.proactive.multiactivity.component.ComponentMultiActiveService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -79,7 +81,9 @@ public class PublishProxyImpl extends EventCloudProxy implements PublishProxy,
     @Override
     public void runComponentActivity(Body body) {
         super.multiActiveService = new ComponentMultiActiveService(body);
-        super.multiActiveService.multiActiveServing(
+        AdaptiveThreadLimitController.serve(
+                "PublishProxy", body.getID().toString(),
+                super.multiActiveService, new MonitoredServingPolicy(), null,
                 EventCloudProperties.MAO_LIMIT_PUBLISH_PROXIES.getValue(),
                 true, false);
     }
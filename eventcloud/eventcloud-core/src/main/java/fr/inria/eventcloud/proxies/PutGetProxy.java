@@ -17,8 +17,10 @@
 package fr.inria.eventcloud.proxies;
 
 import org.objectweb.proactive.extensions.p2p.structured.proxies.Proxy;
+import org.objectweb.proactive.extensions.p2p.structured.utils.microbenchmarks.LatencyHistogram;
 
 import fr.inria.eventcloud.api.PutGetApi;
+import fr.inria.eventcloud.configuration.EventCloudProperties;
 
 /**
  * A PutGetProxy is a proxy that implements the {@link PutGetApi}. It has to be
@@ -30,4 +32,26 @@ import fr.inria.eventcloud.api.PutGetApi;
  */
 public interface PutGetProxy extends Proxy, PutGetApi {
 
+    /**
+     * Returns statistics about the cache used for the responses of SPARQL
+     * queries (hit rate, saved latency, etc.) or {@code null} if the cache is
+     * disabled (see
+     * {@link EventCloudProperties#SPARQL_RESPONSE_CACHE_ENABLED}).
+     * 
+     * @return statistics about the cache used for the responses of SPARQL
+     *         queries or {@code null} if the cache is disabled.
+     */
+    SparqlResponseCache.Stats getSparqlResponseCacheStats();
+
+    /**
+     * Returns a copy of the histogram of the latencies, in microseconds, of
+     * the SPARQL queries executed through this proxy or {@code null} if the
+     * recording is disabled (see
+     * {@link EventCloudProperties#PROXY_LATENCY_HISTOGRAMS_ENABLED}).
+     * 
+     * @return a copy of the histogram of the latencies of the SPARQL queries
+     *         executed or {@code null} if the recording is disabled.
+     */
+    LatencyHistogram getSparqlQueryLatencyHistogram();
+
 }
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.objectweb.proactive.Body;
 import org.objectweb.proactive.annotation.multiactivity.Compatible;
@@ -33,15 +34,26 @@ import org.objectweb.proactive.annotation.multiactivity.Group;
 import org.objectweb.proactive.annotation.multiactivity.MemberOf;
 import org.objectweb.proactive.api.PAFuture;
 import org.objectweb.proactive.extensions.p2p.structured.messages.Response;
+import org.objectweb.proactive.extensions.p2p.structured.multiactivity.AdaptiveThreadLimitController;
+import org.objectweb.proactive.extensions.p2p.structured.multiactivity.MonitoredServingPolicy;
+import org.objectweb.proactive.extensions.p2p.structured.utils.microbenchmarks.LatencyHistogram;
 import org.objectweb.proactive.multiactivity.component.ComponentMultiActiveService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Function;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.hp.hpl.jena.rdf.model.StmtIterator;
 
+import fr.inria.eventcloud.api.AsyncPutGetApi;
 import fr.inria.eventcloud.api.Quadruple;
 import fr.inria.eventcloud.api.Quadruple.SerializationFormat;
 import fr.inria.eventcloud.api.QuadruplePattern;
@@ -53,18 +65,24 @@ import fr.inria.eventcloud.api.responses.SparqlResponse;
 import fr.inria.eventcloud.api.responses.SparqlSelectResponse;
 import fr.inria.eventcloud.api.wrappers.ResultSetWrapper;
 import fr.inria.eventcloud.configuration.EventCloudProperties;
+import fr.inria.eventcloud.datastore.stats.CardinalityStats;
 import fr.inria.eventcloud.factories.ProxyFactory;
 import fr.inria.eventcloud.messages.SparqlMessageContext;
 import fr.inria.eventcloud.messages.SparqlQueryType;
 import fr.inria.eventcloud.messages.SparqlResponseCombiner;
+import fr.inria.eventcloud.messages.VersionedSparqlResponse;
 import fr.inria.eventcloud.messages.request.AddQuadrupleRequest;
+import fr.inria.eventcloud.messages.request.AddQuadruplesBatchRequest;
+import fr.inria.eventcloud.messages.request.CardinalityStatsRequest;
 import fr.inria.eventcloud.messages.request.ContainsQuadrupleRequest;
 import fr.inria.eventcloud.messages.request.CountQuadruplePatternRequest;
 import fr.inria.eventcloud.messages.request.DeleteQuadrupleRequest;
+import fr.inria.eventcloud.messages.request.DeleteQuadruplesBatchRequest;
 import fr.inria.eventcloud.messages.request.DeleteQuadruplesRequest;
 import fr.inria.eventcloud.messages.request.QuadruplePatternRequest;
 import fr.inria.eventcloud.messages.request.SparqlAtomicRequest;
 import fr.inria.eventcloud.messages.response.BooleanForwardResponse;
+import fr.inria.eventcloud.messages.response.CardinalityStatsResponse;
 import fr.inria.eventcloud.messages.response.CountQuadruplePatternResponse;
 import fr.inria.eventcloud.messages.response.QuadruplePatternResponse;
 import fr.inria.eventcloud.reasoner.SparqlReasoner;
@@ -73,7 +91,9 @@ import fr.inria.eventcloud.utils.RDFReader;
 
 /**
  * PutGetProxyImpl is a concrete implementation of {@link PutGetProxy}. This
- * class has to be instantiated as a ProActive/GCM component.
+ * class has to be instantiated as a ProActive/GCM component. The operations
+ * from {@link AsyncPutGetApi} are not exposed through the component
+ * interface, they do not block any thread while requests are in flight.
  * 
  * @author lpellegr
  * @author bsauvan
@@ -89,11 +109,51 @@ import fr.inria.eventcloud.utils.RDFReader;
         @Compatible(value = {"delete", "receive"}),
         @Compatible(value = {"read", "receive"})})
 public class PutGetProxyImpl extends EventCloudProxy implements PutGetProxy,
-        PutGetProxyAttributeController {
+        AsyncPutGetApi, PutGetProxyAttributeController {
 
     private static final Logger LOG =
             LoggerFactory.getLogger(PutGetProxyImpl.class);
 
+    private static final Function<Object, Boolean> TO_TRUE =
+            new Function<Object, Boolean>() {
+                @Override
+                public Boolean apply(Object response) {
+                    return true;
+                }
+            };
+
+    private static final Function<Response<?>, List<Quadruple>> TO_QUADRUPLES =
+            new Function<Response<?>, List<Quadruple>>() {
+                @Override
+                public List<Quadruple> apply(Response<?> response) {
+                    return ((QuadruplePatternResponse) response).getResult();
+                }
+            };
+
+    private static final Function<Response<?>, Long> TO_COUNT =
+            new Function<Response<?>, Long>() {
+                @Override
+                public Long apply(Response<?> response) {
+                    return ((CountQuadruplePatternResponse) response).getResult();
+                }
+            };
+
+    private static final Function<Serializable, SparqlResponse<?>> TO_SPARQL_RESPONSE =
+            new Function<Serializable, SparqlResponse<?>>() {
+                @Override
+                public SparqlResponse<?> apply(Serializable response) {
+                    return ((VersionedSparqlResponse) response).getResponse();
+                }
+            };
+
+    private static final Function<SparqlResponse<?>, Long> TO_NB_SOLUTIONS =
+            new Function<SparqlResponse<?>, Long>() {
+                @Override
+                public Long apply(SparqlResponse<?> response) {
+                    return countSolutions(response);
+                }
+            };
+
     /**
      * ADL name of the put/get proxy component.
      */
@@ -110,6 +170,21 @@ public class PutGetProxyImpl extends EventCloudProxy implements PutGetProxy,
      */
     public static final String PUTGET_PROXY_VN = "PutGetProxyVN";
 
+    // cardinality statistics aggregated from the peers, refreshed
+    // asynchronously once the refresh period has elapsed
+    private volatile CardinalityStats cardinalityStats;
+
+    private volatile long cardinalityStatsRetrievalTime = -1;
+
+    private final AtomicBoolean cardinalityStatsRetrieving =
+            new AtomicBoolean();
+
+    // null if the caching of SPARQL responses is disabled
+    private transient SparqlResponseCache sparqlResponseCache;
+
+    // null if the recording of SPARQL query latencies is disabled
+    private transient LatencyHistogram sparqlQueryLatencies;
+
     /**
      * Empty constructor required by ProActive.
      */
@@ -123,7 +198,9 @@ public class PutGetProxyImpl extends EventCloudProxy implements PutGetProxy,
     @Override
     public void runComponentActivity(Body body) {
         super.multiActiveService = new ComponentMultiActiveService(body);
-        super.multiActiveService.multiActiveServing(
+        AdaptiveThreadLimitController.serve(
+                "PutGetProxy", body.getID().toString(),
+                super.multiActiveService, new MonitoredServingPolicy(), null,
                 EventCloudProperties.MAO_LIMIT_PUTGET_PROXIES.getValue(),
                 false, false);
     }
@@ -136,6 +213,18 @@ public class PutGetProxyImpl extends EventCloudProxy implements PutGetProxy,
         assert !this.initialized;
 
         this.eventCloudCache = proxy;
+
+        if (EventCloudProperties.SPARQL_RESPONSE_CACHE_ENABLED.getValue()) {
+            this.sparqlResponseCache =
+                    new SparqlResponseCache(
+                            EventCloudProperties.SPARQL_RESPONSE_CACHE_MAXIMUM_SIZE.getValue(),
+                            EventCloudProperties.SPARQL_RESPONSE_CACHE_EXPIRATION_TIME.getValue());
+        }
+
+        if (EventCloudProperties.PROXY_LATENCY_HISTOGRAMS_ENABLED.getValue()) {
+            this.sparqlQueryLatencies = new LatencyHistogram();
+        }
+
         super.initAttributes(org.objectweb.proactive.extensions.p2p.structured.factories.ProxyFactory.getOrCreateProxyCache(this.eventCloudCache.getTrackers()));
     }
 
@@ -146,6 +235,8 @@ public class PutGetProxyImpl extends EventCloudProxy implements PutGetProxy,
     public void resetAttributes() {
         if (super.initialized) {
             this.eventCloudCache = null;
+            this.sparqlResponseCache = null;
+            this.sparqlQueryLatencies = null;
             super.resetAttributes();
         }
     }
@@ -164,7 +255,8 @@ public class PutGetProxyImpl extends EventCloudProxy implements PutGetProxy,
     @Override
     @MemberOf("add")
     public boolean add(Quadruple quad) {
-        PAFuture.waitFor(this.addAsync(quad));
+        PAFuture.waitFor(this.sendAddRequest(quad));
+        this.invalidateSparqlResponses();
         return true;
     }
 
@@ -174,18 +266,20 @@ public class PutGetProxyImpl extends EventCloudProxy implements PutGetProxy,
     @Override
     @MemberOf("add")
     public boolean add(Collection<Quadruple> quads) {
-        List<Response<?>> results = new ArrayList<Response<?>>(quads.size());
+        Builder<Response<?>> results = ImmutableList.builder();
 
-        for (final Quadruple quad : quads) {
-            results.add(this.addAsync(quad));
+        for (List<Quadruple> batch : partition(quads)) {
+            results.add(super.send(new AddQuadruplesBatchRequest(batch)));
         }
 
-        PAFuture.waitForAll(results);
+        PAFuture.waitForAll(results.build());
+
+        this.invalidateSparqlResponses();
 
         return true;
     }
 
-    private Response<?> addAsync(Quadruple quad) {
+    private Response<?> sendAddRequest(Quadruple quad) {
         return super.send(new AddQuadrupleRequest(quad));
     }
 
@@ -197,6 +291,11 @@ public class PutGetProxyImpl extends EventCloudProxy implements PutGetProxy,
     @Override
     @MemberOf("add")
     public void add(URL url, SerializationFormat format) throws IOException {
+        if (EventCloudProperties.PUTGET_BULK_LOAD_ENABLED.getValue()) {
+            this.bulkAdd(url, format);
+            return;
+        }
+
         final Builder<Response<?>> results = ImmutableList.builder();
 
         InputStream in = url.openConnection().getInputStream();
@@ -204,13 +303,46 @@ public class PutGetProxyImpl extends EventCloudProxy implements PutGetProxy,
         RDFReader.read(in, format, new Callback<Quadruple>() {
             @Override
             public void execute(Quadruple quad) {
-                results.add(PutGetProxyImpl.this.addAsync(quad));
+                results.add(PutGetProxyImpl.this.sendAddRequest(quad));
             }
         });
 
         in.close();
 
         PAFuture.waitForAll(results.build());
+
+        this.invalidateSparqlResponses();
+    }
+
+    private void bulkAdd(URL url, SerializationFormat format)
+            throws IOException {
+        QuadruplesBulkLoader loader =
+                new QuadruplesBulkLoader(
+                        super.selectPeer(),
+                        EventCloudProperties.PUTGET_BULK_LOAD_BATCH_SIZE.getValue(),
+                        EventCloudProperties.PUTGET_BULK_LOAD_THREADS.getValue(),
+                        EventCloudProperties.PUTGET_BULK_LOAD_REPORT_PERIOD.getValue());
+
+        InputStream in = url.openConnection().getInputStream();
+
+        List<Quadruple> unstoredQuadruples;
+
+        try {
+            unstoredQuadruples = loader.load(in, format);
+        } finally {
+            in.close();
+        }
+
+        // quadruples that have not been accepted by the peers they were sent
+        // to (e.g. because of a zone update since the snapshot) are routed
+        if (!unstoredQuadruples.isEmpty()) {
+            LOG.info(
+                    "Routing {} quadruples not stored by bulk load",
+                    unstoredQuadruples.size());
+            this.add(unstoredQuadruples);
+        }
+
+        this.invalidateSparqlResponses();
     }
 
     /**
@@ -229,7 +361,8 @@ public class PutGetProxyImpl extends EventCloudProxy implements PutGetProxy,
     @Override
     @MemberOf("delete")
     public boolean delete(Quadruple quad) {
-        PAFuture.waitFor(this.deleteAsync(quad));
+        PAFuture.waitFor(this.sendDeleteRequest(quad));
+        this.invalidateSparqlResponses();
         return true;
     }
 
@@ -239,17 +372,29 @@ public class PutGetProxyImpl extends EventCloudProxy implements PutGetProxy,
     @Override
     @MemberOf("delete")
     public boolean delete(Collection<Quadruple> quads) {
-        List<Response<?>> results = new ArrayList<Response<?>>(quads.size());
+        Builder<Response<?>> results = ImmutableList.builder();
 
-        for (final Quadruple quad : quads) {
-            results.add(this.deleteAsync(quad));
+        for (List<Quadruple> batch : partition(quads)) {
+            results.add(super.send(new DeleteQuadruplesBatchRequest(batch)));
         }
 
-        PAFuture.waitForAll(results);
+        PAFuture.waitForAll(results.build());
+
+        this.invalidateSparqlResponses();
 
         return true;
     }
 
+    /*
+     * Splits the specified quadruples into batches whose the size is bounded
+     * in order to prevent too large messages.
+     */
+    private static List<List<Quadruple>> partition(Collection<Quadruple> quads) {
+        return Lists.partition(
+                new ArrayList<Quadruple>(quads),
+                EventCloudProperties.PUTGET_BULK_LOAD_BATCH_SIZE.getValue());
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -261,13 +406,36 @@ public class PutGetProxyImpl extends EventCloudProxy implements PutGetProxy,
                         quadPattern.getGraph(), quadPattern.getSubject(),
                         quadPattern.getPredicate(), quadPattern.getObject())));
 
+        this.invalidateSparqlResponses();
+
         return response.getResult();
     }
 
-    private Response<?> deleteAsync(Quadruple quad) {
+    private Response<?> sendDeleteRequest(Quadruple quad) {
         return super.send(new DeleteQuadrupleRequest(quad));
     }
 
+    /*
+     * Responses cached before a write made through this proxy are discarded,
+     * thus a query executed once the write has returned always sees it.
+     */
+    private void invalidateSparqlResponses() {
+        if (this.sparqlResponseCache != null) {
+            this.sparqlResponseCache.invalidateAll();
+        }
+    }
+
+    private <T> ListenableFuture<T> invalidateSparqlResponsesOnCompletion(ListenableFuture<T> future) {
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                PutGetProxyImpl.this.invalidateSparqlResponses();
+            }
+        }, MoreExecutors.sameThreadExecutor());
+
+        return future;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -285,8 +453,10 @@ public class PutGetProxyImpl extends EventCloudProxy implements PutGetProxy,
     @Override
     @MemberOf("read")
     public long count(String sparqlQuery) throws MalformedSparqlQueryException {
-        SparqlResponse<?> response = this.executeSparqlQuery(sparqlQuery);
+        return countSolutions(this.executeSparqlQuery(sparqlQuery));
+    }
 
+    private static long countSolutions(SparqlResponse<?> response) {
         if (response instanceof SparqlAskResponse) {
             return ((SparqlAskResponse) response).getResult()
                     ? 1 : 0;
@@ -339,28 +509,35 @@ public class PutGetProxyImpl extends EventCloudProxy implements PutGetProxy,
 
         sparqlQuery = sparqlQuery.trim();
 
-        SparqlResponse<?> result;
+        SparqlResponse<?> result =
+                this.execute(sparqlQuery, getQueryType(sparqlQuery));
+
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("It took " + stopwatch.elapsed(TimeUnit.MILLISECONDS)
+                    + " ms to execute '" + sparqlQuery + "', "
+                    + result.getStats());
+        }
+
+        return result;
+    }
 
+    /*
+     * Returns the form of the specified SPARQL query, which is expected to be
+     * trimmed.
+     */
+    private static SparqlQueryType getQueryType(String sparqlQuery) {
         if (sparqlQuery.startsWith("ASK")) {
-            result = this.executeSparqlAsk(sparqlQuery);
+            return SparqlQueryType.ASK;
         } else if (sparqlQuery.startsWith("CONSTRUCT")) {
-            result = this.executeSparqlConstruct(sparqlQuery);
+            return SparqlQueryType.CONSTRUCT;
         } else if (sparqlQuery.startsWith("DESCRIBE")) {
-            result = this.executeSparqlDescribe(sparqlQuery);
+            throw new UnsupportedOperationException();
         } else if (sparqlQuery.startsWith("SELECT")) {
-            result = this.executeSparqlSelect(sparqlQuery);
+            return SparqlQueryType.SELECT;
         } else {
             throw new IllegalArgumentException("Unknow query form for query: "
                     + sparqlQuery);
         }
-
-        if (LOG.isTraceEnabled()) {
-            LOG.trace("It took " + stopwatch.elapsed(TimeUnit.MILLISECONDS)
-                    + " ms to execute '" + sparqlQuery + "', "
-                    + result.getStats());
-        }
-
-        return result;
     }
 
     /**
@@ -370,16 +547,8 @@ public class PutGetProxyImpl extends EventCloudProxy implements PutGetProxy,
     @MemberOf("read")
     public SparqlAskResponse executeSparqlAsk(String sparqlAskQuery)
             throws MalformedSparqlQueryException {
-        List<SparqlAtomicRequest> requests =
-                SparqlReasoner.parse(sparqlAskQuery);
-
-        Serializable result =
-                super.send(
-                        requests, new SparqlMessageContext(
-                                sparqlAskQuery, SparqlQueryType.ASK),
-                        SparqlResponseCombiner.getInstance());
-
-        return (SparqlAskResponse) PAFuture.getFutureValue(result);
+        return (SparqlAskResponse) this.execute(
+                sparqlAskQuery, SparqlQueryType.ASK);
     }
 
     /**
@@ -389,17 +558,8 @@ public class PutGetProxyImpl extends EventCloudProxy implements PutGetProxy,
     @MemberOf("read")
     public SparqlConstructResponse executeSparqlConstruct(String sparqlConstructQuery)
             throws MalformedSparqlQueryException {
-        List<SparqlAtomicRequest> requests =
-                SparqlReasoner.parse(sparqlConstructQuery);
-
-        Serializable result =
-                super.send(
-                        requests,
-                        new SparqlMessageContext(
-                                sparqlConstructQuery, SparqlQueryType.CONSTRUCT),
-                        SparqlResponseCombiner.getInstance());
-
-        return (SparqlConstructResponse) PAFuture.getFutureValue(result);
+        return (SparqlConstructResponse) this.execute(
+                sparqlConstructQuery, SparqlQueryType.CONSTRUCT);
     }
 
     /**
@@ -418,16 +578,321 @@ public class PutGetProxyImpl extends EventCloudProxy implements PutGetProxy,
     @MemberOf("read")
     public SparqlSelectResponse executeSparqlSelect(String sparqlSelectQuery)
             throws MalformedSparqlQueryException {
-        List<SparqlAtomicRequest> requests =
-                SparqlReasoner.parse(sparqlSelectQuery);
+        return (SparqlSelectResponse) this.execute(
+                sparqlSelectQuery, SparqlQueryType.SELECT);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @MemberOf("read")
+    public SparqlResponseCache.Stats getSparqlResponseCacheStats() {
+        if (this.sparqlResponseCache == null) {
+            return null;
+        }
+
+        return this.sparqlResponseCache.getStats();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @MemberOf("read")
+    public LatencyHistogram getSparqlQueryLatencyHistogram() {
+        if (this.sparqlQueryLatencies == null) {
+            return null;
+        }
+
+        synchronized (this.sparqlQueryLatencies) {
+            return this.sparqlQueryLatencies.copy();
+        }
+    }
+
+    /**
+     * Executes the specified SPARQL query and records its latency when latency
+     * histograms are enabled.
+     */
+    private SparqlResponse<?> execute(final String sparqlQuery,
+                                      final SparqlQueryType queryType)
+            throws MalformedSparqlQueryException {
+        if (this.sparqlQueryLatencies == null) {
+            return this.executeWithCache(sparqlQuery, queryType);
+        }
+
+        long startTime = System.nanoTime();
+
+        SparqlResponse<?> result =
+                this.executeWithCache(sparqlQuery, queryType);
+
+        long latency =
+                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime);
+
+        synchronized (this.sparqlQueryLatencies) {
+            this.sparqlQueryLatencies.recordValue(latency);
+        }
+
+        return result;
+    }
+
+    /**
+     * Executes the specified SPARQL query by using the response cache when it
+     * is enabled.
+     */
+    private SparqlResponse<?> executeWithCache(final String sparqlQuery,
+                                               final SparqlQueryType queryType)
+            throws MalformedSparqlQueryException {
+        final List<SparqlAtomicRequest> requests =
+                SparqlReasoner.parse(sparqlQuery);
+
+        if (this.sparqlResponseCache == null) {
+            return this.dispatch(sparqlQuery, queryType, requests)
+                    .getResponse();
+        }
+
+        return this.sparqlResponseCache.get(
+                sparqlQuery, new SparqlResponseCache.Loader() {
+                    @Override
+                    public VersionedSparqlResponse execute() {
+                        return PutGetProxyImpl.this.dispatch(
+                                sparqlQuery, queryType, requests);
+                    }
+                });
+    }
+
+    private VersionedSparqlResponse dispatch(String sparqlQuery,
+                                             SparqlQueryType queryType,
+                                             List<SparqlAtomicRequest> requests) {
+        SparqlAtomicRequest outer =
+                this.selectBindJoinOuter(sparqlQuery, requests);
+
+        if (outer != null) {
+            requests =
+                    SparqlReasoner.bindJoin(
+                            requests, outer,
+                            ((QuadruplePatternResponse) PAFuture.getFutureValue(super.send(outer))).getResult());
+        }
 
         Serializable result =
                 super.send(
                         requests, new SparqlMessageContext(
-                                sparqlSelectQuery, SparqlQueryType.SELECT),
+                                sparqlQuery, queryType),
                         SparqlResponseCombiner.getInstance());
 
-        return (SparqlSelectResponse) PAFuture.getFutureValue(result);
+        return (VersionedSparqlResponse) PAFuture.getFutureValue(result);
+    }
+
+    /**
+     * Returns the sub-query to dispatch before the others so that its
+     * solutions restrict the peers visited by the other sub-queries, or
+     * {@code null} if the sub-queries must be dispatched in parallel.
+     */
+    private SparqlAtomicRequest selectBindJoinOuter(String sparqlQuery,
+                                                    List<SparqlAtomicRequest> requests) {
+        CardinalityStats stats = this.getCardinalityStats();
+
+        if (stats == null) {
+            return null;
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                    "{} intermediate quadruples estimated for {} sub-queries from {}",
+                    SparqlReasoner.estimateCardinality(requests, stats),
+                    requests.size(), sparqlQuery);
+        }
+
+        return SparqlReasoner.selectBindJoinOuter(sparqlQuery, requests, stats);
+    }
+
+    /**
+     * Returns the cardinality statistics aggregated from all the peers. Once
+     * the refresh period defined by
+     * {@link EventCloudProperties#CARDINALITY_STATS_REFRESH_PERIOD} has
+     * elapsed, they are retrieved again with a multicast request whose
+     * response is not waited for: the statistics previously retrieved are
+     * returned in the meantime.
+     * 
+     * @return the cardinality statistics aggregated from all the peers or
+     *         {@code null} if they have not been retrieved yet or if the peers
+     *         do not record them.
+     */
+    private CardinalityStats getCardinalityStats() {
+        if (!EventCloudProperties.CARDINALITY_STATS_ENABLED.getValue()) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+
+        if ((this.cardinalityStatsRetrievalTime == -1 || now
+                - this.cardinalityStatsRetrievalTime > EventCloudProperties.CARDINALITY_STATS_REFRESH_PERIOD.getValue())
+                && this.cardinalityStatsRetrieving.compareAndSet(false, true)) {
+            // the retrieval time is also updated on failure to avoid an
+            // additional broadcast per query
+            this.cardinalityStatsRetrievalTime = now;
+
+            Futures.addCallback(
+                    super.sendAsync(new CardinalityStatsRequest()),
+                    new FutureCallback<Response<?>>() {
+                        @Override
+                        public void onSuccess(Response<?> response) {
+                            PutGetProxyImpl.this.cardinalityStats =
+                                    ((CardinalityStatsResponse) response).getResult();
+                            PutGetProxyImpl.this.cardinalityStatsRetrieving.set(false);
+                        }
+
+                        @Override
+                        public void onFailure(Throwable t) {
+                            LOG.warn(
+                                    "Cardinality statistics retrieval failed",
+                                    t);
+                            PutGetProxyImpl.this.cardinalityStatsRetrieving.set(false);
+                        }
+                    }, MoreExecutors.sameThreadExecutor());
+        }
+
+        return this.cardinalityStats;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ListenableFuture<Boolean> addAsync(Quadruple quad) {
+        return this.invalidateSparqlResponsesOnCompletion(Futures.transform(
+                super.sendAsync(new AddQuadrupleRequest(quad)), TO_TRUE));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ListenableFuture<Boolean> addAsync(Collection<Quadruple> quads) {
+        List<ListenableFuture<Response<?>>> futures =
+                new ArrayList<ListenableFuture<Response<?>>>();
+
+        for (List<Quadruple> batch : partition(quads)) {
+            futures.add(super.sendAsync(new AddQuadruplesBatchRequest(batch)));
+        }
+
+        return this.invalidateSparqlResponsesOnCompletion(Futures.transform(
+                Futures.allAsList(futures), TO_TRUE));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ListenableFuture<Boolean> deleteAsync(Quadruple quad) {
+        return this.invalidateSparqlResponsesOnCompletion(Futures.transform(
+                super.sendAsync(new DeleteQuadrupleRequest(quad)), TO_TRUE));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ListenableFuture<Boolean> deleteAsync(Collection<Quadruple> quads) {
+        List<ListenableFuture<Response<?>>> futures =
+                new ArrayList<ListenableFuture<Response<?>>>();
+
+        for (List<Quadruple> batch : partition(quads)) {
+            futures.add(super.sendAsync(new DeleteQuadruplesBatchRequest(
+                    batch)));
+        }
+
+        return this.invalidateSparqlResponsesOnCompletion(Futures.transform(
+                Futures.allAsList(futures), TO_TRUE));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ListenableFuture<List<Quadruple>> deleteAsync(QuadruplePattern quadPattern) {
+        return this.invalidateSparqlResponsesOnCompletion(Futures.transform(
+                super.sendAsync(new DeleteQuadruplesRequest(
+                        quadPattern.getGraph(), quadPattern.getSubject(),
+                        quadPattern.getPredicate(), quadPattern.getObject())),
+                TO_QUADRUPLES));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ListenableFuture<Long> countAsync(QuadruplePattern quadPattern) {
+        return Futures.transform(
+                super.sendAsync(new CountQuadruplePatternRequest(
+                        quadPattern.getGraph(), quadPattern.getSubject(),
+                        quadPattern.getPredicate(), quadPattern.getObject())),
+                TO_COUNT);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ListenableFuture<Long> countAsync(String sparqlQuery)
+            throws MalformedSparqlQueryException {
+        return Futures.transform(
+                this.dispatchAsync(sparqlQuery.trim()), TO_NB_SOLUTIONS);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ListenableFuture<List<Quadruple>> findAsync(QuadruplePattern quadPattern) {
+        return Futures.transform(
+                super.sendAsync(new QuadruplePatternRequest(
+                        quadPattern.getGraph(), quadPattern.getSubject(),
+                        quadPattern.getPredicate(), quadPattern.getObject())),
+                TO_QUADRUPLES);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ListenableFuture<SparqlResponse<?>> executeSparqlQueryAsync(String sparqlQuery)
+            throws MalformedSparqlQueryException {
+        return this.dispatchAsync(sparqlQuery.trim());
+    }
+
+    private ListenableFuture<SparqlResponse<?>> dispatchAsync(String sparqlQuery)
+            throws MalformedSparqlQueryException {
+        SparqlQueryType queryType = getQueryType(sparqlQuery);
+
+        final List<SparqlAtomicRequest> requests =
+                SparqlReasoner.parse(sparqlQuery);
+        final SparqlMessageContext context =
+                new SparqlMessageContext(sparqlQuery, queryType);
+        final SparqlAtomicRequest outer =
+                this.selectBindJoinOuter(sparqlQuery, requests);
+
+        if (outer == null) {
+            return Futures.transform(super.sendAsync(
+                    requests, context, SparqlResponseCombiner.getInstance()),
+                    TO_SPARQL_RESPONSE);
+        }
+
+        return Futures.transform(
+                super.sendAsync(outer),
+                new AsyncFunction<Response<?>, SparqlResponse<?>>() {
+                    @Override
+                    public ListenableFuture<SparqlResponse<?>> apply(Response<?> response) {
+                        return Futures.transform(
+                                PutGetProxyImpl.super.sendAsync(
+                                        SparqlReasoner.bindJoin(
+                                                requests, outer,
+                                                TO_QUADRUPLES.apply(response)),
+                                        context,
+                                        SparqlResponseCombiner.getInstance()),
+                                TO_SPARQL_RESPONSE);
+                    }
+                });
     }
 
 }
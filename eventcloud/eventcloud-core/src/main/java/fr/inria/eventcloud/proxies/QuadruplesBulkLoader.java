@@ -0,0 +1,456 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.proxies;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.objectweb.proactive.api.PAFuture;
+import org.objectweb.proactive.core.ProActiveRuntimeException;
+import org.objectweb.proactive.extensions.p2p.structured.operations.CanOperations;
+import org.objectweb.proactive.extensions.p2p.structured.operations.GenericResponseOperation;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.OverlayId;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.Peer;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.NeighborEntry;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.zone.Zone;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.zone.points.Point;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.api.Quadruple.SerializationFormat;
+import fr.inria.eventcloud.operations.can.StoreQuadruplesOperation;
+import fr.inria.eventcloud.overlay.can.SemanticCoordinate;
+import fr.inria.eventcloud.overlay.can.SemanticPointFactory;
+import fr.inria.eventcloud.utils.Callback;
+import fr.inria.eventcloud.utils.RDFReader;
+
+/**
+ * Loads large amounts of quadruples into an EventCloud. Instead of routing
+ * quadruples one by one, the loader takes a snapshot of the zones managed by
+ * the peers, parses and partitions the quadruples with several threads and
+ * sends them by batches directly to the peers which manage them. Each batch is
+ * stored by the peer receiving it in a single transaction.
+ * <p>
+ * The zones of the peers may change while quadruples are loaded. The
+ * quadruples which are received by a peer that no longer manages them are
+ * returned by {@link #load(InputStream, SerializationFormat)} so that they can
+ * be routed as usual.
+ * 
+ * @author lpellegr
+ */
+public final class QuadruplesBulkLoader {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(QuadruplesBulkLoader.class);
+
+    private final List<Peer> peers;
+
+    private final List<Zone<SemanticCoordinate>> zones;
+
+    // one buffer per peer, each buffer is guarded by its own monitor
+    private final List<List<Quadruple>> buffers;
+
+    private final int batchSize;
+
+    private final int nbThreads;
+
+    private final long reportPeriod;
+
+    private final Queue<Quadruple> unstoredQuadruples;
+
+    private final AtomicLong nbQuadruplesParsed;
+
+    private final AtomicLong nbQuadruplesStored;
+
+    private final AtomicReference<Throwable> failure;
+
+    /**
+     * Creates a new bulk loader by taking a snapshot of the zones managed by
+     * the peers of the network that {@code entryPoint} belongs to.
+     * 
+     * @param entryPoint
+     *            the peer used to discover the network.
+     * @param batchSize
+     *            the maximum number of quadruples sent at once to a peer.
+     * @param nbThreads
+     *            the number of threads used to parse and partition
+     *            quadruples.
+     * @param reportPeriod
+     *            the period in milliseconds at which the progress is logged.
+     */
+    public QuadruplesBulkLoader(Peer entryPoint, int batchSize, int nbThreads,
+            long reportPeriod) {
+        if (batchSize <= 0 || nbThreads <= 0 || reportPeriod <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.peers = new ArrayList<Peer>();
+        this.zones = new ArrayList<Zone<SemanticCoordinate>>();
+        this.buffers = new ArrayList<List<Quadruple>>();
+
+        for (NeighborEntry<SemanticCoordinate> entry : takeSnapshot(entryPoint)) {
+            this.peers.add(entry.getStub());
+            this.zones.add(entry.getZone());
+            this.buffers.add(new ArrayList<Quadruple>(batchSize));
+        }
+
+        this.batchSize = batchSize;
+        this.nbThreads = nbThreads;
+        this.reportPeriod = reportPeriod;
+        this.unstoredQuadruples = new ConcurrentLinkedQueue<Quadruple>();
+        this.nbQuadruplesParsed = new AtomicLong();
+        this.nbQuadruplesStored = new AtomicLong();
+        this.failure = new AtomicReference<Throwable>();
+    }
+
+    /*
+     * Discovers all the peers of the network with a breadth-first traversal
+     * of the neighbor tables.
+     */
+    private static List<NeighborEntry<SemanticCoordinate>> takeSnapshot(Peer entryPoint) {
+        List<NeighborEntry<SemanticCoordinate>> result =
+                new ArrayList<NeighborEntry<SemanticCoordinate>>();
+
+        NeighborEntry<SemanticCoordinate> first =
+                new NeighborEntry<SemanticCoordinate>(entryPoint);
+
+        Set<OverlayId> visited = Sets.newHashSet(first.getId());
+        Queue<NeighborEntry<SemanticCoordinate>> queue =
+                new LinkedList<NeighborEntry<SemanticCoordinate>>();
+        queue.add(first);
+
+        while (!queue.isEmpty()) {
+            NeighborEntry<SemanticCoordinate> entry = queue.poll();
+            result.add(entry);
+
+            for (NeighborEntry<SemanticCoordinate> neighbor : CanOperations.<SemanticCoordinate> getNeighborTable(
+                    entry.getStub())
+                    .getFirstLevelNeighbors()) {
+                if (visited.add(neighbor.getId())) {
+                    queue.add(neighbor);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Loads the quadruples read from the specified input stream. The stream is
+     * not closed by this method.
+     * 
+     * @param in
+     *            the input stream to read from.
+     * @param format
+     *            the format of the data read from the stream.
+     * 
+     * @return the quadruples which have not been stored because the peer they
+     *         have been sent to does not manage them or has failed.
+     * 
+     * @throws IOException
+     *             if an error occurs while reading from the stream.
+     */
+    public List<Quadruple> load(InputStream in, SerializationFormat format)
+            throws IOException {
+        // tasks are run by the caller thread when all the workers are busy and
+        // the queue is full, which bounds the number of chunks kept in memory
+        ThreadPoolExecutor workers =
+                new ThreadPoolExecutor(
+                        this.nbThreads, this.nbThreads, 0L,
+                        TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<Runnable>(this.nbThreads * 2),
+                        new ThreadFactoryBuilder().setNameFormat(
+                                "BulkLoaderWorker %d").build(),
+                        new ThreadPoolExecutor.CallerRunsPolicy());
+
+        ScheduledExecutorService reporter =
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat(
+                        "BulkLoaderReporter")
+                        .setDaemon(true)
+                        .build());
+
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+
+        reporter.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                QuadruplesBulkLoader.this.report(stopwatch);
+            }
+        }, this.reportPeriod, this.reportPeriod, TimeUnit.MILLISECONDS);
+
+        try {
+            if (format == SerializationFormat.NQuads) {
+                this.readNQuads(in, workers);
+            } else {
+                this.read(in, format, workers);
+            }
+
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+            this.checkFailure();
+
+            for (int i = 0; i < this.buffers.size(); i++) {
+                List<Quadruple> buffer = this.buffers.get(i);
+
+                if (!buffer.isEmpty()) {
+                    this.store(i, buffer);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            workers.shutdownNow();
+            reporter.shutdownNow();
+        }
+
+        this.report(stopwatch);
+
+        return new ArrayList<Quadruple>(this.unstoredQuadruples);
+    }
+
+    /*
+     * N-Quads is a line based format and blank nodes are not supported by
+     * quadruples. Thus, chunks of lines can be parsed independently.
+     */
+    private void readNQuads(InputStream in, ThreadPoolExecutor workers)
+            throws IOException {
+        BufferedReader reader =
+                new BufferedReader(new InputStreamReader(in, Charsets.UTF_8));
+
+        StringBuilder chunk = new StringBuilder();
+        int nbLines = 0;
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            chunk.append(line);
+            chunk.append('\n');
+            nbLines++;
+
+            if (nbLines == this.batchSize) {
+                this.checkFailure();
+                workers.execute(new ParseTask(chunk.toString()));
+                chunk.setLength(0);
+                nbLines = 0;
+            }
+        }
+
+        if (nbLines > 0) {
+            workers.execute(new ParseTask(chunk.toString()));
+        }
+    }
+
+    /*
+     * Other formats are parsed sequentially, only the computation of the
+     * coordinates and the partitioning are performed in parallel.
+     */
+    private void read(InputStream in, SerializationFormat format,
+                      final ThreadPoolExecutor workers) {
+        final List<List<Quadruple>> chunk = new ArrayList<List<Quadruple>>(1);
+        chunk.add(new ArrayList<Quadruple>(this.batchSize));
+
+        RDFReader.read(in, format, new Callback<Quadruple>() {
+            @Override
+            public void execute(Quadruple quad) {
+                List<Quadruple> quads = chunk.get(0);
+                quads.add(quad);
+
+                if (quads.size() == QuadruplesBulkLoader.this.batchSize) {
+                    QuadruplesBulkLoader.this.checkFailure();
+                    workers.execute(new PartitionTask(quads));
+                    chunk.set(0, new ArrayList<Quadruple>(
+                            QuadruplesBulkLoader.this.batchSize));
+                }
+            }
+        });
+
+        if (!chunk.get(0).isEmpty()) {
+            workers.execute(new PartitionTask(chunk.get(0)));
+        }
+    }
+
+    private void partition(List<Quadruple> quads) {
+        this.nbQuadruplesParsed.addAndGet(quads.size());
+
+        List<List<Quadruple>> partitions =
+                new ArrayList<List<Quadruple>>(this.zones.size());
+
+        for (int i = 0; i < this.zones.size(); i++) {
+            partitions.add(null);
+        }
+
+        for (Quadruple quad : quads) {
+            int index =
+                    this.findZoneIndex(SemanticPointFactory.newSemanticCoordinate(quad));
+
+            if (index == -1) {
+                this.unstoredQuadruples.add(quad);
+                continue;
+            }
+
+            List<Quadruple> partition = partitions.get(index);
+
+            if (partition == null) {
+                partition = new ArrayList<Quadruple>();
+                partitions.set(index, partition);
+            }
+
+            partition.add(quad);
+        }
+
+        for (int i = 0; i < partitions.size(); i++) {
+            List<Quadruple> partition = partitions.get(i);
+
+            if (partition == null) {
+                continue;
+            }
+
+            List<Quadruple> buffer = this.buffers.get(i);
+            List<Quadruple> batch = null;
+
+            synchronized (buffer) {
+                buffer.addAll(partition);
+
+                if (buffer.size() >= this.batchSize) {
+                    batch = new ArrayList<Quadruple>(buffer);
+                    buffer.clear();
+                }
+            }
+
+            if (batch != null) {
+                this.store(i, batch);
+            }
+        }
+    }
+
+    private int findZoneIndex(Point<SemanticCoordinate> point) {
+        for (int i = 0; i < this.zones.size(); i++) {
+            if (this.zones.get(i).contains(point)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void store(int peerIndex, List<Quadruple> batch) {
+        try {
+            List<Quadruple> rejected =
+                    ((GenericResponseOperation<List<Quadruple>>) PAFuture.getFutureValue(this.peers.get(
+                            peerIndex)
+                            .receive(new StoreQuadruplesOperation(batch)))).getValue();
+
+            this.unstoredQuadruples.addAll(rejected);
+            this.nbQuadruplesStored.addAndGet(batch.size() - rejected.size());
+        } catch (ProActiveRuntimeException e) {
+            LOG.warn("Batch of " + batch.size()
+                    + " quadruples not stored by peer " + peerIndex, e);
+            this.unstoredQuadruples.addAll(batch);
+        }
+    }
+
+    private void checkFailure() {
+        Throwable t = this.failure.get();
+
+        if (t != null) {
+            throw new IllegalStateException("Bulk load failed", t);
+        }
+    }
+
+    private void report(Stopwatch stopwatch) {
+        long elapsedTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+        long nbStored = this.nbQuadruplesStored.get();
+
+        LOG.info(
+                "Bulk load: {} quadruples parsed, {} stored on {} peers in {} ms ({} quadruples/s)",
+                this.nbQuadruplesParsed.get(), nbStored, this.peers.size(),
+                elapsedTime, elapsedTime == 0
+                        ? 0 : (nbStored * 1000) / elapsedTime);
+    }
+
+    private final class ParseTask implements Runnable {
+
+        private final String chunk;
+
+        public ParseTask(String chunk) {
+            this.chunk = chunk;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run() {
+            try {
+                QuadruplesBulkLoader.this.partition(RDFReader.read(
+                        new ByteArrayInputStream(
+                                this.chunk.getBytes(Charsets.UTF_8)),
+                        SerializationFormat.NQuads));
+            } catch (Throwable t) {
+                QuadruplesBulkLoader.this.failure.compareAndSet(null, t);
+            }
+        }
+
+    }
+
+    private final class PartitionTask implements Runnable {
+
+        private final List<Quadruple> quads;
+
+        public PartitionTask(List<Quadruple> quads) {
+            this.quads = quads;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run() {
+            try {
+                QuadruplesBulkLoader.this.partition(this.quads);
+            } catch (Throwable t) {
+                QuadruplesBulkLoader.this.failure.compareAndSet(null, t);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,354 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.proxies;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.objectweb.proactive.extensions.p2p.structured.overlay.OverlayId;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.hp.hpl.jena.query.ResultSetFactory;
+import com.hp.hpl.jena.query.ResultSetRewindable;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+
+import fr.inria.eventcloud.api.responses.SparqlAskResponse;
+import fr.inria.eventcloud.api.responses.SparqlConstructResponse;
+import fr.inria.eventcloud.api.responses.SparqlResponse;
+import fr.inria.eventcloud.api.responses.SparqlSelectResponse;
+import fr.inria.eventcloud.api.wrappers.ModelWrapper;
+import fr.inria.eventcloud.api.wrappers.ResultSetWrapper;
+import fr.inria.eventcloud.messages.VersionedSparqlResponse;
+import fr.inria.eventcloud.reasoner.SparqlDecomposer;
+
+/**
+ * Caches the responses of SPARQL queries executed by a put/get proxy. Entries
+ * are indexed by normalized query and record the version of the misc datastore
+ * of each peer which has been visited. These versions are piggy-backed on the
+ * responses of the sub-queries, thus a cache hit costs no message.
+ * <p>
+ * Each response received by the proxy reveals the current versions of the
+ * peers it has visited. An entry is discarded as soon as a newer version has
+ * been observed for one of the peers it depends on. Modifications which are
+ * not observed (e.g. made through another proxy on peers the proxy has not
+ * queried since) are bounded by the expiration time of the entries, which acts
+ * as a lease.
+ * 
+ * @author lpellegr
+ */
+public class SparqlResponseCache {
+
+    private final Cache<String, Entry> entries;
+
+    // the most recent version observed for each peer
+    private final ConcurrentMap<OverlayId, Long> latestVersions;
+
+    // incremented each time all the entries are invalidated
+    private final AtomicLong generation;
+
+    private final AtomicLong nbHits;
+
+    private final AtomicLong nbMisses;
+
+    private final AtomicLong nbInvalidations;
+
+    // sum of the execution times (in milliseconds) saved by cache hits
+    private final AtomicLong savedLatency;
+
+    /**
+     * Creates a new cache.
+     * 
+     * @param maximumSize
+     *            the maximum number of responses cached.
+     * @param expirationTime
+     *            the time (in milliseconds) after which an entry expires.
+     */
+    public SparqlResponseCache(long maximumSize, long expirationTime) {
+        this.entries =
+                CacheBuilder.newBuilder()
+                        .maximumSize(maximumSize)
+                        .expireAfterWrite(expirationTime, TimeUnit.MILLISECONDS)
+                        .build();
+        this.latestVersions = new ConcurrentHashMap<OverlayId, Long>();
+        this.generation = new AtomicLong();
+        this.nbHits = new AtomicLong();
+        this.nbMisses = new AtomicLong();
+        this.nbInvalidations = new AtomicLong();
+        this.savedLatency = new AtomicLong();
+    }
+
+    /**
+     * Returns the response cached for the specified query if no modification
+     * has been observed on the peers it depends on. Otherwise, the query is
+     * executed with the specified loader and the response is cached.
+     * 
+     * @param sparqlQuery
+     *            the SPARQL query.
+     * @param loader
+     *            the loader used to execute the query.
+     * 
+     * @return the response associated to the specified query.
+     */
+    public SparqlResponse<?> get(String sparqlQuery, Loader loader) {
+        String key = SparqlDecomposer.normalize(sparqlQuery);
+
+        Entry entry = this.entries.getIfPresent(key);
+
+        if (entry != null) {
+            if (this.isUpToDate(entry)) {
+                this.nbHits.incrementAndGet();
+                this.savedLatency.addAndGet(entry.latency);
+                return entry.copyResponse();
+            }
+
+            this.entries.asMap().remove(key, entry);
+            this.nbInvalidations.incrementAndGet();
+        }
+
+        this.nbMisses.incrementAndGet();
+
+        long generation = this.generation.get();
+        long start = System.currentTimeMillis();
+        VersionedSparqlResponse result = loader.execute();
+
+        this.observe(result.getDatastoreVersions());
+
+        Entry newEntry =
+                new Entry(
+                        result.getResponse(), result.getDatastoreVersions(),
+                        System.currentTimeMillis() - start);
+
+        // a response which may have been computed before a write made
+        // through the proxy is not cached
+        if (generation == this.generation.get()) {
+            this.entries.put(key, newEntry);
+        }
+
+        return newEntry.copyResponse();
+    }
+
+    /**
+     * Records the datastore versions piggy-backed on a response received by
+     * the proxy. Cached entries which depend on a peer whose version has
+     * increased are no longer returned.
+     * 
+     * @param datastoreVersions
+     *            the versions of the misc datastore of some peers, indexed by
+     *            peer identifier.
+     */
+    public void observe(Map<OverlayId, Long> datastoreVersions) {
+        for (Map.Entry<OverlayId, Long> entry : datastoreVersions.entrySet()) {
+            Long latest =
+                    this.latestVersions.putIfAbsent(
+                            entry.getKey(), entry.getValue());
+
+            while (latest != null
+                    && latest < entry.getValue()
+                    && !this.latestVersions.replace(
+                            entry.getKey(), latest, entry.getValue())) {
+                latest = this.latestVersions.get(entry.getKey());
+            }
+        }
+    }
+
+    private boolean isUpToDate(Entry entry) {
+        for (Map.Entry<OverlayId, Long> version : entry.versions.entrySet()) {
+            Long latest = this.latestVersions.get(version.getKey());
+
+            if (latest != null && latest > version.getValue()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Discards all the entries. Responses which are being computed when this
+     * method is called are not cached.
+     */
+    public void invalidateAll() {
+        this.generation.incrementAndGet();
+        this.entries.invalidateAll();
+    }
+
+    public long size() {
+        return this.entries.size();
+    }
+
+    public Stats getStats() {
+        return new Stats(
+                this.nbHits.get(), this.nbMisses.get(),
+                this.nbInvalidations.get(), this.savedLatency.get());
+    }
+
+    /**
+     * Defines how to execute a query whose response is not cached.
+     */
+    public interface Loader {
+
+        /**
+         * Executes the query.
+         * 
+         * @return the response to the query along with the versions of the
+         *         misc datastores of the peers which have been visited.
+         */
+        VersionedSparqlResponse execute();
+
+    }
+
+    /**
+     * Statistics about a {@link SparqlResponseCache}.
+     */
+    public static class Stats implements Serializable {
+
+        private static final long serialVersionUID = 160L;
+
+        private final long hitCount;
+
+        private final long missCount;
+
+        private final long invalidationCount;
+
+        private final long savedLatency;
+
+        public Stats(long hitCount, long missCount, long invalidationCount,
+                long savedLatency) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.invalidationCount = invalidationCount;
+            this.savedLatency = savedLatency;
+        }
+
+        public long getHitCount() {
+            return this.hitCount;
+        }
+
+        public long getMissCount() {
+            return this.missCount;
+        }
+
+        /**
+         * Returns the number of cached responses that have been discarded
+         * because a peer they depend on has been observed as modified.
+         * 
+         * @return the number of cached responses that have been discarded
+         *         because a peer they depend on has been observed as modified.
+         */
+        public long getInvalidationCount() {
+            return this.invalidationCount;
+        }
+
+        /**
+         * Returns the ratio of queries that have been answered from the
+         * cache or {@code 1.0} if no query has been executed.
+         * 
+         * @return the ratio of queries that have been answered from the
+         *         cache.
+         */
+        public double getHitRate() {
+            long requestCount = this.hitCount + this.missCount;
+
+            return requestCount == 0
+                    ? 1.0 : (double) this.hitCount / requestCount;
+        }
+
+        /**
+         * Returns the sum of the execution times (in milliseconds) of the
+         * queries answered from the cache.
+         * 
+         * @return the sum of the execution times (in milliseconds) of the
+         *         queries answered from the cache.
+         */
+        public long getSavedLatency() {
+            return this.savedLatency;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return "Stats [hitCount=" + this.hitCount + ", missCount="
+                    + this.missCount + ", invalidationCount="
+                    + this.invalidationCount + ", hitRate="
+                    + this.getHitRate() + ", savedLatency="
+                    + this.savedLatency + " ms]";
+        }
+
+    }
+
+    private static final class Entry {
+
+        private final SparqlResponse<?> response;
+
+        // rows of a SELECT response, replayed for each copy
+        private final ResultSetRewindable resultSet;
+
+        private final Map<OverlayId, Long> versions;
+
+        private final long latency;
+
+        private Entry(SparqlResponse<?> response,
+                Map<OverlayId, Long> versions, long latency) {
+            if (response instanceof SparqlSelectResponse) {
+                this.resultSet =
+                        ResultSetFactory.copyResults(((SparqlSelectResponse) response).getResult());
+            } else {
+                this.resultSet = null;
+            }
+
+            this.response = response;
+            this.versions = versions;
+            this.latency = latency;
+        }
+
+        /*
+         * Responses wrap result sets and models which are consumed or may be
+         * modified by the caller, a copy is thus returned for each request.
+         */
+        private SparqlResponse<?> copyResponse() {
+            if (this.response instanceof SparqlSelectResponse) {
+                synchronized (this.resultSet) {
+                    this.resultSet.reset();
+
+                    return new SparqlSelectResponse(
+                            this.response.getStats(), new ResultSetWrapper(
+                                    this.resultSet));
+                }
+            } else if (this.response instanceof SparqlConstructResponse) {
+                Model model = ModelFactory.createDefaultModel();
+                model.add(((SparqlConstructResponse) this.response).getResult());
+
+                return new SparqlConstructResponse(
+                        this.response.getStats(), new ModelWrapper(model));
+            } else {
+                return new SparqlAskResponse(
+                        this.response.getStats(),
+                        ((SparqlAskResponse) this.response).getResult());
+            }
+        }
+
+    }
+
+}
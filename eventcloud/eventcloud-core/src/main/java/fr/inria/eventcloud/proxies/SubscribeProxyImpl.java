@@ -48,6 +48,8 @@ import org.objectweb.proactive.api.PAActiveObject;
 import org.objectweb.proactive.api.PAFuture;
 import org.objectweb.proactive.extensions.p2p.structured.configuration.P2PStructuredProperties;
 import org.objectweb.proactive.extensions.p2p.structured.messages.Response;
+import org.objectweb.proactive.extensions.p2p.structured.multiactivity.AdaptiveThreadLimitController;
+import org.objectweb.proactive.extensions.p2p.structured.multiactivity.MonitoredServingPolicy;
 import org.objectweb.proactive.extensions.p2p.structured.utils.Files;
 import org.objectweb.proactive.extensions.p2p.structured.utils.ThreadUtils;
 import org.objectweb.proactive.extensions.p2p.structured.utils.UnicodeUtils;
@@ -84,6 +86,7 @@ import fr.inria.eventcloud.pubsub.Subsubscription;
 import fr.inria.eventcloud.pubsub.notifications.BindingNotification;
 import fr.inria.eventcloud.pubsub.notifications.Notification;
 import fr.inria.eventcloud.pubsub.notifications.NotificationId;
+import fr.inria.eventcloud.pubsub.notifications.OffHeapDeliveredNotificationsTable;
 import fr.inria.eventcloud.pubsub.notifications.PollingSignalNotification;
 import fr.inria.eventcloud.pubsub.notifications.QuadruplesNotification;
 import fr.inria.eventcloud.pubsub.notifications.SignalNotification;
@@ -160,7 +163,9 @@ public class SubscribeProxyImpl extends EventCloudProxy implements
 
         // must use soft limit with SBCE1 because of re-entrant calls with
         // reconstructions
-        super.multiActiveService.multiActiveServing(
+        AdaptiveThreadLimitController.serve(
+                "SubscribeProxy", body.getID().toString(),
+                super.multiActiveService, new MonitoredServingPolicy(), null,
                 EventCloudProperties.MAO_LIMIT_SUBSCRIBE_PROXIES.getValue(),
                 !EventCloudProperties.isSbce1PubSubAlgorithmUsed(), false);
     }
@@ -239,6 +244,8 @@ public class SubscribeProxyImpl extends EventCloudProxy implements
         } else if (cacheEngine.equals("infinispan")) {
             this.eventsDeliveredCache =
                     new InfinispanEventsDeliveredCache(this.getComponentId());
+        } else if (cacheEngine.equals("offheap")) {
+            this.eventsDeliveredCache = new OffHeapEventsDeliveredCache();
         } else {
             throw new IllegalStateException("Unknown cache engine: "
                     + cacheEngine);
@@ -1144,6 +1151,51 @@ public class SubscribeProxyImpl extends EventCloudProxy implements
 
     }
 
+    private static class OffHeapEventsDeliveredCache extends
+            EventsDeliveredCache {
+
+        private final OffHeapDeliveredNotificationsTable table;
+
+        public OffHeapEventsDeliveredCache() {
+            // nothing is written on disk
+            super(null);
+
+            this.table =
+                    new OffHeapDeliveredNotificationsTable(
+                            EventCloudProperties.SUBSCRIBER_CACHE_MAX_ENTRIES.getValue(),
+                            EventCloudProperties.MAO_LIMIT_SUBSCRIBE_PROXIES.getValue(),
+                            EventCloudProperties.SUBSCRIBER_CACHE_EXPIRATION_TIME.getValue(),
+                            EventCloudProperties.SUBSCRIBER_CACHE_EXPIRATION_BUCKETS.getValue());
+        }
+
+        @Override
+        public void clear() {
+            this.table.clear();
+        }
+
+        @Override
+        public void close() {
+            this.table.clear();
+        }
+
+        @Override
+        public boolean contains(NotificationId notificationId) {
+            return this.table.contains(notificationId);
+        }
+
+        @Override
+        public boolean markAsDelivered(NotificationId notificationId,
+                                       SubscriptionId subscriptionId) {
+            return this.table.add(notificationId);
+        }
+
+        @Override
+        public void removeEntriesFor(SubscriptionId subscriptionId) {
+            this.table.removeEntriesFor(subscriptionId);
+        }
+
+    }
+
     private static final class SubscriptionEntry<T extends NotificationListener<?>> {
 
         private final Subscription subscription;
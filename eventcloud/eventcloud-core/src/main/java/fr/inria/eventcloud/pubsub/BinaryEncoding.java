@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.pubsub;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import com.google.common.base.Charsets;
+import com.hp.hpl.jena.datatypes.TypeMapper;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.rdf.model.AnonId;
+import com.hp.hpl.jena.sparql.core.Var;
+
+import fr.inria.eventcloud.api.SubscriptionId;
+
+/**
+ * Primitives used to encode {@link Subscription}s and {@link Subsubscription}s
+ * in a compact binary format.
+ * 
+ * @author lpellegr
+ */
+final class BinaryEncoding {
+
+    private static final byte NULL_NODE = 0;
+
+    private static final byte URI_NODE = 1;
+
+    private static final byte BLANK_NODE = 2;
+
+    private static final byte LITERAL_NODE = 3;
+
+    private static final byte VARIABLE_NODE = 4;
+
+    private static final byte ANY_NODE = 5;
+
+    private BinaryEncoding() {
+
+    }
+
+    public static void writeString(DataOutput output, String value)
+            throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+        } else {
+            // DataOutput#writeUTF is not used since it is limited to 64KB
+            byte[] bytes = value.getBytes(Charsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    public static String readString(DataInput input) throws IOException {
+        int length = input.readInt();
+
+        if (length == -1) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+
+        return new String(bytes, Charsets.UTF_8);
+    }
+
+    public static void writeSubscriptionId(DataOutput output,
+                                           SubscriptionId id)
+            throws IOException {
+        output.writeBoolean(id != null);
+
+        if (id != null) {
+            id.writeTo(output);
+        }
+    }
+
+    public static SubscriptionId readSubscriptionId(DataInput input)
+            throws IOException {
+        if (input.readBoolean()) {
+            return SubscriptionId.readFrom(input);
+        }
+
+        return null;
+    }
+
+    public static void writeNode(DataOutput output, Node node)
+            throws IOException {
+        if (node == null) {
+            output.writeByte(NULL_NODE);
+        } else if (node == Node.ANY) {
+            output.writeByte(ANY_NODE);
+        } else if (node.isURI()) {
+            output.writeByte(URI_NODE);
+            writeString(output, node.getURI());
+        } else if (node.isBlank()) {
+            output.writeByte(BLANK_NODE);
+            writeString(output, node.getBlankNodeLabel());
+        } else if (node.isLiteral()) {
+            output.writeByte(LITERAL_NODE);
+            writeString(output, node.getLiteralLexicalForm());
+            writeString(output, node.getLiteralLanguage());
+            writeString(output, node.getLiteralDatatypeURI());
+        } else if (node.isVariable()) {
+            output.writeByte(VARIABLE_NODE);
+            writeString(output, node.getName());
+        } else {
+            throw new IllegalArgumentException("Unsupported node type: "
+                    + node);
+        }
+    }
+
+    public static Node readNode(DataInput input) throws IOException {
+        byte type = input.readByte();
+
+        switch (type) {
+            case NULL_NODE:
+                return null;
+            case ANY_NODE:
+                return Node.ANY;
+            case URI_NODE:
+                return NodeFactory.createURI(readString(input));
+            case BLANK_NODE:
+                return NodeFactory.createAnon(AnonId.create(readString(input)));
+            case LITERAL_NODE:
+                String lexicalForm = readString(input);
+                String language = readString(input);
+                String datatypeURI = readString(input);
+
+                return NodeFactory.createLiteral(
+                        lexicalForm, language, datatypeURI == null
+                                ? null : TypeMapper.getInstance()
+                                        .getSafeTypeByName(datatypeURI));
+            case VARIABLE_NODE:
+                return Var.alloc(readString(input));
+            default:
+                throw new IOException("Unknown node type: " + type);
+        }
+    }
+
+}
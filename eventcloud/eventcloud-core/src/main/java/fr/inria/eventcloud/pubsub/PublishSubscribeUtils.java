@@ -92,6 +92,7 @@ import fr.inria.eventcloud.pubsub.notifications.PollingSignalNotification;
 import fr.inria.eventcloud.pubsub.notifications.QuadruplesNotification;
 import fr.inria.eventcloud.pubsub.notifications.SignalNotification;
 import fr.inria.eventcloud.reasoner.AtomicQuery;
+import fr.inria.eventcloud.reasoner.FilterEvaluator;
 import fr.inria.eventcloud.utils.SparqlResultSerializer;
 
 /**
@@ -636,11 +637,9 @@ public final class PublishSubscribeUtils {
                                                  final Quadruple quadruple) {
         if (semanticCanOverlay.hasSocialFilter()) {
             double relationshipStrength =
-                    semanticCanOverlay.getSocialFilter()
-                            .getRelationshipStrength(
-                                    quadruple.getPublicationSource(),
-                                    subscription.getSubscriptionDestination())
-                            .getStrength();
+                    semanticCanOverlay.getRelationshipStrength(
+                            quadruple.getPublicationSource(),
+                            subscription.getSubscriptionDestination());
 
             logSocialFilterAnswer(subscription, quadruple, relationshipStrength);
 
@@ -938,6 +937,25 @@ public final class PublishSubscribeUtils {
 
     private static BindingMap performMatchingQuadruplePatternWithFilter(Quadruple quadruple,
                                                                         AtomicQuery atomicQuery) {
+        FilterEvaluator filterEvaluator = atomicQuery.getFilterEvaluator();
+
+        if (!filterEvaluator.isCompiled()) {
+            return performMatchingQuadruplePatternWithDataset(
+                    quadruple, atomicQuery);
+        }
+
+        BindingMap result =
+                performMatchingQuadruplePattern(quadruple, atomicQuery);
+
+        if (result != null && filterEvaluator.evaluate(result)) {
+            return result;
+        }
+
+        return null;
+    }
+
+    private static BindingMap performMatchingQuadruplePatternWithDataset(Quadruple quadruple,
+                                                                         AtomicQuery atomicQuery) {
         DatasetGraph dataset = TDBFactory.createDatasetGraph();
         dataset.add(
                 quadruple.getGraph(), quadruple.getSubject(),
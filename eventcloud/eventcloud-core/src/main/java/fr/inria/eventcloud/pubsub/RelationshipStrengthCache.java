@@ -0,0 +1,277 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.pubsub;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.proactive.extensions.p2p.structured.utils.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.soceda.socialfilter.relationshipstrengthengine.RelationshipStrengthEngineManager;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Bounded cache of the relationship strengths provided by a social filter,
+ * keyed by (publication source, subscription destination).
+ * <p>
+ * Entries expire after a fixed time since they have been loaded. Before they
+ * expire, entries which are read are refreshed asynchronously, thus matching
+ * threads keep using the previous value while the social filter is queried.
+ * Lookups for the entries which are missing can be batched by calling
+ * {@link #prefetch(Collection)}: the lookups are issued in parallel and the
+ * call returns once all of them have completed.
+ * 
+ * @author lpellegr
+ */
+public class RelationshipStrengthCache {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(RelationshipStrengthCache.class);
+
+    private final RelationshipStrengthProvider provider;
+
+    private final ExecutorService threadPool;
+
+    private final LoadingCache<Pair<String, String>, Double> cache;
+
+    /**
+     * Source of relationship strengths.
+     */
+    public interface RelationshipStrengthProvider {
+
+        /**
+         * Returns the strength of the relationship between the specified
+         * source and destination.
+         * 
+         * @param source
+         *            the publication source.
+         * @param destination
+         *            the subscription destination.
+         * 
+         * @return the strength of the relationship, {@code 0.0} if the source
+         *         or the destination is unknown.
+         */
+        double getRelationshipStrength(String source, String destination);
+
+    }
+
+    /**
+     * Creates a new cache.
+     * 
+     * @param provider
+     *            the provider used to retrieve the relationship strengths.
+     * @param maximumSize
+     *            the maximum number of entries kept by the cache.
+     * @param expirationTime
+     *            the time in milliseconds after which an entry is removed.
+     * @param refreshTime
+     *            the time in milliseconds after which an entry which is read
+     *            is refreshed asynchronously.
+     * @param nbThreads
+     *            the number of threads used to perform lookups in parallel.
+     */
+    public RelationshipStrengthCache(RelationshipStrengthProvider provider,
+            long maximumSize, long expirationTime, long refreshTime,
+            int nbThreads) {
+        this.provider = provider;
+        this.threadPool =
+                Executors.newFixedThreadPool(
+                        nbThreads, new ThreadFactoryBuilder().setNameFormat(
+                                "RelationshipStrengthCache %d")
+                                .setDaemon(true)
+                                .build());
+
+        CacheBuilder<Object, Object> cacheBuilder =
+                CacheBuilder.newBuilder()
+                        .maximumSize(maximumSize)
+                        .expireAfterWrite(
+                                expirationTime, TimeUnit.MILLISECONDS);
+
+        if (refreshTime < expirationTime) {
+            cacheBuilder.refreshAfterWrite(refreshTime, TimeUnit.MILLISECONDS);
+        }
+
+        this.cache =
+                cacheBuilder.build(new CacheLoader<Pair<String, String>, Double>() {
+                    @Override
+                    public Double load(Pair<String, String> key)
+                            throws Exception {
+                        return RelationshipStrengthCache.this.lookup(key);
+                    }
+
+                    @Override
+                    public ListenableFuture<Double> reload(final Pair<String, String> key,
+                                                           Double oldValue)
+                            throws Exception {
+                        ListenableFutureTask<Double> task =
+                                ListenableFutureTask.create(RelationshipStrengthCache.this.lookupTask(key));
+
+                        RelationshipStrengthCache.this.threadPool.execute(task);
+
+                        return task;
+                    }
+
+                    @Override
+                    public Map<Pair<String, String>, Double> loadAll(Iterable<? extends Pair<String, String>> keys)
+                            throws Exception {
+                        Map<Pair<String, String>, Future<Double>> futures =
+                                new HashMap<Pair<String, String>, Future<Double>>();
+
+                        for (Pair<String, String> key : keys) {
+                            futures.put(
+                                    key,
+                                    RelationshipStrengthCache.this.threadPool.submit(RelationshipStrengthCache.this.lookupTask(key)));
+                        }
+
+                        Map<Pair<String, String>, Double> result =
+                                new HashMap<Pair<String, String>, Double>(
+                                        futures.size());
+
+                        for (Map.Entry<Pair<String, String>, Future<Double>> entry : futures.entrySet()) {
+                            result.put(entry.getKey(), entry.getValue().get());
+                        }
+
+                        return result;
+                    }
+                });
+    }
+
+    /**
+     * Creates a provider that retrieves relationship strengths from the
+     * specified social filter.
+     * 
+     * @param socialFilter
+     *            the social filter to query.
+     * 
+     * @return a provider that retrieves relationship strengths from the
+     *         specified social filter.
+     */
+    public static RelationshipStrengthProvider newProvider(final RelationshipStrengthEngineManager socialFilter) {
+        return new RelationshipStrengthProvider() {
+            @Override
+            public double getRelationshipStrength(String source,
+                                                  String destination) {
+                return socialFilter.getRelationshipStrength(
+                        source, destination).getStrength();
+            }
+        };
+    }
+
+    /**
+     * Returns the strength of the relationship between the specified source
+     * and destination. The social filter is queried if the value is not
+     * cached.
+     * 
+     * @param source
+     *            the publication source.
+     * @param destination
+     *            the subscription destination.
+     * 
+     * @return the strength of the relationship.
+     */
+    public double getRelationshipStrength(String source, String destination) {
+        return this.cache.getUnchecked(Pair.create(source, destination));
+    }
+
+    /**
+     * Retrieves in parallel the relationship strengths which are not cached
+     * for the specified (source, destination) pairs. The call returns once
+     * all the lookups have completed. Pairs with a {@code null} element are
+     * ignored.
+     * 
+     * @param pairs
+     *            the (publication source, subscription destination) pairs
+     *            which are about to be used.
+     */
+    public void prefetch(Collection<Pair<String, String>> pairs) {
+        Set<Pair<String, String>> keys = new HashSet<Pair<String, String>>();
+
+        for (Pair<String, String> pair : pairs) {
+            if (pair.getFirst() != null && pair.getSecond() != null) {
+                keys.add(pair);
+            }
+        }
+
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        try {
+            this.cache.getAll(keys);
+        } catch (ExecutionException e) {
+            // missing values are retrieved again when they are used
+            LOG.warn("Prefetching of relationship strengths has failed", e);
+        } catch (UncheckedExecutionException e) {
+            LOG.warn("Prefetching of relationship strengths has failed", e);
+        }
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     * 
+     * @return the number of entries in the cache.
+     */
+    public long size() {
+        return this.cache.size();
+    }
+
+    /**
+     * Removes all the entries from the cache.
+     */
+    public void invalidateAll() {
+        this.cache.invalidateAll();
+    }
+
+    /**
+     * Stops the threads used to perform lookups.
+     */
+    public void shutdown() {
+        this.threadPool.shutdownNow();
+    }
+
+    private Callable<Double> lookupTask(final Pair<String, String> key) {
+        return new Callable<Double>() {
+            @Override
+            public Double call() throws Exception {
+                return RelationshipStrengthCache.this.lookup(key);
+            }
+        };
+    }
+
+    private double lookup(Pair<String, String> key) {
+        return this.provider.getRelationshipStrength(
+                key.getFirst(), key.getSecond());
+    }
+
+}
@@ -37,11 +37,17 @@ import static fr.inria.eventcloud.api.PublishSubscribeConstants.SUBSCRIPTION_SUB
 import static fr.inria.eventcloud.api.PublishSubscribeConstants.SUBSCRIPTION_SUBSCRIBER_PROPERTY;
 import static fr.inria.eventcloud.api.PublishSubscribeConstants.SUBSCRIPTION_TYPE_PROPERTY;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -63,8 +69,22 @@ import com.google.common.hash.HashCode;
 import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.sparql.algebra.Op;
+import com.hp.hpl.jena.sparql.algebra.OpAsQuery;
+import com.hp.hpl.jena.sparql.algebra.op.OpBGP;
+import com.hp.hpl.jena.sparql.algebra.op.OpDistinct;
+import com.hp.hpl.jena.sparql.algebra.op.OpFilter;
+import com.hp.hpl.jena.sparql.algebra.op.OpGraph;
+import com.hp.hpl.jena.sparql.algebra.op.OpOrder;
+import com.hp.hpl.jena.sparql.algebra.op.OpProject;
+import com.hp.hpl.jena.sparql.algebra.op.OpReduced;
+import com.hp.hpl.jena.sparql.algebra.op.OpSlice;
+import com.hp.hpl.jena.sparql.core.BasicPattern;
 import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.expr.Expr;
+import com.hp.hpl.jena.sparql.expr.ExprList;
 
 import fr.inria.eventcloud.api.PublishSubscribeConstants;
 import fr.inria.eventcloud.api.Quadruplable;
@@ -133,7 +153,8 @@ public class Subscription implements Quadruplable, Serializable {
 
     private long indexationTime;
 
-    private final String sparqlQuery;
+    // generated on demand for subscriptions created from a template
+    private String sparqlQuery;
 
     private final String subscriberUrl;
 
@@ -145,11 +166,16 @@ public class Subscription implements Quadruplable, Serializable {
 
     private final NotificationListenerType type;
 
-    // the following fields are transient because they can be
+    // the following field is transient because it can be
     // created from the sparqlQuery on the fly
     private transient Set<Var> resultVars;
 
-    private transient Subsubscription[] subSubscriptions;
+    // the compiled form of the subscription. It is serialized along with the
+    // subscription to avoid a new decomposition of the SPARQL query
+    private Subsubscription[] subSubscriptions;
+
+    // result var names kept for subscriptions created from a template
+    private String[] resultVarNames;
 
     // the var name associated to the graph value
     private transient Node graphNode;
@@ -178,6 +204,30 @@ public class Subscription implements Quadruplable, Serializable {
         this.type = listenerType;
     }
 
+    /**
+     * Creates a subscription from a compiled template, that is to say from its
+     * sub subscriptions and its result variables. The SPARQL query associated
+     * to the subscription is generated from the template only when it is
+     * requested.
+     */
+    Subscription(SubscriptionId originalId, SubscriptionId parentId,
+            SubscriptionId id, long creationTime, long indexationTime,
+            Subsubscription[] subSubscriptions, Set<Var> resultVars,
+            String subscriberUrl, String subscriptionDestination,
+            NotificationListenerType listenerType) {
+        this(originalId, parentId, id, creationTime, indexationTime, null,
+                subscriberUrl, subscriptionDestination, listenerType);
+
+        this.subSubscriptions = subSubscriptions;
+        this.resultVars = new HashSet<Var>(resultVars);
+        this.resultVarNames = new String[resultVars.size()];
+
+        int i = 0;
+        for (Var var : resultVars) {
+            this.resultVarNames[i++] = var.getVarName();
+        }
+    }
+
     public synchronized void addIntermediatePeerReference(String peerURL,
                                                           HashCode hashValue) {
         if (this.type != NotificationListenerType.BINDING) {
@@ -319,6 +369,120 @@ public class Subscription implements Quadruplable, Serializable {
         return subscription;
     }
 
+    /**
+     * Parses a {@link Subscription} from its binary representation as returned
+     * by {@link #toBytes()}.
+     * 
+     * @param bytes
+     *            the binary representation of the subscription.
+     * 
+     * @return the subscription which has been parsed.
+     */
+    public static final Subscription parseFrom(byte[] bytes) {
+        DataInputStream input =
+                new DataInputStream(new ByteArrayInputStream(bytes));
+
+        try {
+            SubscriptionId originalId =
+                    BinaryEncoding.readSubscriptionId(input);
+            SubscriptionId parentId = BinaryEncoding.readSubscriptionId(input);
+            SubscriptionId id = SubscriptionId.readFrom(input);
+
+            Subscription subscription =
+                    new Subscription(
+                            originalId, parentId, id, input.readLong(),
+                            input.readLong(),
+                            BinaryEncoding.readString(input),
+                            BinaryEncoding.readString(input),
+                            BinaryEncoding.readString(input),
+                            NotificationListenerType.BINDING.convert(input.readShort()));
+
+            int nbPeerReferences = input.readInt();
+            if (nbPeerReferences >= 0) {
+                SetMultimap<String, HashCode> peerReferences =
+                        subscription.getOrCreateIntermediatePeerReferencesCollection();
+
+                for (int i = 0; i < nbPeerReferences; i++) {
+                    String peerURL = BinaryEncoding.readString(input);
+                    byte[] hashCode = new byte[input.readInt()];
+                    input.readFully(hashCode);
+
+                    peerReferences.put(peerURL, HashCode.fromBytes(hashCode));
+                }
+            }
+
+            subscription.subSubscriptions =
+                    new Subsubscription[input.readInt()];
+
+            for (int i = 0; i < subscription.subSubscriptions.length; i++) {
+                Subsubscription s =
+                        Subsubscription.readFrom(input, originalId, id);
+                subscription.subSubscriptions[s.getIndex()] = s;
+            }
+
+            return subscription;
+        } catch (IOException e) {
+            throw new IllegalArgumentException(
+                    "Invalid subscription binary representation", e);
+        }
+    }
+
+    /**
+     * Returns a compact binary representation of the subscription, including
+     * its sub subscriptions.
+     * 
+     * @return a compact binary representation of the subscription.
+     */
+    public synchronized byte[] toBytes() {
+        Subsubscription[] localSubSubscriptions;
+
+        try {
+            localSubSubscriptions = this.getSubSubscriptions();
+        } catch (DecompositionException e) {
+            throw new IllegalStateException(e);
+        }
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream(512);
+        DataOutputStream output = new DataOutputStream(result);
+
+        try {
+            BinaryEncoding.writeSubscriptionId(output, this.originalId);
+            BinaryEncoding.writeSubscriptionId(output, this.parentId);
+            this.id.writeTo(output);
+            output.writeLong(this.creationTime);
+            output.writeLong(this.indexationTime);
+            BinaryEncoding.writeString(output, this.getSparqlQuery());
+            BinaryEncoding.writeString(output, this.subscriberUrl);
+            BinaryEncoding.writeString(output, this.subscriptionDestination);
+            output.writeShort(this.type.convert());
+
+            if (this.intermediatePeerReferences == null) {
+                output.writeInt(-1);
+            } else {
+                output.writeInt(this.intermediatePeerReferences.size());
+
+                for (Map.Entry<String, HashCode> entry : this.intermediatePeerReferences.entries()) {
+                    BinaryEncoding.writeString(output, entry.getKey());
+                    byte[] hashCode = entry.getValue().asBytes();
+                    output.writeInt(hashCode.length);
+                    output.write(hashCode);
+                }
+            }
+
+            output.writeInt(localSubSubscriptions.length);
+            for (Subsubscription ssubscription : localSubSubscriptions) {
+                ssubscription.writeTo(output);
+            }
+
+            output.flush();
+        } catch (IOException e) {
+            // cannot happen with an in-memory stream
+            throw new IllegalStateException(e);
+        }
+
+        return result.toByteArray();
+    }
+
     private static HashCode fromString(String hashCode) {
         return HashCode.fromBytes(DatatypeConverter.parseHexBinary(hashCode));
     }
@@ -430,10 +594,82 @@ public class Subscription implements Quadruplable, Serializable {
         return SUBSCRIBE_PROXIES_CACHE.get(subscribeProxyURL);
     }
 
-    public String getSparqlQuery() {
+    public synchronized String getSparqlQuery() {
+        if (this.sparqlQuery == null) {
+            this.sparqlQuery = this.generateSparqlQuery();
+        }
+
         return this.sparqlQuery;
     }
 
+    /**
+     * Generates a SPARQL query from the sub subscriptions and the result vars
+     * of a subscription that has been created from a template.
+     * 
+     * @return the SPARQL query generated.
+     */
+    private String generateSparqlQuery() {
+        BasicPattern bp = new BasicPattern();
+        Set<Expr> filters = new LinkedHashSet<Expr>();
+
+        for (Subsubscription s : this.subSubscriptions) {
+            AtomicQuery aq = s.getAtomicQuery();
+
+            bp.add(Triple.create(
+                    aq.filterAndTransformNodeVariableToVar(aq.getSubject()),
+                    aq.filterAndTransformNodeVariableToVar(aq.getPredicate()),
+                    aq.filterAndTransformNodeVariableToVar(aq.getObject())));
+
+            if (aq.getFilterConstraints() != null) {
+                for (ExprList exprList : aq.getFilterConstraints()) {
+                    for (Expr expr : exprList) {
+                        filters.add(expr);
+                    }
+                }
+            }
+        }
+
+        Op op = new OpBGP(bp);
+
+        if (!filters.isEmpty()) {
+            ExprList exprList = new ExprList();
+            for (Expr expr : filters) {
+                exprList.add(expr);
+            }
+
+            op = OpFilter.filter(exprList, op);
+        }
+
+        // sequence modifiers are the same for all the atomic queries
+        AtomicQuery first = this.subSubscriptions[0].getAtomicQuery();
+
+        op =
+                new OpGraph(
+                        first.filterAndTransformNodeVariableToVar(first.getGraph()),
+                        op);
+
+        if (first.getOrderBy() != null) {
+            op = new OpOrder(op, first.getOrderBy());
+        }
+
+        Set<Var> vars = this.getResultVars();
+        if (!vars.isEmpty()) {
+            op = new OpProject(op, new ArrayList<Var>(vars));
+        }
+
+        if (first.isDistinct()) {
+            op = new OpDistinct(op);
+        }
+        if (first.isReduced()) {
+            op = OpReduced.create(op);
+        }
+        if (first.hasLimit()) {
+            op = new OpSlice(op, Long.MIN_VALUE, first.getLimit());
+        }
+
+        return OpAsQuery.asQuery(op).toString();
+    }
+
     public synchronized Subsubscription[] getSubSubscriptions()
             throws DecompositionException {
         if (this.subSubscriptions == null) {
@@ -457,9 +693,16 @@ public class Subscription implements Quadruplable, Serializable {
     public synchronized Set<Var> getResultVars() {
         if (this.resultVars == null) {
             this.resultVars = new HashSet<Var>();
-            for (String varName : QueryFactory.create(this.sparqlQuery)
-                    .getResultVars()) {
-                this.resultVars.add(Var.alloc(varName));
+
+            if (this.resultVarNames != null) {
+                for (String varName : this.resultVarNames) {
+                    this.resultVars.add(Var.alloc(varName));
+                }
+            } else {
+                for (String varName : QueryFactory.create(this.sparqlQuery)
+                        .getResultVars()) {
+                    this.resultVars.add(Var.alloc(varName));
+                }
             }
         }
 
@@ -517,7 +760,8 @@ public class Subscription implements Quadruplable, Serializable {
         result.add(new Quadruple(
                 subscriptionOriginalURI, subscriptionURI,
                 SUBSCRIPTION_SERIALIZED_VALUE_NODE,
-                NodeFactory.createLiteral(this.sparqlQuery), false, false));
+                NodeFactory.createLiteral(this.getSparqlQuery()), false,
+                false));
 
         Calendar calendar = Calendar.getInstance();
         calendar.setTimeInMillis(this.creationTime);
@@ -650,7 +894,7 @@ public class Subscription implements Quadruplable, Serializable {
                 .add("indexationTime", this.indexationTime)
                 .add("subscriberURL", this.subscriberUrl)
                 .add("subscriptionDestination", this.subscriptionDestination)
-                .add("sparqlQuery", this.sparqlQuery)
+                .add("sparqlQuery", this.getSparqlQuery())
                 .add("peerReferences", this.intermediatePeerReferences != null
                         ? this.intermediatePeerReferencesAsString() : "empty")
                 .add("type", this.type)
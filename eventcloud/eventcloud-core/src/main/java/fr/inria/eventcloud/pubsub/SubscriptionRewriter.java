@@ -16,32 +16,30 @@
  **/
 package fr.inria.eventcloud.pubsub;
 
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
 
 import com.google.common.hash.HashCode;
 import com.hp.hpl.jena.graph.Node;
-import com.hp.hpl.jena.graph.Triple;
-import com.hp.hpl.jena.query.QueryFactory;
-import com.hp.hpl.jena.sparql.algebra.Algebra;
-import com.hp.hpl.jena.sparql.algebra.Op;
-import com.hp.hpl.jena.sparql.algebra.OpAsQuery;
-import com.hp.hpl.jena.sparql.algebra.TransformCopy;
-import com.hp.hpl.jena.sparql.algebra.Transformer;
-import com.hp.hpl.jena.sparql.algebra.op.OpBGP;
-import com.hp.hpl.jena.sparql.algebra.op.OpGraph;
-import com.hp.hpl.jena.sparql.core.BasicPattern;
 import com.hp.hpl.jena.sparql.core.Var;
 import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap;
 
 import fr.inria.eventcloud.api.Quadruple;
 import fr.inria.eventcloud.api.SubscriptionId;
+import fr.inria.eventcloud.exceptions.DecompositionException;
+import fr.inria.eventcloud.reasoner.AtomicQuery;
 
 /**
  * This class is used to rewrite a {@link Subscription}. For more information
  * look at the description of the {@link #rewrite(Subscription, Quadruple)}
  * method.
+ * <p>
+ * Rewriting operates on the compiled form of the subscription (i.e. its sub
+ * subscriptions): the rewritten subscription is built by substituting
+ * variables in the atomic queries, without parsing or serializing any SPARQL
+ * query. The SPARQL query of the rewritten subscription is generated only if
+ * it is requested.
  * 
  * @author lpellegr
  */
@@ -67,8 +65,21 @@ public final class SubscriptionRewriter {
      */
     public static final Subscription rewrite(Subscription subscription,
                                              Quadruple quad) {
+        Subsubscription[] subSubscriptions =
+                getSubSubscriptions(subscription);
+        AtomicQuery firstAtomicQuery = subSubscriptions[0].getAtomicQuery();
+
+        // vars that are contained by the first triple pattern. If the graph
+        // node is a variable it is also rewritten with the graph node from the
+        // quadruple which matches the subscription
+        BindingMap binding = BindingFactory.create();
+        bind(binding, firstAtomicQuery.getGraph(), quad.getGraph());
+        bind(binding, firstAtomicQuery.getSubject(), quad.getSubject());
+        bind(binding, firstAtomicQuery.getPredicate(), quad.getPredicate());
+        bind(binding, firstAtomicQuery.getObject(), quad.getObject());
+
         return removeFirstTriplePatternAndReplaceVars(
-                subscription, createBGPTransformCopy(quad));
+                subscription, subSubscriptions, binding);
     }
 
     /**
@@ -87,40 +98,66 @@ public final class SubscriptionRewriter {
      */
     public static final Subscription rewrite(Subscription subscription,
                                              Binding binding) {
+        Subsubscription[] subSubscriptions =
+                getSubSubscriptions(subscription);
+        Node graph = subSubscriptions[0].getAtomicQuery().getGraph();
+
+        // only the variables from the triple patterns are replaced
+        BindingMap substitution = BindingFactory.create();
+        Iterator<Var> it = binding.vars();
+        while (it.hasNext()) {
+            Var var = it.next();
+
+            if (!graph.isVariable()
+                    || !var.getVarName().equals(graph.getName())) {
+                bind(substitution, var, binding.get(var));
+            }
+        }
+
         return removeFirstTriplePatternAndReplaceVars(
-                subscription, createBGPTransformCopy(binding));
+                subscription, subSubscriptions, substitution);
     }
 
     /**
-     * Removes the first triple pattern from the SPARQL query and rewrites the
-     * next triple patterns. This method assumes that the SPARQL query has only
-     * {@code one} Basic Graph Pattern.
+     * Removes the first sub subscription and rewrites the next ones. This
+     * method assumes that the SPARQL query has only {@code one} Basic Graph
+     * Pattern.
      * 
      * @param subscription
      *            the subscription to transform.
+     * @param subSubscriptions
+     *            the sub subscriptions of the subscription to transform.
+     * @param binding
+     *            the values used to replace the variables of the sub
+     *            subscriptions which are kept.
      * 
-     * @param tc
-     *            the transform copy that is used to remove the first triple
-     *            pattern and to rewrite the next.
-     * 
-     * @return a new SPARQL query with the first triple pattern which has been
-     *         removed or {@code null} if the original SPARQL query contains
-     *         only one triple pattern.
+     * @return a new subscription with the first sub subscription which has
+     *         been removed.
      */
     private static final Subscription removeFirstTriplePatternAndReplaceVars(Subscription subscription,
-                                                                             TransformCopy tc) {
+                                                                             Subsubscription[] subSubscriptions,
+                                                                             Binding binding) {
+        SubscriptionId id = new SubscriptionId();
+
+        Subsubscription[] rewrittenSubSubscriptions =
+                new Subsubscription[subSubscriptions.length - 1];
+
+        for (int i = 1; i < subSubscriptions.length; i++) {
+            rewrittenSubSubscriptions[i - 1] =
+                    new Subsubscription(
+                            subscription.getOriginalId(), id,
+                            subSubscriptions[i].getAtomicQuery()
+                                    .copySubstitute(binding), i - 1);
+        }
+
         Subscription result =
                 new Subscription(
-                        subscription.getOriginalId(),
-                        subscription.getId(),
-                        new SubscriptionId(),
-                        subscription.getCreationTime(),
+                        subscription.getOriginalId(), subscription.getId(),
+                        id, subscription.getCreationTime(),
                         subscription.getIndexationTime(),
-                        OpAsQuery.asQuery(
-                                Transformer.transform(
-                                        tc,
-                                        Algebra.compile(QueryFactory.create(subscription.getSparqlQuery()))))
-                                .toString(), subscription.getSubscriberUrl(),
+                        rewrittenSubSubscriptions,
+                        subscription.getResultVars(),
+                        subscription.getSubscriberUrl(),
                         subscription.getSubscriptionDestination(),
                         subscription.getType());
 
@@ -137,154 +174,32 @@ public final class SubscriptionRewriter {
         return result;
     }
 
-    private static final TransformCopy createBGPTransformCopy(final Quadruple quad) {
-        // vars that are contained by the first triple pattern
-        final Map<Node, Node> vars = new HashMap<Node, Node>(3);
-
-        return new TransformCopy() {
-            @Override
-            public Op transform(OpBGP opBGP) {
-                BasicPattern oldBasicPattern = opBGP.getPattern();
-                BasicPattern newBasicPattern = new BasicPattern();
-
-                Iterator<Triple> it = oldBasicPattern.iterator();
-                Triple triple;
-
-                // skips the first triple pattern if possible
-                if (!it.hasNext()) {
-                    throw new IllegalArgumentException(
-                            "The SPARQL query to rewrite must have at least 2 triple patterns");
-                } else {
-                    triple = it.next();
-
-                    // extracts the variables from the first triple pattern
-                    if (triple.getSubject().isVariable()) {
-                        vars.put(triple.getSubject(), quad.getSubject());
-                    }
-                    if (triple.getPredicate().isVariable()) {
-                        vars.put(triple.getPredicate(), quad.getPredicate());
-                    }
-                    if (triple.getObject().isVariable()) {
-                        vars.put(triple.getObject(), quad.getObject());
-                    }
-                }
-
-                // the query is assumed to have at least two triple patterns
-                if (!it.hasNext()) {
-                    throw new IllegalArgumentException(
-                            "The SPARQL query to rewrite must have at least 2 triple patterns");
-                }
-
-                while (it.hasNext()) {
-                    triple = it.next();
-                    // replaces the variables which have the same name as the
-                    // variables from the first triple pattern by the value from
-                    // the quadruple that match the first triple pattern
-                    newBasicPattern.add(Triple.create(
-                            replaceVarByQuadrupleValue(
-                                    triple.getSubject(), vars,
-                                    quad.getSubject()),
-                            replaceVarByQuadrupleValue(
-                                    triple.getPredicate(), vars,
-                                    quad.getPredicate()),
-                            replaceVarByQuadrupleValue(
-                                    triple.getObject(), vars, quad.getObject())));
-                }
-
-                return new OpBGP(newBasicPattern);
-            }
-
-            @Override
-            public Op transform(OpGraph opGraph, Op subOp) {
-                // if the graph node from the subscription to rewrite is a
-                // variable it has to be rewritten with the graph node from the
-                // quadruple which matches the subscription
-                if (opGraph.getNode().isVariable()) {
-                    return new OpGraph(quad.getGraph(), subOp);
-                }
-
-                return new OpGraph(opGraph.getNode(), subOp);
-            }
-        };
-    }
-
-    private static final TransformCopy createBGPTransformCopy(final Binding binding) {
-        return new TransformCopy() {
-            @Override
-            public Op transform(OpBGP opBGP) {
-                BasicPattern oldBasicPattern = opBGP.getPattern();
-                BasicPattern newBasicPattern = new BasicPattern();
-
-                Iterator<Triple> it = oldBasicPattern.iterator();
-                Triple triple;
-
-                // skips the first triple pattern if possible
-                if (!it.hasNext()) {
-                    throw new IllegalArgumentException(
-                            "The SPARQL query to rewrite must have at least 2 triple patterns");
-                } else {
-                    triple = it.next();
-                }
-
-                if (!it.hasNext()) {
-                    throw new IllegalArgumentException(
-                            "The SPARQL query to rewrite must have at least 2 triple patterns");
-                }
-
-                while (it.hasNext()) {
-                    triple = it.next();
-                    // replaces the variables which have the same name as the
-                    // variables from the first triple pattern by the value from
-                    // the quadruple that match the first triple pattern
-                    newBasicPattern.add(Triple.create(
-                            replaceVarByBindingValue(
-                                    triple.getSubject(), binding),
-                            replaceVarByBindingValue(
-                                    triple.getPredicate(), binding),
-                            replaceVarByBindingValue(
-                                    triple.getObject(), binding)));
-                }
+    private static final Subsubscription[] getSubSubscriptions(Subscription subscription) {
+        Subsubscription[] result;
 
-                return new OpBGP(newBasicPattern);
-            }
-        };
-    }
-
-    /**
-     * Returns the {@code quadNode} if the {@code tripleNode} is contained by
-     * the {@code vars} set. Otherwise it returns the {@code tripleNode}.
-     * 
-     * @param tripleNode
-     * @param vars
-     * @param quadNode
-     * 
-     * @return the {@code quadNode} if the {@code tripleNode} is contained by
-     *         the {@code vars} set. Otherwise it returns the {@code tripleNode}
-     *         .
-     */
-    private static final Node replaceVarByQuadrupleValue(Node tripleNode,
-                                                         Map<Node, Node> vars,
-                                                         Node quadNode) {
-        Node value = vars.get(tripleNode);
+        try {
+            result = subscription.getSubSubscriptions();
+        } catch (DecompositionException e) {
+            throw new IllegalArgumentException(e);
+        }
 
-        if (value != null) {
-            return value;
+        // the query is assumed to have at least two triple patterns
+        if (result.length < 2) {
+            throw new IllegalArgumentException(
+                    "The SPARQL query to rewrite must have at least 2 triple patterns");
         }
 
-        return tripleNode;
+        return result;
     }
 
-    private static final Node replaceVarByBindingValue(Node tripleNode,
-                                                       Binding binding) {
+    private static final void bind(BindingMap binding, Node node, Node value) {
+        if (node.isVariable()) {
+            Var var = Var.alloc(node);
 
-        if (tripleNode.isVariable()) {
-            Node value = binding.get(Var.alloc(tripleNode.getName()));
-            if (value != null) {
-                return value;
+            if (!binding.contains(var)) {
+                binding.add(var, value);
             }
         }
-
-        return tripleNode;
     }
 
 }
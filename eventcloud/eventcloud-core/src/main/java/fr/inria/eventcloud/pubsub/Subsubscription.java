@@ -31,6 +31,10 @@ import static fr.inria.eventcloud.api.PublishSubscribeConstants.SUBSUBSCRIPTION_
 import static fr.inria.eventcloud.api.PublishSubscribeConstants.SUBSUBSCRIPTION_VAR_NAMES_NODE;
 import static fr.inria.eventcloud.api.PublishSubscribeConstants.SUBSUBSCRIPTION_VAR_NAMES_PROPERTY;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -57,7 +61,9 @@ import fr.inria.eventcloud.reasoner.AtomicQuery;
  * 
  * @author lpellegr
  */
-public class Subsubscription implements Quadruplable {
+public class Subsubscription implements Quadruplable, Serializable {
+
+    private static final long serialVersionUID = 160L;
 
     private final SubscriptionId originalId;
 
@@ -282,6 +288,56 @@ public class Subsubscription implements Quadruplable {
                 ssNodes[3]);
     }
 
+    /**
+     * Writes the binary representation of the sub subscription to the
+     * specified {@code output}. The original and parent identifiers are not
+     * written since they are known from the parent subscription.
+     * 
+     * @param output
+     *            the output to write to.
+     * 
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    void writeTo(DataOutput output) throws IOException {
+        this.id.writeTo(output);
+        output.writeInt(this.index);
+
+        BinaryEncoding.writeNode(output, this.atomicQuery.getGraph());
+        BinaryEncoding.writeNode(output, this.atomicQuery.getSubject());
+        BinaryEncoding.writeNode(output, this.atomicQuery.getPredicate());
+        BinaryEncoding.writeNode(output, this.atomicQuery.getObject());
+    }
+
+    /**
+     * Reads a sub subscription previously written with
+     * {@link #writeTo(DataOutput)}.
+     * 
+     * @param input
+     *            the input to read from.
+     * @param originalId
+     *            the original identifier of the parent subscription.
+     * @param parentId
+     *            the identifier of the parent subscription.
+     * 
+     * @return the sub subscription which has been read.
+     * 
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    static Subsubscription readFrom(DataInput input,
+                                    SubscriptionId originalId,
+                                    SubscriptionId parentId)
+            throws IOException {
+        SubscriptionId id = SubscriptionId.readFrom(input);
+        int index = input.readInt();
+
+        return new Subsubscription(
+                originalId, parentId, id, index,
+                BinaryEncoding.readNode(input), BinaryEncoding.readNode(input),
+                BinaryEncoding.readNode(input), BinaryEncoding.readNode(input));
+    }
+
     private static Quadruple createVarNamesQuadruple(Node originalSubscriptionURI,
                                                      Node subSubscriptionURI,
                                                      AtomicQuery atomicQuery) {
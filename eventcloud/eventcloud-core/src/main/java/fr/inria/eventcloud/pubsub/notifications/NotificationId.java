@@ -25,7 +25,9 @@ import java.util.Set;
 import org.infinispan.commons.marshall.AdvancedExternalizer;
 import org.infinispan.commons.util.Util;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Objects;
+import com.google.common.hash.Hashing;
 import com.hp.hpl.jena.graph.Node;
 
 import fr.inria.eventcloud.api.SubscriptionId;
@@ -47,6 +49,11 @@ public final class NotificationId implements Serializable {
 
     protected final String eventId;
 
+    /**
+     * Cached fingerprint value (class is immutable)
+     */
+    private transient long fingerprint;
+
     public NotificationId(SubscriptionId subscriptionId, Node eventId) {
         this(subscriptionId, eventId.getURI());
     }
@@ -94,6 +101,40 @@ public final class NotificationId implements Serializable {
         return false;
     }
 
+    /**
+     * Returns a 64 bits hash value computed from the subscription identifier
+     * and the event identifier. Unlike {@link #hashCode()}, the probability of
+     * collisions is low enough to identify a notification by its fingerprint
+     * only. The value {@code 0} is never returned.
+     * 
+     * @return a 64 bits hash value that identifies this notification id.
+     */
+    public long fingerprint() {
+        if (this.fingerprint == 0) {
+            long value =
+                    Hashing.murmur3_128()
+                            .newHasher()
+                            .putString(
+                                    this.subscriptionId.toString(),
+                                    Charsets.UTF_8)
+                            .putString(this.eventId, Charsets.UTF_8)
+                            .hash()
+                            .asLong();
+
+            if (value == 0) {
+                value = 1;
+            }
+
+            this.fingerprint = value;
+        }
+
+        return this.fingerprint;
+    }
+
+    public SubscriptionId getSubscriptionId() {
+        return this.subscriptionId;
+    }
+
     public boolean isFor(SubscriptionId subscriptionId) {
         return this.subscriptionId.equals(subscriptionId);
     }
@@ -0,0 +1,423 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.pubsub.notifications;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import fr.inria.eventcloud.api.SubscriptionId;
+
+/**
+ * Set of {@link NotificationId}s stored outside of the Java heap. Entries are
+ * kept in an open-addressing hash table backed by direct {@link ByteBuffer}s
+ * and keyed by {@link NotificationId#fingerprint()}. No object is allocated
+ * per entry.
+ * <p>
+ * The table is split into segments that are locked independently. Each entry
+ * records the time bucket during which it has been inserted and a tag that
+ * identifies the subscription it belongs to. An entry is considered as
+ * expired once it is older than the number of time buckets retained. Removing
+ * all the entries associated to a subscription consists in forgetting its tag,
+ * which is done in constant time. Expired and removed entries are reclaimed
+ * lazily when a segment is compacted.
+ * 
+ * @author lpellegr
+ */
+public final class OffHeapDeliveredNotificationsTable {
+
+    // slot layout: fingerprint (8 bytes), subscription tag (4 bytes) and time
+    // bucket (4 bytes)
+    private static final int SLOT_SIZE = 16;
+
+    private static final int TAG_OFFSET = 8;
+
+    private static final int BUCKET_OFFSET = 12;
+
+    private static final long EMPTY = 0;
+
+    private final Segment[] segments;
+
+    private final int segmentMask;
+
+    private final ConcurrentMap<SubscriptionId, Integer> subscriptionTags;
+
+    private final AtomicInteger tagsGenerator;
+
+    private final long origin;
+
+    private final long bucketDuration;
+
+    private final int nbBucketsRetained;
+
+    /**
+     * Creates a new table.
+     * 
+     * @param maxEntries
+     *            the maximum number of entries that are expected to be kept
+     *            at the same time.
+     * @param concurrencyLevel
+     *            the estimated number of concurrently updating threads.
+     * @param expirationTime
+     *            the time in milliseconds after which an entry is expired.
+     * @param nbBucketsRetained
+     *            the number of time buckets used to split the expiration
+     *            time.
+     */
+    public OffHeapDeliveredNotificationsTable(int maxEntries,
+            int concurrencyLevel, long expirationTime, int nbBucketsRetained) {
+        if (maxEntries <= 0 || concurrencyLevel <= 0
+                || nbBucketsRetained <= 0
+                || expirationTime < nbBucketsRetained) {
+            throw new IllegalArgumentException();
+        }
+
+        int nbSegments = nextPowerOfTwo(concurrencyLevel);
+        // segments are compacted when their load reaches 3/4 and keep at most
+        // half of their capacity once compacted
+        int segmentCapacity =
+                Math.max(
+                        nextPowerOfTwo((int) Math.ceil((maxEntries * 2.0)
+                                / nbSegments)), 16);
+
+        this.segments = new Segment[nbSegments];
+        for (int i = 0; i < nbSegments; i++) {
+            this.segments[i] = new Segment(segmentCapacity);
+        }
+        this.segmentMask = nbSegments - 1;
+
+        this.subscriptionTags = new ConcurrentHashMap<SubscriptionId, Integer>();
+        this.tagsGenerator = new AtomicInteger();
+
+        this.origin = System.currentTimeMillis();
+        this.bucketDuration = expirationTime / nbBucketsRetained;
+        this.nbBucketsRetained = nbBucketsRetained;
+    }
+
+    /**
+     * Adds the specified notification id to the table if it is not already
+     * present.
+     * 
+     * @param notificationId
+     *            the notification id to add.
+     * 
+     * @return {@code true} if the notification id was not present and has been
+     *         added, {@code false} otherwise.
+     */
+    public boolean add(NotificationId notificationId) {
+        long fingerprint = notificationId.fingerprint();
+
+        return this.segmentFor(fingerprint).add(
+                fingerprint, this.tagFor(notificationId.subscriptionId),
+                this.currentBucket());
+    }
+
+    /**
+     * Returns a boolean indicating whether the specified notification id is
+     * contained by the table and not expired.
+     * 
+     * @param notificationId
+     *            the notification id to look for.
+     * 
+     * @return {@code true} if the notification id is contained by the table,
+     *         {@code false} otherwise.
+     */
+    public boolean contains(NotificationId notificationId) {
+        Integer tag =
+                this.subscriptionTags.get(notificationId.subscriptionId);
+
+        if (tag == null) {
+            return false;
+        }
+
+        long fingerprint = notificationId.fingerprint();
+
+        return this.segmentFor(fingerprint).contains(
+                fingerprint, tag, this.currentBucket());
+    }
+
+    /**
+     * Removes all the entries associated to the specified subscription id. The
+     * operation completes in constant time, the memory used by the entries is
+     * reclaimed later.
+     * 
+     * @param subscriptionId
+     *            the subscription identifier.
+     */
+    public void removeEntriesFor(SubscriptionId subscriptionId) {
+        this.subscriptionTags.remove(subscriptionId);
+    }
+
+    /**
+     * Removes all the entries.
+     */
+    public void clear() {
+        this.subscriptionTags.clear();
+
+        for (Segment segment : this.segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Returns the number of slots which are in use. This value includes the
+     * entries which are expired or removed but not yet reclaimed.
+     * 
+     * @return the number of slots which are in use.
+     */
+    public int usedSlots() {
+        int result = 0;
+
+        for (Segment segment : this.segments) {
+            result += segment.usedSlots();
+        }
+
+        return result;
+    }
+
+    private int tagFor(SubscriptionId subscriptionId) {
+        Integer tag = this.subscriptionTags.get(subscriptionId);
+
+        if (tag == null) {
+            // tags start from 1, 0 is never used
+            Integer newTag = this.tagsGenerator.incrementAndGet();
+
+            tag = this.subscriptionTags.putIfAbsent(subscriptionId, newTag);
+
+            if (tag == null) {
+                tag = newTag;
+            }
+        }
+
+        return tag;
+    }
+
+    private Set<Integer> liveTags() {
+        return new HashSet<Integer>(this.subscriptionTags.values());
+    }
+
+    private int currentBucket() {
+        return (int) ((System.currentTimeMillis() - this.origin) / this.bucketDuration);
+    }
+
+    private Segment segmentFor(long fingerprint) {
+        return this.segments[(int) (fingerprint >>> 32) & this.segmentMask];
+    }
+
+    private static int nextPowerOfTwo(int value) {
+        int result = Integer.highestOneBit(value);
+
+        if (result < value) {
+            result <<= 1;
+        }
+
+        return result;
+    }
+
+    private final class Segment {
+
+        private final int capacity;
+
+        private final int mask;
+
+        private final int threshold;
+
+        private ByteBuffer slots;
+
+        // number of slots whose fingerprint is not empty
+        private int used;
+
+        public Segment(int capacity) {
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            this.threshold = (capacity * 3) >>> 2;
+            this.slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+        }
+
+        public synchronized boolean add(long fingerprint, int tag,
+                                        int currentBucket) {
+            if (this.used >= this.threshold) {
+                this.compact(currentBucket);
+            }
+
+            int reusable = -1;
+            int index = (int) fingerprint & this.mask;
+
+            for (int i = 0; i < this.capacity; i++) {
+                int offset = ((index + i) & this.mask) * SLOT_SIZE;
+                long value = this.slots.getLong(offset);
+
+                if (value == EMPTY) {
+                    if (reusable == -1) {
+                        this.used++;
+                        reusable = offset;
+                    }
+                    break;
+                }
+
+                if (value == fingerprint) {
+                    if (this.slots.getInt(offset + TAG_OFFSET) == tag
+                            && !this.isExpired(offset, currentBucket)) {
+                        return false;
+                    }
+
+                    // stale entry for the same notification id (expired or
+                    // belonging to a subscription which has been removed)
+                    this.write(offset, fingerprint, tag, currentBucket);
+                    return true;
+                }
+
+                if (reusable == -1 && this.isExpired(offset, currentBucket)) {
+                    reusable = offset;
+                }
+            }
+
+            if (reusable == -1) {
+                // should not happen since the segment is compacted before to
+                // be full
+                throw new IllegalStateException("Segment is full");
+            }
+
+            this.write(reusable, fingerprint, tag, currentBucket);
+
+            return true;
+        }
+
+        public synchronized boolean contains(long fingerprint, int tag,
+                                             int currentBucket) {
+            int index = (int) fingerprint & this.mask;
+
+            for (int i = 0; i < this.capacity; i++) {
+                int offset = ((index + i) & this.mask) * SLOT_SIZE;
+                long value = this.slots.getLong(offset);
+
+                if (value == EMPTY) {
+                    return false;
+                }
+
+                if (value == fingerprint) {
+                    return this.slots.getInt(offset + TAG_OFFSET) == tag
+                            && !this.isExpired(offset, currentBucket);
+                }
+            }
+
+            return false;
+        }
+
+        public synchronized void clear() {
+            this.slots = ByteBuffer.allocateDirect(this.capacity * SLOT_SIZE);
+            this.used = 0;
+        }
+
+        public synchronized int usedSlots() {
+            return this.used;
+        }
+
+        /*
+         * Rebuilds the segment by keeping only the entries which are not
+         * expired and whose subscription has not been removed. If the number
+         * of remaining entries is still greater than half of the capacity, the
+         * entries from the oldest time buckets are evicted (possibly all of
+         * them under extreme load).
+         */
+        private void compact(int currentBucket) {
+            int nbBuckets =
+                    OffHeapDeliveredNotificationsTable.this.nbBucketsRetained;
+            Set<Integer> liveTags =
+                    OffHeapDeliveredNotificationsTable.this.liveTags();
+
+            // number of live entries per age
+            int[] histogram = new int[nbBuckets];
+            int live = 0;
+
+            for (int i = 0; i < this.capacity; i++) {
+                int offset = i * SLOT_SIZE;
+
+                if (this.isLive(offset, currentBucket, liveTags)) {
+                    histogram[currentBucket
+                            - this.slots.getInt(offset + BUCKET_OFFSET)]++;
+                    live++;
+                }
+            }
+
+            int maxAge = nbBuckets;
+            while (live > this.capacity >>> 1 && maxAge > 0) {
+                maxAge--;
+                live -= histogram[maxAge];
+            }
+
+            ByteBuffer oldSlots = this.slots;
+            this.slots = ByteBuffer.allocateDirect(this.capacity * SLOT_SIZE);
+            this.used = 0;
+
+            for (int i = 0; i < this.capacity; i++) {
+                int offset = i * SLOT_SIZE;
+                long fingerprint = oldSlots.getLong(offset);
+
+                if (fingerprint == EMPTY) {
+                    continue;
+                }
+
+                int tag = oldSlots.getInt(offset + TAG_OFFSET);
+                int bucket = oldSlots.getInt(offset + BUCKET_OFFSET);
+
+                if (liveTags.contains(tag) && currentBucket - bucket < maxAge) {
+                    this.reinsert(fingerprint, tag, bucket);
+                }
+            }
+        }
+
+        private void reinsert(long fingerprint, int tag, int bucket) {
+            int index = (int) fingerprint & this.mask;
+
+            for (int i = 0; i < this.capacity; i++) {
+                int offset = ((index + i) & this.mask) * SLOT_SIZE;
+
+                if (this.slots.getLong(offset) == EMPTY) {
+                    this.write(offset, fingerprint, tag, bucket);
+                    this.used++;
+                    return;
+                }
+            }
+        }
+
+        private boolean isLive(int offset, int currentBucket,
+                               Set<Integer> liveTags) {
+            return this.slots.getLong(offset) != EMPTY
+                    && !this.isExpired(offset, currentBucket)
+                    && liveTags.contains(this.slots.getInt(offset + TAG_OFFSET));
+        }
+
+        private boolean isExpired(int offset, int currentBucket) {
+            int age =
+                    currentBucket - this.slots.getInt(offset + BUCKET_OFFSET);
+
+            return age >= OffHeapDeliveredNotificationsTable.this.nbBucketsRetained;
+        }
+
+        private void write(int offset, long fingerprint, int tag, int bucket) {
+            this.slots.putLong(offset, fingerprint);
+            this.slots.putInt(offset + TAG_OFFSET, tag);
+            this.slots.putInt(offset + BUCKET_OFFSET, bucket);
+        }
+
+    }
+
+}
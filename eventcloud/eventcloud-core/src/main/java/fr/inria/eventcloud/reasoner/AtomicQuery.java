@@ -32,6 +32,7 @@ import org.apache.jena.riot.tokens.TokenizerFactory;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
+import com.google.common.collect.Range;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.NodeFactory;
 import com.hp.hpl.jena.graph.Triple;
@@ -48,11 +49,13 @@ import com.hp.hpl.jena.sparql.algebra.op.OpReduced;
 import com.hp.hpl.jena.sparql.algebra.op.OpSlice;
 import com.hp.hpl.jena.sparql.core.BasicPattern;
 import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
 import com.hp.hpl.jena.sparql.expr.Expr;
 import com.hp.hpl.jena.sparql.expr.ExprList;
 import com.hp.hpl.jena.sparql.util.ExprUtils;
 
 import fr.inria.eventcloud.api.QuadruplePattern;
+import fr.inria.eventcloud.datastore.PublicationTimeFunction;
 
 /**
  * Atomic queries are {@link QuadruplePattern}s that may contain sequence
@@ -76,6 +79,10 @@ public final class AtomicQuery implements Serializable {
 
     private transient Op opRepresentation;
 
+    private transient FilterEvaluator filterEvaluator;
+
+    private transient Range<Long> publicationTimes;
+
     /* 
      * Sequence modifiers 
      * 
@@ -209,20 +216,19 @@ public final class AtomicQuery implements Serializable {
                     this.filterAndTransformNodeVariableToVar(this.getObject())));
 
             // named graph
-            Op op = new OpBGP(bp);
+            Op op =
+                    new OpGraph(
+                            this.filterAndTransformNodeVariableToVar(this.getGraph()),
+                            new OpBGP(bp));
 
-            // apply filter constraints
+            // apply filter constraints outside of the named graph in order to
+            // have the graph variable bound (e.g. for publication times)
             if (this.filterConstraints != null) {
                 for (ExprList expr : this.filterConstraints) {
                     op = OpFilter.filter(expr, op);
                 }
             }
 
-            op =
-                    new OpGraph(
-                            this.filterAndTransformNodeVariableToVar(this.getGraph()),
-                            op);
-
             if (this.orderBy != null) {
                 op = new OpOrder(op, this.orderBy);
             }
@@ -248,6 +254,92 @@ public final class AtomicQuery implements Serializable {
         return this.opRepresentation;
     }
 
+    /**
+     * Returns the evaluator associated to the filter constraints of this atomic
+     * query. The filter constraints are compiled on the first call.
+     * 
+     * @return the evaluator associated to the filter constraints of this
+     *         atomic query.
+     */
+    public synchronized FilterEvaluator getFilterEvaluator() {
+        if (this.filterEvaluator == null) {
+            this.filterEvaluator =
+                    FilterEvaluator.compile(this.filterConstraints);
+        }
+
+        return this.filterEvaluator;
+    }
+
+    /**
+     * Returns the range of publication times the quadruples matching this
+     * atomic query may have. It is inferred from the graph value and from the
+     * filter constraints on the publication time of the graph variable.
+     * 
+     * @return the range of publication times the quadruples matching this
+     *         atomic query may have.
+     * 
+     * @see PublicationTimeFunction#getPublicationTimes(Node, List)
+     */
+    public synchronized Range<Long> getPublicationTimes() {
+        if (this.publicationTimes == null) {
+            this.publicationTimes =
+                    PublicationTimeFunction.getPublicationTimes(
+                            this.getGraph(), this.filterConstraints);
+        }
+
+        return this.publicationTimes;
+    }
+
+    /**
+     * Returns a copy of this atomic query where the variables bound by the
+     * specified {@code binding} are replaced by their value. Sequence modifiers
+     * are kept and filter constraints are substituted in the same manner.
+     * 
+     * @param binding
+     *            the values to use for replacing variables.
+     * 
+     * @return a copy of this atomic query where the variables bound by the
+     *         specified {@code binding} are replaced by their value.
+     */
+    public AtomicQuery copySubstitute(Binding binding) {
+        AtomicQuery result =
+                new AtomicQuery(
+                        substitute(this.getGraph(), binding),
+                        substitute(this.getSubject(), binding),
+                        substitute(this.getPredicate(), binding),
+                        substitute(this.getObject(), binding));
+
+        result.distinct = this.distinct;
+        result.reduced = this.reduced;
+        result.limit = this.limit;
+        result.orderBy = this.orderBy;
+
+        if (this.filterConstraints != null) {
+            List<ExprList> filterConstraints =
+                    new ArrayList<ExprList>(this.filterConstraints.size());
+
+            for (ExprList exprList : this.filterConstraints) {
+                filterConstraints.add(exprList.copySubstitute(binding));
+            }
+
+            result.filterConstraints = filterConstraints;
+        }
+
+        return result;
+    }
+
+    private static Node substitute(Node node, Binding binding) {
+        if (node.isVariable()) {
+            Node value = binding.get(Var.alloc(node));
+
+            if (value != null) {
+                return value;
+            }
+        }
+
+        return node;
+    }
+
     public Node filterAndTransformNodeVariableToVar(Node node) {
         if (node.isVariable()) {
             return Var.alloc(node);
@@ -348,8 +440,10 @@ public final class AtomicQuery implements Serializable {
         return this.reduced;
     }
 
-    public void setFilterConstraints(List<ExprList> filterConstraints) {
+    public synchronized void setFilterConstraints(List<ExprList> filterConstraints) {
         this.filterConstraints = filterConstraints;
+        this.filterEvaluator = null;
+        this.publicationTimes = null;
     }
 
     public List<ExprList> getFilterConstraints() {
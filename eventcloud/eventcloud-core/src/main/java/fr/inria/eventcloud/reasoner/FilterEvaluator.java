@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.reasoner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.expr.E_Function;
+import com.hp.hpl.jena.sparql.expr.E_LogicalAnd;
+import com.hp.hpl.jena.sparql.expr.E_Now;
+import com.hp.hpl.jena.sparql.expr.E_Regex;
+import com.hp.hpl.jena.sparql.expr.Expr;
+import com.hp.hpl.jena.sparql.expr.ExprFunction0;
+import com.hp.hpl.jena.sparql.expr.ExprFunctionOp;
+import com.hp.hpl.jena.sparql.expr.ExprFunctionN;
+import com.hp.hpl.jena.sparql.expr.ExprList;
+import com.hp.hpl.jena.sparql.expr.ExprVisitorBase;
+import com.hp.hpl.jena.sparql.expr.ExprWalker;
+import com.hp.hpl.jena.sparql.function.FunctionEnv;
+import com.hp.hpl.jena.sparql.function.FunctionEnvBase;
+
+/**
+ * Evaluates the filter constraints of an {@link AtomicQuery} directly on the
+ * bindings extracted from a quadruple, without having to build a dataset and to
+ * execute the algebra representation of the atomic query.
+ * <p>
+ * Filter constraints are compiled once: top-level conjunctions are split into
+ * separate conditions that are sorted so that the cheapest ones are evaluated
+ * first. Since a condition whose evaluation raises an error is considered as
+ * not satisfied, splitting conjunctions preserves the SPARQL semantics.
+ * Expressions requiring access to a dataset ({@code EXISTS} and
+ * {@code NOT EXISTS}) or to a query execution context ({@code NOW()}) are not
+ * supported. In that case, {@link #isCompiled()} returns {@code false} and the
+ * evaluation has to fall back to the algebra representation.
+ * 
+ * @author lpellegr
+ */
+public final class FilterEvaluator {
+
+    private static final FunctionEnv FUNCTION_ENV = new FunctionEnvBase();
+
+    private final Expr[] conditions;
+
+    private final boolean compiled;
+
+    private FilterEvaluator(Expr[] conditions, boolean compiled) {
+        this.conditions = conditions;
+        this.compiled = compiled;
+    }
+
+    /**
+     * Compiles the specified filter constraints.
+     * 
+     * @param filterConstraints
+     *            the filter constraints to compile (may be {@code null}).
+     * 
+     * @return an evaluator for the specified filter constraints.
+     */
+    public static FilterEvaluator compile(List<ExprList> filterConstraints) {
+        List<Expr> cheapConditions = new ArrayList<Expr>();
+        List<Expr> costlyConditions = new ArrayList<Expr>();
+
+        if (filterConstraints != null) {
+            for (ExprList exprList : filterConstraints) {
+                for (Expr expr : exprList) {
+                    if (!isSupported(expr)) {
+                        return new FilterEvaluator(new Expr[0], false);
+                    }
+
+                    List<Expr> conjuncts = new ArrayList<Expr>();
+                    splitConjunctions(expr, conjuncts);
+
+                    for (Expr conjunct : conjuncts) {
+                        if (isCostly(conjunct)) {
+                            costlyConditions.add(conjunct);
+                        } else {
+                            cheapConditions.add(conjunct);
+                        }
+                    }
+                }
+            }
+        }
+
+        cheapConditions.addAll(costlyConditions);
+
+        return new FilterEvaluator(
+                cheapConditions.toArray(new Expr[cheapConditions.size()]),
+                true);
+    }
+
+    /**
+     * Indicates whether the filter constraints have been compiled or whether
+     * they contain expressions that cannot be evaluated without a dataset.
+     * 
+     * @return {@code true} if {@link #evaluate(Binding)} can be used,
+     *         {@code false} otherwise.
+     */
+    public boolean isCompiled() {
+        return this.compiled;
+    }
+
+    /**
+     * Evaluates the compiled filter constraints against the specified
+     * {@code binding}.
+     * 
+     * @param binding
+     *            the binding to test.
+     * 
+     * @return {@code true} if all the filter constraints are satisfied,
+     *         {@code false} otherwise.
+     */
+    public boolean evaluate(Binding binding) {
+        if (!this.compiled) {
+            throw new IllegalStateException(
+                    "Filter constraints contain unsupported expressions");
+        }
+
+        for (int i = 0; i < this.conditions.length; i++) {
+            if (!this.conditions[i].isSatisfied(binding, FUNCTION_ENV)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public int getNbConditions() {
+        return this.conditions.length;
+    }
+
+    private static void splitConjunctions(Expr expr, List<Expr> result) {
+        if (expr instanceof E_LogicalAnd) {
+            E_LogicalAnd and = (E_LogicalAnd) expr;
+            splitConjunctions(and.getArg1(), result);
+            splitConjunctions(and.getArg2(), result);
+        } else {
+            result.add(expr);
+        }
+    }
+
+    private static boolean isSupported(Expr expr) {
+        SupportVisitor visitor = new SupportVisitor();
+        ExprWalker.walk(visitor, expr);
+
+        return visitor.supported;
+    }
+
+    private static boolean isCostly(Expr expr) {
+        CostVisitor visitor = new CostVisitor();
+        ExprWalker.walk(visitor, expr);
+
+        return visitor.costly;
+    }
+
+    private static class SupportVisitor extends ExprVisitorBase {
+
+        private boolean supported = true;
+
+        @Override
+        public void visit(ExprFunction0 func) {
+            if (func instanceof E_Now) {
+                this.supported = false;
+            }
+        }
+
+        @Override
+        public void visit(ExprFunctionOp funcOp) {
+            this.supported = false;
+        }
+
+    }
+
+    private static class CostVisitor extends ExprVisitorBase {
+
+        private boolean costly = false;
+
+        @Override
+        public void visit(ExprFunctionN func) {
+            if (func instanceof E_Regex || func instanceof E_Function) {
+                this.costly = true;
+            }
+        }
+
+    }
+
+}
@@ -18,7 +18,15 @@ package fr.inria.eventcloud.reasoner;
 
 import java.util.ArrayList;
 import java.util.List;
-
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.query.Query;
@@ -46,6 +54,7 @@ import com.hp.hpl.jena.sparql.function.FunctionEnv;
 import com.hp.hpl.jena.sparql.function.FunctionRegistry;
 import com.hp.hpl.jena.sparql.util.ExprUtils;
 
+import fr.inria.eventcloud.configuration.EventCloudProperties;
 import fr.inria.eventcloud.exceptions.DecompositionException;
 
 /**
@@ -65,13 +74,98 @@ public final class SparqlDecomposer {
     private static final String FUNCTION_META_GRAPH_IRI =
             "http://eventcloud.inria.fr/function#removeMetadata";
 
+    // decompositions indexed by normalized query text, null if disabled
+    private final LoadingCache<String, List<AtomicQuery>> cache;
+
     private SparqlDecomposer() {
         FunctionRegistry.get().put(
                 FUNCTION_META_GRAPH_IRI, RemoveMetadataFunction.class);
+
+        int maximumSize =
+                EventCloudProperties.DECOMPOSITION_CACHE_MAXIMUM_SIZE.getValue();
+
+        if (maximumSize > 0) {
+            CacheBuilder<Object, Object> cacheBuilder =
+                    CacheBuilder.newBuilder().maximumSize(maximumSize);
+
+            if (EventCloudProperties.RECORD_STATS_DECOMPOSITION_CACHE.getValue()) {
+                cacheBuilder.recordStats();
+            }
+
+            this.cache =
+                    cacheBuilder.build(new CacheLoader<String, List<AtomicQuery>>() {
+                        @Override
+                        public List<AtomicQuery> load(String sparqlQuery)
+                                throws DecompositionException {
+                            return ImmutableList.copyOf(SparqlDecomposer.this.decomposeQuery(sparqlQuery));
+                        }
+                    });
+        } else {
+            this.cache = null;
+        }
     }
 
+    /**
+     * Decomposes the specified SPARQL query into atomic queries. Decompositions
+     * are cached by using the normalized query text as key. Hence, the atomic
+     * queries returned may be shared and must not be modified.
+     * 
+     * @param sparqlQuery
+     *            the SPARQL query to decompose.
+     * 
+     * @return the atomic queries the SPARQL query is made of.
+     * 
+     * @throws DecompositionException
+     *             if the SPARQL query cannot be decomposed.
+     */
     public SparqlDecompositionResult decompose(String sparqlQuery)
             throws DecompositionException {
+        if (this.cache == null) {
+            return new SparqlDecompositionResult(
+                    this.decomposeQuery(sparqlQuery));
+        }
+
+        try {
+            return new SparqlDecompositionResult(
+                    this.cache.get(normalize(sparqlQuery)));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DecompositionException) {
+                throw (DecompositionException) e.getCause();
+            }
+
+            throw new IllegalStateException(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            // e.g. parse exceptions
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Returns the statistics associated to the cache of decompositions. The
+     * statistics are empty if the cache or the statistics recording are
+     * disabled.
+     * 
+     * @return the statistics associated to the cache of decompositions.
+     */
+    public CacheStats getCacheStats() {
+        if (this.cache == null) {
+            return new CacheStats(0, 0, 0, 0, 0, 0);
+        }
+
+        return this.cache.stats();
+    }
+
+    /**
+     * Discards all the decompositions put in cache.
+     */
+    public void invalidateCache() {
+        if (this.cache != null) {
+            this.cache.invalidateAll();
+        }
+    }
+
+    private List<AtomicQuery> decomposeQuery(String sparqlQuery)
+            throws DecompositionException {
         Query query = QueryFactory.create(sparqlQuery);
         Op op = Algebra.compile(query);
 
@@ -81,8 +175,7 @@ public final class SparqlDecomposer {
         OpWalker.walk(op, visitor);
 
         if (visitor.nbGraphPatterns == 1) {
-            return new SparqlDecompositionResult(this.createAtomicQueries(
-                    query, visitor));
+            return this.createAtomicQueries(query, visitor);
         } else {
             if (visitor.nbGraphPatterns == 0) {
                 throw new DecompositionException(
@@ -204,6 +297,123 @@ public final class SparqlDecomposer {
         return result;
     }
 
+    /**
+     * Normalizes the specified SPARQL query text by collapsing whitespaces
+     * outside of string literals, IRIs and comments. Comments are kept and
+     * still terminated by a line break.
+     * 
+     * @param sparqlQuery
+     *            the SPARQL query to normalize.
+     * 
+     * @return the normalized SPARQL query.
+     */
+    public static String normalize(String sparqlQuery) {
+        int length = sparqlQuery.length();
+        StringBuilder result = new StringBuilder(length);
+
+        boolean pendingWhitespace = false;
+        boolean afterComment = false;
+        int i = 0;
+
+        while (i < length) {
+            char c = sparqlQuery.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                pendingWhitespace = true;
+                i++;
+                continue;
+            }
+
+            if (pendingWhitespace) {
+                if (afterComment) {
+                    result.append('\n');
+                } else if (result.length() > 0) {
+                    result.append(' ');
+                }
+                pendingWhitespace = false;
+            }
+
+            afterComment = c == '#';
+
+            int end;
+            if (c == '"' || c == '\'') {
+                end = skipString(sparqlQuery, i, c);
+            } else if (c == '<') {
+                end = skipIri(sparqlQuery, i);
+            } else if (c == '#') {
+                end = sparqlQuery.indexOf('\n', i);
+                if (end == -1) {
+                    end = length;
+                }
+            } else {
+                end = i + 1;
+            }
+
+            result.append(sparqlQuery, i, end);
+            i = end;
+        }
+
+        return result.toString();
+    }
+
+    private static int skipString(String s, int start, char quote) {
+        int length = s.length();
+
+        if (start + 2 < length && s.charAt(start + 1) == quote
+                && s.charAt(start + 2) == quote) {
+            // long string
+            int i = start + 3;
+            while (i < length) {
+                char c = s.charAt(i);
+
+                if (c == '\\') {
+                    i += 2;
+                } else if (c == quote && i + 2 < length
+                        && s.charAt(i + 1) == quote
+                        && s.charAt(i + 2) == quote) {
+                    return i + 3;
+                } else {
+                    i++;
+                }
+            }
+
+            return length;
+        }
+
+        int i = start + 1;
+        while (i < length) {
+            char c = s.charAt(i);
+
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote || c == '\n' || c == '\r') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+
+        return length;
+    }
+
+    private static int skipIri(String s, int start) {
+        for (int i = start + 1; i < s.length(); i++) {
+            char c = s.charAt(i);
+
+            if (c == '>') {
+                return i + 1;
+            }
+
+            // not an IRI but a comparison operator
+            if (c <= ' ' || c == '<' || c == '"' || c == '{' || c == '}'
+                    || c == '|' || c == '^' || c == '`' || c == '\\') {
+                return start + 1;
+            }
+        }
+
+        return start + 1;
+    }
+
     public static SparqlDecomposer getInstance() {
         return SparqlDecomposer.Singleton.INSTANCE;
     }
@@ -16,12 +16,37 @@
  **/
 package fr.inria.eventcloud.reasoner;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import com.google.common.base.Function;
 import com.google.common.collect.FluentIterable;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.sparql.algebra.Algebra;
+import com.hp.hpl.jena.sparql.algebra.OpVisitorBase;
+import com.hp.hpl.jena.sparql.algebra.OpWalker;
+import com.hp.hpl.jena.sparql.algebra.op.OpConditional;
+import com.hp.hpl.jena.sparql.algebra.op.OpDiff;
+import com.hp.hpl.jena.sparql.algebra.op.OpLeftJoin;
+import com.hp.hpl.jena.sparql.algebra.op.OpMinus;
+import com.hp.hpl.jena.sparql.algebra.op.OpUnion;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap;
 
+import fr.inria.eventcloud.api.Quadruple;
 import fr.inria.eventcloud.api.exceptions.MalformedSparqlQueryException;
+import fr.inria.eventcloud.configuration.EventCloudProperties;
+import fr.inria.eventcloud.datastore.stats.CardinalityStats;
 import fr.inria.eventcloud.exceptions.DecompositionException;
 import fr.inria.eventcloud.messages.request.SparqlAtomicRequest;
 
@@ -61,4 +86,263 @@ public class SparqlReasoner {
             throw new MalformedSparqlQueryException(sparqlQuery, e);
         }
     }
+
+    /**
+     * Selects the sub-query to evaluate first when the specified SPARQL query
+     * can be executed as a bind join: the most selective sub-query is
+     * dispatched alone, then its solutions are substituted into the other
+     * sub-queries (see {@link #bindJoin(List, SparqlAtomicRequest, List)}) so
+     * that they are routed to fewer peers and send back fewer intermediate
+     * quadruples.
+     * <p>
+     * A bind join is only selected for conjunctive queries without limit,
+     * when the estimated cardinality of the most selective sub-query does not
+     * exceed {@link EventCloudProperties#CARDINALITY_STATS_BIND_JOIN_THRESHOLD}
+     * and is lower than the one of a sub-query sharing a variable with it.
+     * 
+     * @param sparqlQuery
+     *            the SPARQL query the requests are decomposed from.
+     * @param requests
+     *            the requests the SPARQL query is decomposed into.
+     * @param stats
+     *            the cardinality statistics used to estimate the number of
+     *            quadruples matching each sub-query.
+     * 
+     * @return the request to dispatch first or {@code null} if the requests
+     *         must be dispatched in parallel.
+     */
+    public static SparqlAtomicRequest selectBindJoinOuter(String sparqlQuery,
+                                                          List<SparqlAtomicRequest> requests,
+                                                          CardinalityStats stats) {
+        if (requests.size() < 2) {
+            return null;
+        }
+
+        SparqlAtomicRequest outer = null;
+        long outerEstimation = Long.MAX_VALUE;
+        long[] estimations = new long[requests.size()];
+
+        for (int i = 0; i < requests.size(); i++) {
+            SparqlAtomicRequest request = requests.get(i);
+
+            if (request.getAtomicQuery().hasLimit()) {
+                return null;
+            }
+
+            estimations[i] = estimateCardinality(request, stats);
+
+            if (estimations[i] < outerEstimation
+                    && !getBindableVars(request.getAtomicQuery()).isEmpty()) {
+                outer = request;
+                outerEstimation = estimations[i];
+            }
+        }
+
+        int threshold =
+                EventCloudProperties.CARDINALITY_STATS_BIND_JOIN_THRESHOLD.getValue();
+
+        if (outer == null || threshold <= 0 || outerEstimation > threshold) {
+            return null;
+        }
+
+        Set<String> outerVars = getBindableVars(outer.getAtomicQuery());
+        boolean profitable = false;
+
+        for (int i = 0; i < requests.size(); i++) {
+            SparqlAtomicRequest request = requests.get(i);
+
+            if (request != outer && estimations[i] > outerEstimation
+                    && !Collections.disjoint(
+                            outerVars,
+                            getBindableVars(request.getAtomicQuery()))) {
+                profitable = true;
+                break;
+            }
+        }
+
+        if (!profitable || !isConjunctive(sparqlQuery)) {
+            return null;
+        }
+
+        return outer;
+    }
+
+    /**
+     * Substitutes the solutions of the specified outer request into the
+     * requests sharing a variable with it. The outer request is dispatched
+     * again so that the colander receives its solutions along with the ones
+     * of the bound requests. Requests which share no variable with the outer request are
+     * left unchanged.
+     * 
+     * @param requests
+     *            the requests the SPARQL query is decomposed into.
+     * @param outer
+     *            the request which has been dispatched first.
+     * @param solutions
+     *            the quadruples sent back for the outer request.
+     * 
+     * @return the requests to dispatch in parallel, or the specified requests
+     *         unchanged if the number of distinct solutions exceeds
+     *         {@link EventCloudProperties#CARDINALITY_STATS_BIND_JOIN_THRESHOLD}
+     *         because the statistics were outdated.
+     */
+    public static List<SparqlAtomicRequest> bindJoin(List<SparqlAtomicRequest> requests,
+                                                     SparqlAtomicRequest outer,
+                                                     List<Quadruple> solutions) {
+        AtomicQuery outerQuery = outer.getAtomicQuery();
+        Set<String> outerVars = getBindableVars(outerQuery);
+
+        // bindings indexed by the values they contain to discard duplicates
+        Map<List<Node>, Binding> bindings =
+                new LinkedHashMap<List<Node>, Binding>();
+
+        for (Quadruple solution : solutions) {
+            BindingMap binding = BindingFactory.create();
+            bind(binding, outerQuery.getSubject(), solution.getSubject());
+            bind(binding, outerQuery.getPredicate(), solution.getPredicate());
+            bind(binding, outerQuery.getObject(), solution.getObject());
+
+            bindings.put(
+                    Arrays.asList(
+                            solution.getSubject(), solution.getPredicate(),
+                            solution.getObject()), binding);
+
+            if (bindings.size() > EventCloudProperties.CARDINALITY_STATS_BIND_JOIN_THRESHOLD.getValue()) {
+                return requests;
+            }
+        }
+
+        List<SparqlAtomicRequest> result =
+                new ArrayList<SparqlAtomicRequest>();
+
+        for (SparqlAtomicRequest request : requests) {
+            AtomicQuery atomicQuery = request.getAtomicQuery();
+
+            if (request == outer) {
+                // the outer request has already been sent
+                result.add(new SparqlAtomicRequest(atomicQuery));
+                continue;
+            }
+
+            if (Collections.disjoint(outerVars, getBindableVars(atomicQuery))) {
+                result.add(request);
+                continue;
+            }
+
+            Set<AtomicQuery> boundQueries = new LinkedHashSet<AtomicQuery>();
+
+            for (Binding binding : bindings.values()) {
+                boundQueries.add(atomicQuery.copySubstitute(binding));
+            }
+
+            for (AtomicQuery boundQuery : boundQueries) {
+                result.add(new SparqlAtomicRequest(boundQuery));
+            }
+        }
+
+        return result;
+    }
+
+    private static void bind(BindingMap binding, Node node, Node value) {
+        if (node.isVariable() && !binding.contains(Var.alloc(node))) {
+            binding.add(Var.alloc(node), value);
+        }
+    }
+
+    /*
+     * Returns the names of the variables appearing in the subject, predicate
+     * or object position of the specified atomic query. Variables which also
+     * appear in the graph position are excluded since graph values are
+     * stored with meta information.
+     */
+    private static Set<String> getBindableVars(AtomicQuery atomicQuery) {
+        Set<String> result = new HashSet<String>(3);
+
+        for (Node node : new Node[] {
+                atomicQuery.getSubject(), atomicQuery.getPredicate(),
+                atomicQuery.getObject()}) {
+            if (node.isVariable()) {
+                result.add(node.getName());
+            }
+        }
+
+        if (atomicQuery.getGraph().isVariable()) {
+            result.remove(atomicQuery.getGraph().getName());
+        }
+
+        return result;
+    }
+
+    /*
+     * Returns whether the graph pattern of the specified SPARQL query is a
+     * conjunction of triple patterns. Optional parts, unions and negations
+     * cannot be evaluated with a bind join since the solutions of a triple
+     * pattern do not restrict the solutions of the others.
+     */
+    private static boolean isConjunctive(String sparqlQuery) {
+        final boolean[] result = {true};
+
+        OpWalker.walk(
+                Algebra.compile(QueryFactory.create(sparqlQuery)),
+                new OpVisitorBase() {
+                    @Override
+                    public void visit(OpLeftJoin opLeftJoin) {
+                        result[0] = false;
+                    }
+
+                    @Override
+                    public void visit(OpConditional opConditional) {
+                        result[0] = false;
+                    }
+
+                    @Override
+                    public void visit(OpUnion opUnion) {
+                        result[0] = false;
+                    }
+
+                    @Override
+                    public void visit(OpMinus opMinus) {
+                        result[0] = false;
+                    }
+
+                    @Override
+                    public void visit(OpDiff opDiff) {
+                        result[0] = false;
+                    }
+                });
+
+        return result[0];
+    }
+
+    /**
+     * Estimates the number of intermediate quadruples which are sent back by
+     * the peers when the specified requests are executed.
+     * 
+     * @param requests
+     *            the requests to execute.
+     * @param stats
+     *            the cardinality statistics to use.
+     * 
+     * @return an estimation of the number of intermediate quadruples sent back
+     *         by the peers.
+     */
+    public static long estimateCardinality(List<SparqlAtomicRequest> requests,
+                                           CardinalityStats stats) {
+        long result = 0;
+
+        for (SparqlAtomicRequest request : requests) {
+            result += estimateCardinality(request, stats);
+        }
+
+        return result;
+    }
+
+    private static long estimateCardinality(SparqlAtomicRequest request,
+                                            CardinalityStats stats) {
+        AtomicQuery atomicQuery = request.getAtomicQuery();
+
+        return stats.estimate(
+                atomicQuery.getGraph(), atomicQuery.getSubject(),
+                atomicQuery.getPredicate(), atomicQuery.getObject());
+    }
 }
@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Hashed timing wheel used to expire elements after a deadline. Scheduling an
+ * element is done in constant time by appending it to the bucket associated
+ * to its deadline tick. Elements whose deadline is more than one revolution
+ * ahead stay in their bucket until the wheel has turned enough times.
+ * <p>
+ * Expired elements are retrieved by {@link #pollExpired(long, int)} in batches
+ * of bounded size: the wheel only advances once all the expired elements of
+ * the current bucket have been returned, so that the next call resumes where
+ * the previous one stopped. This class is thread-safe.
+ * 
+ * @author lpellegr
+ * 
+ * @param <E>
+ *            the type of the elements scheduled.
+ */
+public class TimerWheel<E> {
+
+    private final long tickDuration;
+
+    private final ArrayDeque<Entry<E>>[] buckets;
+
+    private final int mask;
+
+    // tick associated to the bucket which is processed next
+    private long currentTick;
+
+    private int size;
+
+    /**
+     * Creates a new timing wheel.
+     * 
+     * @param tickDuration
+     *            the duration of a tick in milliseconds. It defines the
+     *            precision of the wheel.
+     * @param nbBuckets
+     *            the number of buckets. It is rounded to the next power of
+     *            two.
+     * @param now
+     *            the time from which the wheel starts to turn, in
+     *            milliseconds.
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickDuration, int nbBuckets, long now) {
+        if (tickDuration <= 0 || nbBuckets <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        int capacity = Integer.highestOneBit(nbBuckets);
+        if (capacity < nbBuckets) {
+            capacity <<= 1;
+        }
+
+        this.tickDuration = tickDuration;
+        this.buckets = new ArrayDeque[capacity];
+        for (int i = 0; i < capacity; i++) {
+            this.buckets[i] = new ArrayDeque<Entry<E>>();
+        }
+        this.mask = capacity - 1;
+        this.currentTick = now / tickDuration;
+    }
+
+    /**
+     * Schedules the specified element to expire at the given time. An element
+     * whose deadline is already reached is returned by the next call to
+     * {@link #pollExpired(long, int)}.
+     * 
+     * @param element
+     *            the element to schedule.
+     * @param deadline
+     *            the time at which the element expires, in milliseconds.
+     */
+    public synchronized void schedule(E element, long deadline) {
+        // the tick is rounded up to never expire an element too early
+        long tick =
+                Math.max(
+                        (deadline + this.tickDuration - 1) / this.tickDuration,
+                        this.currentTick);
+
+        this.buckets[(int) (tick & this.mask)].add(new Entry<E>(element, tick));
+        this.size++;
+    }
+
+    /**
+     * Removes and returns at most {@code maxElements} elements whose deadline
+     * is lower or equal to {@code now}.
+     * 
+     * @param now
+     *            the current time in milliseconds.
+     * @param maxElements
+     *            the maximum number of elements to return.
+     * 
+     * @return the expired elements, or an empty list if there is none.
+     */
+    public synchronized List<E> pollExpired(long now, int maxElements) {
+        List<E> result = new ArrayList<E>();
+        long nowTick = now / this.tickDuration;
+
+        while (this.currentTick <= nowTick && this.size > 0) {
+            Iterator<Entry<E>> it =
+                    this.buckets[(int) (this.currentTick & this.mask)].iterator();
+
+            while (it.hasNext()) {
+                if (result.size() == maxElements) {
+                    return result;
+                }
+
+                Entry<E> entry = it.next();
+
+                if (entry.tick <= this.currentTick) {
+                    it.remove();
+                    this.size--;
+                    result.add(entry.element);
+                }
+            }
+
+            this.currentTick++;
+        }
+
+        if (this.size == 0 && this.currentTick < nowTick) {
+            // nothing scheduled, the wheel can jump to the current tick
+            this.currentTick = nowTick;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of elements scheduled.
+     * 
+     * @return the number of elements scheduled.
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    private static final class Entry<E> {
+
+        private final E element;
+
+        private final long tick;
+
+        public Entry(E element, long tick) {
+            this.element = element;
+            this.tick = tick;
+        }
+
+    }
+
+}
@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.datastore;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.ResultSet;
+
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.api.QuadruplePattern;
+import fr.inria.eventcloud.api.generators.QuadrupleGenerator;
+
+/**
+ * Test cases associated to {@link HexastoreDatastore}.
+ * 
+ * @author lpellegr
+ */
+public final class HexastoreDatastoreTest {
+
+    private HexastoreDatastore datastore;
+
+    @Before
+    public void setUp() {
+        this.datastore =
+                (HexastoreDatastore) new TransactionalTdbDatastoreBuilder().useHexastore()
+                        .build();
+        this.datastore.open();
+    }
+
+    @Test
+    public void testFindWithPatterns() {
+        Node g = NodeFactory.createURI("urn:g");
+        Node s = NodeFactory.createURI("urn:s");
+        Node p = NodeFactory.createURI("urn:p");
+        Node o = NodeFactory.createLiteral("o");
+
+        this.add(new Quadruple(g, s, p, o), new Quadruple(
+                g, s, NodeFactory.createURI("urn:p2"), o), new Quadruple(
+                NodeFactory.createURI("urn:g2"), s, p,
+                NodeFactory.createURI("urn:o2")));
+
+        Assert.assertEquals(3, this.count(QuadruplePattern.ANY));
+        Assert.assertEquals(2, this.count(new QuadruplePattern(
+                g, null, null, null)));
+        Assert.assertEquals(3, this.count(new QuadruplePattern(
+                null, s, null, null)));
+        Assert.assertEquals(2, this.count(new QuadruplePattern(
+                null, null, p, null)));
+        Assert.assertEquals(2, this.count(new QuadruplePattern(
+                null, null, null, o)));
+        Assert.assertEquals(1, this.count(new QuadruplePattern(g, s, p, o)));
+        Assert.assertEquals(1, this.count(new QuadruplePattern(
+                g, null, p, o)));
+        Assert.assertEquals(0, this.count(new QuadruplePattern(
+                NodeFactory.createURI("urn:unknown"), null, null, null)));
+    }
+
+    @Test
+    public void testDuplicatesIgnored() {
+        Quadruple q = QuadrupleGenerator.random();
+
+        this.add(q, q);
+        this.add(q);
+
+        Assert.assertEquals(1, this.datastore.size());
+    }
+
+    @Test
+    public void testDelete() {
+        Quadruple q1 = QuadrupleGenerator.random();
+        Quadruple q2 = QuadrupleGenerator.random();
+
+        this.add(q1, q2);
+
+        TransactionalDatasetGraph txnGraph =
+                this.datastore.begin(AccessMode.WRITE);
+        try {
+            txnGraph.delete(q1);
+            Assert.assertFalse(txnGraph.contains(q1));
+            txnGraph.commit();
+        } finally {
+            txnGraph.end();
+        }
+
+        Assert.assertEquals(1, this.datastore.size());
+
+        // a quadruple deleted may be added again
+        this.add(q1);
+        Assert.assertEquals(2, this.datastore.size());
+    }
+
+    @Test
+    public void testSnapshotIsolation() {
+        Quadruple q1 = QuadrupleGenerator.random();
+        this.add(q1);
+
+        TransactionalDatasetGraph reader =
+                this.datastore.begin(AccessMode.READ_ONLY);
+
+        try {
+            TransactionalDatasetGraph writer =
+                    this.datastore.begin(AccessMode.WRITE);
+            try {
+                writer.delete(q1);
+                writer.add(QuadrupleGenerator.random());
+                writer.add(QuadrupleGenerator.random());
+                writer.commit();
+            } finally {
+                writer.end();
+            }
+
+            // the reader still sees the snapshot from which it has started
+            Assert.assertTrue(reader.contains(q1));
+            Assert.assertEquals(1, reader.find(QuadruplePattern.ANY).count());
+        } finally {
+            reader.end();
+        }
+
+        Assert.assertEquals(2, this.datastore.size());
+    }
+
+    @Test
+    public void testRollback() {
+        Quadruple q1 = QuadrupleGenerator.random();
+        this.add(q1);
+
+        TransactionalDatasetGraph txnGraph =
+                this.datastore.begin(AccessMode.WRITE);
+        try {
+            txnGraph.delete(q1);
+            txnGraph.add(QuadrupleGenerator.random());
+            Assert.assertEquals(1, txnGraph.find(QuadruplePattern.ANY)
+                    .count());
+        } finally {
+            // ends without commit
+            txnGraph.end();
+        }
+
+        txnGraph = this.datastore.begin(AccessMode.READ_ONLY);
+        try {
+            Assert.assertTrue(txnGraph.contains(q1));
+            Assert.assertEquals(1, txnGraph.find(QuadruplePattern.ANY)
+                    .count());
+        } finally {
+            txnGraph.end();
+        }
+    }
+
+    @Test
+    public void testSparqlQuery() {
+        Node g = NodeFactory.createURI("urn:g");
+
+        this.add(
+                QuadrupleGenerator.random(g), QuadrupleGenerator.random(g),
+                QuadrupleGenerator.random());
+
+        TransactionalDatasetGraph txnGraph =
+                this.datastore.begin(AccessMode.READ_ONLY);
+
+        QueryExecution qexec =
+                QueryExecutionFactory.create(
+                        "SELECT ?s WHERE { GRAPH <urn:g> { ?s ?p ?o } }",
+                        txnGraph.getUnderlyingDataset());
+
+        try {
+            ResultSet resultSet = qexec.execSelect();
+
+            int count = 0;
+            while (resultSet.hasNext()) {
+                resultSet.next();
+                count++;
+            }
+
+            Assert.assertEquals(2, count);
+        } finally {
+            qexec.close();
+            txnGraph.end();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        this.datastore.close();
+    }
+
+    private void add(Quadruple... quadruples) {
+        TransactionalDatasetGraph txnGraph =
+                this.datastore.begin(AccessMode.WRITE);
+        try {
+            for (Quadruple q : quadruples) {
+                txnGraph.add(q);
+            }
+            txnGraph.commit();
+        } finally {
+            txnGraph.end();
+        }
+    }
+
+    private long count(QuadruplePattern quadruplePattern) {
+        TransactionalDatasetGraph txnGraph =
+                this.datastore.begin(AccessMode.READ_ONLY);
+        try {
+            return txnGraph.find(quadruplePattern).count();
+        } finally {
+            txnGraph.end();
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.datastore;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Range;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.sparql.expr.ExprList;
+import com.hp.hpl.jena.sparql.expr.NodeValue;
+import com.hp.hpl.jena.sparql.util.ExprUtils;
+
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.api.generators.QuadrupleGenerator;
+
+/**
+ * Test cases associated to {@link PublicationTimeFunction}.
+ * 
+ * @author lpellegr
+ */
+public class PublicationTimeFunctionTest {
+
+    private static final Node GRAPH_VAR = NodeFactory.createVariable("g");
+
+    @Test
+    public void testExec() {
+        Quadruple q = QuadrupleGenerator.random();
+        q.setPublicationTime(42);
+
+        Assert.assertEquals(
+                42,
+                new PublicationTimeFunction().exec(
+                        NodeValue.makeNode(q.createMetaGraphNode()))
+                        .getInteger()
+                        .longValue());
+        Assert.assertEquals(
+                -1,
+                new PublicationTimeFunction().exec(
+                        NodeValue.makeNode(NodeFactory.createURI("http://example.org/g")))
+                        .getInteger()
+                        .longValue());
+    }
+
+    @Test
+    public void testConcreteGraph() {
+        Quadruple q = QuadrupleGenerator.random();
+        q.setPublicationTime(42);
+
+        Assert.assertEquals(
+                Range.singleton(42L),
+                PublicationTimeFunction.getPublicationTimes(
+                        q.createMetaGraphNode(), null));
+        Assert.assertEquals(
+                Range.singleton(-1L),
+                PublicationTimeFunction.getPublicationTimes(
+                        NodeFactory.createURI("http://example.org/g"), null));
+        Assert.assertEquals(
+                Range.<Long> all(),
+                PublicationTimeFunction.getPublicationTimes(Node.ANY, null));
+    }
+
+    @Test
+    public void testFilterConstraints() {
+        Assert.assertEquals(
+                Range.closedOpen(10L, 20L),
+                getPublicationTimes("pt(?g) >= 10 && pt(?g) < 20"));
+        Assert.assertEquals(
+                Range.lessThan(20L), getPublicationTimes("20 > pt(?g)"));
+        Assert.assertEquals(
+                Range.singleton(15L),
+                getPublicationTimes("pt(?g) = 15 && ?o > 3"));
+    }
+
+    @Test
+    public void testUnrelatedFilterConstraints() {
+        Assert.assertEquals(
+                Range.<Long> all(), getPublicationTimes("pt(?h) >= 10"));
+        Assert.assertEquals(
+                Range.<Long> all(),
+                getPublicationTimes("pt(?g) >= 10 || pt(?g) < 5"));
+        Assert.assertEquals(
+                Range.<Long> all(), getPublicationTimes("pt(?g) >= 1.5"));
+    }
+
+    @Test
+    public void testContradictoryFilterConstraints() {
+        Assert.assertTrue(getPublicationTimes("pt(?g) > 20 && pt(?g) < 10").isEmpty());
+    }
+
+    private static Range<Long> getPublicationTimes(String filter) {
+        List<ExprList> filterConstraints =
+                Collections.singletonList(new ExprList(
+                        ExprUtils.parse(filter.replace(
+                                "pt(", "<" + PublicationTimeFunction.URI
+                                        + ">("))));
+
+        return PublicationTimeFunction.getPublicationTimes(
+                GRAPH_VAR, filterConstraints);
+    }
+
+}
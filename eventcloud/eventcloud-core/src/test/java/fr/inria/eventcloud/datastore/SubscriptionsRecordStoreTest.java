@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.datastore;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import fr.inria.eventcloud.api.SubscriptionId;
+
+/**
+ * Test cases associated to {@link SubscriptionsRecordStore}.
+ * 
+ * @author lpellegr
+ */
+public final class SubscriptionsRecordStoreTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    private SubscriptionsRecordStore store;
+
+    @Test
+    public void testPutGetDelete() {
+        this.store = new SubscriptionsRecordStore(SEGMENT_SIZE);
+
+        SubscriptionId groupId = new SubscriptionId();
+        SubscriptionId id = new SubscriptionId();
+
+        Assert.assertNull(this.store.get(id));
+
+        this.store.put(id, groupId, new byte[] {1, 2, 3});
+        Assert.assertArrayEquals(new byte[] {1, 2, 3}, this.store.get(id));
+
+        // overwrite
+        this.store.put(id, groupId, new byte[] {4});
+        Assert.assertArrayEquals(new byte[] {4}, this.store.get(id));
+        Assert.assertEquals(1, this.store.size());
+
+        Assert.assertTrue(this.store.delete(id));
+        Assert.assertFalse(this.store.delete(id));
+        Assert.assertNull(this.store.get(id));
+    }
+
+    @Test
+    public void testDeleteGroup() {
+        this.store = new SubscriptionsRecordStore(SEGMENT_SIZE);
+
+        SubscriptionId g1 = new SubscriptionId();
+        SubscriptionId g2 = new SubscriptionId();
+        SubscriptionId id1 = new SubscriptionId();
+        SubscriptionId id2 = new SubscriptionId();
+        SubscriptionId id3 = new SubscriptionId();
+
+        this.store.put(id1, g1, new byte[] {1});
+        this.store.put(id2, g1, new byte[] {2});
+        this.store.put(id3, g2, new byte[] {3});
+
+        Assert.assertEquals(2, this.store.deleteGroup(g1));
+        Assert.assertNull(this.store.get(id1));
+        Assert.assertNull(this.store.get(id2));
+        Assert.assertArrayEquals(new byte[] {3}, this.store.get(id3));
+    }
+
+    @Test
+    public void testRecordLargerThanSegment() {
+        this.store = new SubscriptionsRecordStore(SEGMENT_SIZE);
+
+        SubscriptionId id = new SubscriptionId();
+        byte[] payload = new byte[SEGMENT_SIZE * 3];
+        payload[payload.length - 1] = 7;
+
+        this.store.put(id, id, payload);
+        Assert.assertArrayEquals(payload, this.store.get(id));
+    }
+
+    @Test
+    public void testCompaction() {
+        this.store = new SubscriptionsRecordStore(SEGMENT_SIZE);
+
+        SubscriptionId kept = new SubscriptionId();
+        this.store.put(kept, kept, new byte[] {42});
+
+        for (int i = 0; i < 1000; i++) {
+            SubscriptionId id = new SubscriptionId();
+            this.store.put(id, id, new byte[64]);
+            this.store.deleteGroup(id);
+        }
+
+        Assert.assertEquals(1, this.store.size());
+        Assert.assertTrue(this.store.getNbSegments() <= 2);
+        Assert.assertArrayEquals(new byte[] {42}, this.store.get(kept));
+    }
+
+    @Test
+    public void testCompactionOnOverwrite() {
+        this.store = new SubscriptionsRecordStore(SEGMENT_SIZE);
+
+        SubscriptionId id = new SubscriptionId();
+
+        for (int i = 0; i < 1000; i++) {
+            byte[] payload = new byte[64];
+            payload[0] = (byte) i;
+            this.store.put(id, id, payload);
+        }
+
+        Assert.assertEquals(1, this.store.size());
+        Assert.assertTrue(this.store.getNbSegments() <= 2);
+        Assert.assertEquals((byte) 999, this.store.get(id)[0]);
+    }
+
+    @Test
+    public void testReplay() {
+        File directory = Files.createTempDir();
+
+        this.store =
+                new SubscriptionsRecordStore(directory, SEGMENT_SIZE, false);
+
+        SubscriptionId g1 = new SubscriptionId();
+        SubscriptionId g2 = new SubscriptionId();
+        SubscriptionId id1 = new SubscriptionId();
+        SubscriptionId id2 = new SubscriptionId();
+        SubscriptionId id3 = new SubscriptionId();
+
+        for (int i = 0; i < 50; i++) {
+            this.store.put(id1, g1, new byte[] {(byte) i});
+        }
+        this.store.put(id2, g1, new byte[] {2});
+        this.store.put(id3, g2, new byte[] {3});
+        this.store.delete(id2);
+        this.store.close();
+
+        this.store =
+                new SubscriptionsRecordStore(directory, SEGMENT_SIZE, true);
+
+        Assert.assertEquals(2, this.store.size());
+        Assert.assertArrayEquals(new byte[] {49}, this.store.get(id1));
+        Assert.assertNull(this.store.get(id2));
+        Assert.assertArrayEquals(new byte[] {3}, this.store.get(id3));
+
+        // appending after a replay must not corrupt previous records
+        this.store.put(id2, g2, new byte[] {5});
+        Assert.assertEquals(1, this.store.deleteGroup(g1));
+        Assert.assertArrayEquals(new byte[] {5}, this.store.get(id2));
+    }
+
+    @After
+    public void tearDown() {
+        if (this.store != null) {
+            this.store.close();
+        }
+    }
+
+}
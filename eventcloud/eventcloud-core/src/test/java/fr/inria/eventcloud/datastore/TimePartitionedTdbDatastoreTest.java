@@ -0,0 +1,270 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.datastore;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Range;
+import com.hp.hpl.jena.query.Dataset;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.ResultSet;
+
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.api.QuadruplePattern;
+import fr.inria.eventcloud.api.generators.QuadrupleGenerator;
+
+/**
+ * Test cases associated to {@link TimePartitionedTdbDatastore}.
+ * 
+ * @author lpellegr
+ */
+public final class TimePartitionedTdbDatastoreTest {
+
+    private static final long PARTITION_DURATION = 1000;
+
+    private TimePartitionedTdbDatastore datastore;
+
+    @Test
+    public void testAddAndFind() {
+        this.datastore = this.createDatastore(PARTITION_DURATION, 0);
+
+        long now = System.currentTimeMillis();
+
+        Quadruple q1 = this.createQuadruple(now);
+        Quadruple q2 = this.createQuadruple(now + 5 * PARTITION_DURATION);
+        Quadruple q3 = QuadrupleGenerator.random();
+
+        this.store(q1, q2, q3);
+
+        Assert.assertEquals(2, this.datastore.getNbPartitions());
+        Assert.assertEquals(3, this.count(QuadruplePattern.ANY));
+
+        // lookup restricted to the partition associated to q1
+        Assert.assertEquals(1, this.count(new QuadruplePattern(
+                q1.createMetaGraphNode(), null, null, null)));
+    }
+
+    @Test
+    public void testDelete() {
+        this.datastore = this.createDatastore(PARTITION_DURATION, 0);
+
+        long now = System.currentTimeMillis();
+
+        Quadruple q1 = this.createQuadruple(now);
+        Quadruple q2 = this.createQuadruple(now + 5 * PARTITION_DURATION);
+
+        this.store(q1, q2);
+
+        TransactionalDatasetGraph txnGraph =
+                this.datastore.begin(AccessMode.WRITE);
+        try {
+            txnGraph.delete(q2);
+            txnGraph.commit();
+        } finally {
+            txnGraph.end();
+        }
+
+        Assert.assertEquals(1, this.count(QuadruplePattern.ANY));
+    }
+
+    @Test
+    public void testExpiredPartitionsDropped() throws InterruptedException {
+        this.datastore = this.createDatastore(200, 1);
+
+        long now = System.currentTimeMillis();
+
+        // the quadruple is ignored since its partition is already expired
+        this.store(this.createQuadruple(now - 1000));
+        Assert.assertEquals(0, this.datastore.getNbPartitions());
+
+        // the publication time is slightly shifted in the future to make sure
+        // that the partition has not expired once the quadruple is stored
+        this.store(
+                this.createQuadruple(now + 100), QuadrupleGenerator.random());
+        Assert.assertEquals(2, this.count(QuadruplePattern.ANY));
+
+        Thread.sleep(800);
+
+        // partitions may have already been dropped by the background task
+        this.datastore.dropExpiredPartitions();
+
+        Assert.assertEquals(0, this.datastore.getNbPartitions());
+        // quadruples without publication time are never dropped
+        Assert.assertEquals(1, this.count(QuadruplePattern.ANY));
+    }
+
+    @Test
+    public void testTimeBoundedQuery() {
+        this.datastore = this.createDatastore(PARTITION_DURATION, 0);
+
+        long now = System.currentTimeMillis();
+
+        this.store(
+                this.createQuadruple(now),
+                this.createQuadruple(now + 5 * PARTITION_DURATION),
+                this.createQuadruple(now + 10 * PARTITION_DURATION));
+
+        TimePartitionedDatasetGraph txnGraph =
+                (TimePartitionedDatasetGraph) this.datastore.begin(AccessMode.READ_ONLY);
+        try {
+            Assert.assertEquals(3, this.count(txnGraph.getUnderlyingDataset(
+                    Long.MIN_VALUE, Long.MAX_VALUE)));
+            Assert.assertEquals(2, this.count(txnGraph.getUnderlyingDataset(
+                    now + 5 * PARTITION_DURATION, Long.MAX_VALUE)));
+            Assert.assertEquals(1, this.count(txnGraph.getUnderlyingDataset(
+                    now, now)));
+        } finally {
+            txnGraph.end();
+        }
+    }
+
+    @Test
+    public void testQueryPrunedByPublicationTime() {
+        this.datastore = this.createDatastore(PARTITION_DURATION, 0);
+
+        long now = System.currentTimeMillis();
+
+        this.store(
+                this.createQuadruple(now),
+                this.createQuadruple(now + 5 * PARTITION_DURATION),
+                this.createQuadruple(now + 10 * PARTITION_DURATION),
+                QuadrupleGenerator.random());
+
+        long startTime = now + 5 * PARTITION_DURATION;
+
+        TransactionalDatasetGraph txnGraph =
+                this.datastore.begin(AccessMode.READ_ONLY);
+        try {
+            Dataset dataset =
+                    txnGraph.getUnderlyingDataset(Range.atLeast(startTime));
+
+            // the static partition and the first time partition are skipped
+            Assert.assertEquals(2, this.count(dataset));
+            Assert.assertEquals(
+                    2, this.count(dataset, "FILTER (<"
+                            + PublicationTimeFunction.URI + ">(?g) >= "
+                            + startTime + ")"));
+
+            // quadruples without publication time only
+            Assert.assertEquals(
+                    1, this.count(txnGraph.getUnderlyingDataset(Range.singleton(-1L))));
+        } finally {
+            txnGraph.end();
+        }
+    }
+
+    @Test
+    public void testSinglePartitionQueriedWithTdb() {
+        this.datastore = this.createDatastore(PARTITION_DURATION, 0);
+
+        long now = System.currentTimeMillis();
+
+        this.store(
+                this.createQuadruple(now),
+                this.createQuadruple(now + 5 * PARTITION_DURATION));
+
+        TransactionalDatasetGraph txnGraph =
+                this.datastore.begin(AccessMode.READ_ONLY);
+        try {
+            Dataset dataset =
+                    txnGraph.getUnderlyingDataset(Range.singleton(now));
+
+            Assert.assertFalse(dataset.asDatasetGraph() instanceof UnionDatasetGraph);
+            Assert.assertEquals(1, this.count(dataset));
+
+            Assert.assertTrue(txnGraph.getUnderlyingDataset()
+                    .asDatasetGraph() instanceof UnionDatasetGraph);
+        } finally {
+            txnGraph.end();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        this.datastore.close();
+    }
+
+    private TimePartitionedTdbDatastore createDatastore(long partitionDuration,
+                                                        int nbPartitionsRetained) {
+        TimePartitionedTdbDatastore result =
+                (TimePartitionedTdbDatastore) new TransactionalTdbDatastoreBuilder().partitionByTime(
+                        partitionDuration, nbPartitionsRetained)
+                        .build();
+        result.open();
+
+        return result;
+    }
+
+    private Quadruple createQuadruple(long publicationTime) {
+        Quadruple result = QuadrupleGenerator.random();
+        result.setPublicationTime(publicationTime);
+
+        return result;
+    }
+
+    private void store(Quadruple... quadruples) {
+        TransactionalDatasetGraph txnGraph =
+                this.datastore.begin(AccessMode.WRITE);
+        try {
+            for (Quadruple q : quadruples) {
+                txnGraph.add(
+                        q.createMetaGraphNode(), q.getSubject(),
+                        q.getPredicate(), q.getObject());
+            }
+            txnGraph.commit();
+        } finally {
+            txnGraph.end();
+        }
+    }
+
+    private long count(QuadruplePattern quadruplePattern) {
+        TransactionalDatasetGraph txnGraph =
+                this.datastore.begin(AccessMode.READ_ONLY);
+        try {
+            return txnGraph.find(quadruplePattern).count();
+        } finally {
+            txnGraph.end();
+        }
+    }
+
+    private long count(Dataset dataset) {
+        return this.count(dataset, "");
+    }
+
+    private long count(Dataset dataset, String filter) {
+        QueryExecution qexec =
+                QueryExecutionFactory.create(
+                        "SELECT * WHERE { GRAPH ?g { ?s ?p ?o } " + filter
+                                + " }", dataset);
+
+        try {
+            long result = 0;
+            ResultSet resultSet = qexec.execSelect();
+            while (resultSet.hasNext()) {
+                resultSet.next();
+                result++;
+            }
+            return result;
+        } finally {
+            qexec.close();
+        }
+    }
+
+}
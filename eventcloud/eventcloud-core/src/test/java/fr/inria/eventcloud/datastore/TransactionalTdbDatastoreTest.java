@@ -183,6 +183,35 @@ public final class TransactionalTdbDatastoreTest {
         this.assertNbQuadruples(this.datastore, 0);
     }
 
+    @Test
+    public void testVersion() {
+        long version = this.datastore.getVersion();
+
+        TransactionalDatasetGraph txnGraph =
+                this.datastore.begin(AccessMode.READ_ONLY);
+        try {
+            txnGraph.find(QuadruplePattern.ANY);
+        } finally {
+            txnGraph.end();
+        }
+
+        Assert.assertEquals(version, this.datastore.getVersion());
+
+        txnGraph = this.datastore.begin(AccessMode.WRITE);
+        try {
+            txnGraph.add(QuadrupleGenerator.random());
+            // not committed
+        } finally {
+            txnGraph.end();
+        }
+
+        Assert.assertEquals(version, this.datastore.getVersion());
+
+        this.testSequentialAdd();
+
+        Assert.assertEquals(version + 1, this.datastore.getVersion());
+    }
+
     private void assertNbQuadruples(TransactionalTdbDatastore datastore,
                                     int expectedNbQuadruples) {
         TransactionalDatasetGraph txnGraph =
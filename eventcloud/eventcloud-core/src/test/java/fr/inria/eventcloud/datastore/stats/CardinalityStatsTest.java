@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.datastore.stats;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
+
+/**
+ * Test cases associated to {@link CardinalityStats}.
+ * 
+ * @author lpellegr
+ */
+public class CardinalityStatsTest {
+
+    private static final Node GRAPH = NodeFactory.createURI("urn:g");
+
+    private static final Node NAME = NodeFactory.createURI("urn:p:name");
+
+    private static final Node KNOWS = NodeFactory.createURI("urn:p:knows");
+
+    private CardinalityStats stats;
+
+    @Before
+    public void setUp() {
+        this.stats = new CardinalityStats();
+
+        for (int i = 0; i < 100; i++) {
+            Node subject = NodeFactory.createURI("urn:s:" + i);
+
+            this.stats.record(
+                    GRAPH, subject, NAME, NodeFactory.createLiteral("n" + i));
+
+            for (int j = 0; j < 10; j++) {
+                this.stats.record(
+                        GRAPH, subject, KNOWS,
+                        NodeFactory.createURI("urn:s:" + ((i + j) % 100)));
+            }
+        }
+    }
+
+    @Test
+    public void testRecord() {
+        Assert.assertEquals(1100, this.stats.getNbQuadruples());
+        Assert.assertEquals(100, this.stats.getNbQuadruples(NAME));
+        Assert.assertEquals(1000, this.stats.getNbQuadruples(KNOWS));
+        Assert.assertEquals(1, this.stats.getNbDistinctGraphs());
+        Assert.assertEquals(100, this.stats.getNbDistinctSubjects(), 5);
+        Assert.assertEquals(100, this.stats.getNbDistinctSubjects(KNOWS), 5);
+        Assert.assertEquals(2, this.stats.getPredicates().size());
+    }
+
+    @Test
+    public void testUnrecord() {
+        this.stats.unrecord(
+                GRAPH, NodeFactory.createURI("urn:s:0"), NAME,
+                NodeFactory.createLiteral("n0"));
+
+        Assert.assertEquals(1099, this.stats.getNbQuadruples());
+        Assert.assertEquals(99, this.stats.getNbQuadruples(NAME));
+    }
+
+    @Test
+    public void testEstimate() {
+        Assert.assertEquals(
+                1100, this.stats.estimate(Node.ANY, Node.ANY, Node.ANY, Node.ANY));
+        Assert.assertEquals(
+                1000, this.stats.estimate(Node.ANY, Node.ANY, KNOWS, Node.ANY));
+
+        // about 10 quadruples per subject for the knows predicate
+        long estimate =
+                this.stats.estimate(
+                        null, NodeFactory.createURI("urn:s:0"), KNOWS,
+                        NodeFactory.createVariable("o"));
+        Assert.assertTrue(estimate >= 9 && estimate <= 11);
+
+        Assert.assertTrue(this.stats.estimate(
+                Node.ANY, NodeFactory.createURI("urn:s:0"), NAME, Node.ANY) < this.stats.estimate(
+                Node.ANY, Node.ANY, NAME, Node.ANY));
+
+        Assert.assertEquals(0, this.stats.estimate(
+                Node.ANY, Node.ANY, NodeFactory.createURI("urn:p:unknown"),
+                Node.ANY));
+    }
+
+    @Test
+    public void testMerge() {
+        CardinalityStats other = new CardinalityStats();
+
+        for (int i = 100; i < 200; i++) {
+            other.record(
+                    NodeFactory.createURI("urn:g2"),
+                    NodeFactory.createURI("urn:s:" + i), NAME,
+                    NodeFactory.createLiteral("n" + i));
+        }
+
+        this.stats.merge(other);
+
+        Assert.assertEquals(1200, this.stats.getNbQuadruples());
+        Assert.assertEquals(200, this.stats.getNbQuadruples(NAME));
+        Assert.assertEquals(2, this.stats.getNbDistinctGraphs());
+        Assert.assertEquals(200, this.stats.getNbDistinctSubjects(NAME), 10);
+
+        // the merged instance is not modified
+        Assert.assertEquals(100, other.getNbQuadruples());
+    }
+
+    @Test
+    public void testMaxPredicates() {
+        CardinalityStats bounded = new CardinalityStats(10, 1);
+
+        bounded.record(GRAPH, NodeFactory.createURI("urn:s"), NAME, GRAPH);
+        bounded.record(GRAPH, NodeFactory.createURI("urn:s"), KNOWS, GRAPH);
+        bounded.record(GRAPH, NodeFactory.createURI("urn:s"), KNOWS, GRAPH);
+
+        Assert.assertEquals(3, bounded.getNbQuadruples());
+        Assert.assertEquals(1, bounded.getPredicates().size());
+        Assert.assertEquals(0, bounded.getNbQuadruples(KNOWS));
+        // untracked predicates are estimated with the untracked quadruples
+        Assert.assertEquals(2, bounded.estimate(null, null, KNOWS, null));
+    }
+
+    @Test
+    public void testClear() {
+        this.stats.clear();
+
+        Assert.assertEquals(0, this.stats.getNbQuadruples());
+        Assert.assertEquals(0, this.stats.getNbDistinctSubjects());
+        Assert.assertTrue(this.stats.getPredicates().isEmpty());
+    }
+
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.datastore.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases associated to {@link HyperLogLog}.
+ * 
+ * @author lpellegr
+ */
+public class HyperLogLogTest {
+
+    @Test
+    public void testEmpty() {
+        Assert.assertEquals(0, new HyperLogLog(10).estimate());
+    }
+
+    @Test
+    public void testEstimate() {
+        HyperLogLog sketch = new HyperLogLog(10);
+
+        for (int i = 0; i < 100000; i++) {
+            sketch.add("urn:value:" + i);
+            // duplicates must not be counted
+            sketch.add("urn:value:" + i);
+        }
+
+        assertEstimate(100000, sketch.estimate());
+    }
+
+    @Test
+    public void testSmallCardinality() {
+        HyperLogLog sketch = new HyperLogLog(10);
+
+        for (int i = 0; i < 10; i++) {
+            sketch.add("urn:value:" + i);
+        }
+
+        Assert.assertEquals(10, sketch.estimate());
+    }
+
+    @Test
+    public void testMerge() {
+        HyperLogLog s1 = new HyperLogLog(10);
+        HyperLogLog s2 = new HyperLogLog(10);
+
+        for (int i = 0; i < 60000; i++) {
+            s1.add("urn:value:" + i);
+        }
+
+        for (int i = 40000; i < 100000; i++) {
+            s2.add("urn:value:" + i);
+        }
+
+        HyperLogLog copy = s1.copy();
+        s1.merge(s2);
+
+        assertEstimate(100000, s1.estimate());
+        assertEstimate(60000, copy.estimate());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentPrecisions() {
+        new HyperLogLog(10).merge(new HyperLogLog(12));
+    }
+
+    @Test
+    public void testClear() {
+        HyperLogLog sketch = new HyperLogLog(10);
+        sketch.add("urn:value");
+        sketch.clear();
+
+        Assert.assertEquals(0, sketch.estimate());
+    }
+
+    private static void assertEstimate(long expected, long actual) {
+        // the standard error is about 3.25% with a precision of 10
+        Assert.assertEquals(expected, actual, expected * 0.1);
+    }
+
+}
@@ -21,6 +21,7 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.NodeFactory;
 import com.hp.hpl.jena.rdf.model.AnonId;
 
@@ -198,6 +199,54 @@ public final class SemanticElementTest {
                 SemanticCoordinate.applyDopingFunction(NodeFactory.createURI("urn")));
     }
 
+    @Test
+    public void testParseElement23() {
+        // IPv6 authority
+        Assert.assertEquals(
+                "path",
+                SemanticCoordinate.applyDopingFunction(NodeFactory.createURI("http://[::1]/path")));
+    }
+
+    @Test
+    public void testParseElement24() {
+        // malformed escape pair, not a legal URI
+        Assert.assertEquals(
+                "http://www.inria.fr/a%zz",
+                SemanticCoordinate.applyDopingFunction(NodeFactory.createURI("http://www.inria.fr/a%zz")));
+    }
+
+    @Test
+    public void testParseElement25() {
+        Assert.assertEquals(
+                "b%20c",
+                SemanticCoordinate.applyDopingFunction(NodeFactory.createURI("http://www.inria.fr/a?q=1/b%20c")));
+    }
+
+    @Test
+    public void testParseElement26() {
+        // illegal character in query
+        Assert.assertEquals(
+                "http://www.inria.fr/a?q=<b>",
+                SemanticCoordinate.applyDopingFunction(NodeFactory.createURI("http://www.inria.fr/a?q=<b>")));
+    }
+
+    @Test
+    public void testMemoizingDopingFunction() {
+        LoadBalancingDopingFunction dopingFunction =
+                SemanticCoordinate.createMemoizingDopingFunction(
+                        SemanticCoordinate.createPrefixesRemovalDopingFunction(),
+                        10);
+
+        Node uri = NodeFactory.createURI("http://www.inria.fr/sophia/members");
+        String result = dopingFunction.apply(uri);
+
+        Assert.assertEquals("members", result);
+        Assert.assertSame(result, dopingFunction.apply(uri));
+        Assert.assertEquals(
+                "literal",
+                dopingFunction.apply(NodeFactory.createLiteral("literal")));
+    }
+
     @AfterClass
     public static void tearDown() {
         SemanticCoordinate.DOPING_FUNCTION = old;
@@ -16,11 +16,16 @@
  **/
 package fr.inria.eventcloud.overlay.can;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.jena.riot.RDFDataMgr;
 import org.junit.Assert;
 import org.junit.Test;
 import org.objectweb.proactive.api.PAFuture;
@@ -34,15 +39,18 @@ import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.NodeFactory;
 import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.sparql.core.Quad;
 import com.hp.hpl.jena.sparql.core.Var;
 import com.hp.hpl.jena.sparql.engine.binding.Binding;
 
 import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.api.Quadruple.SerializationFormat;
 import fr.inria.eventcloud.api.QuadruplePattern;
 import fr.inria.eventcloud.api.exceptions.MalformedSparqlQueryException;
 import fr.inria.eventcloud.api.generators.NodeGenerator;
 import fr.inria.eventcloud.api.generators.QuadrupleGenerator;
 import fr.inria.eventcloud.api.responses.SparqlAskResponse;
+import fr.inria.eventcloud.configuration.EventCloudProperties;
 import fr.inria.eventcloud.deployment.JunitByClassEventCloudDeployer;
 import fr.inria.eventcloud.overlay.SemanticPeer;
 
@@ -101,6 +109,50 @@ public class SemanticPeerTest extends JunitByClassEventCloudDeployer {
         Assert.assertEquals(quadruples.size(), quadruplesFound.size());
     }
 
+    @Test
+    public void testAddUrlWithBulkLoad() throws IOException {
+        Set<Quadruple> quadruples = new HashSet<Quadruple>();
+        List<Quad> quads = new ArrayList<Quad>();
+
+        for (int i = 0; i < 1000; i++) {
+            Quadruple q = QuadrupleGenerator.random();
+            quadruples.add(q);
+            quads.add(new Quad(
+                    q.getGraph(), q.getSubject(), q.getPredicate(),
+                    q.getObject()));
+        }
+
+        File file = File.createTempFile("bulk-load", ".nq");
+        file.deleteOnExit();
+
+        OutputStream out = new FileOutputStream(file);
+        try {
+            RDFDataMgr.writeQuads(out, quads.iterator());
+        } finally {
+            out.close();
+        }
+
+        EventCloudProperties.PUTGET_BULK_LOAD_ENABLED.setValue(true);
+        EventCloudProperties.PUTGET_BULK_LOAD_BATCH_SIZE.setValue(100);
+
+        try {
+            super.getPutGetProxy().add(
+                    file.toURI().toURL(), SerializationFormat.NQuads);
+        } finally {
+            EventCloudProperties.PUTGET_BULK_LOAD_ENABLED.setValue(false);
+            EventCloudProperties.PUTGET_BULK_LOAD_BATCH_SIZE.setValue(EventCloudProperties.PUTGET_BULK_LOAD_BATCH_SIZE.getDefaultValue());
+        }
+
+        List<Quadruple> quadruplesFound =
+                super.getPutGetProxy().find(QuadruplePattern.ANY);
+
+        for (Quadruple quad : quadruplesFound) {
+            Assert.assertTrue(quadruples.contains(quad));
+        }
+
+        Assert.assertEquals(quadruples.size(), quadruplesFound.size());
+    }
+
     @Test
     public void testContainsQuadruple() {
         Quadruple quadToCheck = QuadrupleGenerator.random();
@@ -159,6 +211,31 @@ public class SemanticPeerTest extends JunitByClassEventCloudDeployer {
                 .size());
     }
 
+    @Test
+    public void testAddAndDeleteCollectionQuadruples() {
+        List<Quadruple> quadruples = new ArrayList<Quadruple>();
+
+        for (int i = 0; i < 100; i++) {
+            quadruples.add(QuadrupleGenerator.random());
+        }
+
+        super.getPutGetProxy().add(quadruples);
+
+        Assert.assertEquals(100, super.getPutGetProxy().count(
+                QuadruplePattern.ANY));
+
+        super.getPutGetProxy().delete(quadruples.subList(0, 50));
+
+        List<Quadruple> quadruplesFound =
+                super.getPutGetProxy().find(QuadruplePattern.ANY);
+
+        Assert.assertEquals(50, quadruplesFound.size());
+
+        for (Quadruple quad : quadruplesFound) {
+            Assert.assertTrue(quadruples.subList(50, 100).contains(quad));
+        }
+    }
+
     @Test
     public void testDeleteQuadruples() {
         Set<Quadruple> quadruples = new HashSet<Quadruple>();
@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.overlay.can;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.zone.UnicodeZone;
+import org.objectweb.proactive.extensions.p2p.structured.utils.HomogenousPair;
+
+import fr.inria.eventcloud.api.SubscriptionId;
+import fr.inria.eventcloud.api.listeners.NotificationListenerType;
+import fr.inria.eventcloud.datastore.SubscriptionsRecordStore;
+import fr.inria.eventcloud.overlay.SemanticCanOverlay;
+import fr.inria.eventcloud.overlay.SemanticData;
+import fr.inria.eventcloud.providers.SemanticOverlayProvider;
+import fr.inria.eventcloud.pubsub.Subscription;
+
+/**
+ * Test the transfer of the subscriptions and of their records when the zone of
+ * a peer is split between itself and a joining peer.
+ * 
+ * @author lpellegr
+ */
+public class SubscriptionsRecordsTransferTest {
+
+    private static final String SUBSCRIBER_URL =
+            "rmi://localhost:1099/subscriber";
+
+    private SemanticCanOverlay landmark;
+
+    private SemanticCanOverlay joiner;
+
+    @Before
+    public void setUp() {
+        this.landmark = new SemanticOverlayProvider(true).get();
+        this.landmark.create();
+
+        this.joiner = new SemanticOverlayProvider(true).get();
+    }
+
+    @After
+    public void tearDown() {
+        this.landmark.close();
+        this.joiner.close();
+    }
+
+    @Test
+    public void testRecordsAfterSplit() {
+        UnicodeZone<SemanticCoordinate> zone =
+                new SemanticZone(
+                        this.landmark.getZone().getLowerBound(),
+                        this.landmark.getZone().getUpperBound());
+
+        HomogenousPair<UnicodeZone<SemanticCoordinate>> zones =
+                zone.split((byte) 0);
+
+        String movedTerm =
+                zones.getSecond()
+                        .getLowerBound()
+                        .getCoordinate((byte) 0)
+                        .getValue();
+        String keptTerm =
+                new String(Character.toChars(movedTerm.codePointAt(0) - 1));
+
+        // an original subscription is stored with the rewritten
+        // subscriptions of the same group in the graph of the original
+        // subscription, they are moved or kept together
+        Subscription kept = newSubscription(null, keptTerm);
+        Subscription keptRewritten = newSubscription(kept, movedTerm);
+        Subscription moved = newSubscription(null, movedTerm);
+        Subscription movedRewritten = newSubscription(moved, keptTerm);
+
+        this.landmark.storeSubscription(kept);
+        this.landmark.storeSubscription(keptRewritten);
+        this.landmark.storeSubscription(moved);
+        this.landmark.storeSubscription(movedRewritten);
+
+        SubscriptionsRecordStore landmarkRecords =
+                this.landmark.getSubscriptionsRecords();
+
+        Assert.assertEquals(4, landmarkRecords.size());
+
+        // split as performed by the landmark peer when a peer joins
+        this.landmark.setZone(zones.getFirst());
+        SemanticData data = this.landmark.removeDataIn(zones.getSecond());
+
+        this.joiner.setZone(zones.getSecond());
+        this.joiner.assignDataReceived(data);
+
+        Assert.assertEquals(2, landmarkRecords.size());
+        Assert.assertNotNull(landmarkRecords.get(kept.getId()));
+        Assert.assertNotNull(landmarkRecords.get(keptRewritten.getId()));
+        Assert.assertNull(landmarkRecords.get(moved.getId()));
+        Assert.assertNull(landmarkRecords.get(movedRewritten.getId()));
+
+        Assert.assertNull(this.landmark.findSubscription(moved.getId()));
+        Assert.assertNull(this.landmark.findSubscription(movedRewritten.getId()));
+
+        // the joining peer parses the subscriptions received from its
+        // datastore
+        Assert.assertEquals(0, this.joiner.getSubscriptionsRecords().size());
+        assertSameSubscription(
+                moved, this.joiner.findSubscription(moved.getId()));
+        assertSameSubscription(
+                movedRewritten,
+                this.joiner.findSubscription(movedRewritten.getId()));
+        Assert.assertNull(this.joiner.findSubscription(kept.getId()));
+    }
+
+    private static void assertSameSubscription(Subscription expected,
+                                               Subscription actual) {
+        Assert.assertNotNull(actual);
+        Assert.assertEquals(expected.getId(), actual.getId());
+        Assert.assertEquals(expected.getOriginalId(), actual.getOriginalId());
+        Assert.assertEquals(expected.getSparqlQuery(), actual.getSparqlQuery());
+    }
+
+    /*
+     * Creates a subscription indexed on the first dimension by the specified
+     * term. The subscription is a rewritten subscription of the specified
+     * parent when it is not null.
+     */
+    private static Subscription newSubscription(Subscription parent,
+                                                String term) {
+        SubscriptionId id = new SubscriptionId();
+
+        String sparqlQuery =
+                "SELECT ?s WHERE { GRAPH <http://namespace.org/" + term
+                        + "> { ?s ?p ?o } }";
+
+        if (parent == null) {
+            return new Subscription(
+                    id, null, id, System.currentTimeMillis(), sparqlQuery,
+                    SUBSCRIBER_URL, null, NotificationListenerType.BINDING);
+        }
+
+        return new Subscription(
+                parent.getOriginalId(), parent.getId(), id,
+                parent.getCreationTime(), sparqlQuery, SUBSCRIBER_URL, null,
+                NotificationListenerType.BINDING);
+    }
+
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.proxies;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.OverlayId;
+
+import fr.inria.eventcloud.api.responses.SparqlAskResponse;
+import fr.inria.eventcloud.messages.VersionedSparqlResponse;
+
+/**
+ * Test cases associated to {@link SparqlResponseCache}.
+ * 
+ * @author lpellegr
+ */
+public class SparqlResponseCacheTest {
+
+    private static final String QUERY = "ASK { GRAPH ?g { ?s ?p ?o } }";
+
+    private static final OverlayId PEER_ID = new OverlayId();
+
+    @Test
+    public void testHit() {
+        SparqlResponseCache cache = new SparqlResponseCache(10, 60000);
+        CountingLoader loader = new CountingLoader(0);
+
+        Assert.assertTrue(((SparqlAskResponse) cache.get(QUERY, loader)).getResult());
+        Assert.assertTrue(((SparqlAskResponse) cache.get(
+                "ASK {\n  GRAPH ?g {\n    ?s ?p ?o\n  }\n}", loader)).getResult());
+
+        Assert.assertEquals(1, loader.nbExecutions);
+        Assert.assertEquals(1, cache.getStats().getHitCount());
+        Assert.assertEquals(1, cache.getStats().getMissCount());
+        Assert.assertEquals(0.5, cache.getStats().getHitRate(), 0);
+    }
+
+    @Test
+    public void testInvalidation() {
+        SparqlResponseCache cache = new SparqlResponseCache(10, 60000);
+        CountingLoader loader = new CountingLoader(0);
+
+        cache.get(QUERY, loader);
+
+        // a peer visited by the query has been modified, the cache does not
+        // know it until a newer version is observed
+        loader.version++;
+        cache.get(QUERY, loader);
+        Assert.assertEquals(1, loader.nbExecutions);
+
+        // the response of another query reveals the modification
+        cache.observe(Collections.singletonMap(PEER_ID, loader.version));
+        cache.get(QUERY, loader);
+        cache.get(QUERY, loader);
+
+        Assert.assertEquals(2, loader.nbExecutions);
+        Assert.assertEquals(1, cache.getStats().getInvalidationCount());
+        Assert.assertEquals(2, cache.getStats().getHitCount());
+        Assert.assertEquals(2, cache.getStats().getMissCount());
+    }
+
+    @Test
+    public void testObserveOlderVersion() {
+        SparqlResponseCache cache = new SparqlResponseCache(10, 60000);
+        CountingLoader loader = new CountingLoader(2);
+
+        cache.get(QUERY, loader);
+
+        // versions are received out of order
+        cache.observe(Collections.singletonMap(PEER_ID, 1L));
+        cache.observe(Collections.singletonMap(new OverlayId(), 5L));
+        cache.get(QUERY, loader);
+
+        Assert.assertEquals(1, loader.nbExecutions);
+        Assert.assertEquals(0, cache.getStats().getInvalidationCount());
+    }
+
+    @Test
+    public void testInvalidateAllDuringExecution() {
+        final SparqlResponseCache cache = new SparqlResponseCache(10, 60000);
+        CountingLoader loader = new CountingLoader(0) {
+            @Override
+            public VersionedSparqlResponse execute() {
+                // a write made through the proxy while the query is executed
+                cache.invalidateAll();
+                return super.execute();
+            }
+        };
+
+        cache.get(QUERY, loader);
+        cache.get(QUERY, loader);
+
+        Assert.assertEquals(2, loader.nbExecutions);
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testExpiration() throws InterruptedException {
+        SparqlResponseCache cache = new SparqlResponseCache(10, 10);
+        CountingLoader loader = new CountingLoader(0);
+
+        cache.get(QUERY, loader);
+        Thread.sleep(50);
+        cache.get(QUERY, loader);
+
+        Assert.assertEquals(2, loader.nbExecutions);
+        Assert.assertEquals(0, cache.getStats().getHitCount());
+    }
+
+    @Test
+    public void testInvalidateAll() {
+        SparqlResponseCache cache = new SparqlResponseCache(10, 60000);
+        CountingLoader loader = new CountingLoader(0);
+
+        cache.get(QUERY, loader);
+        cache.invalidateAll();
+        cache.get(QUERY, loader);
+
+        Assert.assertEquals(2, loader.nbExecutions);
+        Assert.assertEquals(1, cache.size());
+    }
+
+    private static class CountingLoader implements
+            SparqlResponseCache.Loader {
+
+        private long version;
+
+        private int nbExecutions;
+
+        private CountingLoader(long version) {
+            this.version = version;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public VersionedSparqlResponse execute() {
+            this.nbExecutions++;
+
+            Map<OverlayId, Long> versions =
+                    Collections.singletonMap(PEER_ID, this.version);
+
+            return new VersionedSparqlResponse(new SparqlAskResponse(
+                    null, true), versions);
+        }
+
+    }
+
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.pubsub;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.proactive.extensions.p2p.structured.utils.Pair;
+
+import fr.inria.eventcloud.pubsub.RelationshipStrengthCache.RelationshipStrengthProvider;
+
+/**
+ * Test cases associated to {@link RelationshipStrengthCache}.
+ * 
+ * @author lpellegr
+ */
+public class RelationshipStrengthCacheTest {
+
+    private StubRelationshipStrengthProvider provider =
+            new StubRelationshipStrengthProvider();
+
+    private RelationshipStrengthCache cache;
+
+    @Test
+    public void testGetRelationshipStrength() {
+        this.cache =
+                new RelationshipStrengthCache(this.provider, 100, 60000, 60000, 2);
+
+        this.provider.setStrength("alice", "bob", 0.25);
+
+        Assert.assertEquals(
+                0.25, this.cache.getRelationshipStrength("alice", "bob"), 0);
+        Assert.assertEquals(
+                0.25, this.cache.getRelationshipStrength("alice", "bob"), 0);
+        Assert.assertEquals(
+                0.0, this.cache.getRelationshipStrength("alice", "carol"), 0);
+
+        Assert.assertEquals(2, this.provider.nbLookups.get());
+    }
+
+    @Test
+    public void testPrefetch() {
+        this.cache =
+                new RelationshipStrengthCache(this.provider, 100, 60000, 60000, 2);
+
+        List<Pair<String, String>> pairs =
+                new ArrayList<Pair<String, String>>();
+
+        for (int i = 0; i < 10; i++) {
+            this.provider.setStrength("source" + i, "destination", i / 10.0);
+            pairs.add(Pair.create("source" + i, "destination"));
+            // duplicates are looked up once
+            pairs.add(Pair.create("source" + i, "destination"));
+        }
+        // pairs with a null element are ignored
+        pairs.add(Pair.<String, String> create(null, "destination"));
+
+        this.cache.prefetch(pairs);
+
+        Assert.assertEquals(10, this.provider.nbLookups.get());
+        Assert.assertEquals(10, this.cache.size());
+
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(i / 10.0, this.cache.getRelationshipStrength(
+                    "source" + i, "destination"), 0);
+        }
+
+        // values are taken from the cache
+        Assert.assertEquals(10, this.provider.nbLookups.get());
+    }
+
+    @Test
+    public void testExpiration() throws InterruptedException {
+        this.cache = new RelationshipStrengthCache(this.provider, 100, 50, 50, 2);
+
+        this.provider.setStrength("alice", "bob", 0.25);
+        this.cache.getRelationshipStrength("alice", "bob");
+
+        this.provider.setStrength("alice", "bob", 0.75);
+        Thread.sleep(100);
+
+        Assert.assertEquals(
+                0.75, this.cache.getRelationshipStrength("alice", "bob"), 0);
+        Assert.assertEquals(2, this.provider.nbLookups.get());
+    }
+
+    @Test
+    public void testAsynchronousRefresh() throws InterruptedException {
+        this.cache =
+                new RelationshipStrengthCache(this.provider, 100, 60000, 50, 2);
+
+        this.provider.setStrength("alice", "bob", 0.25);
+        this.cache.getRelationshipStrength("alice", "bob");
+
+        this.provider.setStrength("alice", "bob", 0.75);
+        Thread.sleep(100);
+
+        // the refresh is triggered but the previous value is still returned
+        // if it has not completed
+        double strength = this.cache.getRelationshipStrength("alice", "bob");
+        Assert.assertTrue(strength == 0.25 || strength == 0.75);
+
+        long timeout = System.currentTimeMillis() + 5000;
+        while (this.cache.getRelationshipStrength("alice", "bob") != 0.75
+                && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals(
+                0.75, this.cache.getRelationshipStrength("alice", "bob"), 0);
+    }
+
+    @After
+    public void tearDown() {
+        if (this.cache != null) {
+            this.cache.shutdown();
+        }
+    }
+
+    private static final class StubRelationshipStrengthProvider implements
+            RelationshipStrengthProvider {
+
+        private final ConcurrentMap<Pair<String, String>, Double> strengths =
+                new ConcurrentHashMap<Pair<String, String>, Double>();
+
+        private final AtomicInteger nbLookups = new AtomicInteger();
+
+        public void setStrength(String source, String destination,
+                                double strength) {
+            this.strengths.put(Pair.create(source, destination), strength);
+        }
+
+        @Override
+        public double getRelationshipStrength(String source, String destination) {
+            this.nbLookups.incrementAndGet();
+
+            Double strength = this.strengths.get(Pair.create(source, destination));
+
+            return strength == null ? 0.0 : strength;
+        }
+
+    }
+
+}
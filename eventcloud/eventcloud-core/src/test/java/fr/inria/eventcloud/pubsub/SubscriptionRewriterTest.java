@@ -19,6 +19,7 @@ package fr.inria.eventcloud.pubsub;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.NodeFactory;
 import com.hp.hpl.jena.sparql.core.Var;
@@ -224,6 +225,63 @@ public class SubscriptionRewriterTest {
         SubscriptionRewriter.rewrite(subscription, BindingFactory.create());
     }
 
+    @Test
+    public void testRewriteGeneratesEquivalentSparqlQuery()
+            throws DecompositionException {
+        String sparqlQuery =
+                "SELECT ?s ?a1 WHERE { GRAPH ?g { ?s <http://v1> <http://v2> . ?s <http://v3> ?a1 . ?s <http://v4> ?a2 } }";
+
+        Subscription rewrittenSubscription =
+                SubscriptionRewriter.rewrite(
+                        createSubscription(sparqlQuery), defaultQuadruple);
+
+        Subscription parsedSubscription =
+                createSubscription(rewrittenSubscription.getSparqlQuery());
+
+        Subsubscription[] expected =
+                rewrittenSubscription.getSubSubscriptions();
+        Subsubscription[] actual = parsedSubscription.getSubSubscriptions();
+
+        Assert.assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertArrayEquals(expected[i].getAtomicQuery().toArray(),
+                    actual[i].getAtomicQuery().toArray());
+        }
+
+        Assert.assertEquals(
+                rewrittenSubscription.getResultVars(),
+                parsedSubscription.getResultVars());
+    }
+
+    @Test
+    public void testRewriteSubstitutesFilterConstraints()
+            throws DecompositionException {
+        String sparqlQuery =
+                "SELECT ?s WHERE { GRAPH ?g { ?s <http://v1> ?o1 . ?s <http://v2> ?o2 . FILTER (?o2 > 7) } }";
+
+        Subscription rewrittenSubscription =
+                SubscriptionRewriter.rewrite(
+                        createSubscription(sparqlQuery), defaultQuadruple);
+
+        AtomicQuery aq =
+                rewrittenSubscription.getSubSubscriptions()[0].getAtomicQuery();
+
+        Assert.assertEquals(defaultNode, aq.getSubject());
+        Assert.assertTrue(aq.isFilterEvaluationRequired());
+        Assert.assertNotNull(PublishSubscribeUtils.matches(
+                new Quadruple(
+                        defaultNode, defaultNode,
+                        NodeFactory.createURI("http://v2"),
+                        NodeFactory.createLiteral("8", XSDDatatype.XSDinteger)),
+                aq));
+        Assert.assertNull(PublishSubscribeUtils.matches(
+                new Quadruple(
+                        defaultNode, defaultNode,
+                        NodeFactory.createURI("http://v2"),
+                        NodeFactory.createLiteral("6", XSDDatatype.XSDinteger)),
+                aq));
+    }
+
     private static Subscription createSubscription(String sparqlQuery) {
         return new Subscription(
                 new SubscriptionId(), new SubscriptionId(),
@@ -21,6 +21,8 @@ import java.util.List;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.google.common.hash.HashCode;
+
 import fr.inria.eventcloud.api.Quadruple;
 import fr.inria.eventcloud.api.SubscriptionId;
 import fr.inria.eventcloud.api.listeners.NotificationListenerType;
@@ -80,4 +82,34 @@ public class SubscriptionTest {
         datastore.close();
     }
 
+    @Test
+    public void testParseSubscriptionFromBytes() {
+        String sparqlQuery =
+                "PREFIX foaf: <http://xmlns.com/foaf/0.1/> SELECT ?name ?mail WHERE { GRAPH ?g { ?id foaf:name \"Alice\"@en . ?id foaf:email ?email } }";
+
+        Subscription subscription =
+                new Subscription(
+                        new SubscriptionId(), null, new SubscriptionId(),
+                        System.currentTimeMillis(),
+                        System.currentTimeMillis(), sparqlQuery,
+                        "rmi://oops:1099", "http://example.org/endpoint",
+                        NotificationListenerType.BINDING);
+        subscription.addIntermediatePeerReference(
+                "rmi://peer:1099", HashCode.fromInt(42));
+
+        Subscription deserializedSubscription =
+                Subscription.parseFrom(subscription.toBytes());
+
+        Assert.assertEquals(
+                subscription.getIntermediatePeerReferences(),
+                deserializedSubscription.getIntermediatePeerReferences());
+        Assert.assertEquals(
+                subscription.getSubscriptionDestination(),
+                deserializedSubscription.getSubscriptionDestination());
+        Assert.assertNull(deserializedSubscription.getParentId());
+        Assert.assertEquals(
+                subscription.toQuadruples(),
+                deserializedSubscription.toQuadruples());
+    }
+
 }
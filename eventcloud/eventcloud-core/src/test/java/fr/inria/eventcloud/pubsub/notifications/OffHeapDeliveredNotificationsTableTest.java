@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.pubsub.notifications;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.hp.hpl.jena.graph.NodeFactory;
+
+import fr.inria.eventcloud.api.SubscriptionId;
+
+/**
+ * Test cases associated to {@link OffHeapDeliveredNotificationsTable}.
+ * 
+ * @author lpellegr
+ */
+public class OffHeapDeliveredNotificationsTableTest {
+
+    @Test
+    public void testAddAndContains() {
+        OffHeapDeliveredNotificationsTable table =
+                new OffHeapDeliveredNotificationsTable(1000, 4, 3600000, 12);
+
+        SubscriptionId subscriptionId = new SubscriptionId();
+        NotificationId notificationId =
+                createNotificationId(subscriptionId, 0);
+
+        Assert.assertFalse(table.contains(notificationId));
+        Assert.assertTrue(table.add(notificationId));
+        Assert.assertTrue(table.contains(notificationId));
+        Assert.assertFalse(table.add(createNotificationId(subscriptionId, 0)));
+
+        Assert.assertFalse(table.contains(createNotificationId(
+                new SubscriptionId(), 0)));
+    }
+
+    @Test
+    public void testRemoveEntriesFor() {
+        OffHeapDeliveredNotificationsTable table =
+                new OffHeapDeliveredNotificationsTable(1000, 4, 3600000, 12);
+
+        SubscriptionId s1 = new SubscriptionId();
+        SubscriptionId s2 = new SubscriptionId();
+
+        for (int i = 0; i < 100; i++) {
+            table.add(createNotificationId(s1, i));
+            table.add(createNotificationId(s2, i));
+        }
+
+        table.removeEntriesFor(s1);
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertFalse(table.contains(createNotificationId(s1, i)));
+            Assert.assertTrue(table.contains(createNotificationId(s2, i)));
+        }
+
+        // entries removed may be added again
+        Assert.assertTrue(table.add(createNotificationId(s1, 0)));
+    }
+
+    @Test
+    public void testCompaction() {
+        int maxEntries = 1000;
+
+        OffHeapDeliveredNotificationsTable table =
+                new OffHeapDeliveredNotificationsTable(
+                        maxEntries, 4, 3600000, 12);
+
+        // inserts and removes many more entries than the table can hold
+        for (int i = 0; i < 20; i++) {
+            SubscriptionId subscriptionId = new SubscriptionId();
+
+            for (int j = 0; j < maxEntries; j++) {
+                Assert.assertTrue(table.add(createNotificationId(
+                        subscriptionId, j)));
+            }
+
+            table.removeEntriesFor(subscriptionId);
+        }
+
+        Assert.assertTrue(table.usedSlots() <= 2 * maxEntries);
+    }
+
+    @Test
+    public void testClear() {
+        OffHeapDeliveredNotificationsTable table =
+                new OffHeapDeliveredNotificationsTable(1000, 4, 3600000, 12);
+
+        NotificationId notificationId =
+                createNotificationId(new SubscriptionId(), 0);
+
+        table.add(notificationId);
+        table.clear();
+
+        Assert.assertFalse(table.contains(notificationId));
+        Assert.assertEquals(0, table.usedSlots());
+    }
+
+    private static NotificationId createNotificationId(SubscriptionId subscriptionId,
+                                                       int eventIndex) {
+        return new NotificationId(
+                subscriptionId,
+                NodeFactory.createURI("urn:event:" + eventIndex));
+    }
+
+}
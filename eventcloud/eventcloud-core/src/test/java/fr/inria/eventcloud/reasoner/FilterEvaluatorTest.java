@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.reasoner;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.expr.ExprList;
+import com.hp.hpl.jena.sparql.util.ExprUtils;
+
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.exceptions.DecompositionException;
+import fr.inria.eventcloud.pubsub.PublishSubscribeUtils;
+import fr.inria.eventcloud.pubsub.PublishSubscribeUtils.BindingMap;
+
+/**
+ * Test cases associated to {@link FilterEvaluator}.
+ * 
+ * @author lpellegr
+ */
+public class FilterEvaluatorTest {
+
+    @Test
+    public void testConjunctionsAreSplit() {
+        FilterEvaluator evaluator =
+                FilterEvaluator.compile(parse("?o > 1 && ?o < 10 && regex(str(?s), \"^urn\")"));
+
+        Assert.assertTrue(evaluator.isCompiled());
+        Assert.assertEquals(3, evaluator.getNbConditions());
+    }
+
+    @Test
+    public void testUnsupportedExpressions() {
+        Assert.assertFalse(FilterEvaluator.compile(parse("?o < NOW()"))
+                .isCompiled());
+        Assert.assertFalse(FilterEvaluator.compile(
+                parse("EXISTS { ?s ?p ?o }")).isCompiled());
+    }
+
+    @Test
+    public void testEvaluate() {
+        FilterEvaluator evaluator =
+                FilterEvaluator.compile(parse("?o > 7 && regex(str(?s), \"^urn:s\")"));
+
+        Assert.assertTrue(evaluator.evaluate(binding("urn:s1", 8)));
+        Assert.assertFalse(evaluator.evaluate(binding("urn:s1", 7)));
+        Assert.assertFalse(evaluator.evaluate(binding("urn:x1", 8)));
+
+        // evaluation errors are considered as false
+        BindingMap binding = new BindingMap();
+        binding.add(Var.alloc("s"), NodeFactory.createURI("urn:s1"));
+        binding.add(Var.alloc("o"), NodeFactory.createURI("urn:o1"));
+        Assert.assertFalse(evaluator.evaluate(binding));
+    }
+
+    @Test
+    public void testMatchesWithFilter() throws DecompositionException {
+        AtomicQuery atomicQuery =
+                SparqlDecomposer.getInstance()
+                        .decompose(
+                                "SELECT ?g ?s ?o WHERE { GRAPH ?g { ?s <urn:p> ?o . FILTER (?o > 7) } }")
+                        .getAtomicQueries()
+                        .get(0);
+
+        Assert.assertTrue(atomicQuery.isFilterEvaluationRequired());
+        Assert.assertTrue(atomicQuery.getFilterEvaluator().isCompiled());
+
+        Assert.assertNotNull(PublishSubscribeUtils.matches(
+                quadruple("urn:p", 8), atomicQuery));
+        Assert.assertNull(PublishSubscribeUtils.matches(
+                quadruple("urn:p", 6), atomicQuery));
+        Assert.assertNull(PublishSubscribeUtils.matches(
+                quadruple("urn:p2", 8), atomicQuery));
+    }
+
+    private static List<ExprList> parse(String expr) {
+        return Collections.singletonList(new ExprList(ExprUtils.parse(expr)));
+    }
+
+    private static BindingMap binding(String subject, int object) {
+        BindingMap binding = new BindingMap();
+        binding.add(Var.alloc("s"), NodeFactory.createURI(subject));
+        binding.add(Var.alloc("o"), integer(object));
+
+        return binding;
+    }
+
+    private static Quadruple quadruple(String predicate, int object) {
+        return new Quadruple(
+                NodeFactory.createURI("urn:g"), NodeFactory.createURI("urn:s"),
+                NodeFactory.createURI(predicate), integer(object));
+    }
+
+    private static Node integer(int value) {
+        return NodeFactory.createLiteral(
+                Integer.toString(value), XSDDatatype.XSDinteger);
+    }
+
+}
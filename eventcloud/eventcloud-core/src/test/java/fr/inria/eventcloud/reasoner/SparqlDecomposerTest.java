@@ -150,6 +150,42 @@ public class SparqlDecomposerTest {
         this.decomposer.decompose("SELECT ?g WHERE { ?s ?p ?o }");
     }
 
+    @Test
+    public void testDecompositionsAreCached() throws DecompositionException {
+        this.decomposer.invalidateCache();
+
+        long hitCount = this.decomposer.getCacheStats().hitCount();
+
+        List<AtomicQuery> first =
+                this.decomposer.decompose(
+                        "SELECT ?s WHERE { GRAPH ?g { ?s <urn:p1> ?o1 . ?s <urn:p2> ?o2 } }")
+                        .getAtomicQueries();
+        List<AtomicQuery> second =
+                this.decomposer.decompose(
+                        "SELECT ?s\nWHERE {\n\tGRAPH ?g {\n\t\t?s <urn:p1> ?o1 .\n\t\t?s <urn:p2> ?o2\n\t}\n}\n")
+                        .getAtomicQueries();
+
+        assertTrue(first == second);
+        assertEquals(hitCount + 1, this.decomposer.getCacheStats().hitCount());
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals(
+                "SELECT ?s WHERE { GRAPH ?g { ?s ?p ?o } }",
+                SparqlDecomposer.normalize("  SELECT ?s\n  WHERE {\tGRAPH ?g { ?s ?p ?o } }  "));
+
+        // whitespaces in literals are significant
+        assertFalse(SparqlDecomposer.normalize(
+                "SELECT ?s WHERE { GRAPH ?g { ?s ?p \"a  b\" } }").equals(
+                SparqlDecomposer.normalize("SELECT ?s WHERE { GRAPH ?g { ?s ?p \"a b\" } }")));
+
+        // comments must still be terminated by a line break
+        assertEquals(
+                "SELECT ?s # comment\nWHERE { GRAPH ?g { ?s ?p ?o } }",
+                SparqlDecomposer.normalize("SELECT ?s # comment\n  WHERE { GRAPH ?g { ?s ?p ?o } }"));
+    }
+
     private static void assertCorrectDecomposition(List<AtomicQuery> atomicQueries,
                                                    int nbAtomicQueries,
                                                    int nbVariablePerAtomicQuery) {
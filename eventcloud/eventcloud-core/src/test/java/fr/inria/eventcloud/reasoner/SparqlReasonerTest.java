@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.reasoner;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
+
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.api.exceptions.MalformedSparqlQueryException;
+import fr.inria.eventcloud.datastore.stats.CardinalityStats;
+import fr.inria.eventcloud.messages.request.SparqlAtomicRequest;
+
+/**
+ * Test cases associated to the bind join performed by {@link SparqlReasoner}.
+ * 
+ * @author lpellegr
+ */
+public class SparqlReasonerTest {
+
+    private static final Node GRAPH = NodeFactory.createURI("urn:g");
+
+    private static final Node NAME = NodeFactory.createURI("urn:p:name");
+
+    private static final Node KNOWS = NodeFactory.createURI("urn:p:knows");
+
+    private static final String CONJUNCTIVE_QUERY =
+            "SELECT ?o WHERE { GRAPH ?g { ?s <urn:p:name> \"n1\" . ?s <urn:p:knows> ?o } }";
+
+    private CardinalityStats stats;
+
+    @Before
+    public void setUp() {
+        this.stats = new CardinalityStats();
+
+        for (int i = 0; i < 100; i++) {
+            Node subject = NodeFactory.createURI("urn:s:" + i);
+
+            this.stats.record(
+                    GRAPH, subject, NAME, NodeFactory.createLiteral("n" + i));
+
+            for (int j = 0; j < 10; j++) {
+                this.stats.record(
+                        GRAPH, subject, KNOWS,
+                        NodeFactory.createURI("urn:s:" + ((i + j) % 100)));
+            }
+        }
+    }
+
+    @Test
+    public void testSelectBindJoinOuter() throws MalformedSparqlQueryException {
+        List<SparqlAtomicRequest> requests =
+                SparqlReasoner.parse(CONJUNCTIVE_QUERY);
+
+        SparqlAtomicRequest outer =
+                SparqlReasoner.selectBindJoinOuter(
+                        CONJUNCTIVE_QUERY, requests, this.stats);
+
+        Assert.assertNotNull(outer);
+        Assert.assertEquals(NAME, outer.getAtomicQuery().getPredicate());
+    }
+
+    @Test
+    public void testSelectBindJoinOuterWithOptional()
+            throws MalformedSparqlQueryException {
+        String sparqlQuery =
+                "SELECT ?o WHERE { GRAPH ?g { ?s <urn:p:name> \"n1\" OPTIONAL { ?s <urn:p:knows> ?o } } }";
+
+        List<SparqlAtomicRequest> requests = SparqlReasoner.parse(sparqlQuery);
+
+        Assert.assertNull(SparqlReasoner.selectBindJoinOuter(
+                sparqlQuery, requests, this.stats));
+    }
+
+    @Test
+    public void testSelectBindJoinOuterWithoutSharedVariable()
+            throws MalformedSparqlQueryException {
+        String sparqlQuery =
+                "SELECT ?o WHERE { GRAPH ?g { ?s <urn:p:name> \"n1\" . ?s2 <urn:p:knows> ?o } }";
+
+        List<SparqlAtomicRequest> requests = SparqlReasoner.parse(sparqlQuery);
+
+        Assert.assertNull(SparqlReasoner.selectBindJoinOuter(
+                sparqlQuery, requests, this.stats));
+    }
+
+    @Test
+    public void testSelectBindJoinOuterWithUnselectiveSubQueries()
+            throws MalformedSparqlQueryException {
+        String sparqlQuery =
+                "SELECT ?o WHERE { GRAPH ?g { ?s <urn:p:name> ?n . ?s <urn:p:knows> ?o } }";
+
+        List<SparqlAtomicRequest> requests = SparqlReasoner.parse(sparqlQuery);
+
+        Assert.assertNull(SparqlReasoner.selectBindJoinOuter(
+                sparqlQuery, requests, this.stats));
+    }
+
+    @Test
+    public void testBindJoin() throws MalformedSparqlQueryException {
+        List<SparqlAtomicRequest> requests =
+                SparqlReasoner.parse(CONJUNCTIVE_QUERY);
+
+        SparqlAtomicRequest outer =
+                SparqlReasoner.selectBindJoinOuter(
+                        CONJUNCTIVE_QUERY, requests, this.stats);
+
+        Node s1 = NodeFactory.createURI("urn:s:1");
+        Node s2 = NodeFactory.createURI("urn:s:2");
+        Node n1 = NodeFactory.createLiteral("n1");
+
+        List<SparqlAtomicRequest> result =
+                SparqlReasoner.bindJoin(requests, outer, ImmutableList.of(
+                        new Quadruple(GRAPH, s1, NAME, n1),
+                        new Quadruple(GRAPH, s2, NAME, n1),
+                        new Quadruple(GRAPH, s1, NAME, n1)));
+
+        // the outer request and one bound request per distinct solution
+        Assert.assertEquals(3, result.size());
+        Assert.assertEquals(NAME, result.get(0).getAtomicQuery().getPredicate());
+
+        Node[] subjects = {s1, s2};
+
+        for (int i = 0; i < subjects.length; i++) {
+            AtomicQuery atomicQuery = result.get(i + 1).getAtomicQuery();
+
+            Assert.assertEquals(KNOWS, atomicQuery.getPredicate());
+            Assert.assertEquals(subjects[i], atomicQuery.getSubject());
+            Assert.assertTrue(atomicQuery.getGraph().isVariable());
+            Assert.assertTrue(atomicQuery.getObject().isVariable());
+        }
+    }
+
+    @Test
+    public void testBindJoinWithoutSolution()
+            throws MalformedSparqlQueryException {
+        List<SparqlAtomicRequest> requests =
+                SparqlReasoner.parse(CONJUNCTIVE_QUERY);
+
+        SparqlAtomicRequest outer =
+                SparqlReasoner.selectBindJoinOuter(
+                        CONJUNCTIVE_QUERY, requests, this.stats);
+
+        List<SparqlAtomicRequest> result =
+                SparqlReasoner.bindJoin(
+                        requests, outer, ImmutableList.<Quadruple> of());
+
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(NAME, result.get(0).getAtomicQuery().getPredicate());
+    }
+
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.utils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases associated to {@link TimerWheel}.
+ * 
+ * @author lpellegr
+ */
+public class TimerWheelTest {
+
+    @Test
+    public void testPollExpired() {
+        TimerWheel<Integer> wheel = new TimerWheel<Integer>(10, 8, 0);
+
+        wheel.schedule(1, 15);
+        wheel.schedule(2, 30);
+        // more than one revolution ahead
+        wheel.schedule(3, 200);
+
+        Assert.assertTrue(wheel.pollExpired(10, 100).isEmpty());
+        Assert.assertEquals(Arrays.asList(1), wheel.pollExpired(20, 100));
+        Assert.assertEquals(Arrays.asList(2), wheel.pollExpired(199, 100));
+        Assert.assertEquals(Arrays.asList(3), wheel.pollExpired(200, 100));
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testPollExpiredByBatches() {
+        TimerWheel<Integer> wheel = new TimerWheel<Integer>(10, 8, 0);
+
+        for (int i = 0; i < 25; i++) {
+            wheel.schedule(i, i * 5);
+        }
+
+        int nbPolled = 0;
+        List<Integer> batch = wheel.pollExpired(1000, 4);
+
+        while (!batch.isEmpty()) {
+            Assert.assertTrue(batch.size() <= 4);
+            nbPolled += batch.size();
+            batch = wheel.pollExpired(1000, 4);
+        }
+
+        Assert.assertEquals(25, nbPolled);
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testScheduleAlreadyExpired() {
+        TimerWheel<Integer> wheel = new TimerWheel<Integer>(10, 8, 1000);
+
+        wheel.schedule(1, 0);
+
+        Assert.assertEquals(Arrays.asList(1), wheel.pollExpired(1000, 100));
+    }
+
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.inria.eventcloud.api.CompoundEvent;
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.api.generators.CompoundEventGenerator;
+import fr.inria.eventcloud.api.generators.QuadrupleGenerator;
+
+/**
+ * Measures the cost of serializing and deserializing {@link Quadruple}s and
+ * {@link CompoundEvent}s, which is paid each time an event is routed between
+ * two peers that do not share the same JVM.
+ * 
+ * @author lpellegr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class EventExternalizationBenchmark {
+
+    @Param({"16", "128"})
+    public int nodeSize;
+
+    @Param({"10"})
+    public int compoundEventSize;
+
+    private Quadruple quadruple;
+
+    private CompoundEvent compoundEvent;
+
+    private byte[] serializedQuadruple;
+
+    private byte[] serializedCompoundEvent;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.quadruple = QuadrupleGenerator.random(this.nodeSize);
+        this.compoundEvent =
+                CompoundEventGenerator.random(this.compoundEventSize);
+
+        this.serializedQuadruple = serialize(this.quadruple);
+        this.serializedCompoundEvent = serialize(this.compoundEvent);
+    }
+
+    @Benchmark
+    public byte[] serializeQuadruple() throws IOException {
+        return serialize(this.quadruple);
+    }
+
+    @Benchmark
+    public Object deserializeQuadruple() throws IOException,
+            ClassNotFoundException {
+        return deserialize(this.serializedQuadruple);
+    }
+
+    @Benchmark
+    public byte[] serializeCompoundEvent() throws IOException {
+        return serialize(this.compoundEvent);
+    }
+
+    @Benchmark
+    public Object deserializeCompoundEvent() throws IOException,
+            ClassNotFoundException {
+        return deserialize(this.serializedCompoundEvent);
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(object);
+        oos.close();
+
+        return baos.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException,
+            ClassNotFoundException {
+        ObjectInputStream ois =
+                new ObjectInputStream(new ByteArrayInputStream(bytes));
+
+        try {
+            return ois.readObject();
+        } finally {
+            ois.close();
+        }
+    }
+
+}
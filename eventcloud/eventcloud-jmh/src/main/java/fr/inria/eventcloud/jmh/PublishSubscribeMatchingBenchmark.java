@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.proactive.extensions.p2p.structured.configuration.P2PStructuredProperties;
+import org.objectweb.proactive.extensions.p2p.structured.utils.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+
+import fr.inria.eventcloud.api.CompoundEvent;
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.api.SubscriptionId;
+import fr.inria.eventcloud.api.generators.QuadrupleGenerator;
+import fr.inria.eventcloud.api.listeners.NotificationListenerType;
+import fr.inria.eventcloud.exceptions.DecompositionException;
+import fr.inria.eventcloud.pubsub.PublishSubscribeUtils;
+import fr.inria.eventcloud.pubsub.PublishSubscribeUtils.BindingMap;
+import fr.inria.eventcloud.pubsub.Subscription;
+import fr.inria.eventcloud.reasoner.AtomicQuery;
+
+/**
+ * Measures the matching of publications against subscriptions as performed by
+ * peers with {@link PublishSubscribeUtils#matches(CompoundEvent, Subscription)}
+ * and {@link PublishSubscribeUtils#matches(Quadruple, AtomicQuery)}. The
+ * compound event used contains the three quadruples satisfying the
+ * subscription followed by {@code compoundEventSize - 3} quadruples that do
+ * not.
+ * 
+ * @author lpellegr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class PublishSubscribeMatchingBenchmark {
+
+    private static final String SUBSCRIPTION =
+            "SELECT ?g ?b WHERE { GRAPH ?g { ?a <urn:p1> ?b . ?a <urn:p2> ?c . ?a <urn:p3> ?d } }";
+
+    @Param({"3", "30"})
+    public int compoundEventSize;
+
+    private Subscription subscription;
+
+    private AtomicQuery firstAtomicQuery;
+
+    private CompoundEvent matchingEvent;
+
+    private CompoundEvent notMatchingEvent;
+
+    @Setup
+    public void setUp() throws DecompositionException {
+        P2PStructuredProperties.CAN_NB_DIMENSIONS.setValue((byte) 4);
+
+        this.subscription = createSubscription(SUBSCRIPTION);
+        // the decomposition is cached by the subscription once computed
+        this.firstAtomicQuery =
+                this.subscription.getSubSubscriptions()[0].getAtomicQuery();
+
+        Node graph = NodeFactory.createURI("urn:g");
+        Node subject = NodeFactory.createURI("urn:s");
+
+        List<Quadruple> matching = new ArrayList<Quadruple>();
+        List<Quadruple> notMatching = new ArrayList<Quadruple>();
+        for (int i = 1; i <= 3; i++) {
+            matching.add(new Quadruple(
+                    graph, subject, NodeFactory.createURI("urn:p" + i),
+                    NodeFactory.createLiteral("o" + i)));
+            notMatching.add(new Quadruple(
+                    graph, subject, NodeFactory.createURI("urn:q" + i),
+                    NodeFactory.createLiteral("o" + i)));
+        }
+
+        for (int i = 3; i < this.compoundEventSize; i++) {
+            Quadruple quadruple = QuadrupleGenerator.random(graph);
+            matching.add(quadruple);
+            notMatching.add(quadruple);
+        }
+
+        this.matchingEvent = new CompoundEvent(matching);
+        this.notMatchingEvent = new CompoundEvent(notMatching);
+    }
+
+    @Benchmark
+    public Pair<Binding, Integer> matchCompoundEvent() {
+        return PublishSubscribeUtils.matches(
+                this.matchingEvent, this.subscription);
+    }
+
+    @Benchmark
+    public Pair<Binding, Integer> rejectCompoundEvent() {
+        return PublishSubscribeUtils.matches(
+                this.notMatchingEvent, this.subscription);
+    }
+
+    @Benchmark
+    public BindingMap matchQuadruple() {
+        return PublishSubscribeUtils.matches(
+                this.matchingEvent.get(0), this.firstAtomicQuery);
+    }
+
+    static Subscription createSubscription(String sparqlQuery) {
+        return new Subscription(
+                new SubscriptionId(), new SubscriptionId(),
+                new SubscriptionId(), System.currentTimeMillis(),
+                System.currentTimeMillis(), sparqlQuery, null, null,
+                NotificationListenerType.BINDING);
+    }
+
+}
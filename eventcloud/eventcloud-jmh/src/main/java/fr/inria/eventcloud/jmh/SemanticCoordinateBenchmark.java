@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.proactive.extensions.p2p.structured.configuration.P2PStructuredProperties;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.zone.points.Point;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hp.hpl.jena.graph.Node;
+
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.api.generators.QuadrupleGenerator;
+import fr.inria.eventcloud.configuration.EventCloudProperties;
+import fr.inria.eventcloud.overlay.can.SemanticCoordinate;
+import fr.inria.eventcloud.overlay.can.SemanticPointFactory;
+
+/**
+ * Measures the creation of {@link SemanticCoordinate}s, and thus the cost of
+ * the doping function applied to each RDF term before it is used to route a
+ * message.
+ * 
+ * @author lpellegr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class SemanticCoordinateBenchmark {
+
+    @Param({"identity", "prefix-removal", "prefix-removal-memoized", "reverse"})
+    public String dopingFunction;
+
+    @Param({"64"})
+    public int nodeSize;
+
+    private Node uri;
+
+    private Node literal;
+
+    private Quadruple quadruple;
+
+    @Setup
+    public void setUp() {
+        P2PStructuredProperties.CAN_NB_DIMENSIONS.setValue((byte) 4);
+
+        if (this.dopingFunction.equals("prefix-removal")) {
+            SemanticCoordinate.DOPING_FUNCTION =
+                    SemanticCoordinate.createPrefixesRemovalDopingFunction();
+        } else if (this.dopingFunction.equals("prefix-removal-memoized")) {
+            SemanticCoordinate.DOPING_FUNCTION =
+                    SemanticCoordinate.createMemoizingDopingFunction(
+                            SemanticCoordinate.createPrefixesRemovalDopingFunction(),
+                            EventCloudProperties.LOAD_BALANCING_DOPING_FUNCTION_CACHE_SIZE.getDefaultValue());
+        } else if (this.dopingFunction.equals("reverse")) {
+            SemanticCoordinate.DOPING_FUNCTION =
+                    SemanticCoordinate.createReverseDopingFunction();
+        } else {
+            SemanticCoordinate.DOPING_FUNCTION =
+                    SemanticCoordinate.createIdentityDopingFunction();
+        }
+
+        this.quadruple = QuadrupleGenerator.randomWithoutLiteral(this.nodeSize);
+        this.uri = this.quadruple.getPredicate();
+        this.literal = QuadrupleGenerator.randomWithLiteral().getObject();
+    }
+
+    @Benchmark
+    public SemanticCoordinate newUriCoordinate() {
+        return new SemanticCoordinate(this.uri);
+    }
+
+    @Benchmark
+    public SemanticCoordinate newLiteralCoordinate() {
+        return new SemanticCoordinate(this.literal);
+    }
+
+    @Benchmark
+    public Point<SemanticCoordinate> newQuadruplePoint() {
+        return SemanticPointFactory.newSemanticCoordinate(this.quadruple);
+    }
+
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.proactive.extensions.p2p.structured.configuration.P2PStructuredProperties;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.zone.Zone;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.zone.points.Point;
+import org.objectweb.proactive.extensions.p2p.structured.utils.HomogenousPair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.inria.eventcloud.api.generators.QuadrupleGenerator;
+import fr.inria.eventcloud.overlay.can.SemanticCoordinate;
+import fr.inria.eventcloud.overlay.can.SemanticPointFactory;
+import fr.inria.eventcloud.overlay.can.SemanticZone;
+
+/**
+ * Measures the operations performed on {@link SemanticZone}s while routing
+ * messages ({@link Zone#contains(Point)}) and while peers join the network
+ * ({@link Zone#split(byte)}). The zone used is obtained by splitting the whole
+ * space {@code splitDepth} times along each dimension in turn, so that its
+ * bounds have a realistic precision.
+ * 
+ * @author lpellegr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class SemanticZoneBenchmark {
+
+    @Param({"0", "16"})
+    public int splitDepth;
+
+    private Zone<SemanticCoordinate> zone;
+
+    private Point<SemanticCoordinate> point;
+
+    private byte nextDimension;
+
+    @Setup
+    public void setUp() {
+        P2PStructuredProperties.CAN_NB_DIMENSIONS.setValue((byte) 4);
+
+        byte nbDimensions = P2PStructuredProperties.CAN_NB_DIMENSIONS.getValue();
+
+        this.zone = new SemanticZone();
+        for (int i = 0; i < this.splitDepth; i++) {
+            HomogenousPair<? extends Zone<SemanticCoordinate>> halves =
+                    this.zone.split((byte) (i % nbDimensions));
+            this.zone = halves.get(i % 2);
+        }
+
+        this.point =
+                SemanticPointFactory.newSemanticCoordinate(QuadrupleGenerator.random());
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return this.zone.contains(this.point);
+    }
+
+    @Benchmark
+    public HomogenousPair<? extends Zone<SemanticCoordinate>> split() {
+        byte dimension = this.nextDimension;
+        this.nextDimension =
+                (byte) ((dimension + 1) % P2PStructuredProperties.CAN_NB_DIMENSIONS.getValue());
+
+        return this.zone.split(dimension);
+    }
+
+}
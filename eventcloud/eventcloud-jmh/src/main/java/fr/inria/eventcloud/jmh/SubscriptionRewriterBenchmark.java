@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.proactive.extensions.p2p.structured.configuration.P2PStructuredProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hp.hpl.jena.graph.NodeFactory;
+
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.exceptions.DecompositionException;
+import fr.inria.eventcloud.pubsub.Subscription;
+import fr.inria.eventcloud.pubsub.SubscriptionRewriter;
+
+/**
+ * Measures {@link SubscriptionRewriter#rewrite(Subscription, Quadruple)},
+ * which is invoked by a peer each time a quadruple satisfies the first triple
+ * pattern of a subscription with several triple patterns.
+ * 
+ * @author lpellegr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class SubscriptionRewriterBenchmark {
+
+    private static final String SUBSCRIPTION =
+            "SELECT ?s ?a1 WHERE { GRAPH ?g { ?s <urn:p1> <urn:o1> . ?s <urn:p2> ?a1 . ?s <urn:p3> ?a2 } }";
+
+    private Subscription subscription;
+
+    private Quadruple quadruple;
+
+    @Setup
+    public void setUp() throws DecompositionException {
+        P2PStructuredProperties.CAN_NB_DIMENSIONS.setValue((byte) 4);
+
+        this.subscription =
+                PublishSubscribeMatchingBenchmark.createSubscription(SUBSCRIPTION);
+        // forces the decomposition of the original subscription so that only
+        // the rewriting is measured
+        this.subscription.getSubSubscriptions();
+
+        this.quadruple =
+                new Quadruple(
+                        NodeFactory.createURI("urn:g"),
+                        NodeFactory.createURI("urn:s"),
+                        NodeFactory.createURI("urn:p1"),
+                        NodeFactory.createURI("urn:o1"));
+    }
+
+    @Benchmark
+    public Subscription rewrite() {
+        return SubscriptionRewriter.rewrite(this.subscription, this.quadruple);
+    }
+
+    @Benchmark
+    public Object rewriteAndDecompose() throws DecompositionException {
+        return SubscriptionRewriter.rewrite(this.subscription, this.quadruple)
+                .getSubSubscriptions();
+    }
+
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.proactive.extensions.p2p.structured.configuration.P2PStructuredProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
+
+import fr.inria.eventcloud.api.Quadruple;
+import fr.inria.eventcloud.api.QuadruplePattern;
+import fr.inria.eventcloud.api.generators.QuadrupleGenerator;
+import fr.inria.eventcloud.datastore.AccessMode;
+import fr.inria.eventcloud.datastore.QuadrupleIterator;
+import fr.inria.eventcloud.datastore.TransactionalDatasetGraph;
+import fr.inria.eventcloud.datastore.TransactionalTdbDatastore;
+import fr.inria.eventcloud.datastore.TransactionalTdbDatastoreBuilder;
+
+/**
+ * Measures write and read transactions on an in-memory
+ * {@link TransactionalTdbDatastore}. A fresh datastore preloaded with
+ * {@code nbQuadruples} quadruples is created for each iteration so that the
+ * size of the datastore does not drift too much during a measurement.
+ * 
+ * @author lpellegr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class TransactionalDatasetGraphBenchmark {
+
+    private static final int NB_SUBJECTS = 100;
+
+    @Param({"1000", "100000"})
+    public int nbQuadruples;
+
+    private TransactionalTdbDatastore datastore;
+
+    private Node graph;
+
+    private Node[] subjects;
+
+    private int index;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        P2PStructuredProperties.CAN_NB_DIMENSIONS.setValue((byte) 4);
+
+        this.graph = NodeFactory.createURI("urn:g");
+        this.subjects = new Node[NB_SUBJECTS];
+        for (int i = 0; i < NB_SUBJECTS; i++) {
+            this.subjects[i] = NodeFactory.createURI("urn:s" + i);
+        }
+
+        this.datastore = new TransactionalTdbDatastoreBuilder().build();
+        this.datastore.open();
+
+        TransactionalDatasetGraph txnGraph =
+                this.datastore.begin(AccessMode.WRITE);
+        try {
+            for (int i = 0; i < this.nbQuadruples; i++) {
+                txnGraph.add(this.newQuadruple());
+            }
+            txnGraph.commit();
+        } finally {
+            txnGraph.end();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        this.datastore.close();
+    }
+
+    @Benchmark
+    public void add() {
+        TransactionalDatasetGraph txnGraph =
+                this.datastore.begin(AccessMode.WRITE);
+        try {
+            txnGraph.add(this.newQuadruple());
+            txnGraph.commit();
+        } finally {
+            txnGraph.end();
+        }
+    }
+
+    @Benchmark
+    public void find(Blackhole blackhole) {
+        TransactionalDatasetGraph txnGraph =
+                this.datastore.begin(AccessMode.READ_ONLY);
+        try {
+            QuadrupleIterator it =
+                    txnGraph.find(new QuadruplePattern(
+                            Node.ANY, this.nextSubject(), Node.ANY, Node.ANY));
+
+            while (it.hasNext()) {
+                blackhole.consume(it.next());
+            }
+        } finally {
+            txnGraph.end();
+        }
+    }
+
+    private Quadruple newQuadruple() {
+        Quadruple quadruple = QuadrupleGenerator.random(this.graph);
+
+        return new Quadruple(
+                this.graph, this.nextSubject(), quadruple.getPredicate(),
+                quadruple.getObject());
+    }
+
+    private Node nextSubject() {
+        this.index = (this.index + 1) % NB_SUBJECTS;
+
+        return this.subjects[this.index];
+    }
+
+}
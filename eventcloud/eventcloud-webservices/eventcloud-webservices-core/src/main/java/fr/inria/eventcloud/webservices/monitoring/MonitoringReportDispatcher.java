@@ -0,0 +1,309 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.webservices.monitoring;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Sends input/output monitoring reports asynchronously. Reports are buffered
+ * into a bounded queue that is consumed by a fixed number of workers. Each
+ * worker aggregates the reports targeting the same consumer endpoint during a
+ * short time window and hands them over to {@link #send(String, List)} in one
+ * go. Reports submitted while the queue is full are dropped and counted
+ * instead of blocking the caller.
+ * 
+ * @author lpellegr
+ */
+public abstract class MonitoringReportDispatcher {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(MonitoringReportDispatcher.class);
+
+    private final BlockingQueue<Report> queue;
+
+    private final ExecutorService workers;
+
+    private final long batchWindow;
+
+    private final int batchSize;
+
+    private final AtomicLong nbReportsSubmitted;
+
+    private final AtomicLong nbReportsDropped;
+
+    private final AtomicLong nbReportsSent;
+
+    private final AtomicLong nbReportsFailed;
+
+    private final AtomicLong nbMessagesSent;
+
+    /**
+     * Creates a new dispatcher and starts its workers.
+     * 
+     * @param queueCapacity
+     *            the maximum number of reports waiting to be sent.
+     * @param nbWorkers
+     *            the number of threads sending reports.
+     * @param batchWindow
+     *            the time window in milliseconds during which reports are
+     *            aggregated.
+     * @param batchSize
+     *            the maximum number of reports aggregated into a single batch.
+     */
+    public MonitoringReportDispatcher(int queueCapacity, int nbWorkers,
+            long batchWindow, int batchSize) {
+        Preconditions.checkArgument(
+                queueCapacity > 0, "Invalid queue capacity: %s", queueCapacity);
+        Preconditions.checkArgument(
+                nbWorkers > 0, "Invalid number of workers: %s", nbWorkers);
+        Preconditions.checkArgument(
+                batchWindow >= 0, "Invalid batch window: %s", batchWindow);
+        Preconditions.checkArgument(
+                batchSize > 0, "Invalid batch size: %s", batchSize);
+
+        this.queue = new ArrayBlockingQueue<Report>(queueCapacity);
+        this.batchWindow = TimeUnit.MILLISECONDS.toNanos(batchWindow);
+        this.batchSize = batchSize;
+
+        this.nbReportsSubmitted = new AtomicLong();
+        this.nbReportsDropped = new AtomicLong();
+        this.nbReportsSent = new AtomicLong();
+        this.nbReportsFailed = new AtomicLong();
+        this.nbMessagesSent = new AtomicLong();
+
+        this.workers =
+                Executors.newFixedThreadPool(
+                        nbWorkers, new ThreadFactoryBuilder().setNameFormat(
+                                this.getClass().getSimpleName()
+                                        + "-worker-%d").setDaemon(true).build());
+
+        for (int i = 0; i < nbWorkers; i++) {
+            this.workers.execute(new Worker());
+        }
+    }
+
+    /**
+     * Enqueues a report to send to the specified {@code consumerEndpoint}. The
+     * call never blocks: the report is dropped if the queue is full.
+     * 
+     * @param consumerEndpoint
+     *            the consumer endpoint the report is sent to.
+     * @param source
+     *            the event source.
+     * @param destination
+     *            the event destination.
+     * @param eventPublicationTimestamp
+     *            timestamp indicating when the event has been published.
+     * 
+     * @return {@code true} if the report has been enqueued, {@code false} if
+     *         it has been dropped.
+     */
+    public boolean submit(String consumerEndpoint, String source,
+                          String destination, long eventPublicationTimestamp) {
+        this.nbReportsSubmitted.incrementAndGet();
+
+        if (this.queue.offer(new Report(
+                consumerEndpoint, source, destination,
+                eventPublicationTimestamp))) {
+            return true;
+        }
+
+        long nbDropped = this.nbReportsDropped.incrementAndGet();
+        if (nbDropped == 1 || nbDropped % 1000 == 0) {
+            LOG.warn(
+                    "Monitoring reports queue is full, {} reports dropped so far",
+                    nbDropped);
+        }
+
+        return false;
+    }
+
+    /**
+     * Sends a batch of reports to the specified {@code consumerEndpoint}. This
+     * method is invoked concurrently by the workers and must be thread-safe.
+     * 
+     * @param consumerEndpoint
+     *            the consumer endpoint to send the reports to.
+     * @param reports
+     *            the reports to send, in submission order.
+     * 
+     * @throws Exception
+     *             if the reports cannot be sent.
+     */
+    protected abstract void send(String consumerEndpoint, List<Report> reports)
+            throws Exception;
+
+    /**
+     * Stops the workers. Reports that are still queued are discarded.
+     */
+    public void shutdown() {
+        this.workers.shutdownNow();
+        this.queue.clear();
+    }
+
+    public long getNbReportsSubmitted() {
+        return this.nbReportsSubmitted.get();
+    }
+
+    public long getNbReportsDropped() {
+        return this.nbReportsDropped.get();
+    }
+
+    public long getNbReportsSent() {
+        return this.nbReportsSent.get();
+    }
+
+    public long getNbReportsFailed() {
+        return this.nbReportsFailed.get();
+    }
+
+    public long getNbMessagesSent() {
+        return this.nbMessagesSent.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "submitted=" + this.nbReportsSubmitted + ", dropped="
+                + this.nbReportsDropped + ", sent=" + this.nbReportsSent
+                + ", failed=" + this.nbReportsFailed + ", messages="
+                + this.nbMessagesSent;
+    }
+
+    private Map<String, List<Report>> nextBatch() throws InterruptedException {
+        Map<String, List<Report>> batch =
+                new LinkedHashMap<String, List<Report>>();
+
+        Report report = this.queue.take();
+        long deadline = System.nanoTime() + this.batchWindow;
+        int nbReports = 0;
+
+        while (report != null) {
+            List<Report> reports = batch.get(report.consumerEndpoint);
+            if (reports == null) {
+                reports = new ArrayList<Report>();
+                batch.put(report.consumerEndpoint, reports);
+            }
+            reports.add(report);
+
+            if (++nbReports >= this.batchSize) {
+                break;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining > 0) {
+                report = this.queue.poll(remaining, TimeUnit.NANOSECONDS);
+            } else {
+                report = this.queue.poll();
+            }
+        }
+
+        return batch;
+    }
+
+    private class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                Map<String, List<Report>> batch;
+                try {
+                    batch = MonitoringReportDispatcher.this.nextBatch();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                for (Entry<String, List<Report>> entry : batch.entrySet()) {
+                    this.sendBatch(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        private void sendBatch(String consumerEndpoint, List<Report> reports) {
+            try {
+                MonitoringReportDispatcher.this.send(consumerEndpoint, reports);
+
+                MonitoringReportDispatcher.this.nbReportsSent.addAndGet(reports.size());
+                MonitoringReportDispatcher.this.nbMessagesSent.incrementAndGet();
+            } catch (Exception e) {
+                MonitoringReportDispatcher.this.nbReportsFailed.addAndGet(reports.size());
+                LOG.error("Failed to send " + reports.size()
+                        + " monitoring report(s) to " + consumerEndpoint, e);
+            }
+        }
+
+    }
+
+    /**
+     * An input/output monitoring report waiting to be sent.
+     */
+    public static final class Report {
+
+        private final String consumerEndpoint;
+
+        private final String source;
+
+        private final String destination;
+
+        private final long eventPublicationTimestamp;
+
+        Report(String consumerEndpoint, String source, String destination,
+                long eventPublicationTimestamp) {
+            this.consumerEndpoint = consumerEndpoint;
+            this.source = source;
+            this.destination = destination;
+            this.eventPublicationTimestamp = eventPublicationTimestamp;
+        }
+
+        public String getConsumerEndpoint() {
+            return this.consumerEndpoint;
+        }
+
+        public String getSource() {
+            return this.source;
+        }
+
+        public String getDestination() {
+            return this.destination;
+        }
+
+        public long getEventPublicationTimestamp() {
+            return this.eventPublicationTimestamp;
+        }
+
+    }
+
+}
@@ -18,11 +18,9 @@ package fr.inria.eventcloud.webservices.monitoring;
 
 import java.util.GregorianCalendar;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -38,12 +36,13 @@ import org.objectweb.proactive.Body;
 import org.objectweb.proactive.Service;
 import org.objectweb.proactive.core.component.body.ComponentInitActive;
 import org.objectweb.proactive.extensions.p2p.structured.AbstractComponent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import easybox.petalslink.com.esrawreport._1.EJaxbReportListType;
 import easybox.petalslink.com.esrawreport._1.EJaxbReportTimeStampType;
@@ -54,6 +53,7 @@ import fr.inria.eventcloud.configuration.EventCloudProperties;
 import fr.inria.eventcloud.monitoring.ProxyMonitoringActions;
 import fr.inria.eventcloud.translators.wsn.WsnHelper;
 import fr.inria.eventcloud.webservices.factories.WsClientFactory;
+import fr.inria.eventcloud.webservices.monitoring.MonitoringReportDispatcher.Report;
 
 /**
  * Concrete implementation for {@link ProxyMonitoringManager}.
@@ -64,6 +64,9 @@ import fr.inria.eventcloud.webservices.factories.WsClientFactory;
 public class ProxyMonitoringManagerImpl extends AbstractComponent implements
         ProxyMonitoringActions, ProxyMonitoringManager, ComponentInitActive {
 
+    private static final Logger LOG =
+            LoggerFactory.getLogger(ProxyMonitoringManagerImpl.class);
+
     /**
      * Name of the proxy monitoring manager non functional component.
      */
@@ -102,7 +105,7 @@ public class ProxyMonitoringManagerImpl extends AbstractComponent implements
 
     private Map<SubscriptionId, String> consumerEndpoints;
 
-    private ExecutorService cachedThreadPool;
+    private MonitoringReportDispatcher reportDispatcher;
 
     /**
      * Empty constructor required by ProActive.
@@ -170,75 +173,103 @@ public class ProxyMonitoringManagerImpl extends AbstractComponent implements
      * {@inheritDoc}
      */
     @Override
-    public void sendInputOutputMonitoringReport(final String source,
-                                                final String destination,
-                                                final long eventPublicationTimestamp) {
-        for (final String consumerEndpoint : this.consumerEndpoints.values()) {
-            this.getCachedThreadPool().execute(new Runnable() {
-
-                @Override
-                public void run() {
-                    try {
-                        ProxyMonitoringManagerImpl.this.notificationConsumerClients.get(
-                                consumerEndpoint)
-                                .notify(
-                                        createRawReport(
-                                                consumerEndpoint, source,
-                                                destination,
-                                                eventPublicationTimestamp));
-                    } catch (ExecutionException e) {
-                        e.printStackTrace();
-                    }
-                }
-            });
+    public void sendInputOutputMonitoringReport(String source,
+                                                String destination,
+                                                long eventPublicationTimestamp) {
+        for (String consumerEndpoint : this.consumerEndpoints.values()) {
+            this.getReportDispatcher().submit(
+                    consumerEndpoint, source, destination,
+                    eventPublicationTimestamp);
         }
     }
 
-    private synchronized ExecutorService getCachedThreadPool() {
-        if (this.cachedThreadPool == null) {
-            this.cachedThreadPool =
-                    Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat(
-                            this.getClass().getSimpleName() + "-pool-thread-%d")
-                            .build());
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void endComponentActivity(Body body) {
+        synchronized (this) {
+            if (this.reportDispatcher != null) {
+                this.reportDispatcher.shutdown();
+                LOG.info(
+                        "Input/output monitoring reports: {}",
+                        this.reportDispatcher);
+                this.reportDispatcher = null;
+            }
         }
 
-        return this.cachedThreadPool;
+        super.endComponentActivity(body);
     }
 
+    private synchronized MonitoringReportDispatcher getReportDispatcher() {
+        if (this.reportDispatcher == null) {
+            this.reportDispatcher =
+                    new MonitoringReportDispatcher(
+                            EventCloudProperties.MONITORING_REPORTS_QUEUE_CAPACITY.getValue(),
+                            EventCloudProperties.MONITORING_REPORTS_WORKERS.getValue(),
+                            EventCloudProperties.MONITORING_REPORTS_BATCH_WINDOW.getValue(),
+                            EventCloudProperties.MONITORING_REPORTS_BATCH_SIZE.getValue()) {
+                        @Override
+                        protected void send(String consumerEndpoint,
+                                            List<Report> reports)
+                                throws Exception {
+                            ProxyMonitoringManagerImpl.this.notificationConsumerClients.get(
+                                    consumerEndpoint)
+                                    .notify(
+                                            createRawReport(
+                                                    consumerEndpoint, reports));
+                        }
+                    };
+        }
+
+        return this.reportDispatcher;
+    }
+
+    /**
+     * Creates a notify message embedding a single report list with all the
+     * specified {@code reports}. The producer of the message is the source of
+     * the first report.
+     */
     private static Notify createRawReport(String consumerEndpoint,
-                                          String source, String destination,
-                                          long eventPublicationTimestamp) {
+                                          List<Report> reports) {
         easybox.petalslink.com.esrawreport._1.ObjectFactory factory =
                 new ObjectFactory();
 
-        EJaxbReportType reportType = factory.createEJaxbReportType();
-        reportType.setExchangeId(UUID.randomUUID().toString());
-        reportType.setTimeStamp(EJaxbReportTimeStampType.T_1);
-
+        DatatypeFactory datatypeFactory;
         try {
-            GregorianCalendar gc = new GregorianCalendar();
-            gc.setTimeInMillis(eventPublicationTimestamp);
-            reportType.setDateInGMT(DatatypeFactory.newInstance()
-                    .newXMLGregorianCalendar(gc));
+            datatypeFactory = DatatypeFactory.newInstance();
         } catch (DatatypeConfigurationException e) {
             throw new IllegalStateException(e);
         }
 
-        reportType.setConsumerEndpointAddress(destination);
-        reportType.setOperationName("http://com.petalslink.esstar/service/management/user/1.0/Notify");
-        reportType.setInterfaceQName(INTERFACE_QNAME);
-        reportType.setProviderEndpointAddress(source);
-
-        // TODO the following field should contain the size in bytes of the
-        // event that is notified to a subscriber. However, to compute this
-        // value is costly and should be done only if this is really required
-        reportType.setContentLength(-1);
-        reportType.setDoesThisResponseIsAnException(false);
-        reportType.setEndpointName("EventCloud");
+        GregorianCalendar gc = new GregorianCalendar();
 
         EJaxbReportListType reportTypeList =
                 factory.createEJaxbReportListType();
-        reportTypeList.getReport().add(reportType);
+
+        for (Report report : reports) {
+            EJaxbReportType reportType = factory.createEJaxbReportType();
+            reportType.setExchangeId(UUID.randomUUID().toString());
+            reportType.setTimeStamp(EJaxbReportTimeStampType.T_1);
+
+            gc.setTimeInMillis(report.getEventPublicationTimestamp());
+            reportType.setDateInGMT(datatypeFactory.newXMLGregorianCalendar(gc));
+
+            reportType.setConsumerEndpointAddress(report.getDestination());
+            reportType.setOperationName("http://com.petalslink.esstar/service/management/user/1.0/Notify");
+            reportType.setInterfaceQName(INTERFACE_QNAME);
+            reportType.setProviderEndpointAddress(report.getSource());
+
+            // TODO the following field should contain the size in bytes of
+            // the event that is notified to a subscriber. However, to compute
+            // this value is costly and should be done only if this is really
+            // required
+            reportType.setContentLength(-1);
+            reportType.setDoesThisResponseIsAnException(false);
+            reportType.setEndpointName("EventCloud");
+
+            reportTypeList.getReport().add(reportType);
+        }
 
         DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
         dbf.setNamespaceAware(true);
@@ -246,14 +277,12 @@ public class ProxyMonitoringManagerImpl extends AbstractComponent implements
         try {
             Document doc = dbf.newDocumentBuilder().newDocument();
 
-            JAXBContext.newInstance(
-                    easybox.petalslink.com.esrawreport._1.ObjectFactory.class)
-                    .createMarshaller()
-                    .marshal(factory.createReportList(reportTypeList), doc);
+            RawReportContextHolder.CONTEXT.createMarshaller().marshal(
+                    factory.createReportList(reportTypeList), doc);
 
             return WsnHelper.createNotifyMessage(
-                    consumerEndpoint, RAW_REPORT_QNAME, source,
-                    doc.getDocumentElement());
+                    consumerEndpoint, RAW_REPORT_QNAME,
+                    reports.get(0).getSource(), doc.getDocumentElement());
         } catch (ParserConfigurationException e) {
             throw new IllegalStateException(e);
         } catch (JAXBException e) {
@@ -261,4 +290,23 @@ public class ProxyMonitoringManagerImpl extends AbstractComponent implements
         }
     }
 
+    /**
+     * Lazily creates the JAXB context used to marshal raw reports, which is
+     * costly to build and thread-safe.
+     */
+    private static class RawReportContextHolder {
+
+        private static final JAXBContext CONTEXT;
+
+        static {
+            try {
+                CONTEXT =
+                        JAXBContext.newInstance(easybox.petalslink.com.esrawreport._1.ObjectFactory.class);
+            } catch (JAXBException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+    }
+
 }
@@ -35,6 +35,7 @@ import fr.inria.eventcloud.api.Subscription;
 import fr.inria.eventcloud.api.SubscriptionId;
 import fr.inria.eventcloud.api.generators.CompoundEventGenerator;
 import fr.inria.eventcloud.api.listeners.SignalNotificationListener;
+import fr.inria.eventcloud.configuration.EventCloudProperties;
 import fr.inria.eventcloud.exceptions.EventCloudIdNotManaged;
 import fr.inria.eventcloud.factories.EventCloudsRegistryFactory;
 import fr.inria.eventcloud.factories.ProxyFactory;
@@ -99,6 +100,9 @@ public class InputOutputMonitoringTest extends WsTest {
 
     @Before
     public void setUp() throws ProActiveException, EventCloudIdNotManaged {
+        // one notify message is expected per report
+        EventCloudProperties.MONITORING_REPORTS_BATCH_SIZE.setValue(1);
+
         this.initializeEventCloudsInfrastructure();
         this.initializeJavaProxies();
         this.initializeWebServices();
@@ -262,6 +266,8 @@ public class InputOutputMonitoringTest extends WsTest {
         this.eventCloudsManagementServer.destroy();
         this.monitoringServer.destroy();
         this.notificationConsumerServer.destroy();
+
+        EventCloudProperties.MONITORING_REPORTS_BATCH_SIZE.setValue(EventCloudProperties.MONITORING_REPORTS_BATCH_SIZE.getDefaultValue());
     }
 
 }
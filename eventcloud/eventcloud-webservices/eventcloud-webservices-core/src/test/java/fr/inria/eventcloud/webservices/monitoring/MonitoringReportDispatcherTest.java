@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package fr.inria.eventcloud.webservices.monitoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.inria.eventcloud.webservices.monitoring.MonitoringReportDispatcher.Report;
+
+/**
+ * Test cases associated to {@link MonitoringReportDispatcher}.
+ * 
+ * @author lpellegr
+ */
+public class MonitoringReportDispatcherTest {
+
+    private RecordingDispatcher dispatcher;
+
+    @Test(timeout = 10000)
+    public void testReportsAggregatedPerConsumerEndpoint()
+            throws InterruptedException {
+        this.dispatcher = new RecordingDispatcher(16, 1, 1000, 100, 8);
+
+        for (int i = 0; i < 5; i++) {
+            this.dispatcher.submit("urn:consumer1", "urn:source", "urn:destination", i);
+        }
+        for (int i = 0; i < 3; i++) {
+            this.dispatcher.submit("urn:consumer2", "urn:source", "urn:destination", i);
+        }
+
+        this.dispatcher.await();
+
+        Assert.assertEquals(2, this.dispatcher.getNbMessagesSent());
+        Assert.assertEquals(8, this.dispatcher.getNbReportsSent());
+        Assert.assertEquals("urn:consumer1", this.dispatcher.endpoints.get(0));
+        Assert.assertEquals(5, this.dispatcher.batchSizes.get(0).intValue());
+        Assert.assertEquals("urn:consumer2", this.dispatcher.endpoints.get(1));
+        Assert.assertEquals(3, this.dispatcher.batchSizes.get(1).intValue());
+    }
+
+    @Test(timeout = 10000)
+    public void testBatchSizeOfOneDisablesAggregation()
+            throws InterruptedException {
+        this.dispatcher = new RecordingDispatcher(16, 1, 1000, 1, 4);
+
+        for (int i = 0; i < 4; i++) {
+            this.dispatcher.submit("urn:consumer", "urn:source", "urn:destination", i);
+        }
+
+        this.dispatcher.await();
+
+        Assert.assertEquals(4, this.dispatcher.getNbMessagesSent());
+        Assert.assertEquals(4, this.dispatcher.getNbReportsSent());
+    }
+
+    @Test(timeout = 10000)
+    public void testReportsDroppedWhenQueueIsFull() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+
+        this.dispatcher = new RecordingDispatcher(2, 1, 0, 1, 3) {
+            @Override
+            protected void send(String consumerEndpoint, List<Report> reports)
+                    throws Exception {
+                blocked.countDown();
+                released.await();
+                super.send(consumerEndpoint, reports);
+            }
+        };
+
+        // the first report is taken by the worker which then blocks
+        Assert.assertTrue(this.dispatcher.submit(
+                "urn:consumer", "urn:source", "urn:destination", 0));
+        blocked.await();
+
+        // two reports fill the queue, the next ones are dropped
+        for (int i = 1; i <= 5; i++) {
+            this.dispatcher.submit("urn:consumer", "urn:source", "urn:destination", i);
+        }
+
+        released.countDown();
+        this.dispatcher.await();
+
+        Assert.assertEquals(6, this.dispatcher.getNbReportsSubmitted());
+        Assert.assertEquals(3, this.dispatcher.getNbReportsDropped());
+        Assert.assertEquals(3, this.dispatcher.getNbReportsSent());
+    }
+
+    @Test(timeout = 10000)
+    public void testFailedSendCounted() throws InterruptedException {
+        this.dispatcher = new RecordingDispatcher(16, 1, 0, 10, 1) {
+            @Override
+            protected void send(String consumerEndpoint, List<Report> reports)
+                    throws Exception {
+                super.send(consumerEndpoint, reports);
+                throw new IllegalStateException("consumer unreachable");
+            }
+        };
+
+        this.dispatcher.submit("urn:consumer", "urn:source", "urn:destination", 0);
+        this.dispatcher.await();
+
+        // waits for the worker to update the counters after the failure
+        while (this.dispatcher.getNbReportsFailed() == 0) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals(0, this.dispatcher.getNbReportsSent());
+        Assert.assertEquals(1, this.dispatcher.getNbReportsFailed());
+    }
+
+    @After
+    public void tearDown() {
+        if (this.dispatcher != null) {
+            this.dispatcher.shutdown();
+        }
+    }
+
+    private static class RecordingDispatcher extends
+            MonitoringReportDispatcher {
+
+        private final List<String> endpoints = new ArrayList<String>();
+
+        private final List<Integer> batchSizes = new ArrayList<Integer>();
+
+        private final CountDownLatch reportsReceived;
+
+        public RecordingDispatcher(int queueCapacity, int nbWorkers,
+                long batchWindow, int batchSize, int nbReportsExpected) {
+            super(queueCapacity, nbWorkers, batchWindow, batchSize);
+            this.reportsReceived = new CountDownLatch(nbReportsExpected);
+        }
+
+        @Override
+        protected synchronized void send(String consumerEndpoint,
+                                         List<Report> reports)
+                throws Exception {
+            this.endpoints.add(consumerEndpoint);
+            this.batchSizes.add(reports.size());
+
+            for (int i = 0; i < reports.size(); i++) {
+                this.reportsReceived.countDown();
+            }
+        }
+
+        public void await() throws InterruptedException {
+            this.reportsReceived.await(5, TimeUnit.SECONDS);
+
+            // lets the worker update the counters once the last batch is sent
+            Thread.sleep(100);
+        }
+
+    }
+
+}
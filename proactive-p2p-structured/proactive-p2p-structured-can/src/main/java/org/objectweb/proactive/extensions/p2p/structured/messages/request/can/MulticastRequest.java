@@ -42,7 +42,7 @@ public class MulticastRequest<E extends Coordinate> extends Request<Point<E>> {
 
     private static final long serialVersionUID = 160L;
 
-    protected final ReversePathStack<E> reversePathStack;
+    protected ReversePathStack<E> reversePathStack;
 
     /**
      * Constructs a new message with the specified {@code validator} but with no
@@ -97,6 +97,21 @@ public class MulticastRequest<E extends Coordinate> extends Request<Point<E>> {
         return ((MulticastConstraintsValidator<E>) super.constraintsValidator).validatesKeyConstraints(zone);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public MulticastRequest<E> copyForLocalDelivery() {
+        MulticastRequest<E> result =
+                (MulticastRequest<E>) super.copyForLocalDelivery();
+        // the stack is updated by each peer the message goes through
+        result.reversePathStack =
+                (ReversePathStack<E>) this.reversePathStack.clone();
+
+        return result;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -119,6 +119,23 @@ public class MulticastResponse<E extends Coordinate> extends Response<Point<E>>
         return new BroadcastResponseRouter<MulticastResponse<E>, E>();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public MulticastResponse<E> copyForLocalDelivery() {
+        MulticastResponse<E> result =
+                (MulticastResponse<E>) super.copyForLocalDelivery();
+        // entries are popped by each peer the response goes through
+        if (this.reversePathStack != null) {
+            result.reversePathStack =
+                    (ReversePathStack<E>) this.reversePathStack.clone();
+        }
+
+        return result;
+    }
+
     /**
      * Merges the specified {@code responseReceived} with the current one. This
      * method has to be overridden to merge the data received as result with an
@@ -20,7 +20,7 @@ import org.objectweb.proactive.core.ProActiveRuntimeException;
 import org.objectweb.proactive.extensions.p2p.structured.configuration.P2PStructuredProperties;
 import org.objectweb.proactive.extensions.p2p.structured.messages.ResponseEntry;
 import org.objectweb.proactive.extensions.p2p.structured.messages.response.can.MulticastResponse;
-import org.objectweb.proactive.extensions.p2p.structured.overlay.PeerInternal;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.LocalTransport;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.StructuredOverlay;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.can.CanOverlay;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.can.NeighborEntry;
@@ -210,7 +210,8 @@ public class BroadcastResponseRouter<T extends MulticastResponse<E>, E extends C
         }
 
         try {
-            ((PeerInternal) neighborChosen.getStub()).forward(response);
+            LocalTransport.forward(
+                    neighborChosen.getId(), neighborChosen.getStub(), response);
         } catch (ProActiveRuntimeException e) {
             LOG.error("Error while forwarding a message to the neighbor managing "
                     + neighborChosen.getZone());
@@ -28,8 +28,8 @@ import org.objectweb.proactive.extensions.p2p.structured.messages.ReversePathEnt
 import org.objectweb.proactive.extensions.p2p.structured.messages.request.can.EfficientBroadcastRequest;
 import org.objectweb.proactive.extensions.p2p.structured.messages.request.can.MulticastRequest;
 import org.objectweb.proactive.extensions.p2p.structured.messages.response.can.MulticastResponse;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.LocalTransport;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.Peer;
-import org.objectweb.proactive.extensions.p2p.structured.overlay.PeerInternal;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.StructuredOverlay;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.can.CanOverlay;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.can.CanRequestResponseManager;
@@ -128,7 +128,7 @@ public class EfficientBroadcastRequestRouter<T extends MulticastRequest<E>, E ex
                 response.setIsEmpty(true);
 
                 // sends back an empty response
-                canOverlay.getStub().route(response);
+                LocalTransport.route(overlay, response);
             }
         } else {
             // the current overlay validates the constraints
@@ -255,7 +255,9 @@ public class EfficientBroadcastRequestRouter<T extends MulticastRequest<E>, E ex
                             }
 
                             request.setDirections(neighborEntry.getDirections());
-                            ((PeerInternal) p).forward(request);
+                            LocalTransport.forward(
+                                    neighborEntry.getNeighborEntry().getId(),
+                                    p, request);
                         }
                     }
                 }
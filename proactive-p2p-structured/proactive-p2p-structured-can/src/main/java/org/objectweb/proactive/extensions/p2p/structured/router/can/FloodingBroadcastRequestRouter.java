@@ -28,8 +28,8 @@ import org.objectweb.proactive.extensions.p2p.structured.messages.ResponseEntry;
 import org.objectweb.proactive.extensions.p2p.structured.messages.ReversePathEntry;
 import org.objectweb.proactive.extensions.p2p.structured.messages.request.can.MulticastRequest;
 import org.objectweb.proactive.extensions.p2p.structured.messages.response.can.MulticastResponse;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.LocalTransport;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.Peer;
-import org.objectweb.proactive.extensions.p2p.structured.overlay.PeerInternal;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.StructuredOverlay;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.can.CanOverlay;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.can.CanRequestResponseManager;
@@ -128,7 +128,7 @@ public class FloodingBroadcastRequestRouter<T extends MulticastRequest<E>, E ext
                 response.setIsEmpty(true);
 
                 // sends back an empty response
-                canOverlay.getStub().route(response);
+                LocalTransport.route(overlay, response);
             }
         } else {
             // the current overlay validates the constraints
@@ -240,14 +240,16 @@ public class FloodingBroadcastRequestRouter<T extends MulticastRequest<E>, E ext
                                         .iterator();
 
                         while (it.hasNext()) {
-                            Peer p = it.next().getStub();
+                            NeighborEntry<E> neighborEntry = it.next();
+                            Peer p = neighborEntry.getStub();
 
                             if (LOG.isDebugEnabled()) {
                                 LOG.debug("Sending request " + request.getId()
                                         + " from " + overlay + " to " + p);
                             }
 
-                            ((PeerInternal) p).forward(request);
+                            LocalTransport.forward(
+                                    neighborEntry.getId(), p, request);
                         }
                     }
                 }
@@ -370,7 +372,8 @@ public class FloodingBroadcastRequestRouter<T extends MulticastRequest<E>, E ext
                                         .getLowerBound()));
             }
 
-            ((PeerInternal) neighborChosen.getStub()).forward(request);
+            LocalTransport.forward(
+                    neighborChosen.getId(), neighborChosen.getStub(), request);
         } catch (ProActiveRuntimeException e) {
             LOG.error("Error while sending the message to the neighbor managing "
                     + neighborChosen.getZone());
@@ -28,8 +28,8 @@ import org.objectweb.proactive.extensions.p2p.structured.messages.ReversePathEnt
 import org.objectweb.proactive.extensions.p2p.structured.messages.request.can.MulticastRequest;
 import org.objectweb.proactive.extensions.p2p.structured.messages.request.can.OptimalBroadcastRequest;
 import org.objectweb.proactive.extensions.p2p.structured.messages.response.can.MulticastResponse;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.LocalTransport;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.Peer;
-import org.objectweb.proactive.extensions.p2p.structured.overlay.PeerInternal;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.StructuredOverlay;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.can.CanOverlay;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.can.CanRequestResponseManager;
@@ -137,7 +137,7 @@ public class OptimalBroadcastRequestRouter<T extends MulticastRequest<E>, E exte
                 response.setIsEmpty(true);
 
                 // sends back an empty response
-                canOverlay.getStub().route(response);
+                LocalTransport.route(overlay, response);
             }
         } else {
             // the current peer validates the constraints
@@ -270,7 +270,9 @@ public class OptimalBroadcastRequestRouter<T extends MulticastRequest<E>, E exte
 
                             request.setDirections(neighborEntry.getDirections());
                             request.setSplitPlans(neighborEntry.getSplitPlans());
-                            ((PeerInternal) p).forward(request);
+                            LocalTransport.forward(
+                                    neighborEntry.getNeighborEntry().getId(),
+                                    p, request);
                         }
                     }
                 }
@@ -21,8 +21,8 @@ import org.objectweb.proactive.extensions.p2p.structured.configuration.P2PStruct
 import org.objectweb.proactive.extensions.p2p.structured.messages.Message;
 import org.objectweb.proactive.extensions.p2p.structured.messages.Request;
 import org.objectweb.proactive.extensions.p2p.structured.messages.Response;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.LocalTransport;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.Peer;
-import org.objectweb.proactive.extensions.p2p.structured.overlay.PeerInternal;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.StructuredOverlay;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.can.CanOverlay;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.can.NeighborEntry;
@@ -87,17 +87,50 @@ public class UnicastRequestRouter<T extends Request<Point<E>>, E extends Coordin
     @Override
     @SuppressWarnings("unchecked")
     protected void route(StructuredOverlay overlay, T request) {
-        CanOverlay<E> canOverlay = ((CanOverlay<E>) overlay);
+        NeighborEntry<E> neighborChosen =
+                this.nextHop((CanOverlay<E>) overlay, request.getKey());
+
+        if (neighborChosen == null) {
+            LOG.error(
+                    "Trying to route a {} request but the key {} used "
+                            + "is managed by no peer. You are probably using a key with "
+                            + "values that are not between the minimum and the upper "
+                            + "bound managed by the network.", this.getClass()
+                            .getSimpleName(), request.getKey());
+            return;
+        }
 
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Request routed to a neigbour because the current peer "
+                    + "managing " + overlay
+                    + " does not contains the key to reach ("
+                    + request.getKey() + "): " + neighborChosen);
+        }
+
+        this.forward(neighborChosen, request);
+    }
+
+    /**
+     * Selects the neighbor to forward a message to in order to reach the
+     * specified {@code key}.
+     * 
+     * @param overlay
+     *            the overlay of the peer which routes the message.
+     * @param key
+     *            the key to reach.
+     * 
+     * @return the neighbor selected or {@code null} if the key is managed by
+     *         no peer.
+     */
+    protected NeighborEntry<E> nextHop(CanOverlay<E> overlay, Point<E> key) {
         byte dimension = 0;
         byte direction = NeighborTable.DIRECTION_ANY;
 
         // finds the dimension on which the key to reach is not contained
         for (; dimension < P2PStructuredProperties.CAN_NB_DIMENSIONS.getValue(); dimension++) {
             direction =
-                    canOverlay.getZone().contains(
-                            dimension,
-                            request.getKey().getCoordinate(dimension));
+                    overlay.getZone().contains(
+                            dimension, key.getCoordinate(dimension));
 
             if (direction == -1) {
                 direction = NeighborTable.DIRECTION_INFERIOR;
@@ -115,35 +148,31 @@ public class UnicastRequestRouter<T extends Request<Point<E>>, E extends Coordin
 
         // selects one neighbor in the dimension and the direction previously
         // affected
-        NeighborEntry<E> neighborChosen =
-                canOverlay.nearestNeighbor(
-                        request.getKey(), dimension, direction);
-
-        if (neighborChosen == null) {
-            LOG.error(
-                    "Trying to route a {} request but the key {} used "
-                            + "is managed by no peer. You are probably using a key with "
-                            + "values that are not between the minimum and the upper "
-                            + "bound managed by the network.", this.getClass()
-                            .getSimpleName(), request.getKey());
-            return;
-        }
-
-        if (LOG.isDebugEnabled()) {
-            LOG.debug("Request routed to a neigbour because the current peer "
-                    + "managing " + overlay
-                    + " does not contains the key to reach ("
-                    + request.getKey()
-                    + "). Neighbor is selected from dimension " + dimension
-                    + " and direction " + direction + ": " + neighborChosen);
-        }
+        return overlay.nearestNeighbor(key, dimension, direction);
+    }
 
+    /**
+     * Forwards the specified {@code request} to the specified
+     * {@code neighbor}.
+     * 
+     * @param neighbor
+     *            the neighbor to forward the request to.
+     * @param request
+     *            the request to forward.
+     * 
+     * @return {@code true} if the request has been forwarded, {@code false}
+     *         if the neighbor is not reachable.
+     */
+    protected boolean forward(NeighborEntry<E> neighbor, T request) {
         try {
-            ((PeerInternal) neighborChosen.getStub()).forward(request);
+            LocalTransport.forward(
+                    neighbor.getId(), neighbor.getStub(), request);
+            return true;
         } catch (ProActiveRuntimeException e) {
             LOG.error("Error while forwarding a request to the neighbor managing "
-                    + neighborChosen.getZone());
+                    + neighbor.getZone());
             e.printStackTrace();
+            return false;
         }
     }
 
@@ -16,15 +16,28 @@
  **/
 package org.objectweb.proactive.extensions.p2p.structured.operations.can;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.objectweb.proactive.extensions.p2p.structured.deployment.JunitByMethodCanNetworkDeployer;
 import org.objectweb.proactive.extensions.p2p.structured.deployment.StringCanDeploymentDescriptor;
+import org.objectweb.proactive.extensions.p2p.structured.exceptions.ConcurrentJoinException;
 import org.objectweb.proactive.extensions.p2p.structured.exceptions.NetworkAlreadyJoinedException;
 import org.objectweb.proactive.extensions.p2p.structured.exceptions.PeerNotActivatedException;
 import org.objectweb.proactive.extensions.p2p.structured.operations.CanOperations;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.Peer;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.can.CanOverlay;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.NeighborTable;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.can.zone.Zone;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.can.zone.coordinates.StringCoordinate;
 
 /**
@@ -65,6 +78,50 @@ public class JoinOperationTest extends
                         .getPeerZone()), -1);
     }
 
+    @Test
+    public void testNeighborsAfterConcurrentJoinsOnAdjacentPeers()
+            throws InterruptedException, ExecutionException {
+        super.deploy(2);
+
+        final Peer[] landmarkPeers = {super.getPeer(0), super.getPeer(1)};
+        final Peer[] joiners = {super.createPeer(), super.createPeer()};
+
+        final CountDownLatch startSignal = new CountDownLatch(1);
+
+        ExecutorService threadPool =
+                Executors.newFixedThreadPool(joiners.length);
+
+        List<Future<Void>> joins = new ArrayList<Future<Void>>();
+
+        try {
+            // each peer joins one of the two landmark peers, which are
+            // neighbors, at the same time
+            for (int i = 0; i < joiners.length; i++) {
+                final int index = i;
+
+                joins.add(threadPool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        startSignal.await();
+                        join(joiners[index], landmarkPeers[index]);
+                        return null;
+                    }
+                }));
+            }
+
+            startSignal.countDown();
+
+            for (Future<Void> join : joins) {
+                join.get();
+            }
+        } finally {
+            threadPool.shutdownNow();
+        }
+
+        assertNeighborsConsistent(Arrays.asList(
+                landmarkPeers[0], landmarkPeers[1], joiners[0], joiners[1]));
+    }
+
     @Test(expected = NetworkAlreadyJoinedException.class)
     public void testJoinWithPeerWhichHasAlreadyJoined()
             throws NetworkAlreadyJoinedException, PeerNotActivatedException {
@@ -85,4 +142,65 @@ public class JoinOperationTest extends
         joiner.join(landmarkPeer);
     }
 
+    /*
+     * Joins the specified landmark peer, the join is retried while the
+     * landmark peer is handling another join.
+     */
+    private static void join(Peer joiner, Peer landmarkPeer)
+            throws NetworkAlreadyJoinedException, PeerNotActivatedException,
+            InterruptedException {
+        for (int i = 0;; i++) {
+            try {
+                joiner.join(landmarkPeer);
+                return;
+            } catch (ConcurrentJoinException e) {
+                if (i == 9) {
+                    throw e;
+                }
+
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    /*
+     * Checks that each peer has in its neighbor table exactly the peers whose
+     * zone neighbors its own zone, along with their current zone.
+     */
+    private static void assertNeighborsConsistent(List<Peer> peers) {
+        List<Zone<StringCoordinate>> zones =
+                new ArrayList<Zone<StringCoordinate>>(peers.size());
+
+        for (Peer peer : peers) {
+            zones.add(CanOperations.<StringCoordinate> getIdAndZoneResponseOperation(
+                    peer)
+                    .getPeerZone());
+        }
+
+        for (int i = 0; i < peers.size(); i++) {
+            NeighborTable<StringCoordinate> table =
+                    CanOperations.getNeighborTable(peers.get(i));
+
+            Assert.assertFalse(table.contains(peers.get(i).getId()));
+
+            for (int j = 0; j < peers.size(); j++) {
+                if (i == j) {
+                    continue;
+                }
+
+                boolean neighbors = zones.get(i).neighbors(zones.get(j));
+
+                Assert.assertEquals(
+                        "Neighbor table of peer " + i + " about peer " + j,
+                        neighbors, table.contains(peers.get(j).getId()));
+
+                if (neighbors) {
+                    Assert.assertEquals(
+                            zones.get(j), table.getNeighborEntry(
+                                    peers.get(j).getId()).getZone());
+                }
+            }
+        }
+    }
+
 }
@@ -127,15 +127,138 @@ public class P2PStructuredProperties {
     public static final PropertyBoolean MAO_PRIORITIES_PEERS_ENABLED =
             new PropertyBoolean("mao.priorities.peers.enabled", true);
 
+    /**
+     * Defines whether the serving policy of peers reorders the request queue
+     * by request class (maintenance, control, query and publish) or not.
+     */
+    public static final PropertyBoolean MAO_POLICY_PEERS_ENABLED =
+            new PropertyBoolean("mao.policy.peers.enabled", true);
+
+    /**
+     * Weight associated to control requests (operations which are not related
+     * to maintenance) by the serving policy of peers.
+     */
+    public static final PropertyInteger MAO_POLICY_PEERS_CONTROL_WEIGHT =
+            new PropertyInteger("mao.policy.peers.control.weight", 4);
+
+    /**
+     * Weight associated to query requests (messages expecting a response) by
+     * the serving policy of peers.
+     */
+    public static final PropertyInteger MAO_POLICY_PEERS_QUERY_WEIGHT =
+            new PropertyInteger("mao.policy.peers.query.weight", 2);
+
+    /**
+     * Weight associated to publish requests (messages that do not expect any
+     * response) by the serving policy of peers.
+     */
+    public static final PropertyInteger MAO_POLICY_PEERS_PUBLISH_WEIGHT =
+            new PropertyInteger("mao.policy.peers.publish.weight", 1);
+
+    /**
+     * Defines whether the number of threads used by multi-active objects
+     * (peers, proxies and registries) is adjusted at runtime according to the
+     * queue wait and service times observed. When disabled, the static
+     * {@code mao.limit.*} values are used.
+     */
+    public static final PropertyBoolean MAO_ADAPTIVE_LIMITS_ENABLED =
+            new PropertyBoolean("mao.adaptive.limits.enabled", false);
+
+    /**
+     * Period in milliseconds at which the thread limit of multi-active objects
+     * is reconsidered when adaptive limits are enabled.
+     */
+    public static final PropertyInteger MAO_ADAPTIVE_LIMITS_PERIOD =
+            new PropertyInteger("mao.adaptive.limits.period", 1000);
+
+    /**
+     * Lower bound for the thread limit of multi-active objects when adaptive
+     * limits are enabled. The static limit configured for a component is used
+     * instead if it is lower.
+     */
+    public static final PropertyInteger MAO_ADAPTIVE_LIMITS_MIN =
+            new PropertyInteger("mao.adaptive.limits.min", 1);
+
+    /**
+     * Upper bound for the thread limit of multi-active objects when adaptive
+     * limits are enabled. The static limit configured for a component is used
+     * instead if it is greater.
+     */
+    public static final PropertyInteger MAO_ADAPTIVE_LIMITS_MAX =
+            new PropertyInteger("mao.adaptive.limits.max", 4 * Runtime.getRuntime()
+                    .availableProcessors());
+
+    /**
+     * Defines whether messages routed between peers which are deployed in the
+     * same JVM are put directly in the request queue of the destination peer,
+     * without the serialization of the message.
+     */
+    public static final PropertyBoolean LOCAL_TRANSPORT_ENABLED =
+            new PropertyBoolean("local.transport.enabled", false);
+
+    /**
+     * Maximum number of messages delivered through the local transport that
+     * may be waiting in the request queue of a peer.
+     */
+    public static final PropertyInteger LOCAL_TRANSPORT_QUEUE_CAPACITY =
+            new PropertyInteger("local.transport.queue.capacity", 1024);
+
+    /**
+     * Time in milliseconds a sender waits for a free slot when the local
+     * transport queue of the destination peer is full. Once elapsed, the
+     * message is sent through the stub of the destination peer.
+     */
+    public static final PropertyInteger LOCAL_TRANSPORT_OFFER_TIMEOUT =
+            new PropertyInteger("local.transport.offer.timeout", 100);
+
     public static final PropertyBoolean PROXY_CACHE_RANDOM_SELECTION =
             new PropertyBoolean("proxy.cache.random.selection", true);
 
+    /**
+     * Defines the timeout in milliseconds after which a request sent
+     * asynchronously by a proxy fails if its final response has not been
+     * received. A value lower than or equal to {@code 0} disables the timeout.
+     */
+    public static final PropertyInteger PROXY_ASYNC_REQUEST_TIMEOUT =
+            new PropertyInteger("proxy.async.request.timeout", 300000);
+
     public static final PropertyDouble TRACKER_STORAGE_PROBABILITY =
             new PropertyDouble("tracker.storage.probability", 1.0);
 
     public static final PropertyInteger TRACKER_JOIN_RETRY_INTERVAL =
             new PropertyInteger("tracker.join.retry.interval", 500);
 
+    /**
+     * Defines the number of threads used by a network deployer to inject
+     * peers. Peers are injected sequentially when the value is set to 1.
+     * A peer which becomes the neighbor of a landmark peer while the latter
+     * handles a join may miss a neighbor update, parallel injection is thus
+     * disabled by default.
+     */
+    public static final PropertyInteger DEPLOYMENT_INJECTION_THREADS =
+            new PropertyInteger("deployment.injection.threads", 1);
+
+    /**
+     * Defines the maximum number of times the injection of a peer is retried
+     * when it conflicts with another join operation.
+     */
+    public static final PropertyInteger DEPLOYMENT_INJECTION_RETRY_ATTEMPTS =
+            new PropertyInteger("deployment.injection.retry.attempts", 10);
+
+    /**
+     * Initial timeout in milliseconds used to compute the exponential backoff
+     * applied between two attempts to inject a peer.
+     */
+    public static final PropertyInteger DEPLOYMENT_INJECTION_RETRY_MIN =
+            new PropertyInteger("deployment.injection.retry.min", 100);
+
+    /**
+     * Maximum timeout in milliseconds used to compute the exponential backoff
+     * applied between two attempts to inject a peer.
+     */
+    public static final PropertyInteger DEPLOYMENT_INJECTION_RETRY_MAX =
+            new PropertyInteger("deployment.injection.retry.max", 5000);
+
     private static boolean configurationLoaded = false;
 
     static {
@@ -20,18 +20,29 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.objectweb.proactive.extensions.p2p.structured.configuration.P2PStructuredProperties;
+import org.objectweb.proactive.extensions.p2p.structured.exceptions.ConcurrentJoinException;
 import org.objectweb.proactive.extensions.p2p.structured.exceptions.NetworkAlreadyJoinedException;
 import org.objectweb.proactive.extensions.p2p.structured.exceptions.PeerNotActivatedException;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.Peer;
 import org.objectweb.proactive.extensions.p2p.structured.tracker.Tracker;
 import org.objectweb.proactive.extensions.p2p.structured.utils.ComponentUtils;
+import org.objectweb.proactive.extensions.p2p.structured.utils.ExponentialBackoff;
 import org.objectweb.proactive.extensions.p2p.structured.utils.Observable;
 import org.objectweb.proactive.extensions.p2p.structured.utils.RandomUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * A network deployer is an abstract class that provides all the necessary
  * functionalities to setup and to deploy a structured p2p network. Once the
@@ -131,20 +142,6 @@ public abstract class NetworkDeployer extends
     private void injectPeers(int nbPeers) {
         this.notifyInjectingPeers();
 
-        // TODO: uncomment when components will be able to be instantiated in
-        // parallel
-
-        // if (nbPeers > INJECTION_THRESHOLD) {
-        // log.debug(
-        // "Creates and injects {} peers on the network in parallel",
-        // nbPeers);
-        // this.injectPeersInParallel(nbPeers);
-        // } else {
-        LOG.debug(
-                "Creates and use sequential injection for the {} peer(s) to insert on the network",
-                nbPeers);
-
-        List<Peer> peersInjected = new ArrayList<Peer>(nbPeers);
         InjectionConstraints injectionConstraints = null;
 
         if (this.descriptor.getInjectionConstraintsProvider() != null) {
@@ -153,23 +150,158 @@ public abstract class NetworkDeployer extends
                             nbPeers);
         }
 
-        for (int i = 0; i < nbPeers; i++) {
-            int peerIndexToJoin = -1;
+        int nbThreads =
+                P2PStructuredProperties.DEPLOYMENT_INJECTION_THREADS.getValue();
+
+        if (nbThreads > 1 && nbPeers > 1) {
+            LOG.debug(
+                    "Creates and injects {} peers on the network in parallel with {} threads",
+                    nbPeers, nbThreads);
+
+            this.injectPeersInParallel(nbPeers, injectionConstraints, nbThreads);
+        } else {
+            LOG.debug(
+                    "Creates and use sequential injection for the {} peer(s) to insert on the network",
+                    nbPeers);
+
+            List<Peer> peersInjected = new ArrayList<Peer>(nbPeers);
+
+            for (int i = 0; i < nbPeers; i++) {
+                int peerIndexToJoin = -1;
+
+                peersInjected.add(this.createPeer());
+
+                if (injectionConstraints != null) {
+                    peerIndexToJoin = injectionConstraints.findConstraint(i);
+                }
+
+                this.injectPeer(i, peersInjected.get(i), peerIndexToJoin != -1
+                        ? peersInjected.get(peerIndexToJoin) : null);
+            }
+        }
+
+        this.notifyPeersInjected();
+    }
+
+    /*
+     * Peers are created sequentially by the calling thread whereas joins are
+     * performed in parallel. A peer which is constrained to join another peer
+     * waits for the injection of the latter. Since tasks are executed in
+     * submission order and constraints always target a peer with a lower
+     * index, a task never waits for a task which is not yet running.
+     * 
+     * Parallel injection is opt-in. A landmark peer updates its neighbors
+     * inside a critical section acquired on the neighbors it knows when the
+     * join starts. A peer which becomes a neighbor in the meantime, through a
+     * concurrent join on another landmark peer, is not part of the critical
+     * section and its neighbor table may miss an update.
+     */
+    private void injectPeersInParallel(int nbPeers,
+                                       InjectionConstraints injectionConstraints,
+                                       int nbThreads) {
+        ExecutorService threadPool =
+                Executors.newFixedThreadPool(
+                        nbThreads, new ThreadFactoryBuilder().setNameFormat(
+                                "NetworkDeployer-injection-%d")
+                                .setDaemon(true)
+                                .build());
+
+        List<Future<Peer>> injections = new ArrayList<Future<Peer>>(nbPeers);
+
+        try {
+            // the first peer creates the network
+            Peer firstPeer = this.createPeer();
+            this.injectPeer(0, firstPeer, null);
+            injections.add(Futures.immediateFuture(firstPeer));
+
+            for (int i = 1; i < nbPeers; i++) {
+                final int peerIndex = i;
+                final Peer peer = this.createPeer();
+
+                int peerIndexToJoin = -1;
+
+                if (injectionConstraints != null) {
+                    peerIndexToJoin = injectionConstraints.findConstraint(i);
+                }
+
+                final Future<Peer> landmarkInjection =
+                        peerIndexToJoin != -1
+                                ? injections.get(peerIndexToJoin) : null;
+
+                injections.add(threadPool.submit(new Callable<Peer>() {
+                    @Override
+                    public Peer call() throws Exception {
+                        Peer landmarkPeer = null;
+
+                        if (landmarkInjection != null) {
+                            landmarkPeer = landmarkInjection.get();
+                        }
 
-            peersInjected.add(this.createPeer());
+                        NetworkDeployer.this.injectPeer(
+                                peerIndex, peer, landmarkPeer);
 
-            if (injectionConstraints != null) {
-                peerIndexToJoin = injectionConstraints.findConstraint(i);
+                        return peer;
+                    }
+                }));
             }
 
+            for (Future<Peer> injection : injections) {
+                injection.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    /*
+     * Injects the specified peer by joining the given landmark peer or a peer
+     * selected by a tracker if the landmark peer is null. Joins which conflict
+     * with another maintenance operation are retried with an exponential
+     * backoff.
+     */
+    private void injectPeer(int peerIndex, Peer peer, Peer landmarkPeer) {
+        long startTime = System.currentTimeMillis();
+
+        int maxAttempts =
+                P2PStructuredProperties.DEPLOYMENT_INJECTION_RETRY_ATTEMPTS.getValue();
+
+        for (int retryIndex = 0;; retryIndex++) {
             try {
-                if (peerIndexToJoin != -1) {
-                    this.getRandomTracker().inject(
-                            peersInjected.get(i),
-                            peersInjected.get(peerIndexToJoin));
-                    peerIndexToJoin = -1;
+                if (landmarkPeer != null) {
+                    this.getRandomTracker().inject(peer, landmarkPeer);
                 } else {
-                    this.getRandomTracker().inject(peersInjected.get(i));
+                    this.getRandomTracker().inject(peer);
+                }
+
+                break;
+            } catch (ConcurrentJoinException e) {
+                if (retryIndex + 1 >= maxAttempts) {
+                    throw new IllegalStateException("Injection of peer "
+                            + peerIndex + " failed after " + maxAttempts
+                            + " attempts", e);
+                }
+
+                int timeout =
+                        ExponentialBackoff.compteValue(
+                                retryIndex,
+                                1 + RandomUtils.nextInt(2),
+                                P2PStructuredProperties.DEPLOYMENT_INJECTION_RETRY_MIN.getValue(),
+                                P2PStructuredProperties.DEPLOYMENT_INJECTION_RETRY_MAX.getValue());
+
+                LOG.debug(
+                        "Concurrent join detected while injecting peer {}, retrying in {} ms",
+                        peerIndex, timeout);
+
+                try {
+                    Thread.sleep(timeout);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(ie);
                 }
             } catch (NetworkAlreadyJoinedException e) {
                 throw new IllegalStateException(e);
@@ -177,40 +309,13 @@ public abstract class NetworkDeployer extends
                 throw new IllegalStateException(e);
             }
         }
-        // }
 
-        this.notifyPeersInjected();
-    }
+        long injectionTime = System.currentTimeMillis() - startTime;
+
+        LOG.debug("Peer {} injected in {} ms", peerIndex, injectionTime);
 
-    // private void injectPeersInParallel(int nbPeers) {
-    // ExecutorService threadsPool =
-    // Executors.newFixedThreadPool(SystemUtil.getOptimalNumberOfThreads());
-    // final CountDownLatch doneSignal = new CountDownLatch(nbPeers);
-    //
-    // for (int i = 0; i < nbPeers; i++) {
-    // threadsPool.execute(new Runnable() {
-    // @Override
-    // public void run() {
-    // try {
-    // NetworkDeployer.this.getRandomTracker().inject(
-    // NetworkDeployer.this.createPeer());
-    // } catch (NetworkAlreadyJoinedException e) {
-    // e.printStackTrace();
-    // } finally {
-    // doneSignal.countDown();
-    // }
-    // }
-    // });
-    // }
-    //
-    // try {
-    // doneSignal.await();
-    // } catch (InterruptedException e) {
-    // Thread.currentThread().interrupt();
-    // } finally {
-    // threadsPool.shutdownNow();
-    // }
-    // }
+        this.notifyPeerInjected(peerIndex, injectionTime);
+    }
 
     public void undeploy() {
         if (!this.state.compareAndSet(
@@ -357,6 +462,19 @@ public abstract class NetworkDeployer extends
         });
     }
 
+    private void notifyPeerInjected(final int peerIndex,
+                                    final long injectionTime) {
+        super.notify(new NotificationAction<NetworkDeployerListener>() {
+            @Override
+            public void execute(NetworkDeployerListener observer) {
+                if (observer instanceof NetworkDeployerInjectionListener) {
+                    ((NetworkDeployerInjectionListener) observer).peerInjected(
+                            peerIndex, injectionTime);
+                }
+            }
+        });
+    }
+
     private void notifyPeersInjected() {
         super.notify(new NotificationAction<NetworkDeployerListener>() {
             @Override
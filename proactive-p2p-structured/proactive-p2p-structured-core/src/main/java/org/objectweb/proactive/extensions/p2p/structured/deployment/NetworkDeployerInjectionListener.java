@@ -0,0 +1,39 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package org.objectweb.proactive.extensions.p2p.structured.deployment;
+
+/**
+ * A {@link NetworkDeployerListener} which is also notified each time a peer
+ * has been injected by a {@link NetworkDeployer}.
+ * 
+ * @author lpellegr
+ */
+public interface NetworkDeployerInjectionListener extends
+        NetworkDeployerListener {
+
+    /**
+     * Notifies that the peer at the specified index has been injected.
+     * 
+     * @param peerIndex
+     *            the index of the peer that has been injected.
+     * @param injectionTime
+     *            the time in milliseconds it took to inject the peer, including
+     *            the time spent waiting between retries.
+     */
+    void peerInjected(int peerIndex, long injectionTime);
+
+}
@@ -33,7 +33,8 @@ import org.objectweb.proactive.extensions.p2p.structured.validator.ConstraintsVa
  * 
  * @author lpellegr
  */
-public abstract class Message<K> implements Routable<K>, Serializable {
+public abstract class Message<K> implements Routable<K>, Serializable,
+        Cloneable {
 
     private static final long serialVersionUID = 160L;
 
@@ -172,6 +173,24 @@ public abstract class Message<K> implements Routable<K>, Serializable {
         this.hopCount = value;
     }
 
+    /**
+     * Returns a copy of the message to hand over to a peer which is deployed
+     * in the same JVM, instead of serializing it. The copy is shallow: the
+     * payload is shared between the copies whereas primitive routing fields
+     * such as the hop count are not. Subclasses which maintain some mutable
+     * state updated during the routing must override this method to copy it.
+     * 
+     * @return a copy of the message.
+     */
+    @SuppressWarnings("unchecked")
+    public Message<K> copyForLocalDelivery() {
+        try {
+            return (Message<K>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * Indicates if the specified {@code overlay} validates the constraints
      * which are denoted by {@code key}.
@@ -20,6 +20,11 @@ import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.objectweb.proactive.core.UniqueID;
@@ -31,6 +36,13 @@ import org.objectweb.proactive.multiactivity.MultiActiveService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * Message dispatcher.
  * 
@@ -41,6 +53,22 @@ public class MessageDispatcher {
     private static final Logger LOG =
             LoggerFactory.getLogger(MessageDispatcher.class);
 
+    private static final Function<Serializable, Response<?>> TO_RESPONSE =
+            new Function<Serializable, Response<?>>() {
+                @Override
+                public Response<?> apply(Serializable result) {
+                    return (Response<?>) result;
+                }
+            };
+
+    // fails the futures of asynchronous dispatches whose final response is
+    // not received in time
+    private static final ScheduledExecutorService TIMEOUT_SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat(
+                    "MessageDispatcherTimeouts")
+                    .setDaemon(true)
+                    .build());
+
     private final UniqueID proxyId;
 
     private final AtomicLong sequencer;
@@ -49,7 +77,14 @@ public class MessageDispatcher {
 
     private final MultiActiveService multiActiveService;
 
-    private FinalResponseReceiver receiverStub;
+    private final FinalResponseReceiver receiverStub;
+
+    /**
+     * Serialized version of {@link #receiverStub}. The stub is serialized once
+     * and the resulting immutable value is shared by all the requests sent
+     * through this dispatcher.
+     */
+    private final SerializedValue<FinalResponseReceiver> serializedReceiverStub;
 
     public MessageDispatcher(UniqueID proxyId,
             MultiActiveService multiActiveService,
@@ -61,6 +96,8 @@ public class MessageDispatcher {
         this.proxyId = proxyId;
         this.sequencer = new AtomicLong();
         this.receiverStub = finalResponseReceiver;
+        this.serializedReceiverStub =
+                SerializedValue.create(finalResponseReceiver);
     }
 
     /**
@@ -77,7 +114,7 @@ public class MessageDispatcher {
      */
     public Response<?> dispatch(Request<?> request, Peer peer) {
         request.id = this.newMessageId();
-        request.responseDestination = SerializedValue.create(this.receiverStub);
+        request.responseDestination = this.serializedReceiverStub;
 
         this.entries.put(request.id, new Entry());
 
@@ -86,6 +123,41 @@ public class MessageDispatcher {
         return (Response<?>) this.pull(request.id);
     }
 
+    /**
+     * Dispatches the request over the overlay by using message passing without
+     * waiting for the response. The future which is returned is completed from
+     * {@link #push(FinalResponse)} once the final response is received. Thus,
+     * no thread is blocked while the request is in flight. The future fails
+     * with a {@link TimeoutException} if no final response is received within
+     * the timeout defined by
+     * {@link P2PStructuredProperties#PROXY_ASYNC_REQUEST_TIMEOUT}.
+     * 
+     * @param request
+     *            the request to dispatch.
+     * @param peer
+     *            the first peer to use for routing the request.
+     * 
+     * @return a future completed with the response associated to the type of
+     *         the request.
+     */
+    public ListenableFuture<Response<?>> dispatchAsync(Request<?> request,
+                                                       Peer peer) {
+        request.id = this.newMessageId();
+        request.responseDestination = this.serializedReceiverStub;
+
+        SettableFuture<Serializable> future = this.register(request.id);
+
+        try {
+            peer.route(request);
+        } catch (RuntimeException e) {
+            // unregisters the entry
+            future.cancel(false);
+            throw e;
+        }
+
+        return Futures.transform(future, TO_RESPONSE);
+    }
+
     /**
      * Dispatches the specified requests in parallel and wait for a response for
      * each request sent. Once responses are received they are combined with the
@@ -113,8 +185,7 @@ public class MessageDispatcher {
         for (Request<?> request : requests) {
             request.id = this.newMessageId();
             request.aggregationId = aggregationId;
-            request.responseDestination =
-                    SerializedValue.create(this.receiverStub);
+            request.responseDestination = this.serializedReceiverStub;
         }
 
         this.entries.put(aggregationId, new Entry());
@@ -124,6 +195,100 @@ public class MessageDispatcher {
         return this.pull(aggregationId);
     }
 
+    /**
+     * Dispatches the specified requests in parallel without waiting for the
+     * responses. The future which is returned is completed from
+     * {@link #push(FinalResponse)} once the intermediate responses have been
+     * combined with the specified response combiner. The future fails with a
+     * {@link TimeoutException} if the combined response is not received within
+     * the timeout defined by
+     * {@link P2PStructuredProperties#PROXY_ASYNC_REQUEST_TIMEOUT}.
+     * 
+     * @param requests
+     *            the requests to dispatch in parallel.
+     * @param context
+     *            a context that can be any serializable object.
+     * @param responseCombiner
+     *            the response combiner used to combine intermediate responses.
+     * @param peer
+     *            the peer from where the request is sent.
+     * 
+     * @return a future completed with the combined response.
+     */
+    public <T extends Request<?>> ListenableFuture<Serializable> dispatchAsync(List<T> requests,
+                                                                               Serializable context,
+                                                                               ResponseCombiner responseCombiner,
+                                                                               Peer peer) {
+        MessageId aggregationId = this.newMessageId();
+
+        for (Request<?> request : requests) {
+            request.id = this.newMessageId();
+            request.aggregationId = aggregationId;
+            request.responseDestination = this.serializedReceiverStub;
+        }
+
+        SettableFuture<Serializable> future = this.register(aggregationId);
+
+        try {
+            ((PeerInternal) peer).dispatch(
+                    requests, context, responseCombiner, this.receiverStub);
+        } catch (RuntimeException e) {
+            // unregisters the entry
+            future.cancel(false);
+            throw e;
+        }
+
+        return future;
+    }
+
+    /*
+     * Registers an entry whose future is completed by push. The entry is
+     * removed as soon as the future is done, whether it has been completed,
+     * cancelled or failed because the timeout has elapsed.
+     */
+    private SettableFuture<Serializable> register(final MessageId requestId) {
+        final Entry entry = new Entry(SettableFuture.<Serializable> create());
+
+        this.entries.put(requestId, entry);
+
+        final long timeout =
+                P2PStructuredProperties.PROXY_ASYNC_REQUEST_TIMEOUT.getValue();
+
+        if (timeout > 0) {
+            entry.timeout = TIMEOUT_SCHEDULER.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    entry.future.setException(new TimeoutException(
+                            "No final response received for request "
+                                    + requestId + " after " + timeout + " ms"));
+                }
+            }, timeout, TimeUnit.MILLISECONDS);
+        }
+
+        entry.future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                MessageDispatcher.this.entries.remove(requestId, entry);
+
+                ScheduledFuture<?> scheduledTimeout = entry.timeout;
+                if (scheduledTimeout != null) {
+                    scheduledTimeout.cancel(false);
+                }
+            }
+        }, MoreExecutors.sameThreadExecutor());
+
+        return entry.future;
+    }
+
+    /**
+     * Returns the number of requests for which a final response is expected.
+     * 
+     * @return the number of requests for which a final response is expected.
+     */
+    public int getNbPendingRequests() {
+        return this.entries.size();
+    }
+
     /**
      * Dispatches the request over the overlay by using message passing. The
      * request is supposed to generate no response. Sending a request with a
@@ -206,9 +371,20 @@ public class MessageDispatcher {
         Entry entry = this.entries.get(response.getId());
 
         if (entry == null) {
-            throw new IllegalArgumentException(
-                    "Pushing final response for a request id that is not managed: "
-                            + response.getId());
+            // asynchronous dispatches are unregistered once their timeout
+            // has elapsed, the final response may thus arrive too late
+            LOG.warn(
+                    "Discarding final response for a request id that is not managed: {}",
+                    response.getId());
+            return;
+        }
+
+        if (entry.future != null) {
+            // the request has been dispatched asynchronously, nobody is
+            // waiting on the entry. The entry is unregistered by the
+            // listener added to the future
+            entry.future.set(response.getResult());
+            return;
         }
 
         synchronized (entry) {
@@ -225,6 +401,21 @@ public class MessageDispatcher {
 
         public FinalResponse response;
 
+        // set only when the request has been dispatched asynchronously
+        public final SettableFuture<Serializable> future;
+
+        // null if the request has been dispatched synchronously or if no
+        // timeout applies
+        public volatile ScheduledFuture<?> timeout;
+
+        public Entry() {
+            this(null);
+        }
+
+        public Entry(SettableFuture<Serializable> future) {
+            this.future = future;
+        }
+
     }
 
 }
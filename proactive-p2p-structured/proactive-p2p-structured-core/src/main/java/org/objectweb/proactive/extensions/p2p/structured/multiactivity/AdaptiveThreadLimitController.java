@@ -0,0 +1,489 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package org.objectweb.proactive.extensions.p2p.structured.multiactivity;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.objectweb.proactive.extensions.p2p.structured.configuration.P2PStructuredProperties;
+import org.objectweb.proactive.multiactivity.MultiActiveService;
+import org.objectweb.proactive.multiactivity.execution.RequestExecutor;
+import org.objectweb.proactive.multiactivity.priority.PriorityConstraint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Controller that sizes the number of threads used by a multi-active object
+ * according to the queue wait and service times observed by a
+ * {@link MonitoredServingPolicy}.
+ * <p>
+ * Periodically, the throughput {@code X}, the average queue length {@code Lq}
+ * and the average number of requests under execution {@code B} are computed
+ * from the values sampled by the serving policy. By Little's law, the average
+ * queue wait time is {@code Lq / X} and the average service time is
+ * {@code B / X}. When requests are queued, all the threads are busy and
+ * requests wait longer than they execute, the limit is increased by a quarter
+ * (at least one thread). When the queue is empty and at most half of the
+ * threads are busy, the limit is decreased by one thread. The limit always
+ * remains between the minimum and the maximum bounds.
+ * <p>
+ * The multi-active service is started with the minimum bound as limit and
+ * the controller adjusts the limit by granting extra threads to the request
+ * executor. Each controller is exposed through JMX.
+ * 
+ * @author lpellegr
+ */
+public class AdaptiveThreadLimitController implements
+        AdaptiveThreadLimitControllerMBean, Runnable {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(AdaptiveThreadLimitController.class);
+
+    // ratio of the limit above which the threads are considered as saturated
+    private static final double SATURATION_RATIO = 0.9;
+
+    private static final ScheduledExecutorService SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat(
+                    "AdaptiveThreadLimitController")
+                    .setDaemon(true)
+                    .build());
+
+    private final MultiActiveService multiActiveService;
+
+    private final MonitoredServingPolicy servingPolicy;
+
+    private final int baseLimit;
+
+    private final ObjectName objectName;
+
+    private volatile int minLimit;
+
+    private volatile int maxLimit;
+
+    private volatile int limit;
+
+    private volatile double throughput;
+
+    private volatile double averageQueueLength;
+
+    private volatile double averageQueueWaitTime;
+
+    private volatile double averageServiceTime;
+
+    // limit currently applied on the request executor, only accessed by the
+    // scheduler thread
+    private int appliedLimit;
+
+    private long lastTimestamp;
+
+    private long lastNbSamples;
+
+    private long lastQueueLengthsSum;
+
+    private long lastNbRequestsExecutingSum;
+
+    private long lastNbRequestsServed;
+
+    private ScheduledFuture<?> task;
+
+    /**
+     * Creates a new controller.
+     * 
+     * @param name
+     *            the name of the component type (e.g. peer or proxy), used to
+     *            build the JMX object name.
+     * @param id
+     *            the identifier of the component, used to build the JMX object
+     *            name.
+     * @param multiActiveService
+     *            the multi-active service to control.
+     * @param servingPolicy
+     *            the serving policy used by the multi-active service.
+     * @param initialLimit
+     *            the limit to start with.
+     * @param minLimit
+     *            the minimum limit, which is also the limit the multi-active
+     *            service has to be started with.
+     * @param maxLimit
+     *            the maximum limit.
+     */
+    public AdaptiveThreadLimitController(String name, String id,
+            MultiActiveService multiActiveService,
+            MonitoredServingPolicy servingPolicy, int initialLimit,
+            int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit
+                || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Invalid limits: initial="
+                    + initialLimit + ", min=" + minLimit + ", max=" + maxLimit);
+        }
+
+        this.multiActiveService = multiActiveService;
+        this.servingPolicy = servingPolicy;
+        this.baseLimit = minLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.appliedLimit = minLimit;
+
+        try {
+            this.objectName =
+                    new ObjectName(
+                            "org.objectweb.proactive.extensions.p2p.structured:type=AdaptiveThreadLimitController,name="
+                                    + name + ",id=" + ObjectName.quote(id));
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Starts the multi-active service with the specified serving policy and
+     * parameters. If adaptive limits are enabled, the specified limit is used
+     * as initial value and is adjusted at runtime by a controller. This call
+     * blocks until the service terminates, as
+     * {@link MultiActiveService#policyServing}.
+     * 
+     * @param name
+     *            the name of the component type (e.g. peer or proxy).
+     * @param id
+     *            the identifier of the component.
+     * @param multiActiveService
+     *            the multi-active service to start.
+     * @param servingPolicy
+     *            the serving policy to use.
+     * @param priorityConstraints
+     *            the priority constraints to use, may be {@code null}.
+     * @param limit
+     *            the static limit configured for the component.
+     * @param hardLimit
+     *            indicates whether the limit is a hard limit or not.
+     * @param hostReentrant
+     *            indicates whether reentrant calls are served by the same
+     *            thread or not.
+     */
+    public static void serve(String name, String id,
+                             MultiActiveService multiActiveService,
+                             MonitoredServingPolicy servingPolicy,
+                             List<PriorityConstraint> priorityConstraints,
+                             int limit, boolean hardLimit,
+                             boolean hostReentrant) {
+        if (!P2PStructuredProperties.MAO_ADAPTIVE_LIMITS_ENABLED.getValue()) {
+            multiActiveService.policyServing(
+                    servingPolicy, priorityConstraints, limit, hardLimit,
+                    hostReentrant);
+            return;
+        }
+
+        int minLimit =
+                Math.max(
+                        1,
+                        Math.min(
+                                limit,
+                                P2PStructuredProperties.MAO_ADAPTIVE_LIMITS_MIN.getValue()));
+        int maxLimit =
+                Math.max(
+                        limit,
+                        P2PStructuredProperties.MAO_ADAPTIVE_LIMITS_MAX.getValue());
+
+        AdaptiveThreadLimitController controller =
+                new AdaptiveThreadLimitController(
+                        name, id, multiActiveService, servingPolicy, limit,
+                        minLimit, maxLimit);
+
+        controller.start(P2PStructuredProperties.MAO_ADAPTIVE_LIMITS_PERIOD.getValue());
+
+        try {
+            multiActiveService.policyServing(
+                    servingPolicy, priorityConstraints, minLimit, hardLimit,
+                    hostReentrant);
+        } finally {
+            controller.stop();
+        }
+    }
+
+    /**
+     * Schedules the controller and registers it to the platform MBean server.
+     * 
+     * @param period
+     *            the period in milliseconds at which the limit is
+     *            reconsidered.
+     */
+    public synchronized void start(long period) {
+        if (this.task != null) {
+            throw new IllegalStateException("Controller already started");
+        }
+
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            mbs.registerMBean(new StandardMBean(
+                    this, AdaptiveThreadLimitControllerMBean.class),
+                    this.objectName);
+        } catch (InstanceAlreadyExistsException e) {
+            log.error("Controller already registered as " + this.objectName, e);
+        } catch (MBeanRegistrationException e) {
+            log.error("Cannot register controller as " + this.objectName, e);
+        } catch (NotCompliantMBeanException e) {
+            log.error("Cannot register controller as " + this.objectName, e);
+        }
+
+        this.lastTimestamp = System.nanoTime();
+        this.task =
+                SCHEDULER.scheduleAtFixedRate(
+                        this, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels the controller and unregisters it from the platform MBean
+     * server.
+     */
+    public synchronized void stop() {
+        if (this.task == null) {
+            return;
+        }
+
+        this.task.cancel(false);
+        this.task = null;
+
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            mbs.unregisterMBean(this.objectName);
+        } catch (InstanceNotFoundException e) {
+            log.error("Controller not registered as " + this.objectName, e);
+        } catch (MBeanRegistrationException e) {
+            log.error("Cannot unregister controller " + this.objectName, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+        try {
+            this.adjust();
+        } catch (RuntimeException e) {
+            // an exception would cancel the next executions
+            log.error("Adjustment of the thread limit has failed", e);
+        }
+    }
+
+    private void adjust() {
+        RequestExecutor requestExecutor =
+                (RequestExecutor) this.multiActiveService.getServingController();
+
+        if (requestExecutor == null) {
+            // the service is not yet serving
+            return;
+        }
+
+        long timestamp = System.nanoTime();
+        long nbSamples = this.servingPolicy.getNbSamples();
+        long queueLengthsSum = this.servingPolicy.getQueueLengthsSum();
+        long nbRequestsExecutingSum =
+                this.servingPolicy.getNbRequestsExecutingSum();
+        long nbRequestsServed = this.servingPolicy.getNbRequestsServed();
+
+        long elapsedTime = timestamp - this.lastTimestamp;
+        long nbNewSamples = nbSamples - this.lastNbSamples;
+
+        double queueLength = 0;
+        double nbRequestsExecuting = 0;
+
+        if (nbNewSamples > 0) {
+            queueLength =
+                    (queueLengthsSum - this.lastQueueLengthsSum)
+                            / (double) nbNewSamples;
+            nbRequestsExecuting =
+                    (nbRequestsExecutingSum - this.lastNbRequestsExecutingSum)
+                            / (double) nbNewSamples;
+        }
+
+        // number of requests served per second
+        double x =
+                elapsedTime > 0
+                        ? (nbRequestsServed - this.lastNbRequestsServed)
+                                / (elapsedTime / 1e9) : 0;
+
+        this.throughput = x;
+        this.averageQueueLength = queueLength;
+        this.averageQueueWaitTime = x > 0 ? queueLength / x * 1000 : 0;
+        this.averageServiceTime = x > 0 ? nbRequestsExecuting / x * 1000 : 0;
+
+        this.lastTimestamp = timestamp;
+        this.lastNbSamples = nbSamples;
+        this.lastQueueLengthsSum = queueLengthsSum;
+        this.lastNbRequestsExecutingSum = nbRequestsExecutingSum;
+        this.lastNbRequestsServed = nbRequestsServed;
+
+        int newLimit =
+                computeLimit(
+                        this.limit, this.minLimit, this.maxLimit, x,
+                        queueLength, nbRequestsExecuting);
+
+        if (newLimit != this.appliedLimit) {
+            if (newLimit > this.appliedLimit) {
+                requestExecutor.incrementExtraActiveRequestCount(newLimit
+                        - this.appliedLimit);
+            } else {
+                requestExecutor.decrementExtraActiveRequestCount(this.appliedLimit
+                        - newLimit);
+            }
+
+            log.debug(
+                    "Thread limit of {} changed from {} to {} (X={}/s, Lq={}, B={})",
+                    this.objectName, this.appliedLimit, newLimit, x,
+                    queueLength, nbRequestsExecuting);
+
+            this.appliedLimit = newLimit;
+        }
+
+        this.limit = newLimit;
+    }
+
+    /**
+     * Computes the new thread limit.
+     * 
+     * @param limit
+     *            the current limit.
+     * @param minLimit
+     *            the minimum limit.
+     * @param maxLimit
+     *            the maximum limit.
+     * @param throughput
+     *            the number of requests served per second.
+     * @param queueLength
+     *            the average number of requests waiting in the queue.
+     * @param nbRequestsExecuting
+     *            the average number of requests under execution.
+     * 
+     * @return the new thread limit.
+     */
+    static int computeLimit(int limit, int minLimit, int maxLimit,
+                            double throughput, double queueLength,
+                            double nbRequestsExecuting) {
+        int result = limit;
+
+        if (queueLength >= 1
+                && nbRequestsExecuting >= SATURATION_RATIO * limit) {
+            // when no request has been served, queued requests are waiting
+            // for requests that last longer than the period
+            if (throughput == 0
+                    || queueLength / throughput > nbRequestsExecuting
+                            / throughput) {
+                result = limit + Math.max(1, limit / 4);
+            }
+        } else if (queueLength < 1 && nbRequestsExecuting <= limit / 2.0) {
+            result = limit - 1;
+        }
+
+        return Math.max(minLimit, Math.min(maxLimit, result));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getThreadLimit() {
+        return this.limit;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMinThreadLimit() {
+        return this.minLimit;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The minimum limit cannot be lower than the limit the multi-active
+     * service has been started with.
+     */
+    @Override
+    public void setMinThreadLimit(int minThreadLimit) {
+        this.minLimit =
+                Math.min(
+                        Math.max(this.baseLimit, minThreadLimit), this.maxLimit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxThreadLimit() {
+        return this.maxLimit;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setMaxThreadLimit(int maxThreadLimit) {
+        this.maxLimit = Math.max(this.minLimit, maxThreadLimit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getThroughput() {
+        return this.throughput;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getAverageQueueLength() {
+        return this.averageQueueLength;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getAverageQueueWaitTime() {
+        return this.averageQueueWaitTime;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getAverageServiceTime() {
+        return this.averageServiceTime;
+    }
+
+}
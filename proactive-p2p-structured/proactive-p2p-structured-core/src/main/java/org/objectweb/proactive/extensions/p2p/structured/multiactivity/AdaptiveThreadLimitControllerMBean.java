@@ -0,0 +1,45 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package org.objectweb.proactive.extensions.p2p.structured.multiactivity;
+
+/**
+ * JMX MBean interface for defining information that can be retrieved or
+ * updated for an {@link AdaptiveThreadLimitController}.
+ * 
+ * @author lpellegr
+ */
+public interface AdaptiveThreadLimitControllerMBean {
+
+    int getThreadLimit();
+
+    int getMinThreadLimit();
+
+    void setMinThreadLimit(int minThreadLimit);
+
+    int getMaxThreadLimit();
+
+    void setMaxThreadLimit(int maxThreadLimit);
+
+    double getThroughput();
+
+    double getAverageQueueLength();
+
+    double getAverageQueueWaitTime();
+
+    double getAverageServiceTime();
+
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package org.objectweb.proactive.extensions.p2p.structured.multiactivity;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.objectweb.proactive.core.body.request.Request;
+import org.objectweb.proactive.multiactivity.compatibility.StatefulCompatibilityMap;
+import org.objectweb.proactive.multiactivity.policy.DefaultServingPolicy;
+
+/**
+ * Default serving policy that records, at the beginning of each scheduling
+ * pass, the number of requests waiting in the queue and the number of requests
+ * under execution. The number of requests selected for execution is also
+ * recorded. These values are used by {@link AdaptiveThreadLimitController} to
+ * estimate queue wait and service times.
+ * 
+ * @author lpellegr
+ */
+public class MonitoredServingPolicy extends DefaultServingPolicy {
+
+    private final AtomicLong nbSamples;
+
+    private final AtomicLong queueLengthsSum;
+
+    private final AtomicLong nbRequestsExecutingSum;
+
+    private final AtomicLong nbRequestsServed;
+
+    public MonitoredServingPolicy() {
+        super();
+
+        this.nbSamples = new AtomicLong();
+        this.queueLengthsSum = new AtomicLong();
+        this.nbRequestsExecutingSum = new AtomicLong();
+        this.nbRequestsServed = new AtomicLong();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int runPolicyOnRequest(int requestIndexInRequestQueue,
+                                  StatefulCompatibilityMap compatibility,
+                                  List<Request> runnableRequests) {
+        // a scheduling pass starts with the first request from the queue and
+        // no request selected yet
+        if (requestIndexInRequestQueue == 0 && runnableRequests.isEmpty()) {
+            this.recordSchedulingPass(compatibility);
+        }
+
+        int result =
+                this.runDefaultPolicyOnRequest(
+                        requestIndexInRequestQueue, compatibility,
+                        runnableRequests);
+
+        if (result < requestIndexInRequestQueue) {
+            this.recordRequestServed();
+        }
+
+        return result;
+    }
+
+    /**
+     * Applies the default serving policy on the specified request without
+     * recording anything.
+     * 
+     * @param requestIndexInRequestQueue
+     *            the index of the request in the queue.
+     * @param compatibility
+     *            the compatibility information of the multi-active service.
+     * @param runnableRequests
+     *            the requests selected for execution so far.
+     * 
+     * @return the index of the request in the queue once the policy has been
+     *         applied.
+     */
+    protected final int runDefaultPolicyOnRequest(int requestIndexInRequestQueue,
+                                                  StatefulCompatibilityMap compatibility,
+                                                  List<Request> runnableRequests) {
+        return super.runPolicyOnRequest(
+                requestIndexInRequestQueue, compatibility, runnableRequests);
+    }
+
+    /**
+     * Records the number of requests waiting in the queue and the number of
+     * requests under execution at the beginning of a scheduling pass.
+     * 
+     * @param compatibility
+     *            the compatibility information of the multi-active service.
+     */
+    protected final void recordSchedulingPass(StatefulCompatibilityMap compatibility) {
+        this.queueLengthsSum.addAndGet(compatibility.getQueueContents().size());
+        this.nbRequestsExecutingSum.addAndGet(compatibility.getExecutingRequests()
+                .size());
+        this.nbSamples.incrementAndGet();
+    }
+
+    /**
+     * Records that a request has been selected for execution.
+     */
+    protected final void recordRequestServed() {
+        this.nbRequestsServed.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of scheduling passes that have been sampled.
+     * 
+     * @return the number of scheduling passes that have been sampled.
+     */
+    public long getNbSamples() {
+        return this.nbSamples.get();
+    }
+
+    /**
+     * Returns the sum of the queue lengths observed at the beginning of each
+     * scheduling pass.
+     * 
+     * @return the sum of the queue lengths observed at the beginning of each
+     *         scheduling pass.
+     */
+    public long getQueueLengthsSum() {
+        return this.queueLengthsSum.get();
+    }
+
+    /**
+     * Returns the sum of the number of requests under execution observed at
+     * the beginning of each scheduling pass.
+     * 
+     * @return the sum of the number of requests under execution observed at
+     *         the beginning of each scheduling pass.
+     */
+    public long getNbRequestsExecutingSum() {
+        return this.nbRequestsExecutingSum.get();
+    }
+
+    /**
+     * Returns the number of requests that have been selected for execution.
+     * 
+     * @return the number of requests that have been selected for execution.
+     */
+    public long getNbRequestsServed() {
+        return this.nbRequestsServed.get();
+    }
+
+}
@@ -0,0 +1,303 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package org.objectweb.proactive.extensions.p2p.structured.overlay;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.TypeVariable;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.proactive.Body;
+import org.objectweb.proactive.core.body.request.Request;
+import org.objectweb.proactive.core.body.request.RequestImpl;
+import org.objectweb.proactive.core.mop.MethodCall;
+import org.objectweb.proactive.core.security.exceptions.RenegotiateSessionException;
+import org.objectweb.proactive.extensions.p2p.structured.configuration.P2PStructuredProperties;
+import org.objectweb.proactive.extensions.p2p.structured.messages.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Short-circuit transport used to route messages between peers which are
+ * deployed in the same JVM. Instead of invoking the stub of the destination
+ * peer, which implies to serialize the message, a shallow copy of the message
+ * (see {@link Message#copyForLocalDelivery()}) is wrapped into a request that
+ * is put directly in the request queue of the destination peer.
+ * <p>
+ * Local deliveries are thus scheduled by the multi-active service of the
+ * destination peer like any remote call: compatibility rules, serving policy
+ * and thread limits apply in the same manner.
+ * <p>
+ * The number of local deliveries waiting in the request queue of a peer is
+ * bounded by {@link P2PStructuredProperties#LOCAL_TRANSPORT_QUEUE_CAPACITY}.
+ * When the bound is reached, senders wait for a free slot during at most
+ * {@link P2PStructuredProperties#LOCAL_TRANSPORT_OFFER_TIMEOUT} milliseconds
+ * and then fall back to the regular stub invocation.
+ * <p>
+ * The transport is enabled with
+ * {@link P2PStructuredProperties#LOCAL_TRANSPORT_ENABLED}.
+ * 
+ * @author lpellegr
+ */
+public final class LocalTransport {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(LocalTransport.class);
+
+    private static final ConcurrentMap<OverlayId, Endpoint> ENDPOINTS =
+            new ConcurrentHashMap<OverlayId, Endpoint>();
+
+    private static final Method FORWARD_METHOD = getMethod(
+            PeerInternal.class, "forward");
+
+    private static final Method ROUTE_METHOD = getMethod(Peer.class, "route");
+
+    private LocalTransport() {
+
+    }
+
+    /**
+     * Returns a boolean indicating whether the local transport is enabled or
+     * not.
+     * 
+     * @return {@code true} if the local transport is enabled, {@code false}
+     *         otherwise.
+     */
+    public static boolean isEnabled() {
+        return P2PStructuredProperties.LOCAL_TRANSPORT_ENABLED.getValue();
+    }
+
+    /**
+     * Forwards the specified message to the peer identified by {@code peerId}.
+     * The message is delivered locally if the peer is deployed in the same
+     * JVM and can accept it, otherwise {@link PeerInternal#forward(Message)}
+     * is invoked on the specified {@code stub}.
+     * 
+     * @param peerId
+     *            the identifier of the destination peer.
+     * @param stub
+     *            the stub of the destination peer.
+     * @param msg
+     *            the message to forward.
+     */
+    public static void forward(OverlayId peerId, Peer stub, Message<?> msg) {
+        Endpoint endpoint = null;
+
+        if (peerId != null && isEnabled()) {
+            endpoint = ENDPOINTS.get(peerId);
+        }
+
+        if (endpoint == null || !endpoint.deliver(msg.copyForLocalDelivery())) {
+            ((PeerInternal) stub).forward(msg);
+        }
+    }
+
+    /**
+     * Routes the specified message from the specified {@code overlay}. This
+     * method is used by a peer to route a message through itself
+     * asynchronously.
+     * 
+     * @param overlay
+     *            the overlay of the peer that routes the message.
+     * @param msg
+     *            the message to route.
+     */
+    public static void route(StructuredOverlay overlay, Message<?> msg) {
+        Endpoint endpoint = null;
+
+        if (isEnabled()) {
+            endpoint = ENDPOINTS.get(overlay.getId());
+        }
+
+        if (endpoint == null || !endpoint.route(msg.copyForLocalDelivery())) {
+            overlay.getStub().route(msg);
+        }
+    }
+
+    static Endpoint register(StructuredOverlay overlay, Body body) {
+        Endpoint endpoint = new Endpoint(body);
+        ENDPOINTS.put(overlay.getId(), endpoint);
+
+        return endpoint;
+    }
+
+    static void unregister(StructuredOverlay overlay, Endpoint endpoint) {
+        ENDPOINTS.remove(overlay.getId(), endpoint);
+        endpoint.shutdown();
+    }
+
+    private static Method getMethod(Class<?> clazz, String name) {
+        try {
+            return clazz.getMethod(name, Message.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Entry point for the local deliveries targeting a peer.
+     */
+    static final class Endpoint {
+
+        private final Body body;
+
+        private final int capacity;
+
+        private final long offerTimeout;
+
+        // messages put in the request queue of the peer and not yet
+        // scheduled, compared by reference
+        private final Set<Message<?>> pending;
+
+        private boolean closed;
+
+        public Endpoint(Body body) {
+            this.body = body;
+            this.capacity =
+                    Math.max(
+                            1,
+                            P2PStructuredProperties.LOCAL_TRANSPORT_QUEUE_CAPACITY.getValue());
+            this.offerTimeout =
+                    P2PStructuredProperties.LOCAL_TRANSPORT_OFFER_TIMEOUT.getValue();
+            this.pending =
+                    Collections.newSetFromMap(new IdentityHashMap<Message<?>, Boolean>());
+        }
+
+        /*
+         * Hands over the message to the peer as if it was received through a
+         * call to PeerInternal#forward.
+         */
+        public boolean deliver(Message<?> msg) {
+            return this.submit(FORWARD_METHOD, msg);
+        }
+
+        /*
+         * Hands over the message to the peer as if it was received through a
+         * call to Peer#route.
+         */
+        public boolean route(Message<?> msg) {
+            return this.submit(ROUTE_METHOD, msg);
+        }
+
+        /*
+         * The request is put in the queue while holding the lock so that the
+         * requests are queued in the order the slots have been granted.
+         */
+        private synchronized boolean submit(Method method, Message<?> msg) {
+            if (!this.awaitSlot()) {
+                return false;
+            }
+
+            this.pending.add(msg);
+
+            try {
+                this.body.receiveRequest(newRequest(this.body, method, msg));
+            } catch (IOException e) {
+                return this.reject(msg, e);
+            } catch (RenegotiateSessionException e) {
+                return this.reject(msg, e);
+            } catch (RuntimeException e) {
+                return this.reject(msg, e);
+            }
+
+            return true;
+        }
+
+        private boolean awaitSlot() {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(this.offerTimeout);
+            long deadline = System.nanoTime() + remaining;
+
+            while (!this.closed && this.pending.size() >= this.capacity) {
+                if (remaining <= 0) {
+                    return false;
+                }
+
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+
+                remaining = deadline - System.nanoTime();
+            }
+
+            return !this.closed;
+        }
+
+        private boolean reject(Message<?> msg, Exception e) {
+            LOG.warn("Local delivery of message " + msg.getId()
+                    + " has failed, falling back to the stub", e);
+
+            this.pending.remove(msg);
+            this.notifyAll();
+
+            return false;
+        }
+
+        /**
+         * Frees the slot used by the specified message if it has been
+         * delivered through this endpoint. This method is invoked by the peer
+         * when the request which wraps the message is served.
+         * 
+         * @param msg
+         *            the message which is handled.
+         */
+        public synchronized void dequeued(Message<?> msg) {
+            if (this.pending.remove(msg)) {
+                this.notifyAll();
+            }
+        }
+
+        /**
+         * Returns the number of messages delivered through this endpoint that
+         * are waiting to be served.
+         * 
+         * @return the number of messages delivered through this endpoint that
+         *         are waiting to be served.
+         */
+        public synchronized int getNbPendingMessages() {
+            return this.pending.size();
+        }
+
+        /**
+         * Prevents new local deliveries. Senders waiting for a free slot fall
+         * back to the stub. The requests already queued are served by the
+         * peer as usual.
+         */
+        public synchronized void shutdown() {
+            this.closed = true;
+            this.pending.clear();
+            this.notifyAll();
+        }
+
+        private static Request newRequest(Body body, Method method,
+                                          Message<?> msg) {
+            return new RequestImpl(MethodCall.getMethodCall(
+                    method, new Object[] {msg},
+                    Collections.<TypeVariable<?>, Class<?>> emptyMap()), body,
+                    true, body.getNextSequenceID());
+        }
+
+    }
+
+}
@@ -31,6 +31,7 @@ import org.objectweb.proactive.core.security.exceptions.RenegotiateSessionExcept
 import org.objectweb.proactive.extensions.p2p.structured.AbstractComponent;
 import org.objectweb.proactive.extensions.p2p.structured.configuration.P2PStructuredProperties;
 import org.objectweb.proactive.extensions.p2p.structured.deployment.DeploymentConfiguration;
+import org.objectweb.proactive.extensions.p2p.structured.exceptions.ConcurrentJoinException;
 import org.objectweb.proactive.extensions.p2p.structured.exceptions.NetworkAlreadyJoinedException;
 import org.objectweb.proactive.extensions.p2p.structured.exceptions.NetworkNotJoinedException;
 import org.objectweb.proactive.extensions.p2p.structured.exceptions.PeerNotActivatedException;
@@ -39,6 +40,7 @@ import org.objectweb.proactive.extensions.p2p.structured.messages.FinalResponseR
 import org.objectweb.proactive.extensions.p2p.structured.messages.Message;
 import org.objectweb.proactive.extensions.p2p.structured.messages.Request;
 import org.objectweb.proactive.extensions.p2p.structured.messages.ResponseCombiner;
+import org.objectweb.proactive.extensions.p2p.structured.multiactivity.AdaptiveThreadLimitController;
 import org.objectweb.proactive.extensions.p2p.structured.operations.CallableOperation;
 import org.objectweb.proactive.extensions.p2p.structured.operations.ResponseOperation;
 import org.objectweb.proactive.extensions.p2p.structured.operations.RunnableOperation;
@@ -116,6 +118,11 @@ public class PeerImpl extends AbstractComponent implements PeerInterface,
 
     protected transient MultiActiveService multiActiveService;
 
+    protected transient PeerServingPolicy servingPolicy;
+
+    // not null when the local transport is enabled
+    private transient LocalTransport.Endpoint localEndpoint;
+
     /**
      * Empty constructor required by ProActive.
      */
@@ -139,10 +146,18 @@ public class PeerImpl extends AbstractComponent implements PeerInterface,
     @Override
     public void runComponentActivity(Body body) {
         this.multiActiveService = new ComponentMultiActiveService(body);
-        this.multiActiveService.policyServing(
-                new PeerServingPolicy(this), null,
-                P2PStructuredProperties.MAO_LIMIT_PEERS.getValue(), false,
-                false);
+        this.servingPolicy = new PeerServingPolicy();
+        this.servingPolicy.register("Peer", body.getID().toString());
+
+        try {
+            AdaptiveThreadLimitController.serve(
+                    "Peer", body.getID().toString(), this.multiActiveService,
+                    this.servingPolicy, null,
+                    P2PStructuredProperties.MAO_LIMIT_PEERS.getValue(), false,
+                    false);
+        } finally {
+            this.servingPolicy.unregister();
+        }
     }
 
     /**
@@ -162,6 +177,12 @@ public class PeerImpl extends AbstractComponent implements PeerInterface,
         this.overlay.stub = stub;
         this.overlay.url = PAActiveObject.getUrl(stub);
 
+        if (LocalTransport.isEnabled()) {
+            this.localEndpoint =
+                    LocalTransport.register(
+                            this.overlay, PAActiveObject.getBodyOnThis());
+        }
+
         this.initialized = true;
     }
 
@@ -171,6 +192,11 @@ public class PeerImpl extends AbstractComponent implements PeerInterface,
     @Override
     public void resetAttributes() {
         if (super.initialized) {
+            if (this.localEndpoint != null) {
+                LocalTransport.unregister(this.overlay, this.localEndpoint);
+                this.localEndpoint = null;
+            }
+
             this.overlay.close();
             this.overlay = null;
             super.resetAttributes();
@@ -237,10 +263,18 @@ public class PeerImpl extends AbstractComponent implements PeerInterface,
             throw new NetworkAlreadyJoinedException();
         }
 
-        if (landmarkPeer.getStatus() == Status.NOT_ACTIVATED) {
+        Status landmarkPeerStatus = landmarkPeer.getStatus();
+
+        if (landmarkPeerStatus == Status.NOT_ACTIVATED) {
             throw new PeerNotActivatedException(landmarkPeer.getId());
         }
 
+        if (landmarkPeerStatus != Status.ACTIVATED) {
+            // the landmark peer is handling its own join, leave or reassign
+            // operation, the join has to be retried later
+            throw new ConcurrentJoinException();
+        }
+
         this.overlay.status = Status.PERFORMING_JOIN;
         this.overlay.join(landmarkPeer);
         this.overlay.status = Status.ACTIVATED;
@@ -314,6 +348,8 @@ public class PeerImpl extends AbstractComponent implements PeerInterface,
     @Override
     @MemberOf("routing")
     public void forward(Message<?> msg) {
+        this.dequeuedLocally(msg);
+
         msg.incrementHopCount(1);
         msg.route(this.overlay);
     }
@@ -324,6 +360,8 @@ public class PeerImpl extends AbstractComponent implements PeerInterface,
     @Override
     @MemberOf("routing")
     public void route(Message<?> msg) {
+        this.dequeuedLocally(msg);
+
         msg.route(this.overlay);
     }
 
@@ -413,6 +451,16 @@ public class PeerImpl extends AbstractComponent implements PeerInterface,
         return this.overlay.toString();
     }
 
+    /*
+     * Frees the slot used by a message delivered through the local transport,
+     * if any, once the message has been scheduled by the multi-active service.
+     */
+    private void dequeuedLocally(Message<?> msg) {
+        if (this.localEndpoint != null) {
+            this.localEndpoint.dequeued(msg);
+        }
+    }
+
     protected boolean areCompatible(CallableOperation op1, CallableOperation op2) {
         return this.overlay.areCompatible(op1, op2);
     }
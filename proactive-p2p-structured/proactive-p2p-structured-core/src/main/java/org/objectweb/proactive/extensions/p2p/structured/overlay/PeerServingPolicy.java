@@ -1,25 +1,144 @@
 package org.objectweb.proactive.extensions.p2p.structured.overlay;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
 
 import org.objectweb.proactive.core.body.request.Request;
+import org.objectweb.proactive.extensions.p2p.structured.configuration.P2PStructuredProperties;
+import org.objectweb.proactive.extensions.p2p.structured.multiactivity.MonitoredServingPolicy;
+import org.objectweb.proactive.extensions.p2p.structured.operations.MaintenanceOperation;
+import org.objectweb.proactive.extensions.p2p.structured.operations.mutual_exclusion.MutualExclusionOperation;
 import org.objectweb.proactive.multiactivity.compatibility.StatefulCompatibilityMap;
-import org.objectweb.proactive.multiactivity.policy.DefaultServingPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * Extends the default serving policy to have join and leave operations that
- * have higher priority over other requests when a join, leave or reassign
- * operation is running.
+ * Extends the default serving policy to share the peer between classes of
+ * requests according to their weight.
+ * <p>
+ * Each request from the queue is associated to a {@link RequestClass}. The
+ * queue is scanned in its current order and requests are selected by the
+ * default serving policy, which ensures that a request is never executed in
+ * parallel with a request it is not compatible with. The selected requests
+ * are then ordered by the priority constraints of the multi-active service.
+ * <p>
+ * During a scheduling pass, each class other than maintenance is granted a
+ * number of selections equal to its weight. A request whose class has no
+ * selection left is kept in the queue, as an incompatible request would be,
+ * while requests of another class with selections left are waiting behind
+ * it. Otherwise, a new round starts and each class is granted its weight
+ * again, unless a request has already been deferred during the pass: the
+ * deferred requests are then considered first by the next pass.
+ * <p>
+ * Maintenance requests (join, leave, reassign and the operations they
+ * trigger, including the ones used by the mutual exclusion algorithm) are
+ * never deferred and overtake the other requests: at the beginning of each
+ * pass, a maintenance request is selected as soon as it is compatible with
+ * the requests under execution and with the maintenance requests queued
+ * before it. Other requests which are not compatible with a maintenance
+ * request selected or still waiting are kept in the queue, so that requests
+ * under execution drain before the maintenance request is served.
+ * <p>
+ * The number of queued requests per class is recorded at each scheduling pass
+ * along with the number of requests served per class. These values are
+ * exposed through JMX once {@link #register(String, String)} is called.
  * 
  * @author lpellegr
  */
-public class PeerServingPolicy extends DefaultServingPolicy {
+public class PeerServingPolicy extends MonitoredServingPolicy implements
+        PeerServingPolicyMBean {
+
+    /**
+     * Classes of requests handled by the policy.
+     */
+    public enum RequestClass {
+        /**
+         * Join, leave, reassign and maintenance operations.
+         */
+        MAINTENANCE,
+        /**
+         * Operations which are not related to maintenance and method calls
+         * which are not routing requests.
+         */
+        CONTROL,
+        /**
+         * Messages that expect a response, responses and dispatches.
+         */
+        QUERY,
+        /**
+         * Messages that do not expect any response (e.g. publications).
+         */
+        PUBLISH
+    }
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(PeerServingPolicy.class);
+
+    private static final RequestClass[] REQUEST_CLASSES = RequestClass.values();
+
+    private final boolean enabled;
+
+    private final int[] weights;
+
+    private final AtomicIntegerArray queueLengths;
+
+    private final AtomicLongArray nbRequestsServed;
 
-    // private final PeerImpl peer;
+    // number of selections left per class for the current round, only
+    // accessed by the scheduling thread
+    private final int[] credits;
 
-    public PeerServingPolicy(PeerImpl peer) {
+    // number of requests per class that have not been visited yet during the
+    // current scheduling pass, only accessed by the scheduling thread
+    private final int[] nbRequestsNotVisited;
+
+    // indicates whether a request has been deferred during the current
+    // scheduling pass, only accessed by the scheduling thread
+    private boolean deferred;
+
+    // maintenance requests selected or still waiting in the queue during the
+    // current scheduling pass, only accessed by the scheduling thread
+    private final List<Request> maintenanceRequests;
+
+    private ObjectName objectName;
+
+    public PeerServingPolicy() {
         super();
-        // this.peer = peer;
+
+        this.enabled = P2PStructuredProperties.MAO_POLICY_PEERS_ENABLED.getValue();
+
+        this.weights = new int[REQUEST_CLASSES.length];
+        this.weights[RequestClass.CONTROL.ordinal()] =
+                Math.max(
+                        1,
+                        P2PStructuredProperties.MAO_POLICY_PEERS_CONTROL_WEIGHT.getValue());
+        this.weights[RequestClass.QUERY.ordinal()] =
+                Math.max(
+                        1,
+                        P2PStructuredProperties.MAO_POLICY_PEERS_QUERY_WEIGHT.getValue());
+        this.weights[RequestClass.PUBLISH.ordinal()] =
+                Math.max(
+                        1,
+                        P2PStructuredProperties.MAO_POLICY_PEERS_PUBLISH_WEIGHT.getValue());
+
+        this.queueLengths = new AtomicIntegerArray(REQUEST_CLASSES.length);
+        this.nbRequestsServed = new AtomicLongArray(REQUEST_CLASSES.length);
+        this.credits = new int[REQUEST_CLASSES.length];
+        this.nbRequestsNotVisited = new int[REQUEST_CLASSES.length];
+        this.maintenanceRequests = new ArrayList<Request>();
     }
 
     /**
@@ -29,174 +148,325 @@ public class PeerServingPolicy extends DefaultServingPolicy {
     public final int runPolicyOnRequest(int requestIndexInRequestQueue,
                                         StatefulCompatibilityMap compatibility,
                                         List<Request> runnableRequests) {
-        /* 
-         * We should manage the following cases:
-         * 
-         * 1) join or JoinIntroduce should pass in front of routing requests
-         * 2) a routing request should not be executed if a mutual exclusion section has been requested
-         */
+        if (!this.enabled) {
+            return super.runPolicyOnRequest(
+                    requestIndexInRequestQueue, compatibility, runnableRequests);
+        }
+
+        List<Request> queue = compatibility.getQueueContents();
+
+        // a scheduling pass starts with the first request from the queue and
+        // no request selected yet
+        if (requestIndexInRequestQueue == 0 && runnableRequests.isEmpty()) {
+            this.recordSchedulingPass(compatibility);
+            this.startPass(queue, compatibility, runnableRequests);
+
+            if (queue.isEmpty()) {
+                // only maintenance requests were queued and all were selected
+                return requestIndexInRequestQueue - 1;
+            }
+        }
+
+        Request request = queue.get(requestIndexInRequestQueue);
+        int requestClass = this.classify(request).ordinal();
+
+        this.nbRequestsNotVisited[requestClass]--;
+
+        if (requestClass == RequestClass.MAINTENANCE.ordinal()) {
+            // maintenance requests are only selected at the beginning of a
+            // pass, the ones left are waiting for requests under execution
+            return requestIndexInRequestQueue;
+        }
+
+        if (!this.maintenanceRequests.isEmpty()
+                && !compatibility.isCompatibleWithRequests(
+                        request, this.maintenanceRequests)) {
+            return requestIndexInRequestQueue;
+        }
+
+        if (this.credits[requestClass] == 0) {
+            if (this.deferred || this.isAnotherClassWaiting(requestClass)) {
+                // the request is kept in the queue for a next pass
+                this.deferred = true;
+                return requestIndexInRequestQueue;
+            }
+
+            this.startRound();
+        }
+
+        int result =
+                this.runDefaultPolicyOnRequest(
+                        requestIndexInRequestQueue, compatibility,
+                        runnableRequests);
+
+        if (result < requestIndexInRequestQueue) {
+            this.recordRequestServed(requestClass);
+            this.credits[requestClass]--;
+        }
+
+        return result;
+    }
+
+    private void startPass(List<Request> queue,
+                           StatefulCompatibilityMap compatibility,
+                           List<Request> runnableRequests) {
+        for (int i = 0; i < REQUEST_CLASSES.length; i++) {
+            this.nbRequestsNotVisited[i] = 0;
+        }
+
+        for (Request request : queue) {
+            this.nbRequestsNotVisited[this.classify(request).ordinal()]++;
+        }
+
+        for (int i = 0; i < REQUEST_CLASSES.length; i++) {
+            this.queueLengths.set(i, this.nbRequestsNotVisited[i]);
+        }
+
+        this.deferred = false;
+        this.startRound();
+        this.selectMaintenanceRequests(queue, compatibility, runnableRequests);
+    }
+
+    /*
+     * Selects, in queue order, the maintenance requests which are compatible
+     * with the requests under execution and with the maintenance requests
+     * queued before them, whatever the requests queued in front of them are.
+     */
+    private void selectMaintenanceRequests(List<Request> queue,
+                                           StatefulCompatibilityMap compatibility,
+                                           List<Request> runnableRequests) {
+        this.maintenanceRequests.clear();
+
+        if (this.nbRequestsNotVisited[RequestClass.MAINTENANCE.ordinal()] == 0) {
+            return;
+        }
+
+        Iterator<Request> it = queue.iterator();
+
+        while (it.hasNext()) {
+            Request request = it.next();
+
+            if (this.classify(request) != RequestClass.MAINTENANCE) {
+                continue;
+            }
+
+            if (compatibility.isCompatibleWithExecuting(request)
+                    && compatibility.isCompatibleWithRequests(
+                            request, this.maintenanceRequests)) {
+                it.remove();
+                runnableRequests.add(request);
+
+                this.nbRequestsNotVisited[RequestClass.MAINTENANCE.ordinal()]--;
+                this.recordRequestServed(RequestClass.MAINTENANCE.ordinal());
+            }
+
+            this.maintenanceRequests.add(request);
+        }
+    }
+
+    private void recordRequestServed(int requestClass) {
+        this.nbRequestsServed.incrementAndGet(requestClass);
+        this.recordRequestServed();
+    }
+
+    private void startRound() {
+        for (int i = RequestClass.CONTROL.ordinal(); i < REQUEST_CLASSES.length; i++) {
+            this.credits[i] = this.weights[i];
+        }
+    }
+
+    /*
+     * Indicates whether a request from another class with selections left is
+     * waiting further in the queue.
+     */
+    private boolean isAnotherClassWaiting(int requestClass) {
+        for (int i = RequestClass.CONTROL.ordinal(); i < REQUEST_CLASSES.length; i++) {
+            if (i != requestClass && this.credits[i] > 0
+                    && this.nbRequestsNotVisited[i] > 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
 
-        // Iterator<Request> it = compatibility.getQueueContents().iterator();
-        //
-        // boolean isSomethingExecuting =
-        // compatibility.getExecutingRequests().isEmpty();
-        //
-        // MaintenanceId requestMaintenanceId = null;
-        //
-        // while (it.hasNext()) {
-        // Request request = it.next();
-        // // if (isStructureRequest(request)) {
-        // // if (isSomethingExecuting) {
-        // // return requestIndexInRequestQueue;
-        // // } else {
-        // //
-        // // }
-        // // }
-        //
-        // if ((containMaintenanceRequest = getMaintenanceId(request)) != null)
-        // {
-        // break;
-        // }
-        // }
-        //
-        // if ()
-        //
-        // if (compatibility.getExecutingRequests().isEmpty()) {
-        //
-        // // finds the oldest maintenance operation with the same
-        // // maintenance id as the one being executed. If one is found, it
-        // // is returned for scheduling (and thus overtakes all other
-        // // requests that predate it)
-        // while (it.hasNext()) {
-        // Request request = it.next();
-        //
-        // MaintenanceId maintenanceIdFromRequest;
-        //
-        //
-        //
-        // // handle join/leave/reassign related requests in priority
-        // if (isStructureRequest(request)) {
-        // // execute the request
-        // it.remove();
-        // runnableRequests.add(request);
-        // return --requestIndexInRequestQueue;
-        //
-        // } else if ((maintenanceIdFromRequest = getMaintenanceId(request)) !=
-        // null) {
-        // if (peer.overlay.maintenanceId != null) {
-        // if (maintenanceIdFromRequest.equals(peer.overlay.maintenanceId)) {
-        // if (compatibility.getExecutingRequests().isEmpty()) {
-        // System.out.println("PeerServingPolicy.runPolicyOnRequest() CASE 3");
-        // // execute the request
-        // it.remove();
-        // runnableRequests.add(request);
-        // return --requestIndexInRequestQueue;
-        // } else {
-        // // wait for the termination of requests that are
-        // // executing
-        // System.out.println("PeerServingPolicy.runPolicyOnRequest() CASE 4");
-        // return requestIndexInRequestQueue;
-        // }
-        // }
-        // } else {
-        // if (compatibility.getExecutingRequests().isEmpty()) {
-        // System.out.println("PeerServingPolicy.runPolicyOnRequest() CASE 5");
-        // // execute the request
-        // it.remove();
-        // runnableRequests.add(request);
-        // return --requestIndexInRequestQueue;
-        // } else {
-        // // wait for the termination of requests that are
-        // // executing
-        // System.out.println("PeerServingPolicy.runPolicyOnRequest() CASE 6");
-        // return requestIndexInRequestQueue;
-        // }
-        // }
-        // }
-        // }
-
-        return super.runPolicyOnRequest(
-                requestIndexInRequestQueue, compatibility, runnableRequests);
-    }
-
-    // private boolean compatible(Request request, MaintenanceId maintenanceId)
-    // {
-    // if (getMaintenanceId(request) != null) {
-    // return ((MaintenanceOperation)
-    // request.getParameter(0)).getMaintenanceId()
-    // .equals(maintenanceId);
-    // }
-    //
-    // if (request.getMethodCall().getNumberOfParameter() == 2
-    // && request.getMethodName().equals("inject")
-    // && (((MaintenanceId) request.getParameter(1)).equals(maintenanceId))) {
-    // return true;
-    // }
-    //
-    // return false;
-    // }
-
-    // private static MaintenanceId getMaintenanceId(Request request) {
-    // if (request.getMethodCall().getNumberOfParameter() == 1
-    // && request.getMethodName().equals("receive")
-    // && (request.getParameter(0) instanceof MaintenanceOperation)) {
-    // return ((MaintenanceOperation)
-    // request.getParameter(0)).getMaintenanceId();
-    // }
-    //
-    // return null;
-    // }
-
-    // private static boolean isStructureRequest(Request request) {
-    // int numberOfParameters = request.getMethodCall().getNumberOfParameter();
-    //
-    // if (numberOfParameters == 1) {
-    // String methodName = request.getMethodName();
-    // return methodName.equals("join") || methodName.equals("reassign");
-    // }
-    //
-    // if (numberOfParameters == 0) {
-    // return request.getMethodName().equals("leave");
-    // }
-    //
-    // return false;
-    // }
-
-    // private static boolean isJoinRequest(Request request) {
-    // return request.getMethodCall().getNumberOfParameter() == 1
-    // && request.getMethodName().equals("join");
-    // }
-    //
-    // private static boolean isLeaveRequest(Request request) {
-    // return request.getMethodCall().getNumberOfParameter() == 0
-    // && request.getMethodName().equals("leave");
-    // }
-    //
-    // private static boolean isReassignRequest(Request request) {
-    // return request.getMethodCall().getNumberOfParameter() == 1
-    // && request.getMethodName().equals("reassign");
-    // }
-
-    // private boolean isJoinOperation(Request request) {
-    // return this.isOperation(request)
-    // && (request.getClass() == JoinIntroduceOperation.class ||
-    // request.getClass() == JoinWelcomeOperation.class);
-    // }
-    //
-    // private boolean isLeaveOperation(Request request) {
-    // return this.isOperation(request)
-    // && request.getClass() == LeaveEnlargeZoneOperation.class;
-    // }
-    //
-    // private boolean isOperation(Request request) {
-    // return request.getMethodCall().getNumberOfParameter() == 1
-    // && request.getMethodName().equals("receive")
-    // && (request.getParameter(0) instanceof Operation);
-    // }
-    //
-    // private boolean isReassignRequest(Request request) {
-    // return request.getMethodCall().getNumberOfParameter() == 1
-    // && request.getMethodName().equals("reassign");
-    // }
+    /**
+     * Returns the class associated to the specified request.
+     * 
+     * @param request
+     *            the request to classify.
+     * 
+     * @return the class associated to the specified request.
+     */
+    protected RequestClass classify(Request request) {
+        String methodName = request.getMethodName();
+
+        if (methodName.equals("join") || methodName.equals("leave")
+                || methodName.equals("reassign")
+                || methodName.equals("inject")) {
+            return RequestClass.MAINTENANCE;
+        }
+
+        if (methodName.equals("receive")) {
+            Object operation = request.getParameter(0);
+
+            if (operation instanceof MaintenanceOperation
+                    || operation instanceof MutualExclusionOperation) {
+                return RequestClass.MAINTENANCE;
+            }
+
+            return RequestClass.CONTROL;
+        }
+
+        if (methodName.equals("route") || methodName.equals("forward")) {
+            Object msg = request.getParameter(0);
+
+            if (msg instanceof org.objectweb.proactive.extensions.p2p.structured.messages.Request
+                    && ((org.objectweb.proactive.extensions.p2p.structured.messages.Request<?>) msg).getResponseProvider() == null) {
+                return RequestClass.PUBLISH;
+            }
+
+            return RequestClass.QUERY;
+        }
+
+        if (methodName.equals("dispatch")) {
+            return RequestClass.QUERY;
+        }
+
+        if (methodName.equals("publish")) {
+            return RequestClass.PUBLISH;
+        }
+
+        return RequestClass.CONTROL;
+    }
+
+    /**
+     * Returns the number of requests of the specified class that were waiting
+     * in the queue during the last scheduling pass.
+     * 
+     * @param requestClass
+     *            the request class.
+     * 
+     * @return the number of requests of the specified class that were waiting
+     *         in the queue during the last scheduling pass.
+     */
+    public int getQueueLength(RequestClass requestClass) {
+        return this.queueLengths.get(requestClass.ordinal());
+    }
+
+    /**
+     * Returns the number of requests of the specified class that have been
+     * selected for execution.
+     * 
+     * @param requestClass
+     *            the request class.
+     * 
+     * @return the number of requests of the specified class that have been
+     *         selected for execution.
+     */
+    public long getNbRequestsServed(RequestClass requestClass) {
+        return this.nbRequestsServed.get(requestClass.ordinal());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int[] getQueueLengths() {
+        int[] result = new int[REQUEST_CLASSES.length];
+
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.queueLengths.get(i);
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long[] getNbRequestsServedPerClass() {
+        long[] result = new long[REQUEST_CLASSES.length];
+
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.nbRequestsServed.get(i);
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String[] getRequestClasses() {
+        String[] result = new String[REQUEST_CLASSES.length];
+
+        for (int i = 0; i < result.length; i++) {
+            result[i] = REQUEST_CLASSES[i].name();
+        }
+
+        return result;
+    }
+
+    /**
+     * Registers the policy to the platform MBean server.
+     * 
+     * @param name
+     *            the name of the component type (e.g. peer), used to build the
+     *            JMX object name.
+     * @param id
+     *            the identifier of the component, used to build the JMX object
+     *            name.
+     */
+    public synchronized void register(String name, String id) {
+        if (this.objectName != null) {
+            throw new IllegalStateException("Policy already registered");
+        }
+
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            this.objectName =
+                    new ObjectName(
+                            "org.objectweb.proactive.extensions.p2p.structured:type=PeerServingPolicy,name="
+                                    + name + ",id=" + ObjectName.quote(id));
+            mbs.registerMBean(new StandardMBean(
+                    this, PeerServingPolicyMBean.class), this.objectName);
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException(e);
+        } catch (InstanceAlreadyExistsException e) {
+            LOG.error("Policy already registered as " + this.objectName, e);
+            this.objectName = null;
+        } catch (MBeanRegistrationException e) {
+            LOG.error("Cannot register policy as " + this.objectName, e);
+            this.objectName = null;
+        } catch (NotCompliantMBeanException e) {
+            LOG.error("Cannot register policy as " + this.objectName, e);
+            this.objectName = null;
+        }
+    }
+
+    /**
+     * Unregisters the policy from the platform MBean server.
+     */
+    public synchronized void unregister() {
+        if (this.objectName == null) {
+            return;
+        }
+
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            mbs.unregisterMBean(this.objectName);
+        } catch (InstanceNotFoundException e) {
+            LOG.error("Policy not registered as " + this.objectName, e);
+        } catch (MBeanRegistrationException e) {
+            LOG.error("Cannot unregister policy " + this.objectName, e);
+        }
+
+        this.objectName = null;
+    }
 
 }
@@ -41,10 +41,14 @@ import org.objectweb.proactive.extensions.p2p.structured.messages.MessageDispatc
 import org.objectweb.proactive.extensions.p2p.structured.messages.Request;
 import org.objectweb.proactive.extensions.p2p.structured.messages.Response;
 import org.objectweb.proactive.extensions.p2p.structured.messages.ResponseCombiner;
+import org.objectweb.proactive.extensions.p2p.structured.multiactivity.AdaptiveThreadLimitController;
+import org.objectweb.proactive.extensions.p2p.structured.multiactivity.MonitoredServingPolicy;
 import org.objectweb.proactive.extensions.p2p.structured.overlay.Peer;
 import org.objectweb.proactive.multiactivity.MultiActiveService;
 import org.objectweb.proactive.multiactivity.component.ComponentMultiActiveService;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * Defines methods to send requests with or without response over a structured
  * P2P network. A proxy plays the role of a gateway between the entity that
@@ -104,7 +108,9 @@ public class ProxyImpl extends AbstractComponent implements
     @Override
     public void runComponentActivity(Body body) {
         this.multiActiveService = new ComponentMultiActiveService(body);
-        this.multiActiveService.multiActiveServing(
+        AdaptiveThreadLimitController.serve(
+                "Proxy", body.getID().toString(), this.multiActiveService,
+                new MonitoredServingPolicy(), null,
                 P2PStructuredProperties.MAO_LIMIT_PROXIES.getValue(), false,
                 false);
     }
@@ -258,6 +264,121 @@ public class ProxyImpl extends AbstractComponent implements
         }
     }
 
+    /**
+     * Sends a request over the overlay by using message passing without
+     * blocking the calling thread. The future which is returned is completed
+     * when the final response is received through
+     * {@link #receive(FinalResponse)}.
+     * <p>
+     * Guava futures are not serializable, this method is thus only intended
+     * to be invoked from the active object of the proxy (and not through its
+     * component interfaces).
+     * 
+     * @param request
+     *            the request to handle.
+     * 
+     * @return a future completed with the response in agreement with the
+     *         request type sent.
+     */
+    public ListenableFuture<Response<?>> sendAsync(final Request<?> request) {
+        return this.sendAsync(request, this.selectPeer());
+    }
+
+    /**
+     * Sends a request over the overlay from the specified peer without
+     * blocking the calling thread.
+     * 
+     * @param request
+     *            the request to handle.
+     * @param peer
+     *            the stub from where the request is sent.
+     * 
+     * @return a future completed with the response in agreement with the
+     *         request type sent.
+     * 
+     * @see #sendAsync(Request)
+     */
+    public ListenableFuture<Response<?>> sendAsync(final Request<?> request,
+                                                   Peer peer) {
+        if (request.getResponseProvider() == null) {
+            throw new IllegalArgumentException(
+                    "Cannot send a request and expect a reply without any response provider");
+        }
+
+        try {
+            return this.messageDispatcher.dispatchAsync(request, peer);
+        } catch (ProActiveRuntimeException e) {
+            // peer not reachable, try with another
+            this.proxyCache.invalidate(peer);
+            return this.sendAsync(request, this.selectPeer());
+        }
+    }
+
+    /**
+     * Dispatches the specified requests in parallel without blocking the
+     * calling thread.
+     * 
+     * @param requests
+     *            the requests to dispatch in parallel.
+     * @param context
+     *            a context that can be any serializable object.
+     * @param responseCombiner
+     *            the response combiner used to combine intermediate responses.
+     * 
+     * @return a future completed with the response associated to the type of
+     *         the requests sent once the intermediate responses have been
+     *         combined with the specified response combiner.
+     * 
+     * @see #sendAsync(Request)
+     */
+    public ListenableFuture<Serializable> sendAsync(List<? extends Request<?>> requests,
+                                                    Serializable context,
+                                                    ResponseCombiner responseCombiner) {
+        return this.sendAsync(
+                requests, context, responseCombiner, this.selectPeer());
+    }
+
+    /**
+     * Dispatches the specified requests in parallel from the specified peer
+     * without blocking the calling thread.
+     * 
+     * @param requests
+     *            the requests to dispatch in parallel.
+     * @param context
+     *            a context that can be any serializable object.
+     * @param responseCombiner
+     *            the response combiner used to combine intermediate responses.
+     * @param peer
+     *            the peer from where the request is sent.
+     * 
+     * @return a future completed with the response associated to the type of
+     *         the requests sent once the intermediate responses have been
+     *         combined with the specified response combiner.
+     * 
+     * @see #sendAsync(Request)
+     */
+    public ListenableFuture<Serializable> sendAsync(List<? extends Request<?>> requests,
+                                                    Serializable context,
+                                                    ResponseCombiner responseCombiner,
+                                                    Peer peer) {
+        for (Request<?> request : requests) {
+            if (request.getResponseProvider() == null) {
+                throw new IllegalArgumentException(
+                        "Cannot send a request and expect a reply without any response provider");
+            }
+        }
+
+        try {
+            return this.messageDispatcher.dispatchAsync(
+                    requests, context, responseCombiner, peer);
+        } catch (ProActiveRuntimeException e) {
+            // peer not reachable, try with another
+            this.proxyCache.invalidate(peer);
+            return this.sendAsync(
+                    requests, context, responseCombiner, this.selectPeer());
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -22,6 +22,7 @@ import java.util.UUID;
 
 import org.objectweb.proactive.core.group.Group;
 import org.objectweb.proactive.core.util.wrapper.BooleanWrapper;
+import org.objectweb.proactive.extensions.p2p.structured.exceptions.ConcurrentJoinException;
 import org.objectweb.proactive.extensions.p2p.structured.exceptions.NetworkAlreadyJoinedException;
 import org.objectweb.proactive.extensions.p2p.structured.exceptions.NetworkNotJoinedException;
 import org.objectweb.proactive.extensions.p2p.structured.exceptions.PeerNotActivatedException;
@@ -69,6 +70,9 @@ public interface Tracker extends Serializable {
      * @throws NetworkAlreadyJoinedException
      *             if the specified {@code remotePeer} has already joined a
      *             network.
+     * @throws ConcurrentJoinException
+     *             if the landmark peer selected is handling a join, leave or
+     *             reassign operation. The injection may be retried.
      * @throws IllegalArgumentException
      *             if the specified {@code remotePeer} does not manage the same
      *             overlay type as the peers that are already maintained by the
@@ -90,6 +94,9 @@ public interface Tracker extends Serializable {
      *             network.
      * @throws PeerNotActivatedException
      *             if the specified {@code landmarkPeer} is not activated.
+     * @throws ConcurrentJoinException
+     *             if the specified {@code landmarkPeer} is handling a join,
+     *             leave or reassign operation. The injection may be retried.
      * @throws IllegalArgumentException
      *             if the specified {@code remotePeer} does not manage the same
      *             overlay type as the peers that are already maintained by the
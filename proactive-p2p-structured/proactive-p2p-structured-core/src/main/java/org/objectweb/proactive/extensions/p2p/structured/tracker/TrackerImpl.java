@@ -92,7 +92,7 @@ public class TrackerImpl extends AbstractComponent implements Tracker,
 
     private transient Tracker untypedGroupView;
 
-    protected OverlayType type;
+    protected volatile OverlayType type;
 
     protected transient String bindingName;
 
@@ -202,13 +202,14 @@ public class TrackerImpl extends AbstractComponent implements Tracker,
      * {@inheritDoc}
      */
     @Override
+    @MemberOf("parallel")
     public void inject(Peer remotePeer) throws NetworkAlreadyJoinedException {
-        Peer peerToJoin = null;
-
-        if (this.type != null) {
-            peerToJoin = this.getRandomPeer();
+        if (this.createNetwork(remotePeer)) {
+            return;
         }
 
+        Peer peerToJoin = this.getRandomPeer();
+
         try {
             this.inject(remotePeer, peerToJoin);
         } catch (PeerNotActivatedException e) {
@@ -220,32 +221,48 @@ public class TrackerImpl extends AbstractComponent implements Tracker,
      * {@inheritDoc}
      */
     @Override
+    @MemberOf("parallel")
     public void inject(Peer remotePeer, Peer landmarkPeer)
             throws NetworkAlreadyJoinedException, PeerNotActivatedException {
+        if (this.createNetwork(remotePeer)) {
+            return;
+        }
+
         OverlayType remotePeerType = remotePeer.getType();
 
-        if (this.type == null) {
-            this.type = remotePeerType;
-            remotePeer.create();
-            this.storePeer(remotePeer);
-            logger.debug("New network created from {}", remotePeer.getId());
-        } else {
-            if (this.type != remotePeerType) {
-                throw new IllegalArgumentException(
-                        "Illegal Peer type. The tracker manages a " + this.type
-                                + " network and receives " + remotePeerType);
-            }
+        if (this.type != remotePeerType) {
+            throw new IllegalArgumentException(
+                    "Illegal Peer type. The tracker manages a " + this.type
+                            + " network and receives " + remotePeerType);
+        }
 
-            remotePeer.join(landmarkPeer);
+        remotePeer.join(landmarkPeer);
 
-            if (RandomUtils.nextDouble() <= this.getProbabilityToStorePeer()) {
-                this.storePeer(remotePeer);
-            }
+        if (RandomUtils.nextDouble() <= this.getProbabilityToStorePeer()) {
+            this.storePeer(remotePeer);
+        }
 
-            logger.info(
-                    "Peer managing {} has joined from {}", remotePeer,
-                    landmarkPeer);
+        logger.info(
+                "Peer managing {} has joined from {}", remotePeer, landmarkPeer);
+    }
+
+    /*
+     * Creates a new network from the specified peer if the tracker does not
+     * manage a network yet. Injections may be handled in parallel, hence the
+     * synchronization to ensure that only one network is created.
+     */
+    private synchronized boolean createNetwork(Peer remotePeer)
+            throws NetworkAlreadyJoinedException {
+        if (this.type != null) {
+            return false;
         }
+
+        this.type = remotePeer.getType();
+        remotePeer.create();
+        this.storePeer(remotePeer);
+        logger.debug("New network created from {}", remotePeer.getId());
+
+        return true;
     }
 
     /**
@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package org.objectweb.proactive.extensions.p2p.structured.deployment;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.proactive.extensions.p2p.structured.configuration.P2PStructuredProperties;
+import org.objectweb.proactive.extensions.p2p.structured.exceptions.ConcurrentJoinException;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.Peer;
+import org.objectweb.proactive.extensions.p2p.structured.tracker.Tracker;
+
+/**
+ * Test cases associated to the parallel injection of peers performed by
+ * {@link NetworkDeployer}. The tracker used rejects joins with a
+ * {@link ConcurrentJoinException} as {@code PeerImpl#join} does when the
+ * landmark peer is handling another maintenance operation.
+ * 
+ * @author lpellegr
+ */
+public class NetworkDeployerTest {
+
+    private static final int NB_PEERS = 16;
+
+    // number of rejections left per peer before the join is accepted
+    private ConcurrentMap<Peer, AtomicInteger> rejectionsLeft;
+
+    private Set<Peer> peersInjected;
+
+    private AtomicInteger nbRejections;
+
+    private Set<Integer> peerIndexesNotified;
+
+    @Before
+    public void setUp() {
+        P2PStructuredProperties.DEPLOYMENT_INJECTION_THREADS.setValue(4);
+        P2PStructuredProperties.DEPLOYMENT_INJECTION_RETRY_MIN.setValue(1);
+        P2PStructuredProperties.DEPLOYMENT_INJECTION_RETRY_MAX.setValue(10);
+
+        this.rejectionsLeft = new ConcurrentHashMap<Peer, AtomicInteger>();
+        this.peersInjected = Collections.synchronizedSet(new HashSet<Peer>());
+        this.nbRejections = new AtomicInteger();
+        this.peerIndexesNotified =
+                Collections.synchronizedSet(new HashSet<Integer>());
+    }
+
+    @Test
+    public void testParallelInjectionRetriesConcurrentJoins() {
+        NetworkDeployer deployer = new MockNetworkDeployer(2);
+        deployer.deploy(NB_PEERS);
+
+        Assert.assertEquals(NB_PEERS, this.peersInjected.size());
+        Assert.assertEquals(NB_PEERS, this.peerIndexesNotified.size());
+
+        // each peer, except the first one which creates the network, is
+        // rejected twice before to be accepted
+        Assert.assertEquals(2 * (NB_PEERS - 1), this.nbRejections.get());
+        Assert.assertEquals(NetworkDeployerState.DEPLOYED, deployer.getState());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParallelInjectionFailsAfterMaxAttempts() {
+        P2PStructuredProperties.DEPLOYMENT_INJECTION_RETRY_ATTEMPTS.setValue(3);
+
+        new MockNetworkDeployer(3).deploy(NB_PEERS);
+    }
+
+    @After
+    public void tearDown() {
+        P2PStructuredProperties.DEPLOYMENT_INJECTION_THREADS.setValue(P2PStructuredProperties.DEPLOYMENT_INJECTION_THREADS.getDefaultValue());
+        P2PStructuredProperties.DEPLOYMENT_INJECTION_RETRY_ATTEMPTS.setValue(P2PStructuredProperties.DEPLOYMENT_INJECTION_RETRY_ATTEMPTS.getDefaultValue());
+        P2PStructuredProperties.DEPLOYMENT_INJECTION_RETRY_MIN.setValue(P2PStructuredProperties.DEPLOYMENT_INJECTION_RETRY_MIN.getDefaultValue());
+        P2PStructuredProperties.DEPLOYMENT_INJECTION_RETRY_MAX.setValue(P2PStructuredProperties.DEPLOYMENT_INJECTION_RETRY_MAX.getDefaultValue());
+    }
+
+    /*
+     * Handles a join as the tracker would do by delegating to the peer. The
+     * first peer injected creates the network and is never rejected.
+     */
+    private void join(Peer peer) {
+        AtomicInteger rejections = this.rejectionsLeft.get(peer);
+
+        if (this.peersInjected.isEmpty() && rejections.get() > 0) {
+            rejections.set(0);
+        }
+
+        if (rejections.getAndDecrement() > 0) {
+            this.nbRejections.incrementAndGet();
+            throw new ConcurrentJoinException();
+        }
+
+        Assert.assertTrue("Peer injected twice", this.peersInjected.add(peer));
+    }
+
+    private final class MockNetworkDeployer extends NetworkDeployer {
+
+        private static final long serialVersionUID = 160L;
+
+        private final int nbRejectionsPerPeer;
+
+        public MockNetworkDeployer(int nbRejectionsPerPeer) {
+            super(new DeploymentDescriptor(null));
+
+            this.nbRejectionsPerPeer = nbRejectionsPerPeer;
+
+            super.register(new NetworkDeployerInjectionListener() {
+                @Override
+                public void deploymentStarted() {
+                }
+
+                @Override
+                public void deployingTrackers() {
+                }
+
+                @Override
+                public void trackersDeployed() {
+                }
+
+                @Override
+                public void injectingPeers() {
+                }
+
+                @Override
+                public void peerInjected(int peerIndex, long injectionTime) {
+                    NetworkDeployerTest.this.peerIndexesNotified.add(peerIndex);
+                }
+
+                @Override
+                public void peersInjected() {
+                }
+
+                @Override
+                public void deploymentEnded() {
+                }
+
+                @Override
+                public void undeploymentStarted() {
+                }
+
+                @Override
+                public void undeploymentEnded() {
+                }
+            });
+        }
+
+        @Override
+        protected Peer createPeer() {
+            Peer peer =
+                    (Peer) Proxy.newProxyInstance(
+                            Peer.class.getClassLoader(),
+                            new Class<?>[] {Peer.class},
+                            new IdentityInvocationHandler());
+
+            NetworkDeployerTest.this.rejectionsLeft.put(
+                    peer, new AtomicInteger(this.nbRejectionsPerPeer));
+
+            return peer;
+        }
+
+        @Override
+        protected Tracker createTracker(String networkName) {
+            return (Tracker) Proxy.newProxyInstance(
+                    Tracker.class.getClassLoader(),
+                    new Class<?>[] {Tracker.class},
+                    new IdentityInvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method,
+                                             Object[] args) {
+                            if (method.getName().equals("inject")) {
+                                NetworkDeployerTest.this.join((Peer) args[0]);
+                                return null;
+                            }
+
+                            return super.invoke(proxy, method, args);
+                        }
+                    });
+        }
+
+    }
+
+    private static class IdentityInvocationHandler implements
+            InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getName().equals("equals")) {
+                return proxy == args[0];
+            }
+
+            if (method.getName().equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+
+            if (method.getName().equals("toString")) {
+                return "mock" + System.identityHashCode(proxy);
+            }
+
+            return null;
+        }
+
+    }
+
+}
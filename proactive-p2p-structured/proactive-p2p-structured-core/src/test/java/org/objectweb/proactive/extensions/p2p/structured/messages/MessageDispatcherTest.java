@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package org.objectweb.proactive.extensions.p2p.structured.messages;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.proactive.core.UniqueID;
+import org.objectweb.proactive.extensions.p2p.structured.configuration.P2PStructuredProperties;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.Peer;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.PeerInternal;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.StructuredOverlay;
+import org.objectweb.proactive.extensions.p2p.structured.providers.ResponseProvider;
+import org.objectweb.proactive.extensions.p2p.structured.router.Router;
+import org.objectweb.proactive.extensions.p2p.structured.validator.ConstraintsValidator;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Test cases associated to the asynchronous dispatches performed by
+ * {@link MessageDispatcher}.
+ * 
+ * @author lpellegr
+ */
+public class MessageDispatcherTest {
+
+    private MessageDispatcher dispatcher;
+
+    private Request<?> routedRequest;
+
+    private boolean routingFailure;
+
+    private Peer peer;
+
+    @Before
+    public void setUp() {
+        this.dispatcher =
+                new MessageDispatcher(
+                        new UniqueID(), null, new MockFinalResponseReceiver());
+
+        this.peer =
+                (Peer) Proxy.newProxyInstance(
+                        Peer.class.getClassLoader(), new Class<?>[] {
+                                Peer.class, PeerInternal.class},
+                        new InvocationHandler() {
+                            @Override
+                            public Object invoke(Object proxy, Method method,
+                                                 Object[] args) {
+                                if (method.getName().equals("route")) {
+                                    if (MessageDispatcherTest.this.routingFailure) {
+                                        throw new IllegalStateException(
+                                                "Peer not reachable");
+                                    }
+
+                                    MessageDispatcherTest.this.routedRequest =
+                                            (Request<?>) args[0];
+                                }
+
+                                return null;
+                            }
+                        });
+    }
+
+    @Test
+    public void testDispatchAsync() throws Exception {
+        ListenableFuture<Response<?>> future =
+                this.dispatcher.dispatchAsync(new MockRequest(), this.peer);
+
+        Assert.assertFalse(future.isDone());
+        Assert.assertEquals(1, this.dispatcher.getNbPendingRequests());
+
+        MockResponse response = new MockResponse();
+        this.dispatcher.push(new FinalResponse(
+                this.routedRequest.getId(), response));
+
+        Assert.assertSame(response, future.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(0, this.dispatcher.getNbPendingRequests());
+    }
+
+    @Test
+    public void testDispatchAsyncTimeout() throws Exception {
+        P2PStructuredProperties.PROXY_ASYNC_REQUEST_TIMEOUT.setValue(100);
+
+        ListenableFuture<Response<?>> future =
+                this.dispatcher.dispatchAsync(new MockRequest(), this.peer);
+
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            Assert.fail("Future completed without any final response");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+
+        Assert.assertEquals(0, this.dispatcher.getNbPendingRequests());
+
+        // the final response received too late is discarded
+        this.dispatcher.push(new FinalResponse(
+                this.routedRequest.getId(), new MockResponse()));
+    }
+
+    @Test
+    public void testDispatchAsyncCancelled() {
+        ListenableFuture<Response<?>> future =
+                this.dispatcher.dispatchAsync(new MockRequest(), this.peer);
+
+        Assert.assertTrue(future.cancel(false));
+        Assert.assertEquals(0, this.dispatcher.getNbPendingRequests());
+    }
+
+    @Test
+    public void testDispatchAsyncRoutingFailure() {
+        this.routingFailure = true;
+
+        try {
+            this.dispatcher.dispatchAsync(new MockRequest(), this.peer);
+            Assert.fail("Routing failure not propagated");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        Assert.assertEquals(0, this.dispatcher.getNbPendingRequests());
+    }
+
+    @Test(expected = CancellationException.class)
+    public void testDispatchAsyncCancelledGet() throws Exception {
+        ListenableFuture<Response<?>> future =
+                this.dispatcher.dispatchAsync(new MockRequest(), this.peer);
+
+        future.cancel(false);
+        future.get();
+    }
+
+    @After
+    public void tearDown() {
+        P2PStructuredProperties.PROXY_ASYNC_REQUEST_TIMEOUT.setValue(P2PStructuredProperties.PROXY_ASYNC_REQUEST_TIMEOUT.getDefaultValue());
+    }
+
+    private static class MockFinalResponseReceiver implements
+            FinalResponseReceiver, Serializable {
+
+        private static final long serialVersionUID = 160L;
+
+        @Override
+        public void receive(FinalResponse response) {
+        }
+
+    }
+
+    private static class MockRequest extends Request<String> {
+
+        private static final long serialVersionUID = 160L;
+
+        public MockRequest() {
+            super(new ConstraintsValidator<String>("key") {
+                private static final long serialVersionUID = 160L;
+
+                @Override
+                public boolean validatesKeyConstraints(StructuredOverlay overlay) {
+                    return true;
+                }
+            }, new ResponseProvider<MockResponse, String>() {
+                private static final long serialVersionUID = 160L;
+
+                @Override
+                public MockResponse get() {
+                    return new MockResponse();
+                }
+            });
+        }
+
+        @Override
+        public Router<? extends Message<String>, String> getRouter() {
+            return null;
+        }
+
+    }
+
+    private static class MockResponse extends Response<String> {
+
+        private static final long serialVersionUID = 160L;
+
+        @Override
+        public Router<? extends Message<String>, String> getRouter() {
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package org.objectweb.proactive.extensions.p2p.structured.multiactivity;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases associated to {@link AdaptiveThreadLimitController}.
+ * 
+ * @author lpellegr
+ */
+public class AdaptiveThreadLimitControllerTest {
+
+    @Test
+    public void testLimitIncreasedWhenQueueWaitDominates() {
+        // 8 threads busy, 20 requests queued: wait time exceeds service time
+        Assert.assertEquals(
+                10, AdaptiveThreadLimitController.computeLimit(
+                        8, 1, 32, 100, 20, 8));
+    }
+
+    @Test
+    public void testLimitIncreasedWhenNoRequestServed() {
+        Assert.assertEquals(
+                2, AdaptiveThreadLimitController.computeLimit(
+                        1, 1, 32, 0, 5, 1));
+    }
+
+    @Test
+    public void testLimitKeptWhenServiceTimeDominates() {
+        Assert.assertEquals(
+                8, AdaptiveThreadLimitController.computeLimit(
+                        8, 1, 32, 100, 2, 8));
+    }
+
+    @Test
+    public void testLimitKeptWhenThreadsNotSaturated() {
+        Assert.assertEquals(
+                8, AdaptiveThreadLimitController.computeLimit(
+                        8, 1, 32, 100, 20, 5));
+    }
+
+    @Test
+    public void testLimitDecreasedWhenIdle() {
+        Assert.assertEquals(
+                7, AdaptiveThreadLimitController.computeLimit(
+                        8, 1, 32, 10, 0, 2));
+    }
+
+    @Test
+    public void testLimitBounded() {
+        Assert.assertEquals(
+                32, AdaptiveThreadLimitController.computeLimit(
+                        30, 1, 32, 100, 200, 30));
+        Assert.assertEquals(
+                4, AdaptiveThreadLimitController.computeLimit(
+                        4, 4, 32, 0, 0, 0));
+    }
+
+}
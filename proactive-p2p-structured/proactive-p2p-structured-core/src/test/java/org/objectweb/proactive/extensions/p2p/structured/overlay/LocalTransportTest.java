@@ -0,0 +1,329 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package org.objectweb.proactive.extensions.p2p.structured.overlay;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.proactive.Body;
+import org.objectweb.proactive.core.body.request.Request;
+import org.objectweb.proactive.extensions.p2p.structured.configuration.P2PStructuredProperties;
+import org.objectweb.proactive.extensions.p2p.structured.messages.Message;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.PeerTest.CanMockOverlay;
+import org.objectweb.proactive.extensions.p2p.structured.router.Router;
+import org.objectweb.proactive.extensions.p2p.structured.validator.ConstraintsValidator;
+
+/**
+ * Test cases associated to {@link LocalTransport}. The destination peer is
+ * simulated by a body which records the requests put in its queue and by a
+ * stub which records the invocations that fall back to the regular path.
+ * 
+ * @author lpellegr
+ */
+public class LocalTransportTest {
+
+    private CanMockOverlay overlay;
+
+    private List<Request> queuedRequests;
+
+    private List<Message<?>> stubInvocations;
+
+    private LocalTransport.Endpoint endpoint;
+
+    @Before
+    public void setUp() {
+        P2PStructuredProperties.LOCAL_TRANSPORT_ENABLED.setValue(true);
+
+        this.queuedRequests =
+                Collections.synchronizedList(new ArrayList<Request>());
+        this.stubInvocations =
+                Collections.synchronizedList(new ArrayList<Message<?>>());
+
+        this.overlay = new CanMockOverlay();
+        this.overlay.stub =
+                (Peer) Proxy.newProxyInstance(
+                        Peer.class.getClassLoader(), new Class<?>[] {
+                                Peer.class, PeerInternal.class},
+                        new InvocationHandler() {
+                            @Override
+                            public Object invoke(Object proxy, Method method,
+                                                 Object[] args) {
+                                if (method.getName().equals("forward")
+                                        || method.getName().equals("route")) {
+                                    LocalTransportTest.this.stubInvocations.add((Message<?>) args[0]);
+                                }
+
+                                return null;
+                            }
+                        });
+    }
+
+    @Test
+    public void testDelivery() {
+        this.register();
+
+        MockMessage msg = new MockMessage(0);
+
+        LocalTransport.forward(this.overlay.getId(), this.overlay.getStub(), msg);
+        LocalTransport.route(this.overlay, msg);
+
+        Assert.assertTrue(this.stubInvocations.isEmpty());
+        Assert.assertEquals(2, this.queuedRequests.size());
+        Assert.assertEquals(2, this.endpoint.getNbPendingMessages());
+
+        Request forwardRequest = this.queuedRequests.get(0);
+        Request routeRequest = this.queuedRequests.get(1);
+
+        Assert.assertEquals("forward", forwardRequest.getMethodName());
+        Assert.assertEquals("route", routeRequest.getMethodName());
+        Assert.assertTrue(forwardRequest.isOneWayRequest());
+
+        // a copy of the message is delivered
+        Assert.assertNotSame(msg, forwardRequest.getParameter(0));
+        Assert.assertNotSame(msg, routeRequest.getParameter(0));
+
+        this.serve(forwardRequest);
+        this.serve(routeRequest);
+
+        Assert.assertEquals(0, this.endpoint.getNbPendingMessages());
+    }
+
+    @Test
+    public void testDeliveryToUnknownPeer() {
+        MockMessage msg = new MockMessage(0);
+
+        LocalTransport.forward(
+                new OverlayId(), this.overlay.getStub(), msg);
+
+        Assert.assertTrue(this.queuedRequests.isEmpty());
+        Assert.assertEquals(1, this.stubInvocations.size());
+        Assert.assertSame(msg, this.stubInvocations.get(0));
+    }
+
+    @Test
+    public void testOrdering() {
+        this.register();
+
+        int nbMessages = 100;
+
+        for (int i = 0; i < nbMessages; i++) {
+            LocalTransport.forward(
+                    this.overlay.getId(), this.overlay.getStub(),
+                    new MockMessage(i));
+        }
+
+        Assert.assertEquals(nbMessages, this.queuedRequests.size());
+
+        for (int i = 0; i < nbMessages; i++) {
+            Assert.assertEquals(
+                    i,
+                    ((MockMessage) this.queuedRequests.get(i).getParameter(0)).sequence);
+        }
+    }
+
+    @Test
+    public void testBackPressure() {
+        P2PStructuredProperties.LOCAL_TRANSPORT_QUEUE_CAPACITY.setValue(2);
+        P2PStructuredProperties.LOCAL_TRANSPORT_OFFER_TIMEOUT.setValue(10);
+
+        this.register();
+
+        for (int i = 0; i < 3; i++) {
+            LocalTransport.forward(
+                    this.overlay.getId(), this.overlay.getStub(),
+                    new MockMessage(i));
+        }
+
+        // the third message does not fit in the queue
+        Assert.assertEquals(2, this.queuedRequests.size());
+        Assert.assertEquals(1, this.stubInvocations.size());
+        Assert.assertEquals(
+                2, ((MockMessage) this.stubInvocations.get(0)).sequence);
+
+        this.serve(this.queuedRequests.get(0));
+
+        LocalTransport.forward(
+                this.overlay.getId(), this.overlay.getStub(),
+                new MockMessage(3));
+
+        Assert.assertEquals(3, this.queuedRequests.size());
+        Assert.assertEquals(1, this.stubInvocations.size());
+    }
+
+    @Test
+    public void testBlockedSenderResumedWhenSlotFreed()
+            throws InterruptedException {
+        P2PStructuredProperties.LOCAL_TRANSPORT_QUEUE_CAPACITY.setValue(1);
+        P2PStructuredProperties.LOCAL_TRANSPORT_OFFER_TIMEOUT.setValue(60000);
+
+        this.register();
+
+        LocalTransport.forward(
+                this.overlay.getId(), this.overlay.getStub(),
+                new MockMessage(0));
+
+        Thread sender = this.forwardInBackground(new MockMessage(1));
+
+        this.serve(this.queuedRequests.get(0));
+
+        sender.join(10000);
+
+        Assert.assertFalse(sender.isAlive());
+        Assert.assertEquals(2, this.queuedRequests.size());
+        Assert.assertTrue(this.stubInvocations.isEmpty());
+    }
+
+    @Test
+    public void testShutdown() throws InterruptedException {
+        P2PStructuredProperties.LOCAL_TRANSPORT_QUEUE_CAPACITY.setValue(1);
+        P2PStructuredProperties.LOCAL_TRANSPORT_OFFER_TIMEOUT.setValue(60000);
+
+        this.register();
+
+        LocalTransport.forward(
+                this.overlay.getId(), this.overlay.getStub(),
+                new MockMessage(0));
+
+        Thread sender = this.forwardInBackground(new MockMessage(1));
+
+        LocalTransport.unregister(this.overlay, this.endpoint);
+
+        // the sender waiting for a free slot falls back to the stub
+        sender.join(10000);
+
+        Assert.assertFalse(sender.isAlive());
+        Assert.assertEquals(0, this.endpoint.getNbPendingMessages());
+
+        LocalTransport.forward(
+                this.overlay.getId(), this.overlay.getStub(),
+                new MockMessage(2));
+
+        Assert.assertEquals(1, this.queuedRequests.size());
+        Assert.assertEquals(2, this.stubInvocations.size());
+    }
+
+    @After
+    public void tearDown() {
+        if (this.endpoint != null) {
+            LocalTransport.unregister(this.overlay, this.endpoint);
+        }
+
+        P2PStructuredProperties.LOCAL_TRANSPORT_ENABLED.setValue(P2PStructuredProperties.LOCAL_TRANSPORT_ENABLED.getDefaultValue());
+        P2PStructuredProperties.LOCAL_TRANSPORT_QUEUE_CAPACITY.setValue(P2PStructuredProperties.LOCAL_TRANSPORT_QUEUE_CAPACITY.getDefaultValue());
+        P2PStructuredProperties.LOCAL_TRANSPORT_OFFER_TIMEOUT.setValue(P2PStructuredProperties.LOCAL_TRANSPORT_OFFER_TIMEOUT.getDefaultValue());
+    }
+
+    private void register() {
+        this.endpoint =
+                LocalTransport.register(
+                        this.overlay,
+                        (Body) Proxy.newProxyInstance(
+                                Body.class.getClassLoader(),
+                                new Class<?>[] {Body.class},
+                                new InvocationHandler() {
+                                    @Override
+                                    public Object invoke(Object proxy,
+                                                         Method method,
+                                                         Object[] args) {
+                                        if (method.getName().equals(
+                                                "receiveRequest")) {
+                                            LocalTransportTest.this.queuedRequests.add((Request) args[0]);
+                                            return 0;
+                                        }
+
+                                        if (method.getReturnType() == long.class) {
+                                            return 0L;
+                                        }
+
+                                        if (method.getReturnType() == int.class) {
+                                            return 0;
+                                        }
+
+                                        if (method.getReturnType() == boolean.class) {
+                                            return false;
+                                        }
+
+                                        return null;
+                                    }
+                                }));
+    }
+
+    /*
+     * Simulates the multi-active service of the destination peer which
+     * selects the request for execution.
+     */
+    private void serve(Request request) {
+        this.endpoint.dequeued((Message<?>) request.getParameter(0));
+    }
+
+    private Thread forwardInBackground(final Message<?> msg)
+            throws InterruptedException {
+        Thread sender = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                LocalTransport.forward(
+                        LocalTransportTest.this.overlay.getId(),
+                        LocalTransportTest.this.overlay.getStub(), msg);
+            }
+        });
+        sender.start();
+
+        // waits for the sender to block on the full queue
+        while (sender.getState() != Thread.State.TIMED_WAITING
+                && sender.isAlive()) {
+            Thread.sleep(10);
+        }
+
+        return sender;
+    }
+
+    private static class MockMessage extends
+            org.objectweb.proactive.extensions.p2p.structured.messages.Request<String> {
+
+        private static final long serialVersionUID = 160L;
+
+        private final int sequence;
+
+        public MockMessage(int sequence) {
+            super(new ConstraintsValidator<String>("key") {
+                private static final long serialVersionUID = 160L;
+
+                @Override
+                public boolean validatesKeyConstraints(StructuredOverlay overlay) {
+                    return true;
+                }
+            });
+
+            this.sequence = sequence;
+        }
+
+        @Override
+        public Router<? extends Message<String>, String> getRouter() {
+            return null;
+        }
+
+    }
+
+}
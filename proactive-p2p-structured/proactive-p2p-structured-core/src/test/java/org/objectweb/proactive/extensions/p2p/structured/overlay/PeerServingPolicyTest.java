@@ -0,0 +1,279 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package org.objectweb.proactive.extensions.p2p.structured.overlay;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.proactive.core.body.request.Request;
+import org.objectweb.proactive.extensions.p2p.structured.overlay.PeerServingPolicy.RequestClass;
+import org.objectweb.proactive.multiactivity.compatibility.StatefulCompatibilityMap;
+
+/**
+ * Test cases associated to {@link PeerServingPolicy}. Scheduling passes are
+ * simulated on a queue where routing requests are compatible with each other
+ * whereas maintenance requests are not compatible with any other request.
+ * 
+ * @author lpellegr
+ */
+public class PeerServingPolicyTest {
+
+    @Test
+    public void testWeightsAppliedInQueueOrder() {
+        PeerServingPolicy policy = new PeerServingPolicy();
+
+        Request p1 = newRequest("publish");
+        Request p2 = newRequest("publish");
+        Request p3 = newRequest("publish");
+        Request q1 = newRequest("dispatch");
+        Request q2 = newRequest("dispatch");
+        Request q3 = newRequest("dispatch");
+
+        List<Request> queue =
+                new ArrayList<Request>(Arrays.asList(p1, p2, p3, q1, q2, q3));
+
+        // one publication and two queries are selected, the publications
+        // deferred keep their position in front of the queue
+        Assert.assertEquals(
+                Arrays.asList(p1, q1, q2), runSchedulingPass(policy, queue));
+        Assert.assertEquals(Arrays.asList(p2, p3, q3), queue);
+
+        Assert.assertEquals(
+                Arrays.asList(p2, q3), runSchedulingPass(policy, queue));
+        Assert.assertEquals(Arrays.asList(p3), queue);
+
+        // no other class is waiting, a new round starts
+        Assert.assertEquals(Arrays.asList(p3), runSchedulingPass(policy, queue));
+        Assert.assertTrue(queue.isEmpty());
+
+        Assert.assertEquals(3, policy.getNbRequestsServed(RequestClass.PUBLISH));
+        Assert.assertEquals(3, policy.getNbRequestsServed(RequestClass.QUERY));
+    }
+
+    @Test
+    public void testNewRoundWhenNoOtherClassWaiting() {
+        PeerServingPolicy policy = new PeerServingPolicy();
+
+        Request q1 = newRequest("dispatch");
+        Request q2 = newRequest("dispatch");
+        Request q3 = newRequest("dispatch");
+        Request p1 = newRequest("publish");
+
+        List<Request> queue =
+                new ArrayList<Request>(Arrays.asList(q1, q2, q3, p1));
+
+        Assert.assertEquals(
+                Arrays.asList(q1, q2, p1), runSchedulingPass(policy, queue));
+        Assert.assertEquals(Arrays.asList(q3), queue);
+
+        Assert.assertEquals(Arrays.asList(q3), runSchedulingPass(policy, queue));
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testMaintenanceOvertakesQueuedRequests() {
+        PeerServingPolicy policy = new PeerServingPolicy();
+
+        Request p1 = newRequest("publish");
+        Request p2 = newRequest("publish");
+        Request q1 = newRequest("dispatch");
+        Request join = newRequest("join");
+
+        List<Request> queue =
+                new ArrayList<Request>(Arrays.asList(p1, p2, q1, join));
+
+        // the join request is not compatible with the requests queued in
+        // front of it but it is selected first and alone
+        Assert.assertEquals(
+                Arrays.asList(join), runSchedulingPass(policy, queue));
+        Assert.assertEquals(Arrays.asList(p1, p2, q1), queue);
+
+        Assert.assertEquals(1, policy.getQueueLength(RequestClass.MAINTENANCE));
+        Assert.assertEquals(2, policy.getQueueLength(RequestClass.PUBLISH));
+        Assert.assertEquals(1, policy.getQueueLength(RequestClass.QUERY));
+        Assert.assertEquals(0, policy.getQueueLength(RequestClass.CONTROL));
+
+        Assert.assertEquals(
+                Arrays.asList(p1, q1), runSchedulingPass(policy, queue));
+        Assert.assertEquals(Arrays.asList(p2), queue);
+
+        Assert.assertEquals(
+                1, policy.getNbRequestsServed(RequestClass.MAINTENANCE));
+        Assert.assertEquals(1, policy.getNbRequestsServed(RequestClass.PUBLISH));
+        Assert.assertEquals(1, policy.getNbRequestsServed(RequestClass.QUERY));
+        Assert.assertEquals(3, policy.getNbRequestsServed());
+    }
+
+    @Test
+    public void testMaintenanceWaitsForExecutingRequests() {
+        PeerServingPolicy policy = new PeerServingPolicy();
+
+        Request p1 = newRequest("publish");
+        Request join = newRequest("join");
+        Request q1 = newRequest("dispatch");
+
+        List<Request> queue =
+                new ArrayList<Request>(Arrays.asList(p1, join, q1));
+
+        // no request is started while the join request waits for the
+        // publication under execution
+        Assert.assertTrue(runSchedulingPass(
+                policy, queue, newRequest("publish")).isEmpty());
+        Assert.assertEquals(Arrays.asList(p1, join, q1), queue);
+
+        Assert.assertEquals(
+                Arrays.asList(join), runSchedulingPass(policy, queue));
+        Assert.assertEquals(
+                Arrays.asList(p1, q1), runSchedulingPass(policy, queue));
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testMaintenanceServedInQueueOrder() {
+        PeerServingPolicy policy = new PeerServingPolicy();
+
+        Request p1 = newRequest("publish");
+        Request join = newRequest("join");
+        Request leave = newRequest("leave");
+
+        List<Request> queue =
+                new ArrayList<Request>(Arrays.asList(p1, join, leave));
+
+        Assert.assertEquals(
+                Arrays.asList(join), runSchedulingPass(policy, queue));
+        Assert.assertEquals(
+                Arrays.asList(leave), runSchedulingPass(policy, queue));
+        Assert.assertEquals(Arrays.asList(p1), runSchedulingPass(policy, queue));
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    /*
+     * Runs a scheduling pass as the multi-active service does and returns the
+     * requests selected for execution in the order they have been selected.
+     */
+    private static List<Request> runSchedulingPass(PeerServingPolicy policy,
+                                                   List<Request> queue,
+                                                   Request... executingRequests) {
+        StatefulCompatibilityMap compatibility =
+                newCompatibilityMap(
+                        queue, new HashSet<Request>(
+                                Arrays.asList(executingRequests)));
+
+        List<Request> runnableRequests = new ArrayList<Request>();
+
+        for (int i = 0; i < queue.size(); i++) {
+            i = policy.runPolicyOnRequest(i, compatibility, runnableRequests);
+        }
+
+        return runnableRequests;
+    }
+
+    private static boolean isMaintenance(Request request) {
+        return request.getMethodName().equals("join")
+                || request.getMethodName().equals("leave");
+    }
+
+    private static boolean areCompatible(Request r1, Request r2) {
+        return !isMaintenance(r1) && !isMaintenance(r2);
+    }
+
+    private static boolean isCompatibleWithRequests(Request request,
+                                                    Collection<Request> requests) {
+        for (Request r : requests) {
+            if (!areCompatible(request, r)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static StatefulCompatibilityMap newCompatibilityMap(final List<Request> queue,
+                                                                final Set<Request> executingRequests) {
+        return (StatefulCompatibilityMap) Proxy.newProxyInstance(
+                StatefulCompatibilityMap.class.getClassLoader(),
+                new Class<?>[] {StatefulCompatibilityMap.class},
+                new InvocationHandler() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Object invoke(Object proxy, Method method,
+                                         Object[] args) {
+                        if (method.getName().equals("getQueueContents")) {
+                            return queue;
+                        }
+
+                        if (method.getName().equals("getExecutingRequests")) {
+                            return executingRequests;
+                        }
+
+                        if (method.getName().equals(
+                                "isCompatibleWithExecuting")) {
+                            return isCompatibleWithRequests(
+                                    (Request) args[0], executingRequests);
+                        }
+
+                        if (method.getName().equals(
+                                "isCompatibleWithRequests")) {
+                            return isCompatibleWithRequests(
+                                    (Request) args[0],
+                                    (Collection<Request>) args[1]);
+                        }
+
+                        throw new UnsupportedOperationException(
+                                method.getName());
+                    }
+                });
+    }
+
+    private static Request newRequest(final String methodName) {
+        return (Request) Proxy.newProxyInstance(
+                Request.class.getClassLoader(), new Class<?>[] {Request.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method,
+                                         Object[] args) {
+                        if (method.getName().equals("getMethodName")) {
+                            return methodName;
+                        }
+
+                        if (method.getName().equals("equals")) {
+                            return proxy == args[0];
+                        }
+
+                        if (method.getName().equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        }
+
+                        if (method.getName().equals("toString")) {
+                            return methodName;
+                        }
+
+                        return null;
+                    }
+                });
+    }
+
+}
@@ -37,6 +37,28 @@ public interface Category {
 
     double getValue(int index);
 
+    /**
+     * Returns the value below which the specified percentage of the non
+     * discarded values fall.
+     * 
+     * @param percentile
+     *            the percentile, between 0 and 100.
+     * 
+     * @return the value at the given percentile.
+     */
+    long getValueAtPercentile(double percentile);
+
+    long getMax();
+
+    /**
+     * Returns the histogram of the non discarded values reported. It can be
+     * merged with the histograms of other categories or printed as a
+     * percentile distribution.
+     * 
+     * @return the histogram of the non discarded values reported.
+     */
+    LatencyHistogram getHistogram();
+
     void reportValue(long value);
 
 }
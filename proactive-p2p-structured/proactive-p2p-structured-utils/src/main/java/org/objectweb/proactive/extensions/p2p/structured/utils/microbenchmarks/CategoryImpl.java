@@ -33,9 +33,12 @@ public class CategoryImpl implements Category {
 
     private int discardFirstRuns;
 
+    private LatencyHistogram histogram;
+
     public CategoryImpl(int nbEntries, int discardFirstRuns) {
         this.values = new double[nbEntries + discardFirstRuns];
         this.discardFirstRuns = discardFirstRuns;
+        this.histogram = new LatencyHistogram();
     }
 
     /**
@@ -87,12 +90,41 @@ public class CategoryImpl implements Category {
         return this.values[index];
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getValueAtPercentile(double percentile) {
+        return this.histogram.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMax() {
+        return this.histogram.getMaxValue();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LatencyHistogram getHistogram() {
+        return this.histogram;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void reportValue(long value) {
         this.values[this.index] = value;
+
+        if (this.index >= this.discardFirstRuns && value >= 0) {
+            this.histogram.recordValue(value);
+        }
+
         this.index++;
     }
 
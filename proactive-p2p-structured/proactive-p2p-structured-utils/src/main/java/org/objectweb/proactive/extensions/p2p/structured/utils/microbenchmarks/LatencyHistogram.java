@@ -0,0 +1,483 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package org.objectweb.proactive.extensions.p2p.structured.utils.microbenchmarks;
+
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A histogram recording positive values (typically latencies) with a fixed
+ * number of significant decimal digits over a high dynamic range. Values are
+ * grouped into buckets whose size doubles with the magnitude of the values
+ * (log-linear layout) so that the memory used depends on the range of the
+ * values recorded and not on the number of values recorded. Histograms created
+ * with the same number of significant digits can be merged, which allows to
+ * aggregate measurements made by several publishers or subscribers.
+ * <p>
+ * The layout and the percentile distribution output format are the ones used
+ * by HdrHistogram, so that outputs can be compared or plotted with the same
+ * tools.
+ * <p>
+ * Instances are not thread-safe, callers have to synchronize concurrent
+ * recordings.
+ * 
+ * @author lpellegr
+ */
+public class LatencyHistogram implements Serializable {
+
+    private static final long serialVersionUID = 160L;
+
+    public static final int DEFAULT_SIGNIFICANT_DIGITS = 3;
+
+    private final int significantDigits;
+
+    private final int subBucketHalfCountMagnitude;
+
+    private final int subBucketHalfCount;
+
+    private final int subBucketCount;
+
+    private final long subBucketMask;
+
+    // grown on demand up to the index of the highest value recorded
+    private long[] counts;
+
+    private long totalCount;
+
+    private long sum;
+
+    private long minValue;
+
+    private long maxValue;
+
+    /**
+     * Creates a new histogram with {@link #DEFAULT_SIGNIFICANT_DIGITS}
+     * significant decimal digits.
+     */
+    public LatencyHistogram() {
+        this(DEFAULT_SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * Creates a new histogram.
+     * 
+     * @param significantDigits
+     *            the number of significant decimal digits to maintain for the
+     *            values recorded. It must be between 0 and 5.
+     */
+    public LatencyHistogram(int significantDigits) {
+        if (significantDigits < 0 || significantDigits > 5) {
+            throw new IllegalArgumentException(
+                    "Invalid number of significant digits: "
+                            + significantDigits);
+        }
+
+        this.significantDigits = significantDigits;
+
+        long largestValueWithSingleUnitResolution =
+                2 * (long) Math.pow(10, significantDigits);
+        int subBucketCountMagnitude =
+                (int) Math.ceil(Math.log(largestValueWithSingleUnitResolution)
+                        / Math.log(2));
+
+        this.subBucketHalfCountMagnitude =
+                Math.max(subBucketCountMagnitude, 1) - 1;
+        this.subBucketCount = 1 << (this.subBucketHalfCountMagnitude + 1);
+        this.subBucketHalfCount = this.subBucketCount / 2;
+        this.subBucketMask = this.subBucketCount - 1;
+
+        this.counts = new long[this.subBucketCount];
+        this.reset();
+    }
+
+    private LatencyHistogram(LatencyHistogram histogram) {
+        this.significantDigits = histogram.significantDigits;
+        this.subBucketHalfCountMagnitude =
+                histogram.subBucketHalfCountMagnitude;
+        this.subBucketHalfCount = histogram.subBucketHalfCount;
+        this.subBucketCount = histogram.subBucketCount;
+        this.subBucketMask = histogram.subBucketMask;
+        this.counts = histogram.counts.clone();
+        this.totalCount = histogram.totalCount;
+        this.sum = histogram.sum;
+        this.minValue = histogram.minValue;
+        this.maxValue = histogram.maxValue;
+    }
+
+    /**
+     * Records the specified value.
+     * 
+     * @param value
+     *            the value to record.
+     * 
+     * @throws IllegalArgumentException
+     *             if the value is negative.
+     */
+    public void recordValue(long value) {
+        this.recordValue(value, 1);
+    }
+
+    /**
+     * Records the specified value {@code count} times.
+     * 
+     * @param value
+     *            the value to record.
+     * @param count
+     *            the number of occurrences to record.
+     * 
+     * @throws IllegalArgumentException
+     *             if the value or the count is negative.
+     */
+    public void recordValue(long value, long count) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+
+        if (count < 0) {
+            throw new IllegalArgumentException("Negative count: " + count);
+        }
+
+        int index = this.countsIndex(value);
+
+        if (index >= this.counts.length) {
+            this.counts = Arrays.copyOf(this.counts, index + 1);
+        }
+
+        this.counts[index] += count;
+        this.totalCount += count;
+        this.sum += value * count;
+
+        if (count > 0) {
+            this.minValue = Math.min(this.minValue, value);
+            this.maxValue = Math.max(this.maxValue, value);
+        }
+    }
+
+    /**
+     * Adds the values recorded by the specified histogram to this histogram.
+     * 
+     * @param histogram
+     *            the histogram to merge into this one.
+     * 
+     * @throws IllegalArgumentException
+     *             if the histograms do not maintain the same number of
+     *             significant digits.
+     */
+    public void add(LatencyHistogram histogram) {
+        if (histogram.significantDigits != this.significantDigits) {
+            throw new IllegalArgumentException(
+                    "Cannot merge histograms with different significant digits: "
+                            + this.significantDigits + " and "
+                            + histogram.significantDigits);
+        }
+
+        if (histogram.counts.length > this.counts.length) {
+            this.counts = Arrays.copyOf(this.counts, histogram.counts.length);
+        }
+
+        for (int i = 0; i < histogram.counts.length; i++) {
+            this.counts[i] += histogram.counts[i];
+        }
+
+        this.totalCount += histogram.totalCount;
+        this.sum += histogram.sum;
+        this.minValue = Math.min(this.minValue, histogram.minValue);
+        this.maxValue = Math.max(this.maxValue, histogram.maxValue);
+    }
+
+    /**
+     * Removes all the values recorded.
+     */
+    public void reset() {
+        Arrays.fill(this.counts, 0);
+        this.totalCount = 0;
+        this.sum = 0;
+        this.minValue = Long.MAX_VALUE;
+        this.maxValue = 0;
+    }
+
+    /**
+     * Returns a deep copy of the histogram.
+     * 
+     * @return a deep copy of the histogram.
+     */
+    public LatencyHistogram copy() {
+        return new LatencyHistogram(this);
+    }
+
+    /**
+     * Returns the value below which the specified percentage of the values
+     * recorded fall. The value returned is the highest value that is
+     * equivalent to the value found, with respect to the precision of the
+     * histogram, and is never greater than {@link #getMaxValue()}.
+     * 
+     * @param percentile
+     *            the percentile, between 0 and 100.
+     * 
+     * @return the value at the given percentile or {@code 0} if no value has
+     *         been recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (this.totalCount == 0) {
+            return 0;
+        }
+
+        double requestedPercentile = Math.min(Math.max(percentile, 0), 100);
+        long countAtPercentile =
+                Math.max(
+                        1, (long) ((requestedPercentile / 100)
+                                * this.totalCount + 0.5));
+
+        long cumulativeCount = 0;
+
+        for (int i = 0; i < this.counts.length; i++) {
+            cumulativeCount += this.counts[i];
+
+            if (cumulativeCount >= countAtPercentile) {
+                return Math.min(
+                        this.highestEquivalentValue(this.valueFromIndex(i)),
+                        this.maxValue);
+            }
+        }
+
+        return this.maxValue;
+    }
+
+    public long getTotalCount() {
+        return this.totalCount;
+    }
+
+    public long getMinValue() {
+        return this.totalCount == 0
+                ? 0 : this.minValue;
+    }
+
+    public long getMaxValue() {
+        return this.maxValue;
+    }
+
+    public double getMean() {
+        return this.totalCount == 0
+                ? 0 : (double) this.sum / this.totalCount;
+    }
+
+    /**
+     * Returns the standard deviation of the values recorded. The deviation is
+     * computed from the middle of the bucket containing each value and is
+     * thus an approximation bounded by the precision of the histogram.
+     * 
+     * @return the standard deviation of the values recorded.
+     */
+    public double getStdDeviation() {
+        if (this.totalCount == 0) {
+            return 0;
+        }
+
+        double mean = this.getMean();
+        double geometricDeviationTotal = 0;
+
+        for (int i = 0; i < this.counts.length; i++) {
+            if (this.counts[i] > 0) {
+                double deviation =
+                        this.medianEquivalentValue(this.valueFromIndex(i))
+                                - mean;
+                geometricDeviationTotal +=
+                        deviation * deviation * this.counts[i];
+            }
+        }
+
+        return Math.sqrt(geometricDeviationTotal / this.totalCount);
+    }
+
+    public int getSignificantDigits() {
+        return this.significantDigits;
+    }
+
+    /**
+     * Prints the percentile distribution of the values recorded by using the
+     * HdrHistogram text format. Each line gives a value, the percentile it
+     * corresponds to, the number of values below or equal to this value and
+     * the {@code 1/(1-percentile)} ratio used as X axis by plotting tools.
+     * 
+     * @param output
+     *            the stream to print to.
+     * @param percentileTicksPerHalfDistance
+     *            the number of lines printed for each half of the distance to
+     *            the 100th percentile.
+     * @param outputValueUnitScalingRatio
+     *            the ratio by which values are divided before being printed
+     *            (e.g. {@code 1000.0} to print in milliseconds values recorded
+     *            in microseconds).
+     */
+    public void outputPercentileDistribution(PrintStream output,
+                                             int percentileTicksPerHalfDistance,
+                                             double outputValueUnitScalingRatio) {
+        output.print(this.toPercentileDistribution(
+                percentileTicksPerHalfDistance, outputValueUnitScalingRatio));
+    }
+
+    /**
+     * Returns the percentile distribution of the values recorded in the
+     * format described by
+     * {@link #outputPercentileDistribution(PrintStream, int, double)}.
+     */
+    public String toPercentileDistribution(int percentileTicksPerHalfDistance,
+                                           double outputValueUnitScalingRatio) {
+        if (percentileTicksPerHalfDistance < 1) {
+            throw new IllegalArgumentException(
+                    "Invalid number of percentile ticks per half distance: "
+                            + percentileTicksPerHalfDistance);
+        }
+
+        StringBuilder result = new StringBuilder();
+
+        String valueFormat = "%12." + this.significantDigits + "f";
+
+        result.append(String.format(
+                Locale.US, "%12s %14s %10s %14s%n%n", "Value", "Percentile",
+                "TotalCount", "1/(1-Percentile)"));
+
+        if (this.totalCount > 0) {
+            String lineFormat = valueFormat + " %2.12f %10d %14.2f%n";
+
+            double percentileToIterateTo = 0;
+            long cumulativeCount = 0;
+            int lastIndex = this.countsIndex(this.maxValue);
+
+            for (int i = 0; i < lastIndex; i++) {
+                if (this.counts[i] == 0) {
+                    continue;
+                }
+
+                cumulativeCount += this.counts[i];
+
+                double percentile = 100.0 * cumulativeCount / this.totalCount;
+                double value =
+                        this.highestEquivalentValue(this.valueFromIndex(i))
+                                / outputValueUnitScalingRatio;
+
+                while (percentile >= percentileToIterateTo) {
+                    result.append(String.format(
+                            Locale.US, lineFormat, value,
+                            percentileToIterateTo / 100, cumulativeCount,
+                            1 / (1 - percentileToIterateTo / 100)));
+
+                    percentileToIterateTo +=
+                            100 / this.percentileReportingTicks(
+                                    percentileToIterateTo,
+                                    percentileTicksPerHalfDistance);
+                }
+            }
+
+            double maxValue = this.maxValue / outputValueUnitScalingRatio;
+
+            if (percentileToIterateTo == 0) {
+                // all the values are in the last bucket
+                result.append(String.format(
+                        Locale.US, lineFormat, maxValue, 0.0, this.totalCount,
+                        1.0));
+            }
+
+            result.append(String.format(
+                    Locale.US, valueFormat + " %2.12f %10d%n", maxValue, 1.0,
+                    this.totalCount));
+        }
+
+        result.append(String.format(
+                Locale.US, "#[Mean    = " + valueFormat + ", StdDeviation   = "
+                        + valueFormat + "]%n", this.getMean()
+                        / outputValueUnitScalingRatio, this.getStdDeviation()
+                        / outputValueUnitScalingRatio));
+        result.append(String.format(
+                Locale.US, "#[Max     = " + valueFormat
+                        + ", Total count    = %12d]%n", this.maxValue
+                        / outputValueUnitScalingRatio, this.totalCount));
+        result.append(String.format(
+                Locale.US, "#[Buckets = %12d, SubBuckets     = %12d]%n",
+                this.counts.length / this.subBucketHalfCount,
+                this.subBucketCount));
+
+        return result.toString();
+    }
+
+    private double percentileReportingTicks(double percentile,
+                                            int percentileTicksPerHalfDistance) {
+        long halfDistance =
+                (long) Math.pow(2, (long) (Math.log(100 / (100 - percentile))
+                        / Math.log(2)) + 1);
+
+        return percentileTicksPerHalfDistance * halfDistance;
+    }
+
+    private int bucketIndex(long value) {
+        return 63 - this.subBucketHalfCountMagnitude
+                - Long.numberOfLeadingZeros(value | this.subBucketMask);
+    }
+
+    private int countsIndex(long value) {
+        int bucketIndex = this.bucketIndex(value);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+
+        return ((bucketIndex + 1) << this.subBucketHalfCountMagnitude)
+                + (subBucketIndex - this.subBucketHalfCount);
+    }
+
+    private long valueFromIndex(int index) {
+        int bucketIndex = (index >> this.subBucketHalfCountMagnitude) - 1;
+        int subBucketIndex =
+                (index & (this.subBucketHalfCount - 1))
+                        + this.subBucketHalfCount;
+
+        if (bucketIndex < 0) {
+            subBucketIndex -= this.subBucketHalfCount;
+            bucketIndex = 0;
+        }
+
+        return (long) subBucketIndex << bucketIndex;
+    }
+
+    private long lowestEquivalentValue(long value) {
+        int bucketIndex = this.bucketIndex(value);
+
+        return (value >>> bucketIndex) << bucketIndex;
+    }
+
+    private long highestEquivalentValue(long value) {
+        return this.lowestEquivalentValue(value)
+                + (1L << this.bucketIndex(value)) - 1;
+    }
+
+    private long medianEquivalentValue(long value) {
+        return this.lowestEquivalentValue(value)
+                + ((1L << this.bucketIndex(value)) >> 1);
+    }
+
+    /**
+     * Returns a summary of the distribution giving the usual percentiles.
+     */
+    @Override
+    public String toString() {
+        return "count=" + this.totalCount + ", mean="
+                + String.format(Locale.US, "%.3f", this.getMean()) + ", p50="
+                + this.getValueAtPercentile(50) + ", p99="
+                + this.getValueAtPercentile(99) + ", p99.9="
+                + this.getValueAtPercentile(99.9) + ", max=" + this.maxValue;
+    }
+
+}
@@ -32,4 +32,16 @@ public interface StatsRecorder {
 
     Collection<String> listCategoriesName();
 
+    /**
+     * Returns a histogram merging the values reported to all the categories
+     * whose name starts with the specified prefix (e.g. to aggregate the
+     * measurements made by several subscribers).
+     * 
+     * @param categoryNamePrefix
+     *            the prefix of the categories to merge.
+     * 
+     * @return a new histogram merging the values of the matching categories.
+     */
+    LatencyHistogram mergeHistograms(String categoryNamePrefix);
+
 }
@@ -86,4 +86,20 @@ public class StatsRecorderImpl implements StatsRecorder {
         return this.categories.keySet();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LatencyHistogram mergeHistograms(String categoryNamePrefix) {
+        LatencyHistogram result = new LatencyHistogram();
+
+        for (Map.Entry<String, Category> entry : this.categories.entrySet()) {
+            if (entry.getKey().startsWith(categoryNamePrefix)) {
+                result.add(entry.getValue().getHistogram());
+            }
+        }
+
+        return result;
+    }
+
 }
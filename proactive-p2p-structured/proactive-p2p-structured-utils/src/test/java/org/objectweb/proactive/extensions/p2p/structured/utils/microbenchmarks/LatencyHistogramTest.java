@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2011-2014 INRIA.
+ * 
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option) any
+ * later version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>
+ **/
+package org.objectweb.proactive.extensions.p2p.structured.utils.microbenchmarks;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases associated to {@link LatencyHistogram}.
+ * 
+ * @author lpellegr
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (int i = 1; i <= 10000; i++) {
+            histogram.recordValue(i);
+        }
+
+        Assert.assertEquals(10000, histogram.getTotalCount());
+        Assert.assertEquals(1, histogram.getMinValue());
+        Assert.assertEquals(10000, histogram.getMaxValue());
+        Assert.assertEquals(5000.5, histogram.getMean(), 0.001);
+
+        assertWithinPrecision(5000, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(9900, histogram.getValueAtPercentile(99));
+        assertWithinPrecision(9990, histogram.getValueAtPercentile(99.9));
+        Assert.assertEquals(10000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testTailNotHiddenByMean() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.recordValue(10, 990);
+        histogram.recordValue(5000, 10);
+
+        Assert.assertEquals(10, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(5000, histogram.getValueAtPercentile(99.5));
+        Assert.assertEquals(5000, histogram.getMaxValue());
+    }
+
+    @Test
+    public void testHighDynamicRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.recordValue(1);
+        histogram.recordValue(3600000000L);
+
+        Assert.assertEquals(1, histogram.getValueAtPercentile(50));
+        Assert.assertEquals(3600000000L, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testAdd() {
+        LatencyHistogram h1 = new LatencyHistogram();
+        LatencyHistogram h2 = new LatencyHistogram();
+
+        for (int i = 1; i <= 500; i++) {
+            h1.recordValue(i);
+            h2.recordValue(i + 500);
+        }
+
+        LatencyHistogram merged = h1.copy();
+        merged.add(h2);
+
+        Assert.assertEquals(1000, merged.getTotalCount());
+        Assert.assertEquals(1, merged.getMinValue());
+        Assert.assertEquals(1000, merged.getMaxValue());
+        Assert.assertEquals(500, merged.getValueAtPercentile(50));
+
+        // the copy is not affected
+        Assert.assertEquals(500, h1.getTotalCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddWithDifferentPrecision() {
+        new LatencyHistogram(2).add(new LatencyHistogram(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeValue() {
+        new LatencyHistogram().recordValue(-1);
+    }
+
+    @Test
+    public void testPercentileDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (int i = 1; i <= 100; i++) {
+            histogram.recordValue(i);
+        }
+
+        String[] lines = histogram.toPercentileDistribution(5, 1).split("\n");
+
+        Assert.assertTrue(lines[0].trim().startsWith("Value"));
+        Assert.assertTrue(lines[2].trim().startsWith("1.000 0.000000000000"));
+        Assert.assertTrue(lines[lines.length - 1].startsWith("#[Buckets"));
+        Assert.assertTrue(lines[lines.length - 3].startsWith("#[Mean"));
+        Assert.assertEquals(
+                "100.000 1.000000000000 100",
+                lines[lines.length - 4].trim().replaceAll(" +", " "));
+    }
+
+    @Test
+    public void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordValue(42);
+        histogram.reset();
+
+        Assert.assertEquals(0, histogram.getTotalCount());
+        Assert.assertEquals(0, histogram.getMaxValue());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        Assert.assertEquals(expected, actual, expected / 1000.0);
+    }
+
+}